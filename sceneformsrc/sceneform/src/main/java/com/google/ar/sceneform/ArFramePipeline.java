@@ -0,0 +1,198 @@
+package com.google.ar.sceneform;
+
+import android.opengl.EGLContext;
+import android.opengl.GLES30;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.annotation.Nullable;
+import android.util.Log;
+import android.view.Choreographer;
+import com.google.ar.core.Frame;
+import com.google.ar.core.HitResult;
+import com.google.ar.core.Plane;
+import com.google.ar.core.exceptions.CameraNotAvailableException;
+import com.google.ar.sceneform.rendering.GLHelper;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Acquires ARCore frames on a dedicated thread, one frame ahead of the render loop.
+ *
+ * <p>The acquisition thread updates the {@link ArFrameSource}, pre-processes the result into an
+ * immutable {@link ArFrameSnapshot} and publishes it. The render loop takes the snapshot at the
+ * beginning of a frame and requests the next one once it has finished rendering, so a frame is
+ * never updated while the main thread is still reading the previous one. When the frame source has
+ * no new camera image yet, the acquisition thread waits for the next display frame before asking
+ * again.
+ */
+class ArFramePipeline {
+  private static final String TAG = ArFramePipeline.class.getSimpleName();
+
+  private final ArFrameSource frameSource;
+  @Nullable private final EGLContext shareContext;
+  private final AtomicReference<ArFrameSnapshot> pendingSnapshot = new AtomicReference<>();
+  private final AtomicBoolean isAcquiring = new AtomicBoolean(false);
+  private final Runnable acquireRunnable = this::acquireFrame;
+  private final Choreographer.FrameCallback acquireFrameCallback = frameTimeNanos -> acquireFrame();
+
+  @Nullable private HandlerThread thread;
+  @Nullable private Handler handler;
+
+  // Only accessed on the acquisition thread.
+  @Nullable private Choreographer choreographer;
+  @Nullable private EGLContext glContext;
+  private long lastTimestamp = -1;
+
+  private volatile int viewWidth;
+  private volatile int viewHeight;
+
+  /**
+   * @param frameSource source of the frames to acquire
+   * @param shareContext GL context whose resources (the camera texture) must be visible to the
+   *     acquisition thread, or null if the frame source does not need a GL context
+   */
+  ArFramePipeline(ArFrameSource frameSource, @Nullable EGLContext shareContext) {
+    this.frameSource = frameSource;
+    this.shareContext = shareContext;
+  }
+
+  /** Starts the acquisition thread and begins acquiring the first frame. */
+  void start() {
+    if (thread != null) {
+      return;
+    }
+
+    HandlerThread thread = new HandlerThread("ArFramePipeline");
+    thread.start();
+    Handler handler = new Handler(thread.getLooper());
+    this.thread = thread;
+    this.handler = handler;
+
+    EGLContext shareContext = this.shareContext;
+    handler.post(
+        () -> {
+          // The choreographer of the acquisition thread, to wait for camera images on it.
+          choreographer = Choreographer.getInstance();
+          if (shareContext != null) {
+            glContext = GLHelper.makeContext(shareContext);
+          }
+        });
+    requestNextFrame();
+  }
+
+  /**
+   * Stops the acquisition thread and waits for it to exit. After this returns the frame source is
+   * no longer accessed.
+   */
+  void stop() {
+    HandlerThread thread = this.thread;
+    Handler handler = this.handler;
+    if (thread == null || handler == null) {
+      return;
+    }
+
+    handler.removeCallbacks(acquireRunnable);
+    handler.post(
+        () -> {
+          if (choreographer != null) {
+            choreographer.removeFrameCallback(acquireFrameCallback);
+            choreographer = null;
+          }
+          if (glContext != null) {
+            GLHelper.destroyContext(glContext);
+            glContext = null;
+          }
+        });
+    thread.quitSafely();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    this.thread = null;
+    this.handler = null;
+    pendingSnapshot.set(null);
+    isAcquiring.set(false);
+    lastTimestamp = -1;
+  }
+
+  /** Sets the size of the view, used to hit test the center of the view on each frame. */
+  void setViewSize(int width, int height) {
+    viewWidth = width;
+    viewHeight = height;
+  }
+
+  /**
+   * Takes the most recently acquired snapshot.
+   *
+   * @return the snapshot, or null if no new frame has been acquired since the last call
+   */
+  @Nullable
+  ArFrameSnapshot takeSnapshot() {
+    return pendingSnapshot.getAndSet(null);
+  }
+
+  /**
+   * Requests the acquisition of the next frame. Should be called once the main thread no longer
+   * needs the frame of the last snapshot taken.
+   */
+  void requestNextFrame() {
+    Handler handler = this.handler;
+    if (handler == null) {
+      return;
+    }
+
+    if (isAcquiring.compareAndSet(false, true)) {
+      handler.post(acquireRunnable);
+    }
+  }
+
+  private void acquireFrame() {
+    Frame frame;
+    try {
+      frame = frameSource.update();
+    } catch (CameraNotAvailableException | RuntimeException e) {
+      // For example the session was paused while the frame was acquired. Keep the thread alive and
+      // try again on the next display frame.
+      Log.w(TAG, "Exception updating ARCore session", e);
+      frame = null;
+    }
+
+    // No new camera image yet, ask again on the next display frame.
+    if (frame == null || frame.getTimestamp() == lastTimestamp) {
+      Choreographer choreographer = this.choreographer;
+      if (choreographer != null) {
+        choreographer.postFrameCallback(acquireFrameCallback);
+      }
+      return;
+    }
+
+    if (glContext != null) {
+      // Make sure the camera texture update is visible to the Filament context.
+      GLES30.glFlush();
+    }
+
+    lastTimestamp = frame.getTimestamp();
+    com.google.ar.core.Camera camera = frame.getCamera();
+
+    List<HitResult> centerHitResults = Collections.emptyList();
+    int width = viewWidth;
+    int height = viewHeight;
+    if (width > 0 && height > 0) {
+      centerHitResults = frame.hitTest(width / 2, height / 2);
+    }
+
+    pendingSnapshot.set(
+        new ArFrameSnapshot(
+            frame,
+            camera,
+            camera.getTrackingState(),
+            frame.getUpdatedTrackables(Plane.class),
+            frame.getLightEstimate(),
+            centerHitResults));
+    isAcquiring.set(false);
+  }
+}
@@ -0,0 +1,71 @@
+package com.google.ar.sceneform;
+
+import com.google.ar.core.Camera;
+import com.google.ar.core.Frame;
+import com.google.ar.core.HitResult;
+import com.google.ar.core.LightEstimate;
+import com.google.ar.core.Plane;
+import com.google.ar.core.TrackingState;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable result of acquiring and pre-processing a single ARCore frame.
+ *
+ * <p>Created by the {@link ArFramePipeline} on its acquisition thread and handed to the render loop
+ * on the main thread.
+ */
+final class ArFrameSnapshot {
+  private final Frame frame;
+  private final Camera camera;
+  private final TrackingState cameraTrackingState;
+  private final Collection<Plane> updatedPlanes;
+  private final LightEstimate lightEstimate;
+  private final List<HitResult> centerHitResults;
+
+  ArFrameSnapshot(
+      Frame frame,
+      Camera camera,
+      TrackingState cameraTrackingState,
+      Collection<Plane> updatedPlanes,
+      LightEstimate lightEstimate,
+      List<HitResult> centerHitResults) {
+    this.frame = frame;
+    this.camera = camera;
+    this.cameraTrackingState = cameraTrackingState;
+    this.updatedPlanes = Collections.unmodifiableCollection(updatedPlanes);
+    this.lightEstimate = lightEstimate;
+    this.centerHitResults = Collections.unmodifiableList(centerHitResults);
+  }
+
+  /** The ARCore frame this snapshot was built from. */
+  Frame getFrame() {
+    return frame;
+  }
+
+  /** The ARCore camera of the frame. */
+  Camera getCamera() {
+    return camera;
+  }
+
+  /** Tracking state of the ARCore camera when the frame was acquired. */
+  TrackingState getCameraTrackingState() {
+    return cameraTrackingState;
+  }
+
+  /** Planes that were updated in this frame. */
+  Collection<Plane> getUpdatedPlanes() {
+    return updatedPlanes;
+  }
+
+  /** Light estimate of this frame. */
+  LightEstimate getLightEstimate() {
+    return lightEstimate;
+  }
+
+  /** Results of hit testing the center of the view against this frame. */
+  List<HitResult> getCenterHitResults() {
+    return centerHitResults;
+  }
+}
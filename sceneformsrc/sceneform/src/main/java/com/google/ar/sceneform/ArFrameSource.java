@@ -0,0 +1,27 @@
+package com.google.ar.sceneform;
+
+import android.support.annotation.Nullable;
+import com.google.ar.core.Frame;
+import com.google.ar.core.exceptions.CameraNotAvailableException;
+
+/**
+ * Supplies ARCore frames to an {@link ArSceneView}.
+ *
+ * <p>By default frames come straight from {@link com.google.ar.core.Session#update()}. Providing a
+ * different source allows the frame pipeline to be driven by recorded or fake frames.
+ *
+ * @hide
+ */
+public interface ArFrameSource {
+  /**
+   * Acquires the latest frame.
+   *
+   * <p>When pipelined frame acquisition is enabled this is called from a dedicated background
+   * thread that has a GL context sharing resources with the Filament engine.
+   *
+   * @return the latest frame, or null if no frame is available
+   * @throws CameraNotAvailableException if the camera can not be accessed
+   */
+  @Nullable
+  Frame update() throws CameraNotAvailableException;
+}
@@ -25,6 +25,7 @@ import com.google.ar.core.exceptions.FatalException;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.CameraStream;
 import com.google.ar.sceneform.rendering.Color;
+import com.google.ar.sceneform.rendering.EngineInstance;
 import com.google.ar.sceneform.rendering.EnvironmentalHdrLightEstimate;
 import com.google.ar.sceneform.rendering.GLHelper;
 
@@ -61,9 +62,17 @@ public class ArSceneView extends SceneView {
   @Nullable private Config cachedConfig;
   private int minArCoreVersionCode;
 
+  // Set with setFrameSource, frames are acquired from the current session otherwise.
+  @Nullable private ArFrameSource frameSource;
+  private boolean isFramePipelineEnabled = false;
+  @Nullable private ArFramePipeline framePipeline;
+  private boolean isSceneResumed = false;
+  private boolean hasConsumedSnapshot = false;
+
   private Display display;
   private CameraStream cameraStream;
   private PlaneRenderer planeRenderer;
+  private boolean isPlaneRendererDisabledByQuality = false;
 
   private boolean lightEstimationEnabled = true;
   private boolean isLightDirectionUpdateEnabled = true;
@@ -154,6 +163,89 @@ public class ArSceneView extends SceneView {
   }
 
   
+  /**
+   * Replaces the source of ARCore frames. By default frames are acquired from the session passed to
+   * {@link #setupSession(Session)}, looked up whenever a frame is acquired.
+   *
+   * <p>Must be called while the view is paused.
+   *
+   * @hide Used to drive the frame pipeline with recorded or fake frames.
+   */
+  public void setFrameSource(ArFrameSource frameSource) {
+    Preconditions.checkState(!isSceneResumed, "The frame source can only be set while paused.");
+    this.frameSource =
+        Preconditions.checkNotNull(frameSource, "Parameter \"frameSource\" was null.");
+  }
+
+  /**
+   * Enables or disables pipelined frame acquisition.
+   *
+   * <p>When enabled, ARCore frames are acquired and pre-processed on a dedicated thread one frame
+   * ahead of the render loop instead of calling {@link Session#update()} on the UI thread. This
+   * hides the latency of the session update but means the rendered camera image may lag the
+   * latest available one by up to a frame.
+   *
+   * <p>The frame returned by {@link #getArFrame()} is only guaranteed to be valid while the scene
+   * is being updated when this mode is enabled.
+   *
+   * <p>The default is false.
+   */
+  public void setFramePipelineEnabled(boolean enabled) {
+    if (isFramePipelineEnabled == enabled) {
+      return;
+    }
+
+    isFramePipelineEnabled = enabled;
+    if (enabled) {
+      if (isSceneResumed) {
+        startFramePipeline();
+      }
+    } else {
+      stopFramePipeline();
+    }
+  }
+
+  /** Returns true if pipelined frame acquisition is enabled. */
+  public boolean isFramePipelineEnabled() {
+    return isFramePipelineEnabled;
+  }
+
+  private void startFramePipeline() {
+    ArFrameSource frameSource = getFrameSource();
+    if (framePipeline != null || frameSource == null) {
+      return;
+    }
+
+    ArFramePipeline framePipeline = new ArFramePipeline(frameSource, EngineInstance.getGlContext());
+    framePipeline.setViewSize(getWidth(), getHeight());
+    framePipeline.start();
+    this.framePipeline = framePipeline;
+  }
+
+  /**
+   * Returns the source set with {@link #setFrameSource(ArFrameSource)}, or else the current
+   * session, or null if there is neither.
+   */
+  @Nullable
+  private ArFrameSource getFrameSource() {
+    ArFrameSource frameSource = this.frameSource;
+    if (frameSource != null) {
+      return frameSource;
+    }
+
+    Session session = this.session;
+    return session != null ? session::update : null;
+  }
+
+  private void stopFramePipeline() {
+    ArFramePipeline framePipeline = this.framePipeline;
+    if (framePipeline != null) {
+      framePipeline.stop();
+      this.framePipeline = null;
+    }
+    hasConsumedSnapshot = false;
+  }
+
   private void initializeFacingDirection(Session session) {
     if (session.getCameraConfig().getFacingDirection() == FacingDirection.FRONT) {
       Renderer renderer = Preconditions.checkNotNull(getRenderer());
@@ -281,6 +373,11 @@ public class ArSceneView extends SceneView {
       // This exception should not be possible from here
       throw new IllegalStateException(ex);
     }
+
+    isSceneResumed = true;
+    if (isFramePipelineEnabled && session != null) {
+      startFramePipeline();
+    }
   }
 
   /**
@@ -294,6 +391,31 @@ public class ArSceneView extends SceneView {
     pauseSession();
   }
 
+  /**
+   * Not supported, an ArSceneView renders every camera frame. Enabling render on demand is
+   * ignored.
+   */
+  @Override
+  public void setRenderOnDemand(boolean renderOnDemand) {
+    if (renderOnDemand) {
+      Log.w(TAG, "Render on demand is ignored, ArSceneView renders every camera frame.");
+    }
+    super.setRenderOnDemand(false);
+  }
+
+  /**
+   * Required to exit Sceneform. Releases the camera stream before the renderer.
+   *
+   * <p>Typically called from onDestroy().
+   */
+  @Override
+  public void destroy() {
+    if (cameraStream != null) {
+      cameraStream.release();
+    }
+    super.destroy();
+  }
+
   /**
    * Non blocking call to pause the rendering thread and ARCore session.
    *
@@ -342,6 +464,9 @@ public class ArSceneView extends SceneView {
 
   /** Pause the scene without touching the session */
   private void pauseScene() {
+    // The pipeline must not update the session once it is paused.
+    isSceneResumed = false;
+    stopFramePipeline();
     super.pause();
   }
 
@@ -355,6 +480,11 @@ public class ArSceneView extends SceneView {
       int height = bottom - top;
       session.setDisplayGeometry(display.getRotation(), width, height);
     }
+
+    ArFramePipeline framePipeline = this.framePipeline;
+    if (framePipeline != null) {
+      framePipeline.setViewSize(right - left, bottom - top);
+    }
   }
 
   /**
@@ -402,6 +532,26 @@ public class ArSceneView extends SceneView {
     return planeRenderer;
   }
 
+  /** @hide */
+  @Override
+  protected void applyQualitySettings(QualityGovernor qualityGovernor) {
+    super.applyQualitySettings(qualityGovernor);
+
+    getScene().setHdrCubemapUpdateInterval(qualityGovernor.getHdrCubemapUpdateIntervalMillis());
+
+    // Only planes hidden by the governor are shown again, planes disabled by the application stay
+    // disabled.
+    if (!qualityGovernor.isPlaneRenderingEnabled()) {
+      if (planeRenderer.isEnabled()) {
+        planeRenderer.setEnabled(false);
+        isPlaneRendererDisabledByQuality = true;
+      }
+    } else if (isPlaneRendererDisabledByQuality) {
+      planeRenderer.setEnabled(true);
+      isPlaneRendererDisabledByQuality = false;
+    }
+  }
+
   /**
    * Before the render call occurs, update the ARCore session to grab the latest frame and update
    * listeners.
@@ -425,10 +575,17 @@ public class ArSceneView extends SceneView {
 
     ensureUpdateMode();
 
+    ArFramePipeline framePipeline = this.framePipeline;
+    if (framePipeline != null) {
+      return onBeginPipelinedFrame(framePipeline);
+    }
+
     // Before doing anything update the Frame from ARCore.
     boolean updated = true;
     try {
-      Frame frame = session.update();
+      ArFrameSource frameSource = this.frameSource;
+      Frame frame =
+          frameSource != null ? frameSource.update() : Preconditions.checkNotNull(session).update();
       // No frame, no drawing.
       if (frame == null) {
         return false;
@@ -470,7 +627,8 @@ public class ArSceneView extends SceneView {
       Frame frame = currentFrame;
       if (frame != null) {
         // Update the light estimate.
-        updateLightEstimate(frame);
+        updateLightEstimate(
+            frame.getLightEstimate(), currentArCamera, currentArCamera.getTrackingState());
         // Update the plane renderer.
         planeRenderer.update(frame, getWidth(), getHeight());
       }
@@ -479,24 +637,77 @@ public class ArSceneView extends SceneView {
     return updated;
   }
 
+  /**
+   * Begins a frame using the latest snapshot acquired by the frame pipeline.
+   *
+   * @return true if a new frame was obtained from the pipeline.
+   */
+  private boolean onBeginPipelinedFrame(ArFramePipeline framePipeline) {
+    ArFrameSnapshot snapshot = framePipeline.takeSnapshot();
+    // No new frame, no drawing.
+    if (snapshot == null) {
+      return false;
+    }
+    hasConsumedSnapshot = true;
+
+    Frame frame = snapshot.getFrame();
+
+    // Setup Camera Stream if needed.
+    if (!cameraStream.isTextureInitialized()) {
+      cameraStream.initializeTexture(frame);
+    }
+
+    // Recalculate camera Uvs if necessary.
+    if (shouldRecalculateCameraUvs(frame)) {
+      cameraStream.recalculateCameraUvs(frame);
+    }
+
+    currentFrame = frame;
+
+    // No camera, no drawing.
+    com.google.ar.core.Camera currentArCamera = snapshot.getCamera();
+    if (currentArCamera == null) {
+      getScene().setUseHdrLightEstimate(false);
+      return false;
+    }
+
+    getScene().getCamera().updateTrackedPose(currentArCamera);
+    updateLightEstimate(
+        snapshot.getLightEstimate(), currentArCamera, snapshot.getCameraTrackingState());
+    planeRenderer.update(frame, snapshot.getUpdatedPlanes(), snapshot.getCenterHitResults());
+
+    return true;
+  }
+
+  /** @hide */
+  @Override
+  protected void onEndFrame(long frameTimeNanos) {
+    // The snapshot's frame is no longer needed, start acquiring the next one.
+    ArFramePipeline framePipeline = this.framePipeline;
+    if (framePipeline != null && hasConsumedSnapshot) {
+      hasConsumedSnapshot = false;
+      framePipeline.requestNextFrame();
+    }
+  }
+
   private boolean shouldRecalculateCameraUvs(Frame frame) {
     return frame.hasDisplayGeometryChanged();
   }
 
   /** Get the AR light estimate from the frame and then update the scene. */
-  private void updateLightEstimate(Frame frame) {
+  private void updateLightEstimate(
+      LightEstimate estimate,
+      com.google.ar.core.Camera arCamera,
+      TrackingState cameraTrackingState) {
     // Just return if Light Estimation is disabled.
     if (!lightEstimationEnabled || getSession() == null) {
       return;
     }
 
     // Update the Light Probe with the new light estimate.
-    LightEstimate estimate = frame.getLightEstimate();
-
     if (isEnvironmentalHdrLightingAvailable()) {
-      if (frame.getCamera().getTrackingState() == TrackingState.TRACKING) {
-        updateHdrLightEstimate(
-            estimate, Preconditions.checkNotNull(getSession()), frame.getCamera());
+      if (cameraTrackingState == TrackingState.TRACKING) {
+        updateHdrLightEstimate(estimate, Preconditions.checkNotNull(getSession()), arCamera);
       }
     } else {
       updateNormalLightEstimate(estimate);
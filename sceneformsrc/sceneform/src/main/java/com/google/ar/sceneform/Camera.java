@@ -520,5 +520,10 @@ public class Camera extends Node implements CameraProvider {
     nearPlane = near;
     farPlane = far;
     areMatricesInitialized = true;
+
+    Scene scene = getScene();
+    if (scene != null) {
+      scene.requestRender();
+    }
   }
 }
@@ -6,6 +6,7 @@ import android.view.ViewConfiguration;
 
 import com.google.ar.sceneform.collision.Collider;
 import com.google.ar.sceneform.collision.CollisionShape;
+import com.google.ar.sceneform.collision.CollisionSystem;
 import com.google.ar.sceneform.collision.Ray;
 import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
@@ -128,6 +129,12 @@ public class Node extends NodeParent implements TransformProvider {
     }
   }
 
+  /** Collision layers of a new node: only the first layer. */
+  public static final int DEFAULT_COLLISION_LAYERS = Collider.DEFAULT_LAYERS;
+
+  /** Layer mask that includes every collision layer. */
+  public static final int ALL_COLLISION_LAYERS = CollisionSystem.ALL_LAYERS;
+
   private static final float DIRECTION_UP_EPSILON = 0.99f;
 
   // This is the default from the ViewConfiguration class.
@@ -163,6 +170,9 @@ public class Node extends NodeParent implements TransformProvider {
   // name hash for comparison
   private int nameHash = DEFAULT_NAME.hashCode();
 
+  // Position of the node in its bucket of the scene's name index, or -1 if it isn't indexed.
+  int nameIndexPosition = -1;
+
   /**
    * WARNING: Do not assign this property directly unless you know what you are doing. Instead, call
    * setParent. This field is only exposed in the package to be accessible to the class NodeParent.
@@ -209,6 +219,10 @@ public class Node extends NodeParent implements TransformProvider {
   // Collision fields.
   @Nullable private CollisionShape collisionShape;
   @Nullable private Collider collider;
+  private int collisionLayers = DEFAULT_COLLISION_LAYERS;
+
+  // Position of this node in the spatial index of the scene, if the scene has one.
+  @Nullable NodeSpatialIndex.Entry spatialIndexEntry;
 
   // Listeners.
   @Nullable private OnTouchListener onTouchListener;
@@ -239,8 +253,14 @@ public class Node extends NodeParent implements TransformProvider {
   public final void setName(String name) {
     Preconditions.checkNotNull(name, "Parameter \"name\" was null.");
 
+    if (scene != null) {
+      scene.nodeNameIndex.remove(this, this.name);
+    }
     this.name = name;
     nameHash = name.hashCode();
+    if (scene != null) {
+      scene.nodeNameIndex.add(this);
+    }
   }
 
   /** Returns the name of the node. The default value is "Node". */
@@ -512,9 +532,16 @@ public class Node extends NodeParent implements TransformProvider {
     if ((dirtyTransformFlags & flagsToMark) != flagsToMark) {
       dirtyTransformFlags |= flagsToMark;
 
-      if ((dirtyTransformFlags & WORLD_TRANSFORM_DIRTY) == WORLD_TRANSFORM_DIRTY
-          && collider != null) {
-        collider.markWorldShapeDirty();
+      if ((dirtyTransformFlags & WORLD_TRANSFORM_DIRTY) == WORLD_TRANSFORM_DIRTY) {
+        if (collider != null) {
+          collider.markWorldShapeDirty();
+        }
+        if (spatialIndexEntry != null) {
+          spatialIndexEntry.markDirty();
+        }
+        if (active && scene != null) {
+          scene.requestRender();
+        }
       }
 
       needsRecursion = true;
@@ -855,6 +882,9 @@ public class Node extends NodeParent implements TransformProvider {
       if (active) {
         renderableInstance.detachFromRenderer();
       }
+      // Nothing else references the instance, so its renderables are destroyed right away instead
+      // of after it is garbage collected.
+      renderableInstance.destroy();
       renderableInstance = null;
     }
 
@@ -925,6 +955,35 @@ public class Node extends NodeParent implements TransformProvider {
     return null;
   }
 
+  /**
+   * Sets the collision layers of this node, as a bitmask of up to 32 layers. Hit tests and overlap
+   * tests with a layer mask only find the nodes that belong to at least one of the layers in the
+   * mask. Put decorative nodes that should never take input in a layer of their own and leave it
+   * out of {@link Scene#setTouchLayerMask(int)}.
+   *
+   * @see Scene#hitTest(Ray, int)
+   * @see Scene#overlapTestAll(Node, int)
+   * @param collisionLayers the layers this node belongs to, {@link #DEFAULT_COLLISION_LAYERS} by
+   *     default. A node without layers is never found by hit tests or overlap tests.
+   */
+  public void setCollisionLayers(int collisionLayers) {
+    AndroidPreconditions.checkUiThread();
+
+    this.collisionLayers = collisionLayers;
+    if (collider != null) {
+      collider.setLayers(collisionLayers);
+    }
+  }
+
+  /**
+   * Gets the collision layers of this node.
+   *
+   * @see #setCollisionLayers(int)
+   */
+  public int getCollisionLayers() {
+    return collisionLayers;
+  }
+
   /**
    * Sets the {@link Light} to display. To use, first create a {@link Light} using {@link
    * Light.Builder}. Set the parameters you care about and then attach it to the node using this
@@ -1180,6 +1239,21 @@ public class Node extends NodeParent implements TransformProvider {
     return super.findInHierarchy(condition);
   }
 
+  @Override
+  @Nullable
+  final NodeNameIndex getNodeNameIndex() {
+    return scene != null ? scene.nodeNameIndex : null;
+  }
+
+  @Override
+  final void findAllByNameInHierarchy(String name, List<Node> results) {
+    if (name.equals(this.name)) {
+      results.add(this);
+    }
+
+    super.findAllByNameInHierarchy(name, results);
+  }
+
   @Override
   public String toString() {
     return name + "(" + super.toString() + ")";
@@ -1191,6 +1265,11 @@ public class Node extends NodeParent implements TransformProvider {
     return parent;
   }
 
+  /** Returns true if the world matrix needs to be recomputed before it is used. */
+  final boolean isWorldTransformDirty() {
+    return (dirtyTransformFlags & WORLD_TRANSFORM_DIRTY) == WORLD_TRANSFORM_DIRTY;
+  }
+
   @Nullable
   final Collider getCollider() {
     return collider;
@@ -1325,6 +1404,14 @@ public class Node extends NodeParent implements TransformProvider {
   }
 
   private void setSceneRecursivelyInternal(@Nullable Scene scene) {
+    if (this.scene != scene) {
+      if (this.scene != null) {
+        this.scene.nodeNameIndex.remove(this, name);
+      }
+      if (scene != null) {
+        scene.nodeNameIndex.add(this);
+      }
+    }
     this.scene = scene;
     for (Node node : getChildren()) {
       node.setSceneRecursively(scene);
@@ -1386,6 +1473,10 @@ public class Node extends NodeParent implements TransformProvider {
       collider.setAttachedCollisionSystem(scene.collisionSystem);
     }
 
+    if (scene != null) {
+      scene.addToSpatialIndex(this);
+    }
+
     onActivate();
 
     for (LifecycleListener lifecycleListener : lifecycleListeners) {
@@ -1417,6 +1508,11 @@ public class Node extends NodeParent implements TransformProvider {
       collider.setAttachedCollisionSystem(null);
     }
 
+    if (spatialIndexEntry != null) {
+      spatialIndexEntry.remove();
+      spatialIndexEntry = null;
+    }
+
     onDeactivate();
 
     for (LifecycleListener lifecycleListener : lifecycleListeners) {
@@ -1446,6 +1542,7 @@ public class Node extends NodeParent implements TransformProvider {
       // Create the collider if it doesn't already exist.
       if (collider == null) {
         collider = new Collider(this, finalCollisionShape);
+        collider.setLayers(collisionLayers);
 
         // Attach the collider to the collision system if the node is already active.
         if (active && scene != null) {
@@ -0,0 +1,176 @@
+package com.google.ar.sceneform;
+
+import android.support.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Map from names to the nodes of a scene with that name.
+ *
+ * <p>The index is updated when a node joins or leaves the scene and when it is renamed, so that
+ * finding a node by name costs a hash lookup instead of a traversal of the hierarchy. Nodes are
+ * added and removed in constant time, even when many of them share a name. Lookups don't allocate.
+ */
+class NodeNameIndex {
+  /** The nodes with one name, and the last node found first among them. */
+  private static final class Bucket {
+    private final ArrayList<Node> nodes = new ArrayList<>(1);
+
+    // The result of the last findFirst, valid while the version of the index is unchanged.
+    @Nullable private Node firstNode;
+    @Nullable private NodeParent firstRoot;
+    private int firstVersion;
+  }
+
+  private final HashMap<String, Bucket> bucketsByName = new HashMap<>();
+  // Changes whenever a node is added, removed or moved within the scene, which may change the
+  // order in which a depth first traversal visits the nodes.
+  private int version;
+
+  void add(Node node) {
+    String name = node.getName();
+    Bucket bucket = bucketsByName.get(name);
+    if (bucket == null) {
+      bucket = new Bucket();
+      bucketsByName.put(name, bucket);
+    }
+
+    node.nameIndexPosition = bucket.nodes.size();
+    bucket.nodes.add(node);
+    version++;
+  }
+
+  void remove(Node node, String name) {
+    Bucket bucket = bucketsByName.get(name);
+    int position = node.nameIndexPosition;
+    if (bucket == null || position < 0 || bucket.nodes.get(position) != node) {
+      return;
+    }
+
+    // Move the last node into the hole, so that removal doesn't depend on the size of the bucket.
+    ArrayList<Node> nodes = bucket.nodes;
+    Node last = nodes.remove(nodes.size() - 1);
+    if (last != node) {
+      nodes.set(position, last);
+      last.nameIndexPosition = position;
+    }
+    node.nameIndexPosition = -1;
+    version++;
+
+    if (nodes.isEmpty()) {
+      bucketsByName.remove(name);
+    } else if (bucket.firstNode == node || bucket.firstRoot == node) {
+      // Don't keep the removed node alive through the cached result.
+      bucket.firstNode = null;
+      bucket.firstRoot = null;
+    }
+  }
+
+  /** Called when the children of a node of the scene change. */
+  void onHierarchyChanged() {
+    version++;
+  }
+
+  /**
+   * Returns the node with the given name that is visited first by a depth first traversal of the
+   * root, or null if there is none. The result is kept until the scene changes, so repeated
+   * lookups only cost a hash lookup.
+   */
+  @Nullable
+  Node findFirst(String name, NodeParent root) {
+    Bucket bucket = bucketsByName.get(name);
+    if (bucket == null) {
+      return null;
+    }
+    if (bucket.firstRoot == root && bucket.firstVersion == version) {
+      return bucket.firstNode;
+    }
+
+    ArrayList<Node> nodes = bucket.nodes;
+    Node found = null;
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      if (isInHierarchy(node, root) && (found == null || isVisitedBefore(node, found))) {
+        found = node;
+      }
+    }
+
+    bucket.firstNode = found;
+    bucket.firstRoot = root;
+    bucket.firstVersion = version;
+    return found;
+  }
+
+  /** Adds every node with the given name in the hierarchy of the root to the results. */
+  void findAll(String name, NodeParent root, List<Node> results) {
+    Bucket bucket = bucketsByName.get(name);
+    if (bucket == null) {
+      return;
+    }
+
+    ArrayList<Node> nodes = bucket.nodes;
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      if (isInHierarchy(node, root)) {
+        results.add(node);
+      }
+    }
+  }
+
+  /** Returns true if the node is the root or one of its descendants. */
+  private static boolean isInHierarchy(Node node, NodeParent root) {
+    if (root instanceof Scene) {
+      return node.getScene() == root;
+    }
+
+    for (Node current = node; current != null; current = current.getParent()) {
+      if (current == root) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns true if a depth first traversal of the scene visits the first node first. */
+  private static boolean isVisitedBefore(Node first, Node second) {
+    Node firstAncestor = first;
+    Node secondAncestor = second;
+    int firstDepth = getDepth(first);
+    int secondDepth = getDepth(second);
+    for (; firstDepth > secondDepth; firstDepth--) {
+      firstAncestor = firstAncestor.getParent();
+    }
+    for (; secondDepth > firstDepth; secondDepth--) {
+      secondAncestor = secondAncestor.getParent();
+    }
+
+    // One node is an ancestor of the other, parents are visited before their children.
+    if (firstAncestor == secondAncestor) {
+      return firstAncestor == first && first != second;
+    }
+
+    while (firstAncestor.getNodeParent() != secondAncestor.getNodeParent()) {
+      firstAncestor = firstAncestor.getParent();
+      secondAncestor = secondAncestor.getParent();
+      if (firstAncestor == null || secondAncestor == null) {
+        return false;
+      }
+    }
+
+    NodeParent commonParent = firstAncestor.getNodeParent();
+    if (commonParent == null) {
+      return false;
+    }
+    List<Node> siblings = commonParent.getChildren();
+    return siblings.indexOf(firstAncestor) < siblings.indexOf(secondAncestor);
+  }
+
+  private static int getDepth(Node node) {
+    int depth = 0;
+    for (Node parent = node.getParent(); parent != null; parent = parent.getParent()) {
+      depth++;
+    }
+    return depth;
+  }
+}
@@ -126,9 +126,9 @@ public abstract class NodeParent {
   }
 
   /**
-   * Traverse the hierarchy to find the first node with a given name. Traversal is depth first. If
-   * this NodeParent is a Node, traversal starts with this NodeParent, otherwise traversal starts
-   * with its children.
+   * Finds the first node with a given name in the order of a depth first traversal. If this
+   * NodeParent is a Node, the search includes this NodeParent. Nodes that belong to a {@link Scene}
+   * are found through its name index without traversing the hierarchy.
    *
    * @param name The name of the node to find
    * @return the node if it's found, otherwise null
@@ -140,6 +140,11 @@ public abstract class NodeParent {
       return null;
     }
 
+    NodeNameIndex nodeNameIndex = getNodeNameIndex();
+    if (nodeNameIndex != null) {
+      return nodeNameIndex.findFirst(name, this);
+    }
+
     int hashToFind = name.hashCode();
     Node found =
         findInHierarchy(
@@ -152,6 +157,41 @@ public abstract class NodeParent {
     return found;
   }
 
+  /**
+   * Finds every node with a given name. If this NodeParent is a Node, the search includes this
+   * NodeParent. Nodes that belong to a {@link Scene} are found through its name index, in which
+   * case the search doesn't allocate unless the results list has to grow.
+   *
+   * @param name The name of the nodes to find
+   * @param results the list the nodes are added to, in no particular order
+   */
+  public void findAllByName(String name, List<Node> results) {
+    Preconditions.checkNotNull(results, "Parameter \"results\" was null.");
+    if (name == null || name.isEmpty()) {
+      return;
+    }
+
+    NodeNameIndex nodeNameIndex = getNodeNameIndex();
+    if (nodeNameIndex != null) {
+      nodeNameIndex.findAll(name, this, results);
+      return;
+    }
+
+    findAllByNameInHierarchy(name, results);
+  }
+
+  /** Returns the name index covering this hierarchy, or null if it doesn't belong to a scene. */
+  @Nullable
+  NodeNameIndex getNodeNameIndex() {
+    return null;
+  }
+
+  void findAllByNameInHierarchy(String name, List<Node> results) {
+    for (int i = 0; i < children.size(); i++) {
+      children.get(i).findAllByNameInHierarchy(name, results);
+    }
+  }
+
   protected boolean canAddChild(Node child, StringBuilder failureReason) {
     Preconditions.checkNotNull(child, "Parameter \"child\" was null.");
     Preconditions.checkNotNull(failureReason, "Parameter \"failureReason\" was null.");
@@ -177,6 +217,7 @@ public abstract class NodeParent {
     child.parent = this;
 
     isIterableChildrenDirty = true;
+    onChildrenChanged();
   }
 
   @CallSuper
@@ -187,6 +228,15 @@ public abstract class NodeParent {
     child.parent = null;
 
     isIterableChildrenDirty = true;
+    onChildrenChanged();
+  }
+
+  private void onChildrenChanged() {
+    // The order of a depth first traversal may have changed.
+    NodeNameIndex nodeNameIndex = getNodeNameIndex();
+    if (nodeNameIndex != null) {
+      nodeNameIndex.onHierarchyChanged();
+    }
   }
 
   private ArrayList<Node> getIterableChildren() {
@@ -0,0 +1,435 @@
+package com.google.ar.sceneform;
+
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.math.Vector3;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hashed grid of the world positions of the active nodes of a scene.
+ *
+ * <p>Nodes are only moved between cells when they are queried after a transform change, and the
+ * queries don't allocate once the grid and the caller's result list have grown to their working
+ * size.
+ */
+class NodeSpatialIndex {
+  /** Position of a node in the grid. */
+  static final class Entry {
+    private final NodeSpatialIndex index;
+    private final Node node;
+    private float x;
+    private float y;
+    private float z;
+    @Nullable private Cell cell;
+    private int indexInCell;
+    private boolean isDirty;
+
+    private Entry(NodeSpatialIndex index, Node node) {
+      this.index = index;
+      this.node = node;
+    }
+
+    /** Schedules the position of the node to be read again before the next query. */
+    void markDirty() {
+      if (!isDirty) {
+        isDirty = true;
+        index.dirtyEntries.add(this);
+      }
+    }
+
+    /** Removes the node from the index. */
+    void remove() {
+      removeFromCell(this);
+      if (isDirty) {
+        index.dirtyEntries.remove(this);
+        isDirty = false;
+      }
+      index.entryCount--;
+    }
+  }
+
+  private static final class Cell {
+    private final ArrayList<Entry> entries = new ArrayList<>();
+  }
+
+  private static final int INITIAL_CAPACITY = 256;
+  // Cell coordinates are packed into 21 bits each.
+  private static final int COORDINATE_BITS = 21;
+  private static final long COORDINATE_MASK = (1L << COORDINATE_BITS) - 1;
+  private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+  private final float cellSize;
+  private final float inverseCellSize;
+
+  // Open addressing hash map from packed cell coordinates to cells. Cells are never removed, the
+  // map only grows with the area the nodes visited.
+  private long[] keys;
+  private Cell[] cells;
+  private int cellCount;
+
+  private final ArrayList<Entry> dirtyEntries = new ArrayList<>();
+  private int entryCount;
+
+  // Scratch storage of the queries.
+  private final ArrayList<Cell> cellScratch = new ArrayList<>();
+  private Node[] nearestNodes = new Node[0];
+  private float[] nearestDistances = new float[0];
+
+  NodeSpatialIndex(float cellSize) {
+    this.cellSize = cellSize;
+    inverseCellSize = 1.0f / cellSize;
+    keys = new long[INITIAL_CAPACITY];
+    Arrays.fill(keys, EMPTY_KEY);
+    cells = new Cell[INITIAL_CAPACITY];
+  }
+
+  Entry add(Node node) {
+    Entry entry = new Entry(this, node);
+    entryCount++;
+    entry.markDirty();
+    return entry;
+  }
+
+  /** Adds the nodes within a distance of a point to the results, and returns how many it added. */
+  int findInRadius(Vector3 center, float radius, List<Node> results) {
+    update();
+
+    float radiusSquared = radius * radius;
+    int minX = toCell(center.x - radius);
+    int minY = toCell(center.y - radius);
+    int minZ = toCell(center.z - radius);
+    int maxX = toCell(center.x + radius);
+    int maxY = toCell(center.y + radius);
+    int maxZ = toCell(center.z + radius);
+
+    collectCells(minX, minY, minZ, maxX, maxY, maxZ);
+    int count = 0;
+    for (int c = 0; c < cellScratch.size(); c++) {
+      Cell cell = cellScratch.get(c);
+      for (int i = 0; i < cell.entries.size(); i++) {
+        Entry entry = cell.entries.get(i);
+        if (distanceSquared(entry, center) <= radiusSquared) {
+          results.add(entry.node);
+          count++;
+        }
+      }
+    }
+    cellScratch.clear();
+    return count;
+  }
+
+  /** Adds the nodes inside of a box to the results, and returns how many it added. */
+  int findInBox(Vector3 min, Vector3 max, List<Node> results) {
+    update();
+
+    collectCells(
+        toCell(min.x), toCell(min.y), toCell(min.z), toCell(max.x), toCell(max.y), toCell(max.z));
+    int count = 0;
+    for (int c = 0; c < cellScratch.size(); c++) {
+      Cell cell = cellScratch.get(c);
+      for (int i = 0; i < cell.entries.size(); i++) {
+        Entry entry = cell.entries.get(i);
+        if (entry.x >= min.x
+            && entry.x <= max.x
+            && entry.y >= min.y
+            && entry.y <= max.y
+            && entry.z >= min.z
+            && entry.z <= max.z) {
+          results.add(entry.node);
+          count++;
+        }
+      }
+    }
+    cellScratch.clear();
+    return count;
+  }
+
+  /**
+   * Adds up to {@code maxCount} nodes closest to a point to the results, nearest first, and
+   * returns how many it added.
+   */
+  int findNearest(Vector3 point, int maxCount, float maxDistance, List<Node> results) {
+    update();
+
+    if (maxCount <= 0) {
+      return 0;
+    }
+    if (nearestNodes.length < maxCount) {
+      nearestNodes = new Node[maxCount];
+      nearestDistances = new float[maxCount];
+    }
+
+    int centerX = toCell(point.x);
+    int centerY = toCell(point.y);
+    int centerZ = toCell(point.z);
+    float maxDistanceSquared = maxDistance * maxDistance;
+    int found = 0;
+    int visited = 0;
+
+    // Visit shells of cells around the point until the next shell is farther than the farthest
+    // node found, or every node was visited.
+    for (int ring = 0; visited < entryCount; ring++) {
+      float ringDistance = Math.max(ring - 1, 0) * cellSize;
+      if (ringDistance > maxDistance) {
+        break;
+      }
+      if (found == maxCount && ringDistance * ringDistance > nearestDistances[found - 1]) {
+        break;
+      }
+
+      // Once a shell has more cells than the grid, visit the remaining cells of the grid instead.
+      // The same goes for shells that reach past the int range of cell coordinates.
+      long shellCellCount = ring == 0 ? 1 : 24L * ring * ring + 2;
+      if (shellCellCount > cellCount
+          || !isShellInRange(centerX, ring)
+          || !isShellInRange(centerY, ring)
+          || !isShellInRange(centerZ, ring)) {
+        for (int slot = 0; slot < keys.length; slot++) {
+          long key = keys[slot];
+          if (key == EMPTY_KEY
+              || Math.max(
+                      Math.abs((long) unpack(key, COORDINATE_BITS * 2) - centerX),
+                      Math.max(
+                          Math.abs((long) unpack(key, COORDINATE_BITS) - centerY),
+                          Math.abs((long) unpack(key, 0) - centerZ)))
+                  < ring) {
+            continue;
+          }
+          found = findNearestInCell(cells[slot], point, maxDistanceSquared, found, maxCount);
+        }
+        break;
+      }
+
+      for (int cellX = centerX - ring; cellX <= centerX + ring; cellX++) {
+        for (int cellY = centerY - ring; cellY <= centerY + ring; cellY++) {
+          boolean isOnShell =
+              Math.abs(cellX - centerX) == ring || Math.abs(cellY - centerY) == ring;
+          // Inside the shell only the two faces along z are new.
+          int stepZ = isOnShell ? 1 : ring * 2;
+          for (int cellZ = centerZ - ring; cellZ <= centerZ + ring; cellZ += stepZ) {
+            Cell cell = getCell(cellX, cellY, cellZ);
+            if (cell != null) {
+              visited += cell.entries.size();
+              found = findNearestInCell(cell, point, maxDistanceSquared, found, maxCount);
+            }
+          }
+        }
+      }
+    }
+
+    for (int i = 0; i < found; i++) {
+      results.add(nearestNodes[i]);
+      nearestNodes[i] = null;
+    }
+    return found;
+  }
+
+  /** Fills the scratch list with the existing cells in a range of cell coordinates. */
+  private void collectCells(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+    // Coordinates clamped to the int range would overflow an int extent.
+    long sizeX = (long) maxX - minX + 1;
+    long sizeY = (long) maxY - minY + 1;
+    long sizeZ = (long) maxZ - minZ + 1;
+    if (sizeX <= 0 || sizeY <= 0 || sizeZ <= 0) {
+      return;
+    }
+
+    // Large ranges are cheaper to find by visiting every cell of the grid.
+    if (hasMoreCellsThanGrid(sizeX, sizeY, sizeZ)) {
+      for (int slot = 0; slot < keys.length; slot++) {
+        long key = keys[slot];
+        if (key == EMPTY_KEY) {
+          continue;
+        }
+
+        int cellX = unpack(key, COORDINATE_BITS * 2);
+        int cellY = unpack(key, COORDINATE_BITS);
+        int cellZ = unpack(key, 0);
+        if (cellX >= minX
+            && cellX <= maxX
+            && cellY >= minY
+            && cellY <= maxY
+            && cellZ >= minZ
+            && cellZ <= maxZ) {
+          cellScratch.add(cells[slot]);
+        }
+      }
+      return;
+    }
+
+    // Count the cells instead of comparing to the maximum, which may be Integer.MAX_VALUE.
+    for (int x = 0; x < sizeX; x++) {
+      for (int y = 0; y < sizeY; y++) {
+        for (int z = 0; z < sizeZ; z++) {
+          Cell cell = getCell(minX + x, minY + y, minZ + z);
+          if (cell != null) {
+            cellScratch.add(cell);
+          }
+        }
+      }
+    }
+  }
+
+  private static boolean isShellInRange(int center, int ring) {
+    return (long) center - ring >= Integer.MIN_VALUE && (long) center + ring <= Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns true if a range has more cells than the grid. Each product is only computed once its
+   * factors are known to be small enough not to overflow.
+   */
+  private boolean hasMoreCellsThanGrid(long sizeX, long sizeY, long sizeZ) {
+    if (sizeX > cellCount || sizeY > cellCount || sizeZ > cellCount) {
+      return true;
+    }
+    long areaXY = sizeX * sizeY;
+    return areaXY > cellCount || areaXY * sizeZ > cellCount;
+  }
+
+  private int findNearestInCell(
+      Cell cell, Vector3 point, float maxDistanceSquared, int found, int maxCount) {
+    for (int i = 0; i < cell.entries.size(); i++) {
+      Entry entry = cell.entries.get(i);
+      float distanceSquared = distanceSquared(entry, point);
+      if (distanceSquared <= maxDistanceSquared) {
+        found = insertNearest(entry.node, distanceSquared, found, maxCount);
+      }
+    }
+    return found;
+  }
+
+  /** Inserts a node into the sorted nearest nodes, and returns the new number of nodes. */
+  private int insertNearest(Node node, float distanceSquared, int found, int maxCount) {
+    if (found == maxCount && distanceSquared >= nearestDistances[found - 1]) {
+      return found;
+    }
+
+    int index = found == maxCount ? found - 1 : found;
+    while (index > 0 && nearestDistances[index - 1] > distanceSquared) {
+      nearestNodes[index] = nearestNodes[index - 1];
+      nearestDistances[index] = nearestDistances[index - 1];
+      index--;
+    }
+    nearestNodes[index] = node;
+    nearestDistances[index] = distanceSquared;
+    return Math.min(found + 1, maxCount);
+  }
+
+  /** Moves the nodes whose transform changed since the last query to their new cells. */
+  private void update() {
+    for (int i = 0; i < dirtyEntries.size(); i++) {
+      Entry entry = dirtyEntries.get(i);
+      entry.isDirty = false;
+
+      // Read the translation of the world matrix to avoid allocating a position.
+      float[] data = entry.node.getWorldModelMatrix().data;
+      entry.x = data[12];
+      entry.y = data[13];
+      entry.z = data[14];
+
+      Cell cell = getOrCreateCell(toCell(entry.x), toCell(entry.y), toCell(entry.z));
+      if (cell != entry.cell) {
+        removeFromCell(entry);
+        entry.cell = cell;
+        entry.indexInCell = cell.entries.size();
+        cell.entries.add(entry);
+      }
+    }
+    dirtyEntries.clear();
+  }
+
+  private static void removeFromCell(Entry entry) {
+    Cell cell = entry.cell;
+    if (cell == null) {
+      return;
+    }
+
+    Entry last = cell.entries.remove(cell.entries.size() - 1);
+    if (last != entry) {
+      cell.entries.set(entry.indexInCell, last);
+      last.indexInCell = entry.indexInCell;
+    }
+    entry.cell = null;
+  }
+
+  private int toCell(float coordinate) {
+    return (int) Math.floor(coordinate * inverseCellSize);
+  }
+
+  private static float distanceSquared(Entry entry, Vector3 point) {
+    float dx = entry.x - point.x;
+    float dy = entry.y - point.y;
+    float dz = entry.z - point.z;
+    return dx * dx + dy * dy + dz * dz;
+  }
+
+  private static long packKey(int cellX, int cellY, int cellZ) {
+    return ((cellX & COORDINATE_MASK) << (COORDINATE_BITS * 2))
+        | ((cellY & COORDINATE_MASK) << COORDINATE_BITS)
+        | (cellZ & COORDINATE_MASK);
+  }
+
+  /** Extracts one signed cell coordinate from a packed key. */
+  private static int unpack(long key, int shift) {
+    int value = (int) ((key >>> shift) & COORDINATE_MASK);
+    return (value << (Integer.SIZE - COORDINATE_BITS)) >> (Integer.SIZE - COORDINATE_BITS);
+  }
+
+  private static int hash(long key, int mask) {
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32)) & mask;
+  }
+
+  @Nullable
+  private Cell getCell(int cellX, int cellY, int cellZ) {
+    long key = packKey(cellX, cellY, cellZ);
+    int mask = keys.length - 1;
+    for (int slot = hash(key, mask); keys[slot] != EMPTY_KEY; slot = (slot + 1) & mask) {
+      if (keys[slot] == key) {
+        return cells[slot];
+      }
+    }
+    return null;
+  }
+
+  private Cell getOrCreateCell(int cellX, int cellY, int cellZ) {
+    Cell cell = getCell(cellX, cellY, cellZ);
+    if (cell != null) {
+      return cell;
+    }
+
+    // Keep the map at most half full.
+    if ((cellCount + 1) * 2 > keys.length) {
+      grow();
+    }
+
+    cell = new Cell();
+    insert(packKey(cellX, cellY, cellZ), cell);
+    cellCount++;
+    return cell;
+  }
+
+  private void insert(long key, Cell cell) {
+    int mask = keys.length - 1;
+    int slot = hash(key, mask);
+    while (keys[slot] != EMPTY_KEY) {
+      slot = (slot + 1) & mask;
+    }
+    keys[slot] = key;
+    cells[slot] = cell;
+  }
+
+  private void grow() {
+    long[] oldKeys = keys;
+    Cell[] oldCells = cells;
+    keys = new long[oldKeys.length * 2];
+    Arrays.fill(keys, EMPTY_KEY);
+    cells = new Cell[oldCells.length * 2];
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != EMPTY_KEY) {
+        insert(oldKeys[i], oldCells[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,308 @@
+package com.google.ar.sceneform;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.utilities.MovingAverage;
+
+/**
+ * Raises and lowers the rendering quality of a {@link SceneView} to hold a target frame time.
+ *
+ * <p>The governor measures the time between displayed frames and the time spent updating and
+ * rendering each frame. Quality is lowered one level as soon as frames are missed, and only raised
+ * again after several measurement windows with plenty of headroom, so that it does not oscillate
+ * between two levels. The device temperature caps the highest level the governor may select.
+ *
+ * <p>Each level trades a few settings at once. From the highest to the lowest level:
+ *
+ * <ul>
+ *   <li>{@link #QUALITY_HIGHEST}: at least 4x MSAA on top of the settings of the view.
+ *   <li>{@link #QUALITY_HIGH}: the settings the view had before the governor first changed them.
+ *   <li>{@link #QUALITY_MEDIUM}: lower resolution, coarser levels of detail and less frequent
+ *       environmental HDR reflection updates.
+ *   <li>{@link #QUALITY_LOW}: shadows are disabled and the resolution is lowered further.
+ *   <li>{@link #QUALITY_LOWEST}: AR planes are no longer drawn.
+ * </ul>
+ *
+ * <p>The governor is disabled by default. Use {@link #setMinimumQualityLevel(int)} to keep
+ * settings an application depends on, for example plane visualization.
+ */
+public class QualityGovernor {
+  public static final int QUALITY_LOWEST = 0;
+  public static final int QUALITY_LOW = 1;
+  public static final int QUALITY_MEDIUM = 2;
+  public static final int QUALITY_HIGH = 3;
+  public static final int QUALITY_HIGHEST = 4;
+
+  private static final float DEFAULT_TARGET_FRAME_TIME_MILLIS = 1000.0f / 60.0f;
+  // Number of frames averaged before each decision.
+  private static final int FRAMES_PER_WINDOW = 30;
+  // Frames slower than the target by this ratio are considered missed.
+  private static final float LOWER_QUALITY_RATIO = 1.15f;
+  // Quality is only raised when the frame work takes less than this ratio of the target...
+  private static final float RAISE_QUALITY_RATIO = 0.6f;
+  // ...for this many windows in a row.
+  private static final int WINDOWS_BEFORE_RAISE = 4;
+  private static final long THERMAL_POLL_INTERVAL_NANOS = 10_000_000_000L;
+  // Battery temperatures, in tenths of a degree Celsius, above which the quality is capped.
+  private static final int WARM_BATTERY_TEMPERATURE = 400;
+  private static final int HOT_BATTERY_TEMPERATURE = 430;
+  private static final double NANOSECONDS_TO_MILLISECONDS = 0.000001;
+
+  private static final int HIGHEST_SAMPLE_COUNT = 4;
+  // Dynamic resolution of the levels below QUALITY_HIGH, which keeps the options of the view.
+  private static final float[] DYNAMIC_RESOLUTION_MIN_SCALES = {0.25f, 0.35f, 0.4f};
+  private static final float[] DYNAMIC_RESOLUTION_MAX_SCALES = {0.5f, 0.7f, 0.85f};
+  private static final float[] LEVEL_OF_DETAIL_BIASES = {4.0f, 2.0f, 2.0f, 1.0f, 1.0f};
+  private static final long[] HDR_CUBEMAP_UPDATE_INTERVALS_MILLIS = {2000, 1000, 500, 200, 200};
+
+  private final Context context;
+  private boolean isEnabled = false;
+  private float targetFrameTimeMillis = DEFAULT_TARGET_FRAME_TIME_MILLIS;
+  private int minimumQualityLevel = QUALITY_LOWEST;
+  private int maximumQualityLevel = QUALITY_HIGHEST;
+  private int thermalQualityCap = QUALITY_HIGHEST;
+  private int qualityLevel = QUALITY_HIGH;
+
+  @Nullable private MovingAverage frameIntervalAverage;
+  @Nullable private MovingAverage frameWorkAverage;
+  private long lastFrameTimeNanos;
+  private long lastThermalPollNanos;
+  private int windowFrameCount;
+  private int headroomWindowCount;
+
+  QualityGovernor(Context context) {
+    this.context = context;
+  }
+
+  /**
+   * Enables or disables the governor. When disabled, the view goes back to the settings of {@link
+   * #QUALITY_HIGH}, which are the settings the view had before the governor changed them.
+   */
+  public void setEnabled(boolean enabled) {
+    if (isEnabled == enabled) {
+      return;
+    }
+
+    isEnabled = enabled;
+    qualityLevel = enabled ? clampQualityLevel(QUALITY_HIGH) : QUALITY_HIGH;
+    resetMeasurements();
+  }
+
+  /** Returns true if the governor adjusts the rendering quality. */
+  public boolean isEnabled() {
+    return isEnabled;
+  }
+
+  /**
+   * Sets the frame time the governor aims for. This is usually the refresh period of the display.
+   *
+   * @param targetFrameTimeMillis the target frame time in milliseconds, the default is 1000 / 60
+   */
+  public void setTargetFrameTime(float targetFrameTimeMillis) {
+    if (targetFrameTimeMillis <= 0.0f) {
+      throw new IllegalArgumentException("Target frame time must be positive.");
+    }
+
+    this.targetFrameTimeMillis = targetFrameTimeMillis;
+    resetMeasurements();
+  }
+
+  /** Returns the frame time the governor aims for, in milliseconds. */
+  public float getTargetFrameTime() {
+    return targetFrameTimeMillis;
+  }
+
+  /**
+   * Sets the lowest quality level the governor may select, even when the target frame time is not
+   * met or the device is hot.
+   *
+   * @param minimumQualityLevel one of the QUALITY constants, the default is {@link
+   *     #QUALITY_LOWEST}
+   */
+  public void setMinimumQualityLevel(int minimumQualityLevel) {
+    checkQualityLevel(minimumQualityLevel);
+    this.minimumQualityLevel = minimumQualityLevel;
+    maximumQualityLevel = Math.max(maximumQualityLevel, minimumQualityLevel);
+    qualityLevel = clampQualityLevel(qualityLevel);
+  }
+
+  /** Returns the lowest quality level the governor may select. */
+  public int getMinimumQualityLevel() {
+    return minimumQualityLevel;
+  }
+
+  /**
+   * Sets the highest quality level the governor may select.
+   *
+   * @param maximumQualityLevel one of the QUALITY constants, the default is {@link
+   *     #QUALITY_HIGHEST}
+   */
+  public void setMaximumQualityLevel(int maximumQualityLevel) {
+    checkQualityLevel(maximumQualityLevel);
+    this.maximumQualityLevel = maximumQualityLevel;
+    minimumQualityLevel = Math.min(minimumQualityLevel, maximumQualityLevel);
+    qualityLevel = clampQualityLevel(qualityLevel);
+  }
+
+  /** Returns the highest quality level the governor may select. */
+  public int getMaximumQualityLevel() {
+    return maximumQualityLevel;
+  }
+
+  /** Returns the quality level currently applied to the view. */
+  public int getQualityLevel() {
+    return qualityLevel;
+  }
+
+  /**
+   * Returns the MSAA sample count of the current quality level.
+   *
+   * @param viewSampleCount the sample count of the view before the governor changed it
+   */
+  int getSampleCount(int viewSampleCount) {
+    if (qualityLevel == QUALITY_HIGHEST) {
+      return Math.max(HIGHEST_SAMPLE_COUNT, viewSampleCount);
+    }
+    return qualityLevel == QUALITY_HIGH ? viewSampleCount : 1;
+  }
+
+  /**
+   * Returns true if the current quality level keeps the dynamic resolution options of the view.
+   * Otherwise the resolution is limited by {@link #getDynamicResolutionMinScale()} and {@link
+   * #getDynamicResolutionMaxScale()}.
+   */
+  boolean keepsViewResolution() {
+    return qualityLevel >= QUALITY_HIGH;
+  }
+
+  /** Returns the smallest dynamic resolution scale of the current quality level. */
+  float getDynamicResolutionMinScale() {
+    return DYNAMIC_RESOLUTION_MIN_SCALES[qualityLevel];
+  }
+
+  /** Returns the largest dynamic resolution scale of the current quality level. */
+  float getDynamicResolutionMaxScale() {
+    return DYNAMIC_RESOLUTION_MAX_SCALES[qualityLevel];
+  }
+
+  /** Returns true if renderables cast shadows at the current quality level. */
+  boolean areShadowsEnabled() {
+    return qualityLevel >= QUALITY_MEDIUM;
+  }
+
+  /** Returns how much smaller renderables are considered when selecting their level of detail. */
+  float getLevelOfDetailBias() {
+    return LEVEL_OF_DETAIL_BIASES[qualityLevel];
+  }
+
+  /** Returns true if AR planes are drawn at the current quality level. */
+  boolean isPlaneRenderingEnabled() {
+    return qualityLevel > QUALITY_LOWEST;
+  }
+
+  /** Returns the minimum time between environmental HDR reflection updates. */
+  long getHdrCubemapUpdateIntervalMillis() {
+    return HDR_CUBEMAP_UPDATE_INTERVALS_MILLIS[qualityLevel];
+  }
+
+  /**
+   * Measures a frame and selects the quality level of the next frames.
+   *
+   * @param frameTimeNanos the time of the frame given by the {@link android.view.Choreographer}
+   * @param frameWorkMillis the time spent updating and rendering the frame
+   */
+  void onFrame(long frameTimeNanos, double frameWorkMillis) {
+    if (!isEnabled) {
+      return;
+    }
+
+    long previousFrameTimeNanos = lastFrameTimeNanos;
+    lastFrameTimeNanos = frameTimeNanos;
+    if (previousFrameTimeNanos == 0) {
+      return;
+    }
+
+    double frameIntervalMillis =
+        (frameTimeNanos - previousFrameTimeNanos) * NANOSECONDS_TO_MILLISECONDS;
+    if (frameIntervalAverage == null || frameWorkAverage == null) {
+      frameIntervalAverage = new MovingAverage(frameIntervalMillis);
+      frameWorkAverage = new MovingAverage(frameWorkMillis);
+    } else {
+      frameIntervalAverage.addSample(frameIntervalMillis);
+      frameWorkAverage.addSample(frameWorkMillis);
+    }
+
+    if (++windowFrameCount < FRAMES_PER_WINDOW) {
+      return;
+    }
+    windowFrameCount = 0;
+
+    if (frameTimeNanos - lastThermalPollNanos > THERMAL_POLL_INTERVAL_NANOS) {
+      lastThermalPollNanos = frameTimeNanos;
+      thermalQualityCap = readThermalQualityCap();
+    }
+
+    int nextQualityLevel = qualityLevel;
+    if (frameIntervalAverage.getAverage() > targetFrameTimeMillis * LOWER_QUALITY_RATIO) {
+      headroomWindowCount = 0;
+      nextQualityLevel--;
+    } else if (frameWorkAverage.getAverage() < targetFrameTimeMillis * RAISE_QUALITY_RATIO) {
+      if (++headroomWindowCount >= WINDOWS_BEFORE_RAISE) {
+        headroomWindowCount = 0;
+        nextQualityLevel++;
+      }
+    } else {
+      headroomWindowCount = 0;
+    }
+
+    nextQualityLevel = clampQualityLevel(nextQualityLevel);
+    if (nextQualityLevel != qualityLevel) {
+      qualityLevel = nextQualityLevel;
+      // The measurements taken at the previous level no longer apply.
+      resetMeasurements();
+    }
+  }
+
+  private int clampQualityLevel(int level) {
+    int maximum = Math.max(minimumQualityLevel, Math.min(maximumQualityLevel, thermalQualityCap));
+    return Math.max(minimumQualityLevel, Math.min(maximum, level));
+  }
+
+  private void resetMeasurements() {
+    frameIntervalAverage = null;
+    frameWorkAverage = null;
+    lastFrameTimeNanos = 0;
+    windowFrameCount = 0;
+    headroomWindowCount = 0;
+  }
+
+  /**
+   * Reads the battery temperature, the only device temperature available on every supported API
+   * level, and returns the highest quality level suitable for it.
+   */
+  private int readThermalQualityCap() {
+    // ACTION_BATTERY_CHANGED is sticky, so this returns the last broadcast without registering.
+    Intent batteryStatus =
+        context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+    if (batteryStatus == null) {
+      return QUALITY_HIGHEST;
+    }
+
+    int temperature = batteryStatus.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0);
+    if (temperature >= HOT_BATTERY_TEMPERATURE) {
+      return QUALITY_LOW;
+    } else if (temperature >= WARM_BATTERY_TEMPERATURE) {
+      return QUALITY_MEDIUM;
+    }
+    return QUALITY_HIGHEST;
+  }
+
+  private static void checkQualityLevel(int level) {
+    if (level < QUALITY_LOWEST || level > QUALITY_HIGHEST) {
+      throw new IllegalArgumentException("Invalid quality level: " + level);
+    }
+  }
+}
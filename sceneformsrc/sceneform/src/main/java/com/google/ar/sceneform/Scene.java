@@ -9,6 +9,7 @@ import android.view.MotionEvent;
 import com.google.ar.sceneform.collision.Collider;
 import com.google.ar.sceneform.collision.CollisionSystem;
 import com.google.ar.sceneform.collision.Ray;
+import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.Color;
 import com.google.ar.sceneform.rendering.LightProbe;
 import com.google.ar.sceneform.rendering.Renderer;
@@ -17,6 +18,8 @@ import com.google.ar.sceneform.utilities.EnvironmentalHdrParameters;
 import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * The Sceneform Scene maintains the scene graph, a hierarchical organization of a scene's content.
@@ -83,6 +86,7 @@ public class Scene extends NodeParent {
   private static final String DEFAULT_LIGHTPROBE_ASSET_NAME = "small_empty_house_2k";
   private static final String DEFAULT_LIGHTPROBE_RESOURCE_NAME = "sceneform_default_light_probe";
   private static final float DEFAULT_EXPOSURE = 1.0f;
+  private static final float DEFAULT_SPATIAL_INDEX_CELL_SIZE = 0.5f;
   public static final EnvironmentalHdrParameters DEFAULT_HDR_PARAMETERS =
       EnvironmentalHdrParameters.makeDefault();
 
@@ -92,10 +96,17 @@ public class Scene extends NodeParent {
   @Nullable private LightProbe lightProbe;
   private boolean lightProbeSet = false;
   private boolean isUnderTesting = false;
+  private int touchLayerMask = Node.ALL_COLLISION_LAYERS;
+  private boolean isParallelTransformUpdateEnabled = false;
+  @Nullable private NodeSpatialIndex spatialIndex;
+  // Minimum time between environmental HDR reflection updates, negative to keep the light probe's.
+  private long hdrCubemapUpdateIntervalMillis = -1;
 
   // Systems.
   final CollisionSystem collisionSystem = new CollisionSystem();
+  final NodeNameIndex nodeNameIndex = new NodeNameIndex();
   private final TouchEventSystem touchEventSystem = new TouchEventSystem();
+  private final TransformUpdateSystem transformUpdateSystem = new TransformUpdateSystem();
 
   private final ArrayList<OnUpdateListener> onUpdateListeners = new ArrayList<>();
 
@@ -177,6 +188,13 @@ public class Scene extends NodeParent {
     return lightProbe;
   }
 
+  /** Asks the view to render a new frame, for views that only render on demand. */
+  void requestRender() {
+    if (view != null) {
+      view.requestRender();
+    }
+  }
+
   /**
    * Set a new Light Probe for the scene, this affects reflections and indirect lighting.
    *
@@ -268,6 +286,11 @@ public class Scene extends NodeParent {
     child.setSceneRecursively(null);
   }
 
+  @Override
+  NodeNameIndex getNodeNameIndex() {
+    return nodeNameIndex;
+  }
+
   /**
    * Tests to see if a motion event is touching any nodes within the scene, based on a ray hit test
    * whose origin is the screen position of the motion event, and outputs a HitTestResult containing
@@ -278,6 +301,20 @@ public class Scene extends NodeParent {
    *     information about where the motion event hit the node in world-space
    */
   public HitTestResult hitTest(MotionEvent motionEvent) {
+    return hitTest(motionEvent, Node.ALL_COLLISION_LAYERS);
+  }
+
+  /**
+   * Tests to see if a motion event is touching any nodes in the given collision layers, and
+   * outputs a HitTestResult containing the node closest to the screen.
+   *
+   * @see Node#setCollisionLayers(int)
+   * @param motionEvent the motion event to use for the test
+   * @param layerMask only nodes that belong to one of these layers are tested
+   * @return the result includes the first node that was hit by the motion event (may be null), and
+   *     information about where the motion event hit the node in world-space
+   */
+  public HitTestResult hitTest(MotionEvent motionEvent, int layerMask) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
 
     if (camera == null) {
@@ -285,7 +322,7 @@ public class Scene extends NodeParent {
     }
 
     Ray ray = camera.motionEventToRay(motionEvent);
-    return hitTest(ray);
+    return hitTest(ray, layerMask);
   }
 
   /**
@@ -298,10 +335,25 @@ public class Scene extends NodeParent {
    *     information about where the ray hit the node in world-space
    */
   public HitTestResult hitTest(Ray ray) {
+    return hitTest(ray, Node.ALL_COLLISION_LAYERS);
+  }
+
+  /**
+   * Tests to see if a ray is hitting any nodes in the given collision layers and outputs a
+   * HitTestResult containing the node closest to the ray origin that intersects with the ray.
+   * Nodes outside of the mask are skipped without testing their collision shapes.
+   *
+   * @see Node#setCollisionLayers(int)
+   * @param ray the ray to use for the test
+   * @param layerMask only nodes that belong to one of these layers are tested
+   * @return the result includes the first node that was hit by the ray (may be null), and
+   *     information about where the ray hit the node in world-space
+   */
+  public HitTestResult hitTest(Ray ray, int layerMask) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
 
     HitTestResult result = new HitTestResult();
-    Collider collider = collisionSystem.raycast(ray, result);
+    Collider collider = collisionSystem.raycast(ray, result, layerMask);
     if (collider != null) {
       result.setNode((Node) collider.getTransformProvider());
     }
@@ -318,13 +370,27 @@ public class Scene extends NodeParent {
    *     no nodes were hit.
    */
   public ArrayList<HitTestResult> hitTestAll(MotionEvent motionEvent) {
+    return hitTestAll(motionEvent, Node.ALL_COLLISION_LAYERS);
+  }
+
+  /**
+   * Tests to see if a motion event is touching any nodes in the given collision layers and returns
+   * a list of HitTestResults containing all of the nodes that were hit, sorted by distance.
+   *
+   * @see Node#setCollisionLayers(int)
+   * @param motionEvent The motion event to use for the test.
+   * @param layerMask Only nodes that belong to one of these layers are tested.
+   * @return Populated with a HitTestResult for each node that was hit sorted by distance. Empty if
+   *     no nodes were hit.
+   */
+  public ArrayList<HitTestResult> hitTestAll(MotionEvent motionEvent, int layerMask) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
 
     if (camera == null) {
       return new ArrayList<>();
     }
     Ray ray = camera.motionEventToRay(motionEvent);
-    return hitTestAll(ray);
+    return hitTestAll(ray, layerMask);
   }
 
   /**
@@ -337,12 +403,27 @@ public class Scene extends NodeParent {
    *     no nodes were hit.
    */
   public ArrayList<HitTestResult> hitTestAll(Ray ray) {
+    return hitTestAll(ray, Node.ALL_COLLISION_LAYERS);
+  }
+
+  /**
+   * Tests to see if a ray is hitting any nodes in the given collision layers and returns a list of
+   * HitTestResults containing all of the nodes that were hit, sorted by distance.
+   *
+   * @see Node#setCollisionLayers(int)
+   * @param ray The ray to use for the test.
+   * @param layerMask Only nodes that belong to one of these layers are tested.
+   * @return Populated with a HitTestResult for each node that was hit sorted by distance. Empty if
+   *     no nodes were hit.
+   */
+  public ArrayList<HitTestResult> hitTestAll(Ray ray, int layerMask) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
 
     ArrayList<HitTestResult> results = new ArrayList<>();
 
     collisionSystem.raycastAll(
         ray,
+        layerMask,
         results,
         (result, collider) -> result.setNode((Node) collider.getTransformProvider()),
         () -> new HitTestResult());
@@ -363,6 +444,22 @@ public class Scene extends NodeParent {
    */
   @Nullable
   public Node overlapTest(Node node) {
+    return overlapTest(node, Node.ALL_COLLISION_LAYERS);
+  }
+
+  /**
+   * Tests to see if the given node's collision shape overlaps the collision shape of any other
+   * nodes in the given collision layers. The node used for testing does not need to be active.
+   *
+   * @see Node#setCollisionLayers(int)
+   * @param node The node to use for the test.
+   * @param layerMask Only nodes that belong to one of these layers are tested.
+   * @return A node that is overlapping the test node. If no node is overlapping the test node, then
+   *     this is null. If multiple nodes are overlapping the test node, then this could be any of
+   *     them.
+   */
+  @Nullable
+  public Node overlapTest(Node node, int layerMask) {
     Preconditions.checkNotNull(node, "Parameter \"node\" was null.");
 
     Collider collider = node.getCollider();
@@ -370,7 +467,7 @@ public class Scene extends NodeParent {
       return null;
     }
 
-    Collider intersectedCollider = collisionSystem.intersects(collider);
+    Collider intersectedCollider = collisionSystem.intersects(collider, layerMask);
     if (intersectedCollider == null) {
       return null;
     }
@@ -388,6 +485,20 @@ public class Scene extends NodeParent {
    *     test node, then the list is empty.
    */
   public ArrayList<Node> overlapTestAll(Node node) {
+    return overlapTestAll(node, Node.ALL_COLLISION_LAYERS);
+  }
+
+  /**
+   * Tests to see if a node is overlapping any other nodes in the given collision layers. The node
+   * used for testing does not need to be active.
+   *
+   * @see Node#setCollisionLayers(int)
+   * @param node The node to use for the test.
+   * @param layerMask Only nodes that belong to one of these layers are tested.
+   * @return A list of all nodes that are overlapping the test node. If no node is overlapping the
+   *     test node, then the list is empty.
+   */
+  public ArrayList<Node> overlapTestAll(Node node, int layerMask) {
     Preconditions.checkNotNull(node, "Parameter \"node\" was null.");
 
     ArrayList<Node> results = new ArrayList<>();
@@ -399,12 +510,46 @@ public class Scene extends NodeParent {
 
     collisionSystem.intersectsAll(
         collider,
+        layerMask,
         (Collider intersectedCollider) ->
             results.add((Node) intersectedCollider.getTransformProvider()));
 
     return results;
   }
 
+  /**
+   * Finds every pair of nodes in the scene whose collision shapes overlap, using {@link
+   * Node#getCollisionShape()}, and reports the pairs that changed since the last call.
+   *
+   * <p>Use this instead of calling {@link #overlapTestAll(Node)} for every node. The pairs are kept
+   * between calls, and only the nodes that moved or changed shape since the last call are tested
+   * again.
+   *
+   * @param onPairAdded called with both nodes of each pair that started overlapping since the last
+   *     call, or null
+   * @param onPairRemoved called with both nodes of each pair that stopped overlapping since the
+   *     last call, including pairs with a node that left the scene, or null
+   * @return the number of overlapping pairs
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public int computeOverlappingPairs(
+      @Nullable BiConsumer<Node, Node> onPairAdded,
+      @Nullable BiConsumer<Node, Node> onPairRemoved) {
+    return collisionSystem.computeOverlappingPairs(
+        onPairAdded == null
+            ? null
+            : (colliderA, colliderB) ->
+                onPairAdded.accept(
+                    (Node) colliderA.getTransformProvider(),
+                    (Node) colliderB.getTransformProvider()),
+        onPairRemoved == null
+            ? null
+            : (colliderA, colliderB) ->
+                onPairRemoved.accept(
+                    (Node) colliderA.getTransformProvider(),
+                    (Node) colliderB.getTransformProvider()));
+  }
+
   /** Returns true if this Scene was created by a test. */
   boolean isUnderTesting() {
     return isUnderTesting;
@@ -455,6 +600,9 @@ public class Scene extends NodeParent {
             sphericalHarmonics, exposure, hdrParameters);
       }
       if (cubeMap != null) {
+        if (hdrCubemapUpdateIntervalMillis >= 0) {
+          lightProbe.setHdrCubemapUpdateInterval(hdrCubemapUpdateIntervalMillis);
+        }
         lightProbe.setCubeMap(cubeMap);
       }
       setLightProbe(lightProbe);
@@ -490,12 +638,193 @@ public class Scene extends NodeParent {
     }
   }
 
+  /**
+   * Sets the collision layers that receive touch events. Nodes outside of the mask are ignored by
+   * touch hit tests, and touches go through them to the nodes behind.
+   *
+   * @see Node#setCollisionLayers(int)
+   * @param touchLayerMask the layers that receive touch events, {@link Node#ALL_COLLISION_LAYERS}
+   *     by default
+   */
+  public void setTouchLayerMask(int touchLayerMask) {
+    this.touchLayerMask = touchLayerMask;
+  }
+
+  /**
+   * Gets the collision layers that receive touch events.
+   *
+   * @see #setTouchLayerMask(int)
+   */
+  public int getTouchLayerMask() {
+    return touchLayerMask;
+  }
+
+  /**
+   * Sets whether the world transforms of moved nodes are computed in parallel once per frame.
+   *
+   * <p>By default a node computes its world transform on the UI thread the first time it is needed
+   * after the node or one of its parents moved. When enabled, the world transforms of all nodes
+   * moved during a frame are computed on a pool of worker threads after the update listeners run
+   * and before the frame is rendered. This speeds up moving large hierarchies, such as an anchor
+   * with thousands of child nodes. Small changes are still computed on the UI thread.
+   *
+   * <p>Nodes must still only be modified on the UI thread.
+   */
+  public void setParallelTransformUpdateEnabled(boolean enabled) {
+    isParallelTransformUpdateEnabled = enabled;
+  }
+
+  /**
+   * Returns true if the world transforms of moved nodes are computed in parallel.
+   *
+   * @see #setParallelTransformUpdateEnabled(boolean)
+   */
+  public boolean isParallelTransformUpdateEnabled() {
+    return isParallelTransformUpdateEnabled;
+  }
+
+  /**
+   * Sets whether the scene keeps a spatial index of the world positions of its active nodes. The
+   * index is required by {@link #findNodesInRadius(Vector3, float, List)}, {@link
+   * #findNodesInBox(Vector3, Vector3, List)} and {@link #findNearestNodes(Vector3, int, float,
+   * List)}.
+   *
+   * <p>Moved nodes are only updated in the index by the next query, so keeping the index enabled
+   * costs little while no queries are made.
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public void setSpatialIndexEnabled(boolean enabled) {
+    AndroidPreconditions.checkUiThread();
+
+    if (enabled == (spatialIndex != null)) {
+      return;
+    }
+
+    if (enabled) {
+      NodeSpatialIndex newIndex = new NodeSpatialIndex(DEFAULT_SPATIAL_INDEX_CELL_SIZE);
+      spatialIndex = newIndex;
+      callOnHierarchy(
+          node -> {
+            if (node.isActive()) {
+              node.spatialIndexEntry = newIndex.add(node);
+            }
+          });
+    } else {
+      spatialIndex = null;
+      callOnHierarchy(node -> node.spatialIndexEntry = null);
+    }
+  }
+
+  /**
+   * Returns true if the scene keeps a spatial index of its nodes.
+   *
+   * @see #setSpatialIndexEnabled(boolean)
+   */
+  public boolean isSpatialIndexEnabled() {
+    return spatialIndex != null;
+  }
+
+  /**
+   * Finds the active nodes whose world position is within a distance of a point. Doesn't allocate
+   * once the results list has grown to its working size.
+   *
+   * @param center the point to search around, in world space
+   * @param radius the maximum distance from the point
+   * @param results receives the nodes, in no particular order. The list is not cleared.
+   * @return the number of nodes added to the results
+   * @throws IllegalArgumentException if the center or the radius is not finite
+   * @throws IllegalStateException if the spatial index is not enabled
+   */
+  public int findNodesInRadius(Vector3 center, float radius, List<Node> results) {
+    Preconditions.checkNotNull(center, "Parameter \"center\" was null.");
+    Preconditions.checkNotNull(results, "Parameter \"results\" was null.");
+    checkFinite(center, "center");
+    if (!isFinite(radius)) {
+      throw new IllegalArgumentException("Parameter \"radius\" was not finite.");
+    }
+
+    return getSpatialIndexOrThrow().findInRadius(center, radius, results);
+  }
+
+  /**
+   * Finds the active nodes whose world position is inside of an axis aligned box. Doesn't allocate
+   * once the results list has grown to its working size.
+   *
+   * @param min the minimum corner of the box, in world space
+   * @param max the maximum corner of the box, in world space
+   * @param results receives the nodes, in no particular order. The list is not cleared.
+   * @return the number of nodes added to the results
+   * @throws IllegalArgumentException if a corner of the box is not finite
+   * @throws IllegalStateException if the spatial index is not enabled
+   */
+  public int findNodesInBox(Vector3 min, Vector3 max, List<Node> results) {
+    Preconditions.checkNotNull(min, "Parameter \"min\" was null.");
+    Preconditions.checkNotNull(max, "Parameter \"max\" was null.");
+    Preconditions.checkNotNull(results, "Parameter \"results\" was null.");
+    checkFinite(min, "min");
+    checkFinite(max, "max");
+
+    return getSpatialIndexOrThrow().findInBox(min, max, results);
+  }
+
+  /**
+   * Finds the active nodes whose world position is closest to a point. Doesn't allocate once the
+   * results list has grown to its working size.
+   *
+   * @param point the point to search around, in world space
+   * @param maxCount the maximum number of nodes to find
+   * @param maxDistance the maximum distance from the point, use {@link Float#POSITIVE_INFINITY}
+   *     for no limit
+   * @param results receives the nodes, nearest first. The list is not cleared.
+   * @return the number of nodes added to the results
+   * @throws IllegalArgumentException if the point is not finite or the distance is NaN
+   * @throws IllegalStateException if the spatial index is not enabled
+   */
+  public int findNearestNodes(Vector3 point, int maxCount, float maxDistance, List<Node> results) {
+    Preconditions.checkNotNull(point, "Parameter \"point\" was null.");
+    Preconditions.checkNotNull(results, "Parameter \"results\" was null.");
+    checkFinite(point, "point");
+    if (Float.isNaN(maxDistance)) {
+      throw new IllegalArgumentException("Parameter \"maxDistance\" was NaN.");
+    }
+
+    return getSpatialIndexOrThrow().findNearest(point, maxCount, maxDistance, results);
+  }
+
+  /** Sets the minimum time between environmental HDR reflection updates. */
+  void setHdrCubemapUpdateInterval(long intervalMillis) {
+    hdrCubemapUpdateIntervalMillis = intervalMillis;
+  }
+
+  /** Adds a node that became active to the spatial index, if there is one. */
+  void addToSpatialIndex(Node node) {
+    if (spatialIndex != null && node.spatialIndexEntry == null) {
+      node.spatialIndexEntry = spatialIndex.add(node);
+    }
+  }
+
+  private static void checkFinite(Vector3 vector, String name) {
+    if (!isFinite(vector.x) || !isFinite(vector.y) || !isFinite(vector.z)) {
+      throw new IllegalArgumentException("Parameter \"" + name + "\" was not finite.");
+    }
+  }
+
+  private static boolean isFinite(float value) {
+    return !Float.isNaN(value) && !Float.isInfinite(value);
+  }
+
+  private NodeSpatialIndex getSpatialIndexOrThrow() {
+    NodeSpatialIndex index = spatialIndex;
+    if (index == null) {
+      throw new IllegalStateException("The spatial index of the scene is not enabled.");
+    }
+    return index;
+  }
+
   void onTouchEvent(MotionEvent motionEvent) {
     Preconditions.checkNotNull(motionEvent, "Parameter \"motionEvent\" was null.");
 
-    // TODO: Investigate API for controlling what node's can be hit by the hitTest.
-    // i.e. layers, disabling collision shapes.
-    HitTestResult hitTestResult = hitTest(motionEvent);
+    HitTestResult hitTestResult = hitTest(motionEvent, touchLayerMask);
     touchEventSystem.onTouchEvent(hitTestResult, motionEvent);
   }
 
@@ -505,6 +834,13 @@ public class Scene extends NodeParent {
     }
 
     callOnHierarchy(node -> node.dispatchUpdate(frameTime));
+
+    if (isParallelTransformUpdateEnabled) {
+      transformUpdateSystem.updateWorldTransforms(getChildren());
+    }
+
+    // Refresh the colliders moved by the update in one batch, instead of during the next query.
+    collisionSystem.refreshWorldShapes();
   }
 
   @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"})
@@ -533,6 +869,8 @@ public class Scene extends NodeParent {
                 // Set when setLightProbe is called so that we don't override the user setting.
                 if (!lightProbeSet) {
                   setLightProbe(result);
+                } else {
+                  result.release();
                 }
               })
           .exceptionally(
@@ -4,6 +4,7 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Looper;
 import android.support.annotation.Nullable;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -11,6 +12,7 @@ import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.Surface;
 import android.view.SurfaceView;
+import com.google.android.filament.View.DynamicResolutionOptions;
 
 import com.google.ar.core.exceptions.CameraNotAvailableException;
 
@@ -25,6 +27,7 @@ import com.google.ar.sceneform.utilities.Preconditions;
 /** A Sceneform SurfaceView that manages rendering and interaction with the scene. */
 public class SceneView extends SurfaceView implements Choreographer.FrameCallback {
   private static final String TAG = SceneView.class.getSimpleName();
+  private static final double NANOSECONDS_TO_MILLISECONDS = 0.000001;
 
   @Nullable private Renderer renderer = null;
   private final FrameTime frameTime = new FrameTime();
@@ -48,6 +51,16 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
   private final MovingAverageMillisecondsTracker frameRenderTracker =
       new MovingAverageMillisecondsTracker();
 
+  private QualityGovernor qualityGovernor;
+  private int appliedQualityLevel = QualityGovernor.QUALITY_HIGH;
+  @Nullable private DynamicResolutionOptions viewDynamicResolutionOptions;
+  private int viewSampleCount = 1;
+
+  // When rendering on demand, a frame is only posted to the Choreographer after a change.
+  private boolean isRenderOnDemand = false;
+  private boolean isResumed = false;
+  private boolean isFrameCallbackPosted = false;
+
   /**
    * Defines a transform from {@link Choreographer} time to animation time. Used to control the
    * playback of animations in a {@link SceneView}.
@@ -150,8 +163,10 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
     }
     // Start the drawing when the renderer is resumed.  Remove and re-add the callback
     // to avoid getting called twice.
+    isResumed = true;
     Choreographer.getInstance().removeFrameCallback(this);
     Choreographer.getInstance().postFrameCallback(this);
+    isFrameCallbackPosted = true;
   }
 
   /**
@@ -160,7 +175,9 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
    * <p>Typically called from onPause().
    */
   public void pause() {
+    isResumed = false;
     Choreographer.getInstance().removeFrameCallback(this);
+    isFrameCallbackPosted = false;
     if (renderer != null) {
       renderer.onPause();
     }
@@ -192,8 +209,9 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
   /**
    * Releases rendering resources ready for garbage collection
    *
-   * <p>Called every frame to collect unused resources. May be called manually to release resources
-   * after rendering has stopped.
+   * <p>Unused resources are collected after every frame, within the budget set by {@link
+   * #setResourceReclaimBudget(float, int)}. This releases all of them at once, regardless of the
+   * budget. Call it after rendering has stopped, or while a loading screen hides the frame rate.
    *
    * @return Count of resources currently in use
    */
@@ -202,6 +220,30 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
     return Renderer.reclaimReleasedResources();
   }
 
+  /**
+   * Limits the time and the number of resources spent releasing unused rendering resources after
+   * each frame. Releasing many resources at once, for example after clearing a scene, is spread
+   * over several frames instead of causing a hitch. The default budget is 1 millisecond and 128
+   * resources.
+   *
+   * @param timeBudgetMillis no resource is released after this much time has elapsed
+   * @param maxResourcesPerFrame the maximum number of resources released after each frame
+   */
+  public static void setResourceReclaimBudget(float timeBudgetMillis, int maxResourcesPerFrame) {
+    if (timeBudgetMillis < 0.0f || maxResourcesPerFrame < 1) {
+      throw new IllegalArgumentException("Invalid resource reclaim budget.");
+    }
+    Renderer.setResourceReclaimBudget(timeBudgetMillis, maxResourcesPerFrame);
+  }
+
+  /**
+   * Returns the number of unused rendering resources that are waiting to be released in a later
+   * frame because of the reclaim budget.
+   */
+  public static int getPendingResourceCleanupCount() {
+    return Renderer.getPendingResourceCleanupCount();
+  }
+
   /**
    * If enabled, provides various visualizations for debugging.
    *
@@ -231,6 +273,78 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
     return scene;
   }
 
+  /**
+   * Returns the governor that adjusts the rendering quality of this view to hold a target frame
+   * time. The governor is disabled by default.
+   */
+  public QualityGovernor getQualityGovernor() {
+    return qualityGovernor;
+  }
+
+  /**
+   * Sets whether this view renders every display frame, or only when something in the scene
+   * changed. Rendering on demand saves power in views that are idle most of the time, such as a
+   * model viewer.
+   *
+   * <p>A new frame is rendered after a node moves, is enabled, disabled, added or removed, when a
+   * renderable, material, light or the camera changes, and when a {@link
+   * com.google.ar.sceneform.rendering.ViewRenderable} redraws. Nodes and update listeners are
+   * only updated during those frames, so content that changes on its own, such as a video in an
+   * {@link com.google.ar.sceneform.rendering.ExternalTexture}, must call {@link #requestRender()}
+   * for each of its frames. The {@link QualityGovernor} does not adjust the quality while
+   * rendering on demand.
+   *
+   * @param renderOnDemand true to render only after changes, the default is false
+   */
+  public void setRenderOnDemand(boolean renderOnDemand) {
+    AndroidPreconditions.checkUiThread();
+    isRenderOnDemand = renderOnDemand;
+    Renderer renderer = this.renderer;
+    if (renderer != null) {
+      renderer.setRenderRequestedListener(renderOnDemand ? this::requestRender : null);
+    }
+    requestRender();
+  }
+
+  /** Returns true if this view only renders after something in the scene changed. */
+  public boolean isRenderOnDemand() {
+    return isRenderOnDemand;
+  }
+
+  /**
+   * Schedules a new frame. Views that render every display frame ignore this. Changes made through
+   * Sceneform already request a frame, this is only needed for changes it can't observe. May be
+   * called from any thread.
+   *
+   * @see #setRenderOnDemand(boolean)
+   */
+  public void requestRender() {
+    if (Looper.getMainLooper().getThread() != Thread.currentThread()) {
+      post(this::requestRender);
+      return;
+    }
+
+    if (isResumed && !isFrameCallbackPosted) {
+      Choreographer.getInstance().postFrameCallback(this);
+      isFrameCallbackPosted = true;
+    }
+  }
+
+  /**
+   * Sets how many point and spot lights may light the scene at once. Only the lights estimated to
+   * contribute the most to the view are kept, from their intensity, falloff radius and distance to
+   * the camera. Lights that can't reach anything in view are always left out. Directional lights
+   * are always kept and don't count against this limit.
+   *
+   * <p>By default the number of lights is not limited. Pass {@link Integer#MAX_VALUE} to remove a
+   * limit that was set.
+   */
+  public void setMaxActiveLights(int maxActiveLights) {
+    if (renderer != null) {
+      renderer.setMaxActiveLights(maxActiveLights);
+    }
+  }
+
   /**
    * To capture the contents of this view, designate a {@link Surface} onto which this SceneView
    * should be mirrored. Use {@link android.media.MediaRecorder#getSurface()}, {@link
@@ -254,6 +368,30 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
     }
   }
 
+  /**
+   * Reduces the cost of mirroring this SceneView to a {@link Surface}, for example when casting to
+   * a remote display that does not need every frame.
+   *
+   * <p>The scene is rendered once and copied to the mirror, the options only reduce the cost of
+   * the copy. They don't render the mirror at a lower resolution or quality.
+   *
+   * @param surface a Surface passed to {@link #startMirroringToSurface}
+   * @param frameInterval only one of every frameInterval frames is mirrored, the default is 1
+   * @param viewportScale the mirrored image is copied into this fraction of the rectangle given to
+   *     startMirroringToSurface, anchored at its bottom left corner. The size of the surface is
+   *     left alone, resize its buffers to match to send fewer pixels. Between 0 and 1, the default
+   *     is 1.
+   * @param skipsClearsAndTimestamps if true, the area around the mirrored image is only cleared
+   *     until every buffer of the surface has been cleared once, and frames are not given a
+   *     presentation time. The default is false.
+   */
+  public void setMirroringOptions(
+      Surface surface, int frameInterval, float viewportScale, boolean skipsClearsAndTimestamps) {
+    if (renderer != null) {
+      renderer.setMirroringOptions(surface, frameInterval, viewportScale, skipsClearsAndTimestamps);
+    }
+  }
+
   /**
    * When capturing is complete, call this method to stop mirroring the SceneView to the specified
    * {@link Surface}. If this is not called, the additional performance cost will remain.
@@ -278,6 +416,8 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
       return;
     }
 
+    qualityGovernor = new QualityGovernor(getContext());
+
     if (!AndroidPreconditions.isMinAndroidApiLevel()) {
       Log.e(TAG, "Sceneform requires Android N or later");
       renderer = null;
@@ -303,6 +443,46 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
     return true;
   }
 
+  /**
+   * Applies the settings of the quality level selected by the {@link QualityGovernor}.
+   *
+   * @hide
+   */
+  protected void applyQualitySettings(QualityGovernor qualityGovernor) {
+    Renderer renderer = this.renderer;
+    if (renderer == null) {
+      return;
+    }
+
+    // Snapshot the options of the view before the governor first changes them, higher levels go
+    // back to them.
+    DynamicResolutionOptions viewDynamicResolutionOptions = this.viewDynamicResolutionOptions;
+    if (viewDynamicResolutionOptions == null) {
+      viewDynamicResolutionOptions = renderer.getDynamicResolutionOptions();
+      this.viewDynamicResolutionOptions = viewDynamicResolutionOptions;
+      viewSampleCount = renderer.getSampleCount();
+    }
+
+    renderer.setSampleCount(qualityGovernor.getSampleCount(viewSampleCount));
+    if (qualityGovernor.keepsViewResolution()) {
+      renderer.setDynamicResolutionOptions(viewDynamicResolutionOptions);
+    } else {
+      renderer.setDynamicResolutionScale(
+          qualityGovernor.getDynamicResolutionMinScale(),
+          qualityGovernor.getDynamicResolutionMaxScale(),
+          qualityGovernor.getTargetFrameTime());
+    }
+    renderer.setShadowsEnabled(qualityGovernor.areShadowsEnabled());
+    renderer.setLevelOfDetailBias(qualityGovernor.getLevelOfDetailBias());
+  }
+
+  /**
+   * Update view-specific logic after each display frame, whether or not the scene was rendered.
+   *
+   * @hide
+   */
+  protected void onEndFrame(long frameTimeNanos) {}
+
   /**
    * Callback that occurs for each display frame. Updates the scene and reposts itself to be called
    * by the choreographer on the next frame.
@@ -312,8 +492,12 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
   @SuppressWarnings("AndroidApiChecker")
   @Override
   public void doFrame(long frameTimeNanos) {
-    // Always post the callback for the next frame.
-    Choreographer.getInstance().postFrameCallback(this);
+    // Always post the callback for the next frame, unless rendering on demand. Then, changes made
+    // during this frame post it again, so that animations driven by updates keep running.
+    isFrameCallbackPosted = !isRenderOnDemand;
+    if (isFrameCallbackPosted) {
+      Choreographer.getInstance().postFrameCallback(this);
+    }
     doFrameNoRepost(frameTimeNanos);
   }
 
@@ -329,12 +513,25 @@ public class SceneView extends SurfaceView implements Choreographer.FrameCallbac
     if (debugEnabled) {
       frameTotalTracker.beginSample();
     }
+    long frameBeginNanos = System.nanoTime();
 
     if (onBeginFrame(frameTimeNanos)) {
       doUpdate(frameTimeNanos);
       doRender();
     }
 
+    onEndFrame(frameTimeNanos);
+
+    // Frames rendered on demand are too far apart to measure the frame time.
+    if (!isRenderOnDemand) {
+      qualityGovernor.onFrame(
+          frameTimeNanos, (System.nanoTime() - frameBeginNanos) * NANOSECONDS_TO_MILLISECONDS);
+    }
+    if (qualityGovernor.getQualityLevel() != appliedQualityLevel) {
+      appliedQualityLevel = qualityGovernor.getQualityLevel();
+      applyQualitySettings(qualityGovernor);
+    }
+
     if (debugEnabled) {
       frameTotalTracker.endSample();
       if ((System.currentTimeMillis() / 1000) % 60 == 0) {
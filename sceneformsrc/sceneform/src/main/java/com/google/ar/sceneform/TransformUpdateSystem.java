@@ -0,0 +1,87 @@
+package com.google.ar.sceneform;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Computes the world matrices of the nodes that moved during a frame on the common fork join pool,
+ * instead of lazily on the UI thread when they are first used.
+ *
+ * <p>A node's world matrix depends on its parent's, so the moved subtrees are updated from the top
+ * down: each node is updated before its children, and large lists of children are split between
+ * workers. Each node only writes its own cached matrices.
+ *
+ * @hide
+ */
+class TransformUpdateSystem {
+  // Below this many moved nodes the pool costs more than it saves, they are updated lazily.
+  private static final int PARALLEL_THRESHOLD = 512;
+  private static final int BATCH_SIZE = 64;
+
+  /** Updates a range of sibling nodes and their subtrees. */
+  private static final class WorldTransformTask extends RecursiveAction {
+    private final List<Node> nodes;
+    private final int start;
+    private final int end;
+
+    private WorldTransformTask(List<Node> nodes, int start, int end) {
+      this.nodes = nodes;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start > BATCH_SIZE) {
+        int middle = (start + end) >>> 1;
+        invokeAll(
+            new WorldTransformTask(nodes, start, middle),
+            new WorldTransformTask(nodes, middle, end));
+        return;
+      }
+
+      for (int i = start; i < end; i++) {
+        Node node = nodes.get(i);
+        // The parent is already up to date, so this only computes the matrix of this node.
+        node.getWorldModelMatrix();
+
+        List<Node> children = node.getChildren();
+        if (!children.isEmpty()) {
+          new WorldTransformTask(children, 0, children.size()).compute();
+        }
+      }
+    }
+  }
+
+  // Moved nodes whose parent did not move.
+  private final ArrayList<Node> dirtyRoots = new ArrayList<>();
+  private int dirtyNodeCount;
+
+  /** Updates the world matrices of the moved nodes under the given nodes. */
+  void updateWorldTransforms(List<Node> nodes) {
+    dirtyNodeCount = 0;
+    collectDirtyRoots(nodes, false);
+
+    if (dirtyNodeCount >= PARALLEL_THRESHOLD) {
+      ForkJoinPool.commonPool().invoke(new WorldTransformTask(dirtyRoots, 0, dirtyRoots.size()));
+    }
+
+    dirtyRoots.clear();
+  }
+
+  private void collectDirtyRoots(List<Node> nodes, boolean isParentDirty) {
+    for (int i = 0; i < nodes.size(); i++) {
+      Node node = nodes.get(i);
+      boolean isDirty = node.isWorldTransformDirty();
+      if (isDirty) {
+        dirtyNodeCount++;
+        if (!isParentDirty) {
+          dirtyRoots.add(node);
+        }
+      }
+      collectDirtyRoots(node.getChildren(), isDirty);
+    }
+  }
+}
@@ -7,6 +7,7 @@ import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Quaternion;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.List;
 
 /**
  * Mathematical representation of a box. Used to perform intersection and collision tests against
@@ -17,6 +18,8 @@ public class Box extends CollisionShape {
   private final Vector3 center = Vector3.zero();
   private final Vector3 size = Vector3.one();
   private final Matrix rotationMatrix = new Matrix();
+  // Scratch for transform, which refreshes the world shape of a collider every frame it moves.
+  private final Vector3 worldScale = new Vector3();
 
   /** Create a box with a center of (0,0,0) and a size of (1,1,1). */
   public Box() {}
@@ -260,6 +263,24 @@ public class Box extends CollisionShape {
     return Intersections.boxBoxIntersection(this, box);
   }
 
+  @Override
+  void getBounds(float[] bounds) {
+    List<Vector3> vertices = Intersections.getVerticesFromBox(this);
+    for (int i = 0; i < 3; i++) {
+      bounds[i] = Float.POSITIVE_INFINITY;
+      bounds[i + 3] = Float.NEGATIVE_INFINITY;
+    }
+    for (int i = 0; i < vertices.size(); i++) {
+      Vector3 vertex = vertices.get(i);
+      bounds[0] = Math.min(bounds[0], vertex.x);
+      bounds[1] = Math.min(bounds[1], vertex.y);
+      bounds[2] = Math.min(bounds[2], vertex.z);
+      bounds[3] = Math.max(bounds[3], vertex.x);
+      bounds[4] = Math.max(bounds[4], vertex.y);
+      bounds[5] = Math.max(bounds[5], vertex.z);
+    }
+  }
+
   @Override
   CollisionShape transform(TransformProvider transformProvider) {
     Preconditions.checkNotNull(transformProvider, "Parameter \"transformProvider\" was null.");
@@ -288,10 +309,14 @@ public class Box extends CollisionShape {
     Matrix modelMatrix = transformProvider.getWorldModelMatrix();
 
     // Transform the center of the box.
-    resultBox.center.set(modelMatrix.transformPoint(center));
+    float[] data = modelMatrix.data;
+    resultBox.center.set(
+        data[0] * center.x + data[4] * center.y + data[8] * center.z + data[12],
+        data[1] * center.x + data[5] * center.y + data[9] * center.z + data[13],
+        data[2] * center.x + data[6] * center.y + data[10] * center.z + data[14]);
 
     // Transform the size of the box.
-    Vector3 worldScale = new Vector3();
+    Vector3 worldScale = this.worldScale;
     modelMatrix.decomposeScale(worldScale);
     resultBox.size.x = size.x * worldScale.x;
     resultBox.size.y = size.y * worldScale.y;
@@ -12,15 +12,25 @@ import com.google.ar.sceneform.utilities.Preconditions;
  * @hide
  */
 public class Collider {
+  /** Collision layers of a new collider: only the first layer. */
+  public static final int DEFAULT_LAYERS = 1;
+
   private TransformProvider transformProvider;
   @Nullable private CollisionSystem attachedCollisionSystem;
 
   private CollisionShape localShape;
   @Nullable private CollisionShape cachedWorldShape;
 
+  // Collision layers this collider belongs to, as a bitmask.
+  private int layers = DEFAULT_LAYERS;
   private boolean isWorldShapeDirty;
   private int shapeId = ChangeId.EMPTY_ID;
 
+  // State of this collider in the broadphase of the attached collision system.
+  @Nullable SweepAndPrune.Proxy broadphaseProxy;
+  // True while the collider waits for the next refresh of the attached collision system.
+  boolean isQueuedForRefresh;
+
   /** @hide */
   @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
   public Collider(TransformProvider transformProvider, CollisionShape localCollisionShape) {
@@ -37,6 +47,12 @@ public class Collider {
 
     localShape = localCollisionShape;
     cachedWorldShape = null;
+    if (broadphaseProxy != null) {
+      SweepAndPrune.markDirty(broadphaseProxy);
+    }
+    if (attachedCollisionSystem != null) {
+      attachedCollisionSystem.queueWorldShapeRefresh(this);
+    }
   }
 
   /** @hide */
@@ -55,6 +71,29 @@ public class Collider {
     return cachedWorldShape;
   }
 
+  /**
+   * Sets the collision layers this collider belongs to, as a bitmask. Queries only test the
+   * colliders that belong to at least one of the layers in their mask.
+   *
+   * @hide
+   */
+  public void setLayers(int layers) {
+    if (this.layers == layers) {
+      return;
+    }
+
+    int oldLayers = this.layers;
+    this.layers = layers;
+    if (attachedCollisionSystem != null) {
+      attachedCollisionSystem.onColliderLayersChanged(this, oldLayers);
+    }
+  }
+
+  /** @hide */
+  public int getLayers() {
+    return layers;
+  }
+
   /** @hide */
   public void setAttachedCollisionSystem(@Nullable CollisionSystem collisionSystem) {
     if (attachedCollisionSystem != null) {
@@ -71,6 +110,20 @@ public class Collider {
   /** @hide */
   public void markWorldShapeDirty() {
     isWorldShapeDirty = true;
+    if (broadphaseProxy != null) {
+      SweepAndPrune.markDirty(broadphaseProxy);
+    }
+    if (attachedCollisionSystem != null) {
+      attachedCollisionSystem.queueWorldShapeRefresh(this);
+    }
+  }
+
+  /**
+   * Updates the cached world shape if it is out of date. Only reads the world matrix of the
+   * transform provider, so it can run on any thread once that matrix is up to date.
+   */
+  void refreshWorldShape() {
+    updateCachedWorldShape();
   }
 
   private boolean doesCachedWorldShapeNeedUpdate() {
@@ -95,5 +148,6 @@ public class Collider {
 
     ChangeId changeId = localShape.getId();
     shapeId = changeId.get();
+    isWorldShapeDirty = false;
   }
 }
@@ -42,4 +42,11 @@ public abstract class CollisionShape {
   abstract CollisionShape transform(TransformProvider transformProvider);
 
   abstract void transform(TransformProvider transformProvider, CollisionShape result);
+
+  /**
+   * Gets the axis aligned bounds of the shape.
+   *
+   * @param bounds receives min x, y, z followed by max x, y, z
+   */
+  abstract void getBounds(float[] bounds);
 }
@@ -4,6 +4,8 @@ import android.support.annotation.Nullable;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
@@ -14,39 +16,164 @@ import java.util.function.Supplier;
  * @hide
  */
 public class CollisionSystem {
+  /** Layer mask that includes every collision layer. */
+  public static final int ALL_LAYERS = 0xFFFFFFFF;
+
   private static final String TAG = CollisionSystem.class.getSimpleName();
 
-  // TODO: Store things in some spatial partition or another.
-  private final ArrayList<Collider> colliders = new ArrayList<>();
+  // Refreshes with at least this many colliders are split across the fork join pool.
+  private static final int PARALLEL_REFRESH_THRESHOLD = 256;
+  private static final int REFRESH_BATCH_SIZE = 64;
+
+  /** Colliders that belong to exactly the same collision layers. */
+  private static final class LayerGroup {
+    private final int layers;
+    private final ArrayList<Collider> colliders = new ArrayList<>();
+
+    private LayerGroup(int layers) {
+      this.layers = layers;
+    }
+  }
+
+  /** Refreshes the world shapes of a range of colliders, splitting it into batches. */
+  private static final class RefreshTask extends RecursiveAction {
+    private final ArrayList<Collider> colliders;
+    private final int start;
+    private final int end;
+
+    private RefreshTask(ArrayList<Collider> colliders, int start, int end) {
+      this.colliders = colliders;
+      this.start = start;
+      this.end = end;
+    }
+
+    @Override
+    protected void compute() {
+      if (end - start <= REFRESH_BATCH_SIZE) {
+        for (int i = start; i < end; i++) {
+          colliders.get(i).refreshWorldShape();
+        }
+        return;
+      }
+
+      int middle = (start + end) >>> 1;
+      invokeAll(
+          new RefreshTask(colliders, start, middle), new RefreshTask(colliders, middle, end));
+    }
+  }
+
+  // Colliders are grouped by their layers, so that queries skip the groups outside of their mask
+  // without visiting their colliders.
+  private final ArrayList<LayerGroup> layerGroups = new ArrayList<>();
+  private final SweepAndPrune broadphase = new SweepAndPrune();
+  // Colliders whose world shape changed since the last refresh.
+  private final ArrayList<Collider> dirtyColliders = new ArrayList<>();
 
   public void addCollider(Collider collider) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
-    colliders.add(collider);
+    addToLayerGroup(collider, collider.getLayers());
+    collider.broadphaseProxy = broadphase.addCollider(collider);
+    queueWorldShapeRefresh(collider);
   }
 
   public void removeCollider(Collider collider) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
-    colliders.remove(collider);
+    if (collider.isQueuedForRefresh && dirtyColliders.remove(collider)) {
+      collider.isQueuedForRefresh = false;
+    }
+    if (removeFromLayerGroup(collider, collider.getLayers()) && collider.broadphaseProxy != null) {
+      broadphase.removeCollider(collider.broadphaseProxy);
+      collider.broadphaseProxy = null;
+    }
+  }
+
+  /**
+   * Updates the world shapes of every collider that moved or changed shape since the last refresh.
+   *
+   * <p>Called once per frame and before every query, so that queries don't pay for refreshing the
+   * colliders one at a time. Large refreshes are split across the common fork join pool.
+   */
+  public void refreshWorldShapes() {
+    int count = dirtyColliders.size();
+    if (count == 0) {
+      return;
+    }
+
+    if (count < PARALLEL_REFRESH_THRESHOLD) {
+      for (int i = 0; i < count; i++) {
+        dirtyColliders.get(i).refreshWorldShape();
+      }
+    } else {
+      // World matrices are computed lazily and depend on the parent's matrix, so bring them up to
+      // date here before the shapes are transformed on other threads.
+      for (int i = 0; i < count; i++) {
+        dirtyColliders.get(i).getTransformProvider().getWorldModelMatrix();
+      }
+      ForkJoinPool.commonPool().invoke(new RefreshTask(dirtyColliders, 0, count));
+    }
+
+    for (int i = 0; i < count; i++) {
+      dirtyColliders.get(i).isQueuedForRefresh = false;
+    }
+    dirtyColliders.clear();
+  }
+
+  /**
+   * Finds every pair of colliders that overlap each other, and reports the changes since the last
+   * call.
+   *
+   * <p>The pairs are kept between calls and only colliders that moved or changed shape since the
+   * last call are tested again, so calling this every frame is much cheaper than testing every
+   * collider with {@link #intersectsAll(Collider, Consumer)}.
+   *
+   * @param onPairAdded called for each pair that started overlapping since the last call
+   * @param onPairRemoved called for each pair that stopped overlapping since the last call,
+   *     including pairs with a collider that was removed from the system
+   * @return the number of overlapping pairs
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public int computeOverlappingPairs(
+      @Nullable BiConsumer<Collider, Collider> onPairAdded,
+      @Nullable BiConsumer<Collider, Collider> onPairRemoved) {
+    refreshWorldShapes();
+    return broadphase.update(onPairAdded, onPairRemoved);
   }
 
   @Nullable
   public Collider raycast(Ray ray, RayHit resultHit) {
+    return raycast(ray, resultHit, ALL_LAYERS);
+  }
+
+  /**
+   * Finds the closest collider hit by a ray.
+   *
+   * @param layerMask only colliders that belong to one of these layers are tested
+   */
+  @Nullable
+  public Collider raycast(Ray ray, RayHit resultHit, int layerMask) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
     Preconditions.checkNotNull(resultHit, "Parameter \"resultHit\" was null.");
 
+    refreshWorldShapes();
     resultHit.reset();
     Collider result = null;
     RayHit tempResult = new RayHit();
-    for (Collider collider : colliders) {
-      CollisionShape collisionShape = collider.getTransformedShape();
-      if (collisionShape == null) {
+    for (LayerGroup layerGroup : layerGroups) {
+      if ((layerGroup.layers & layerMask) == 0) {
         continue;
       }
 
-      if (collisionShape.rayIntersection(ray, tempResult)) {
-        if (tempResult.getDistance() < resultHit.getDistance()) {
-          resultHit.set(tempResult);
-          result = collider;
+      for (Collider collider : layerGroup.colliders) {
+        CollisionShape collisionShape = collider.getTransformedShape();
+        if (collisionShape == null) {
+          continue;
+        }
+
+        if (collisionShape.rayIntersection(ray, tempResult)) {
+          if (tempResult.getDistance() < resultHit.getDistance()) {
+            resultHit.set(tempResult);
+            result = collider;
+          }
         }
       }
     }
@@ -60,35 +187,57 @@ public class CollisionSystem {
       ArrayList<T> resultBuffer,
       @Nullable BiConsumer<T, Collider> processResult,
       Supplier<T> allocateResult) {
+    return raycastAll(ray, ALL_LAYERS, resultBuffer, processResult, allocateResult);
+  }
+
+  /**
+   * Finds every collider hit by a ray.
+   *
+   * @param layerMask only colliders that belong to one of these layers are tested
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public <T extends RayHit> int raycastAll(
+      Ray ray,
+      int layerMask,
+      ArrayList<T> resultBuffer,
+      @Nullable BiConsumer<T, Collider> processResult,
+      Supplier<T> allocateResult) {
     Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
     Preconditions.checkNotNull(resultBuffer, "Parameter \"resultBuffer\" was null.");
     Preconditions.checkNotNull(allocateResult, "Parameter \"allocateResult\" was null.");
 
+    refreshWorldShapes();
     RayHit tempResult = new RayHit();
     int hitCount = 0;
 
-    // Check the ray against all the colliders.
-    for (Collider collider : colliders) {
-      CollisionShape collisionShape = collider.getTransformedShape();
-      if (collisionShape == null) {
+    // Check the ray against all the colliders in the mask.
+    for (LayerGroup layerGroup : layerGroups) {
+      if ((layerGroup.layers & layerMask) == 0) {
         continue;
       }
 
-      if (collisionShape.rayIntersection(ray, tempResult)) {
-        hitCount++;
-        T result = null;
-        if (resultBuffer.size() >= hitCount) {
-          result = resultBuffer.get(hitCount - 1);
-        } else {
-          result = allocateResult.get();
-          resultBuffer.add(result);
+      for (Collider collider : layerGroup.colliders) {
+        CollisionShape collisionShape = collider.getTransformedShape();
+        if (collisionShape == null) {
+          continue;
         }
 
-        result.reset();
-        result.set(tempResult);
+        if (collisionShape.rayIntersection(ray, tempResult)) {
+          hitCount++;
+          T result = null;
+          if (resultBuffer.size() >= hitCount) {
+            result = resultBuffer.get(hitCount - 1);
+          } else {
+            result = allocateResult.get();
+            resultBuffer.add(result);
+          }
+
+          result.reset();
+          result.set(tempResult);
 
-        if (processResult != null) {
-          processResult.accept(result, collider);
+          if (processResult != null) {
+            processResult.accept(result, collider);
+          }
         }
       }
     }
@@ -106,25 +255,42 @@ public class CollisionSystem {
 
   @Nullable
   public Collider intersects(Collider collider) {
+    return intersects(collider, ALL_LAYERS);
+  }
+
+  /**
+   * Finds a collider that overlaps the given collider.
+   *
+   * @param layerMask only colliders that belong to one of these layers are tested
+   */
+  @Nullable
+  public Collider intersects(Collider collider, int layerMask) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
 
+    refreshWorldShapes();
     CollisionShape collisionShape = collider.getTransformedShape();
     if (collisionShape == null) {
       return null;
     }
 
-    for (Collider otherCollider : colliders) {
-      if (otherCollider == collider) {
+    for (LayerGroup layerGroup : layerGroups) {
+      if ((layerGroup.layers & layerMask) == 0) {
         continue;
       }
 
-      CollisionShape otherCollisionShape = otherCollider.getTransformedShape();
-      if (otherCollisionShape == null) {
-        continue;
-      }
+      for (Collider otherCollider : layerGroup.colliders) {
+        if (otherCollider == collider) {
+          continue;
+        }
+
+        CollisionShape otherCollisionShape = otherCollider.getTransformedShape();
+        if (otherCollisionShape == null) {
+          continue;
+        }
 
-      if (collisionShape.shapeIntersection(otherCollisionShape)) {
-        return otherCollider;
+        if (collisionShape.shapeIntersection(otherCollisionShape)) {
+          return otherCollider;
+        }
       }
     }
 
@@ -133,27 +299,89 @@ public class CollisionSystem {
 
   @SuppressWarnings("AndroidApiChecker")
   public void intersectsAll(Collider collider, Consumer<Collider> processResult) {
+    intersectsAll(collider, ALL_LAYERS, processResult);
+  }
+
+  /**
+   * Finds every collider that overlaps the given collider.
+   *
+   * @param layerMask only colliders that belong to one of these layers are tested
+   */
+  @SuppressWarnings("AndroidApiChecker")
+  public void intersectsAll(Collider collider, int layerMask, Consumer<Collider> processResult) {
     Preconditions.checkNotNull(collider, "Parameter \"collider\" was null.");
     Preconditions.checkNotNull(processResult, "Parameter \"processResult\" was null.");
 
+    refreshWorldShapes();
     CollisionShape collisionShape = collider.getTransformedShape();
     if (collisionShape == null) {
       return;
     }
 
-    for (Collider otherCollider : colliders) {
-      if (otherCollider == collider) {
+    for (LayerGroup layerGroup : layerGroups) {
+      if ((layerGroup.layers & layerMask) == 0) {
         continue;
       }
 
-      CollisionShape otherCollisionShape = otherCollider.getTransformedShape();
-      if (otherCollisionShape == null) {
+      for (Collider otherCollider : layerGroup.colliders) {
+        if (otherCollider == collider) {
+          continue;
+        }
+
+        CollisionShape otherCollisionShape = otherCollider.getTransformedShape();
+        if (otherCollisionShape == null) {
+          continue;
+        }
+
+        if (collisionShape.shapeIntersection(otherCollisionShape)) {
+          processResult.accept(otherCollider);
+        }
+      }
+    }
+  }
+
+  /** Schedules the world shape of an attached collider to be updated by the next refresh. */
+  void queueWorldShapeRefresh(Collider collider) {
+    if (!collider.isQueuedForRefresh) {
+      collider.isQueuedForRefresh = true;
+      dirtyColliders.add(collider);
+    }
+  }
+
+  /** Moves an attached collider to the group of its new layers. */
+  void onColliderLayersChanged(Collider collider, int oldLayers) {
+    if (removeFromLayerGroup(collider, oldLayers)) {
+      addToLayerGroup(collider, collider.getLayers());
+    }
+  }
+
+  private void addToLayerGroup(Collider collider, int layers) {
+    for (LayerGroup layerGroup : layerGroups) {
+      if (layerGroup.layers == layers) {
+        layerGroup.colliders.add(collider);
+        return;
+      }
+    }
+
+    LayerGroup layerGroup = new LayerGroup(layers);
+    layerGroup.colliders.add(collider);
+    layerGroups.add(layerGroup);
+  }
+
+  private boolean removeFromLayerGroup(Collider collider, int layers) {
+    for (int i = 0; i < layerGroups.size(); i++) {
+      LayerGroup layerGroup = layerGroups.get(i);
+      if (layerGroup.layers != layers) {
         continue;
       }
 
-      if (collisionShape.shapeIntersection(otherCollisionShape)) {
-        processResult.accept(otherCollider);
+      boolean removed = layerGroup.colliders.remove(collider);
+      if (layerGroup.colliders.isEmpty()) {
+        layerGroups.remove(i);
       }
+      return removed;
     }
+
+    return false;
   }
 }
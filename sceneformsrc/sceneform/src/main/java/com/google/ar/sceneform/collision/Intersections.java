@@ -89,6 +89,63 @@ class Intersections {
     return true;
   }
 
+  /** Determine if a sphere and a triangle intersect with each other. */
+  static boolean sphereTriangleIntersection(Sphere sphere, Vector3 a, Vector3 b, Vector3 c) {
+    Preconditions.checkNotNull(sphere, "Parameter \"sphere\" was null.");
+
+    Vector3 center = sphere.getCenter();
+    Vector3 difference = Vector3.subtract(closestPointOnTriangle(center, a, b, c), center);
+    float radius = sphere.getRadius();
+    return Vector3.dot(difference, difference) <= radius * radius;
+  }
+
+  /**
+   * Determine if a box and a triangle intersect with each other.
+   *
+   * @param box the box to test
+   * @param boxVertices the corners of the box, see {@link #getVerticesFromBox(Box)}
+   */
+  static boolean boxTriangleIntersection(
+      Box box, List<Vector3> boxVertices, Vector3 a, Vector3 b, Vector3 c) {
+    Preconditions.checkNotNull(box, "Parameter \"box\" was null.");
+    Preconditions.checkNotNull(boxVertices, "Parameter \"boxVertices\" was null.");
+
+    ArrayList<Vector3> triangleVertices = new ArrayList<>(3);
+    triangleVertices.add(a);
+    triangleVertices.add(b);
+    triangleVertices.add(c);
+
+    // Determine the test axes: the box axes, the triangle normal and the cross products of the box
+    // axes with the triangle edges.
+    Matrix boxRotation = box.getRawRotationMatrix();
+    Vector3[] boxAxes = {
+      extractXAxisFromRotationMatrix(boxRotation),
+      extractYAxisFromRotationMatrix(boxRotation),
+      extractZAxisFromRotationMatrix(boxRotation)
+    };
+    Vector3[] edges = {subtract(b, a), subtract(c, b), subtract(a, c)};
+
+    ArrayList<Vector3> testAxes = new ArrayList<>(NUM_TEST_AXES - 2);
+    for (int i = 0; i < 3; i++) {
+      testAxes.add(boxAxes[i]);
+    }
+    testAxes.add(Vector3.cross(edges[0], edges[1]));
+    for (int i = 0; i < 3; i++) {
+      for (int j = 0; j < 3; j++) {
+        testAxes.add(Vector3.cross(boxAxes[i], edges[j]));
+      }
+    }
+
+    // Attempt to find a separating axis.
+    for (int i = 0; i < testAxes.size(); i++) {
+      if (!testSeparatingAxis(boxVertices, triangleVertices, testAxes.get(i))) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
   private static Vector3 closestPointOnBox(Vector3 point, Box box) {
     Vector3 result = new Vector3(box.getCenter());
     Vector3 diff = Vector3.subtract(point, box.getCenter());
@@ -140,10 +197,61 @@ class Intersections {
     return result;
   }
 
+  /** Finds the point of a triangle closest to a point, from Real-Time Collision Detection. */
+  private static Vector3 closestPointOnTriangle(Vector3 point, Vector3 a, Vector3 b, Vector3 c) {
+    Vector3 ab = subtract(b, a);
+    Vector3 ac = subtract(c, a);
+    Vector3 ap = subtract(point, a);
+    float d1 = Vector3.dot(ab, ap);
+    float d2 = Vector3.dot(ac, ap);
+    if (d1 <= 0.0f && d2 <= 0.0f) {
+      return a;
+    }
+
+    Vector3 bp = subtract(point, b);
+    float d3 = Vector3.dot(ab, bp);
+    float d4 = Vector3.dot(ac, bp);
+    if (d3 >= 0.0f && d4 <= d3) {
+      return b;
+    }
+
+    float vc = d1 * d4 - d3 * d2;
+    if (vc <= 0.0f && d1 >= 0.0f && d3 <= 0.0f) {
+      return add(a, ab.scaled(d1 / (d1 - d3)));
+    }
+
+    Vector3 cp = subtract(point, c);
+    float d5 = Vector3.dot(ab, cp);
+    float d6 = Vector3.dot(ac, cp);
+    if (d6 >= 0.0f && d5 <= d6) {
+      return c;
+    }
+
+    float vb = d5 * d2 - d1 * d6;
+    if (vb <= 0.0f && d2 >= 0.0f && d6 <= 0.0f) {
+      return add(a, ac.scaled(d2 / (d2 - d6)));
+    }
+
+    float va = d3 * d6 - d5 * d4;
+    if (va <= 0.0f && (d4 - d3) >= 0.0f && (d5 - d6) >= 0.0f) {
+      return add(b, subtract(c, b).scaled((d4 - d3) / ((d4 - d3) + (d5 - d6))));
+    }
+
+    // The point projects inside the triangle.
+    float denominator = va + vb + vc;
+    if (denominator == 0.0f) {
+      // Degenerate triangle.
+      return a;
+    }
+    float v = vb / denominator;
+    float w = vc / denominator;
+    return add(add(a, ab.scaled(v)), ac.scaled(w));
+  }
+
   private static boolean testSeparatingAxis(
       List<Vector3> vertices1, List<Vector3> vertices2, Vector3 axis) {
     float min1 = Float.MAX_VALUE;
-    float max1 = Float.MIN_VALUE;
+    float max1 = -Float.MAX_VALUE;
     for (int i = 0; i < vertices1.size(); ++i) {
       float projection = Vector3.dot(axis, vertices1.get(i));
       min1 = Math.min(projection, min1);
@@ -151,7 +259,7 @@ class Intersections {
     }
 
     float min2 = Float.MAX_VALUE;
-    float max2 = Float.MIN_VALUE;
+    float max2 = -Float.MAX_VALUE;
     for (int i = 0; i < vertices2.size(); i++) {
       float projection = Vector3.dot(axis, vertices2.get(i));
       min2 = Math.min(projection, min2);
@@ -162,7 +270,7 @@ class Intersections {
   }
 
   /** Converts a box into an array of 8 vertices that represent the corners of the box. */
-  private static List<Vector3> getVerticesFromBox(Box box) {
+  static List<Vector3> getVerticesFromBox(Box box) {
     Preconditions.checkNotNull(box, "Parameter \"box\" was null.");
 
     // Get the properties of the box.
@@ -195,14 +303,14 @@ class Intersections {
   }
 
   private static Vector3 extractXAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[0], matrix.data[4], matrix.data[8]);
+    return new Vector3(matrix.data[0], matrix.data[1], matrix.data[2]);
   }
 
   private static Vector3 extractYAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[1], matrix.data[5], matrix.data[9]);
+    return new Vector3(matrix.data[4], matrix.data[5], matrix.data[6]);
   }
 
   private static Vector3 extractZAxisFromRotationMatrix(Matrix matrix) {
-    return new Vector3(matrix.data[2], matrix.data[6], matrix.data[10]);
+    return new Vector3(matrix.data[8], matrix.data[9], matrix.data[10]);
   }
 }
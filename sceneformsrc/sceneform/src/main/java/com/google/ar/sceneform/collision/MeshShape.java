@@ -0,0 +1,282 @@
+package com.google.ar.sceneform.collision;
+
+import android.util.Log;
+import com.google.ar.sceneform.common.TransformProvider;
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * Triangle mesh used to perform exact intersection and collision tests against the surface of a
+ * model.
+ *
+ * <p>The triangles are organized into a bounding volume hierarchy when the shape is created, so
+ * that tests only visit the triangles close to the ray or shape they are tested against. Copies and
+ * transformed versions of a shape share the same triangles and hierarchy.
+ *
+ * <p>Tests against another MeshShape are approximated: the triangles of one mesh are tested
+ * against the bounding box of the other.
+ */
+public class MeshShape extends CollisionShape {
+  private static final String TAG = MeshShape.class.getSimpleName();
+
+  private final TriangleMesh mesh;
+  // Transform from the space of the triangles to the space of the shape, and its inverse.
+  private final Matrix transform = new Matrix();
+  private final Matrix inverseTransform = new Matrix();
+  // Bounding box of the triangles in the space of the shape.
+  private final Box bounds;
+
+  // Scratch state of the intersection tests, so that they don't allocate per triangle.
+  private final float[] queryBounds = new float[6];
+  private final Vector3 queryPoint = new Vector3();
+  private final Vector3 vertexA = new Vector3();
+  private final Vector3 vertexB = new Vector3();
+  private final Vector3 vertexC = new Vector3();
+
+  /**
+   * Create a mesh shape from triangles.
+   *
+   * @param positions the x, y and z coordinates of each vertex
+   * @param triangleIndices three vertex indices for each triangle
+   * @throws IllegalArgumentException if an index doesn't reference a vertex
+   */
+  public MeshShape(float[] positions, int[] triangleIndices) {
+    this(
+        new TriangleMesh(
+            Preconditions.checkNotNull(positions, "Parameter \"positions\" was null.").clone(),
+            Preconditions.checkNotNull(triangleIndices, "Parameter \"triangleIndices\" was null.")
+                .clone()));
+  }
+
+  /**
+   * Create a mesh shape from triangles. The remaining contents of the buffers are copied.
+   *
+   * @param positions the x, y and z coordinates of each vertex
+   * @param triangleIndices three vertex indices for each triangle
+   * @throws IllegalArgumentException if an index doesn't reference a vertex
+   */
+  public MeshShape(FloatBuffer positions, IntBuffer triangleIndices) {
+    this(
+        new TriangleMesh(
+            toArray(Preconditions.checkNotNull(positions, "Parameter \"positions\" was null.")),
+            toArray(
+                Preconditions.checkNotNull(
+                    triangleIndices, "Parameter \"triangleIndices\" was null."))));
+  }
+
+  @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
+  private MeshShape(TriangleMesh mesh) {
+    this.mesh = mesh;
+
+    float[] meshBounds = new float[6];
+    mesh.getBounds(meshBounds);
+    if (mesh.getTriangleCount() == 0) {
+      bounds = new Box(Vector3.zero());
+    } else {
+      Vector3 min = new Vector3(meshBounds[0], meshBounds[1], meshBounds[2]);
+      Vector3 max = new Vector3(meshBounds[3], meshBounds[4], meshBounds[5]);
+      bounds = new Box(Vector3.subtract(max, min), Vector3.lerp(min, max, 0.5f));
+    }
+  }
+
+  /** Get the number of triangles in the mesh. */
+  public int getTriangleCount() {
+    return mesh.getTriangleCount();
+  }
+
+  @Override
+  public MeshShape makeCopy() {
+    MeshShape copy = new MeshShape(mesh);
+    copy.setTransform(transform, inverseTransform, bounds);
+    return copy;
+  }
+
+  /** @hide protected method */
+  @Override
+  protected boolean rayIntersection(Ray ray, RayHit result) {
+    Preconditions.checkNotNull(ray, "Parameter \"ray\" was null.");
+    Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
+
+    if (!bounds.rayIntersection(ray, new RayHit())) {
+      return false;
+    }
+
+    // The direction is not normalized, so that the distance along the ray in the space of the
+    // triangles is the same as in the space of the shape.
+    Vector3 origin = inverseTransform.transformPoint(ray.getOrigin());
+    Vector3 direction = inverseTransform.transformDirection(ray.getDirection());
+    float distance =
+        mesh.raycast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z);
+    if (distance < 0.0f) {
+      return false;
+    }
+
+    result.setDistance(distance);
+    result.setPoint(ray.getPoint(distance));
+    return true;
+  }
+
+  /** @hide protected method */
+  @Override
+  protected boolean shapeIntersection(CollisionShape shape) {
+    Preconditions.checkNotNull(shape, "Parameter \"shape\" was null.");
+
+    if (shape instanceof Sphere) {
+      return sphereIntersection((Sphere) shape);
+    } else if (shape instanceof Box) {
+      return boxIntersection((Box) shape);
+    }
+
+    return shape.boxIntersection(bounds);
+  }
+
+  /** @hide protected method */
+  @Override
+  protected boolean sphereIntersection(Sphere sphere) {
+    Preconditions.checkNotNull(sphere, "Parameter \"sphere\" was null.");
+
+    Vector3 center = sphere.getCenter();
+    float radius = sphere.getRadius();
+    initQueryBounds();
+    for (int i = 0; i < 8; i++) {
+      addToQueryBounds(
+          (i & 1) == 0 ? center.x - radius : center.x + radius,
+          (i & 2) == 0 ? center.y - radius : center.y + radius,
+          (i & 4) == 0 ? center.z - radius : center.z + radius);
+    }
+
+    return mesh.anyTriangleInBounds(
+        queryBounds,
+        triangle ->
+            Intersections.sphereTriangleIntersection(
+                sphere,
+                getTransformedVertex(triangle, 0, vertexA),
+                getTransformedVertex(triangle, 1, vertexB),
+                getTransformedVertex(triangle, 2, vertexC)));
+  }
+
+  /** @hide protected method */
+  @Override
+  protected boolean boxIntersection(Box box) {
+    Preconditions.checkNotNull(box, "Parameter \"box\" was null.");
+
+    if (!Intersections.boxBoxIntersection(bounds, box)) {
+      return false;
+    }
+
+    List<Vector3> boxVertices = Intersections.getVerticesFromBox(box);
+    initQueryBounds();
+    for (int i = 0; i < boxVertices.size(); i++) {
+      Vector3 vertex = boxVertices.get(i);
+      addToQueryBounds(vertex.x, vertex.y, vertex.z);
+    }
+
+    return mesh.anyTriangleInBounds(
+        queryBounds,
+        triangle ->
+            Intersections.boxTriangleIntersection(
+                box,
+                boxVertices,
+                getTransformedVertex(triangle, 0, vertexA),
+                getTransformedVertex(triangle, 1, vertexB),
+                getTransformedVertex(triangle, 2, vertexC)));
+  }
+
+  @Override
+  void getBounds(float[] bounds) {
+    this.bounds.getBounds(bounds);
+  }
+
+  @Override
+  CollisionShape transform(TransformProvider transformProvider) {
+    Preconditions.checkNotNull(transformProvider, "Parameter \"transformProvider\" was null.");
+
+    MeshShape result = new MeshShape(mesh);
+    transform(transformProvider, result);
+    return result;
+  }
+
+  @Override
+  void transform(TransformProvider transformProvider, CollisionShape result) {
+    Preconditions.checkNotNull(transformProvider, "Parameter \"transformProvider\" was null.");
+    Preconditions.checkNotNull(result, "Parameter \"result\" was null.");
+
+    if (!(result instanceof MeshShape) || ((MeshShape) result).mesh != mesh) {
+      Log.w(
+          TAG,
+          "Cannot pass CollisionShape other than a MeshShape of the same mesh into"
+              + " MeshShape.transform.");
+      return;
+    }
+
+    if (result == this) {
+      throw new IllegalArgumentException("MeshShape cannot transform itself.");
+    }
+
+    MeshShape resultMesh = (MeshShape) result;
+    Matrix.multiply(transformProvider.getWorldModelMatrix(), transform, resultMesh.transform);
+    if (!Matrix.invert(resultMesh.transform, resultMesh.inverseTransform)) {
+      Log.w(TAG, "MeshShape transformed by a non-invertible matrix.");
+    }
+    bounds.transform(transformProvider, resultMesh.bounds);
+    resultMesh.onChanged();
+  }
+
+  private void setTransform(Matrix transform, Matrix inverseTransform, Box bounds) {
+    this.transform.set(transform);
+    this.inverseTransform.set(inverseTransform);
+    this.bounds.setCenter(bounds.getCenter());
+    this.bounds.setSize(bounds.getSize());
+    this.bounds.setRotation(bounds.getRotation());
+    onChanged();
+  }
+
+  private Vector3 getTransformedVertex(float[] triangle, int vertex, Vector3 dest) {
+    int offset = vertex * 3;
+    transformPoint(transform, triangle[offset], triangle[offset + 1], triangle[offset + 2], dest);
+    return dest;
+  }
+
+  private void initQueryBounds() {
+    for (int i = 0; i < 3; i++) {
+      queryBounds[i] = Float.POSITIVE_INFINITY;
+      queryBounds[i + 3] = Float.NEGATIVE_INFINITY;
+    }
+  }
+
+  /** Grows the query bounds, in the space of the triangles, to contain a point of the shape. */
+  private void addToQueryBounds(float x, float y, float z) {
+    Vector3 meshPoint = queryPoint;
+    transformPoint(inverseTransform, x, y, z, meshPoint);
+    queryBounds[0] = Math.min(queryBounds[0], meshPoint.x);
+    queryBounds[1] = Math.min(queryBounds[1], meshPoint.y);
+    queryBounds[2] = Math.min(queryBounds[2], meshPoint.z);
+    queryBounds[3] = Math.max(queryBounds[3], meshPoint.x);
+    queryBounds[4] = Math.max(queryBounds[4], meshPoint.y);
+    queryBounds[5] = Math.max(queryBounds[5], meshPoint.z);
+  }
+
+  /** Same as {@link Matrix#transformPoint(Vector3)}, into an existing vector. */
+  private static void transformPoint(Matrix matrix, float x, float y, float z, Vector3 dest) {
+    float[] data = matrix.data;
+    dest.x = data[0] * x + data[4] * y + data[8] * z + data[12];
+    dest.y = data[1] * x + data[5] * y + data[9] * z + data[13];
+    dest.z = data[2] * x + data[6] * y + data[10] * z + data[14];
+  }
+
+  private static float[] toArray(FloatBuffer buffer) {
+    float[] array = new float[buffer.remaining()];
+    buffer.duplicate().get(array);
+    return array;
+  }
+
+  private static int[] toArray(IntBuffer buffer) {
+    int[] array = new int[buffer.remaining()];
+    buffer.duplicate().get(array);
+    return array;
+  }
+}
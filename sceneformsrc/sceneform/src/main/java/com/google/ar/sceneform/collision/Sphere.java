@@ -146,6 +146,16 @@ public class Sphere extends CollisionShape {
     return Intersections.sphereBoxIntersection(this, box);
   }
 
+  @Override
+  void getBounds(float[] bounds) {
+    bounds[0] = center.x - radius;
+    bounds[1] = center.y - radius;
+    bounds[2] = center.z - radius;
+    bounds[3] = center.x + radius;
+    bounds[4] = center.y + radius;
+    bounds[5] = center.z + radius;
+  }
+
   @Override
   CollisionShape transform(TransformProvider transformProvider) {
     Preconditions.checkNotNull(transformProvider, "Parameter \"transformProvider\" was null.");
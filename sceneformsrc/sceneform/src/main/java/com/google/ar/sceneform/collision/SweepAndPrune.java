@@ -0,0 +1,284 @@
+package com.google.ar.sceneform.collision;
+
+import android.support.annotation.Nullable;
+import com.google.ar.sceneform.utilities.ChangeId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * Persistent broadphase that finds the pairs of overlapping colliders.
+ *
+ * <p>The world bounds of every collider are sorted along the x axis. The sorted order is kept
+ * between updates and repaired with an insertion sort, which is close to linear because colliders
+ * move little between updates. Only the bounds of colliders that changed are recomputed, and the
+ * narrowphase only runs for pairs whose bounds overlap and that involve a changed collider. The
+ * narrowphase result of every pair with overlapping bounds is kept, whether the shapes intersect
+ * or not.
+ */
+@SuppressWarnings("AndroidApiChecker") // BiConsumer
+class SweepAndPrune {
+  /** Broadphase state of one collider. */
+  static final class Proxy {
+    private final Collider collider;
+    private final int id;
+    // Axis aligned world bounds: min x, y, z followed by max x, y, z.
+    private final float[] bounds = new float[6];
+    private final Endpoint minEndpoint;
+    private final Endpoint maxEndpoint;
+    private int shapeId = ChangeId.EMPTY_ID;
+    private boolean isDirty = true;
+    private int activeIndex = -1;
+
+    private Proxy(Collider collider, int id) {
+      this.collider = collider;
+      this.id = id;
+      minEndpoint = new Endpoint(this, true);
+      maxEndpoint = new Endpoint(this, false);
+    }
+  }
+
+  private static final class Endpoint {
+    private final Proxy proxy;
+    private final boolean isMin;
+
+    private Endpoint(Proxy proxy, boolean isMin) {
+      this.proxy = proxy;
+      this.isMin = isMin;
+    }
+
+    private float getValue() {
+      return isMin ? proxy.bounds[0] : proxy.bounds[3];
+    }
+  }
+
+  private static final class Pair {
+    private final Collider colliderA;
+    private final Collider colliderB;
+    private int updateId;
+    private boolean isOverlapping;
+
+    private Pair(Collider colliderA, Collider colliderB) {
+      this.colliderA = colliderA;
+      this.colliderB = colliderB;
+    }
+  }
+
+  private final ArrayList<Proxy> proxies = new ArrayList<>();
+  private final ArrayList<Endpoint> endpoints = new ArrayList<>();
+  private final ArrayList<Proxy> activeProxies = new ArrayList<>();
+  // Pairs whose bounds overlap, by the ids of their proxies.
+  private final HashMap<Long, Pair> pairs = new HashMap<>();
+  private int overlappingPairCount;
+  private int nextProxyId;
+  private int updateId;
+
+  Proxy addCollider(Collider collider) {
+    Proxy proxy = new Proxy(collider, nextProxyId++);
+    setEmptyBounds(proxy);
+    proxies.add(proxy);
+    endpoints.add(proxy.minEndpoint);
+    endpoints.add(proxy.maxEndpoint);
+    return proxy;
+  }
+
+  /** Removes a collider. Its pairs are reported as removed by the next update. */
+  void removeCollider(Proxy proxy) {
+    proxies.remove(proxy);
+    endpoints.remove(proxy.minEndpoint);
+    endpoints.remove(proxy.maxEndpoint);
+  }
+
+  /** Schedules the bounds of a collider to be recomputed by the next update. */
+  static void markDirty(Proxy proxy) {
+    proxy.isDirty = true;
+  }
+
+  /**
+   * Updates the broadphase and the overlapping pairs.
+   *
+   * @param onPairAdded called for each pair that started overlapping since the last update
+   * @param onPairRemoved called for each pair that stopped overlapping since the last update, or
+   *     that has a collider that was removed
+   * @return the number of overlapping pairs
+   */
+  int update(
+      @Nullable BiConsumer<Collider, Collider> onPairAdded,
+      @Nullable BiConsumer<Collider, Collider> onPairRemoved) {
+    updateId++;
+
+    for (int i = 0; i < proxies.size(); i++) {
+      Proxy proxy = proxies.get(i);
+      // Changes to the local shape are not reported to the collision system.
+      if (proxy.collider.getShape().getId().checkChanged(proxy.shapeId)) {
+        proxy.isDirty = true;
+      }
+      if (proxy.isDirty) {
+        updateBounds(proxy);
+      }
+    }
+
+    sortEndpoints();
+
+    // Sweep along the x axis, keeping the proxies whose x range contains the current endpoint.
+    for (int i = 0; i < endpoints.size(); i++) {
+      Endpoint endpoint = endpoints.get(i);
+      Proxy proxy = endpoint.proxy;
+      if (!endpoint.isMin) {
+        removeActive(proxy);
+        continue;
+      }
+
+      for (int j = 0; j < activeProxies.size(); j++) {
+        Proxy other = activeProxies.get(j);
+        if (overlapsYz(proxy, other)) {
+          updatePair(proxy, other, onPairAdded, onPairRemoved);
+        }
+      }
+      proxy.activeIndex = activeProxies.size();
+      activeProxies.add(proxy);
+    }
+
+    // Proxies with empty bounds end the sweep active.
+    for (int i = 0; i < activeProxies.size(); i++) {
+      activeProxies.get(i).activeIndex = -1;
+    }
+    activeProxies.clear();
+
+    // The bounds of pairs that were not confirmed by this update no longer overlap.
+    Iterator<Pair> iterator = pairs.values().iterator();
+    while (iterator.hasNext()) {
+      Pair pair = iterator.next();
+      if (pair.updateId != updateId) {
+        iterator.remove();
+        setOverlapping(pair, false, onPairAdded, onPairRemoved);
+      }
+    }
+
+    for (int i = 0; i < proxies.size(); i++) {
+      proxies.get(i).isDirty = false;
+    }
+
+    return overlappingPairCount;
+  }
+
+  private void updatePair(
+      Proxy proxyA,
+      Proxy proxyB,
+      @Nullable BiConsumer<Collider, Collider> onPairAdded,
+      @Nullable BiConsumer<Collider, Collider> onPairRemoved) {
+    if (proxyA.id > proxyB.id) {
+      Proxy temp = proxyA;
+      proxyA = proxyB;
+      proxyB = temp;
+    }
+
+    long key = ((long) proxyA.id << 32) | proxyB.id;
+    Pair pair = pairs.get(key);
+
+    // The narrowphase result of a pair can only change if one of its colliders changed.
+    if (pair != null && !proxyA.isDirty && !proxyB.isDirty) {
+      pair.updateId = updateId;
+      return;
+    }
+
+    if (pair == null) {
+      pair = new Pair(proxyA.collider, proxyB.collider);
+      pairs.put(key, pair);
+    }
+    pair.updateId = updateId;
+
+    CollisionShape shapeA = proxyA.collider.getTransformedShape();
+    CollisionShape shapeB = proxyB.collider.getTransformedShape();
+    boolean isOverlapping =
+        shapeA != null && shapeB != null && shapeA.shapeIntersection(shapeB);
+    setOverlapping(pair, isOverlapping, onPairAdded, onPairRemoved);
+  }
+
+  private void setOverlapping(
+      Pair pair,
+      boolean isOverlapping,
+      @Nullable BiConsumer<Collider, Collider> onPairAdded,
+      @Nullable BiConsumer<Collider, Collider> onPairRemoved) {
+    if (pair.isOverlapping == isOverlapping) {
+      return;
+    }
+
+    pair.isOverlapping = isOverlapping;
+    if (isOverlapping) {
+      overlappingPairCount++;
+      if (onPairAdded != null) {
+        onPairAdded.accept(pair.colliderA, pair.colliderB);
+      }
+    } else {
+      overlappingPairCount--;
+      if (onPairRemoved != null) {
+        onPairRemoved.accept(pair.colliderA, pair.colliderB);
+      }
+    }
+  }
+
+  private static void updateBounds(Proxy proxy) {
+    CollisionShape shape = proxy.collider.getTransformedShape();
+    if (shape == null) {
+      setEmptyBounds(proxy);
+    } else {
+      shape.getBounds(proxy.bounds);
+    }
+    proxy.shapeId = proxy.collider.getShape().getId().get();
+  }
+
+  /** Bounds that don't overlap anything, the max endpoint always sorts before the min endpoint. */
+  private static void setEmptyBounds(Proxy proxy) {
+    for (int i = 0; i < 3; i++) {
+      proxy.bounds[i] = Float.POSITIVE_INFINITY;
+      proxy.bounds[i + 3] = Float.NEGATIVE_INFINITY;
+    }
+  }
+
+  /** Insertion sort, close to linear when the order barely changed since the last update. */
+  private void sortEndpoints() {
+    for (int i = 1; i < endpoints.size(); i++) {
+      Endpoint endpoint = endpoints.get(i);
+      int j = i - 1;
+      while (j >= 0 && isBefore(endpoint, endpoints.get(j))) {
+        endpoints.set(j + 1, endpoints.get(j));
+        j--;
+      }
+      endpoints.set(j + 1, endpoint);
+    }
+  }
+
+  private static boolean isBefore(Endpoint a, Endpoint b) {
+    float valueA = a.getValue();
+    float valueB = b.getValue();
+    if (valueA != valueB) {
+      return valueA < valueB;
+    }
+
+    // Bounds that touch overlap, so min endpoints go first.
+    return a.isMin && !b.isMin;
+  }
+
+  private void removeActive(Proxy proxy) {
+    int index = proxy.activeIndex;
+    if (index < 0) {
+      return;
+    }
+
+    Proxy last = activeProxies.remove(activeProxies.size() - 1);
+    if (last != proxy) {
+      activeProxies.set(index, last);
+      last.activeIndex = index;
+    }
+    proxy.activeIndex = -1;
+  }
+
+  private static boolean overlapsYz(Proxy a, Proxy b) {
+    return a.bounds[1] <= b.bounds[4]
+        && b.bounds[1] <= a.bounds[4]
+        && a.bounds[2] <= b.bounds[5]
+        && b.bounds[2] <= a.bounds[5];
+  }
+}
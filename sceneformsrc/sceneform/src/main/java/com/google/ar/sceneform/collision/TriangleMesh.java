@@ -0,0 +1,363 @@
+package com.google.ar.sceneform.collision;
+
+import java.util.Arrays;
+
+/**
+ * Immutable triangle mesh with a bounding volume hierarchy over its triangles. Shared by all copies
+ * of a {@link MeshShape}, local and transformed.
+ *
+ * <p>The hierarchy is stored in flat arrays. Each node has an axis aligned bounding box; leaves
+ * reference a range of the reordered triangles and inner nodes reference their two children, which
+ * are stored next to each other.
+ */
+final class TriangleMesh {
+  /** Test run on each triangle found by {@link #anyTriangleInBounds}. */
+  interface TriangleTest {
+    /**
+     * @param triangle the 9 coordinates of the triangle vertices, only valid during the call
+     * @return true to stop the search
+     */
+    boolean test(float[] triangle);
+  }
+
+  private static final int MAX_TRIANGLES_PER_LEAF = 4;
+  // Smallest sine of the angle between a ray and a triangle that is not treated as parallel.
+  private static final float PARALLEL_EPSILON = 1e-6f;
+
+  private final float[] positions;
+  // Vertex indices of each triangle, reordered so that the triangles of a leaf are contiguous.
+  private final int[] triangles;
+  private final int triangleCount;
+
+  private final float[] nodeBounds;
+  private final int[] nodeStart;
+  private final int[] nodeCount;
+  private final int nodeCountTotal;
+  private final int maxDepth;
+
+  /**
+   * @param positions x, y, z of each vertex
+   * @param indices three vertex indices per triangle
+   */
+  TriangleMesh(float[] positions, int[] indices) {
+    this.positions = positions;
+    triangleCount = indices.length / 3;
+    int vertexCount = positions.length / 3;
+    for (int i = 0; i < triangleCount * 3; i++) {
+      if (indices[i] < 0 || indices[i] >= vertexCount) {
+        throw new IllegalArgumentException("Invalid triangle index: " + indices[i]);
+      }
+    }
+
+    int maxNodes = Math.max(triangleCount * 2 - 1, 1);
+    nodeBounds = new float[maxNodes * 6];
+    nodeStart = new int[maxNodes];
+    nodeCount = new int[maxNodes];
+
+    // Build with an explicit stack, the hierarchy may be deep for unevenly distributed triangles.
+    int[] order = new int[triangleCount];
+    float[] centroids = new float[triangleCount * 3];
+    for (int t = 0; t < triangleCount; t++) {
+      order[t] = t;
+      for (int axis = 0; axis < 3; axis++) {
+        centroids[t * 3 + axis] =
+            (positions[indices[t * 3] * 3 + axis]
+                    + positions[indices[t * 3 + 1] * 3 + axis]
+                    + positions[indices[t * 3 + 2] * 3 + axis])
+                / 3.0f;
+      }
+    }
+
+    int[] stackNode = new int[maxNodes];
+    int[] stackStart = new int[maxNodes];
+    int[] stackEnd = new int[maxNodes];
+    int[] stackDepth = new int[maxNodes];
+    int stackSize = 0;
+    int nodes = 1;
+    int deepest = 1;
+    stackNode[0] = 0;
+    stackStart[0] = 0;
+    stackEnd[0] = triangleCount;
+    stackDepth[0] = 1;
+    stackSize = 1;
+
+    while (stackSize > 0) {
+      stackSize--;
+      int node = stackNode[stackSize];
+      int start = stackStart[stackSize];
+      int end = stackEnd[stackSize];
+      int depth = stackDepth[stackSize];
+      deepest = Math.max(deepest, depth);
+
+      computeBounds(indices, order, start, end, node);
+
+      int count = end - start;
+      if (count <= MAX_TRIANGLES_PER_LEAF) {
+        nodeStart[node] = start;
+        nodeCount[node] = count;
+        continue;
+      }
+
+      int split = partition(order, centroids, start, end);
+      int left = nodes;
+      nodes += 2;
+      nodeStart[node] = left;
+      nodeCount[node] = 0;
+
+      stackNode[stackSize] = left;
+      stackStart[stackSize] = start;
+      stackEnd[stackSize] = split;
+      stackDepth[stackSize] = depth + 1;
+      stackSize++;
+      stackNode[stackSize] = left + 1;
+      stackStart[stackSize] = split;
+      stackEnd[stackSize] = end;
+      stackDepth[stackSize] = depth + 1;
+      stackSize++;
+    }
+
+    nodeCountTotal = nodes;
+    maxDepth = deepest;
+
+    triangles = new int[triangleCount * 3];
+    for (int t = 0; t < triangleCount; t++) {
+      System.arraycopy(indices, order[t] * 3, triangles, t * 3, 3);
+    }
+  }
+
+  int getTriangleCount() {
+    return triangleCount;
+  }
+
+  /** Writes the bounds of the whole mesh as min x, y, z followed by max x, y, z. */
+  void getBounds(float[] bounds) {
+    System.arraycopy(nodeBounds, 0, bounds, 0, 6);
+  }
+
+  /**
+   * Finds the nearest triangle hit by a ray. The direction doesn't need to be normalized, the
+   * result is in units of its length.
+   *
+   * @return the parameter of the nearest hit, or a negative value if nothing is hit
+   */
+  float raycast(float ox, float oy, float oz, float dx, float dy, float dz) {
+    if (triangleCount == 0) {
+      return -1.0f;
+    }
+
+    float invX = 1.0f / dx;
+    float invY = 1.0f / dy;
+    float invZ = 1.0f / dz;
+    float nearest = Float.POSITIVE_INFINITY;
+
+    int[] stack = new int[maxDepth + 1];
+    int stackSize = 0;
+    stack[stackSize++] = 0;
+    while (stackSize > 0) {
+      int node = stack[--stackSize];
+      if (!rayHitsNode(node, ox, oy, oz, invX, invY, invZ, nearest)) {
+        continue;
+      }
+
+      int count = nodeCount[node];
+      if (count == 0) {
+        stack[stackSize++] = nodeStart[node];
+        stack[stackSize++] = nodeStart[node] + 1;
+        continue;
+      }
+
+      int start = nodeStart[node];
+      for (int t = start; t < start + count; t++) {
+        float hit = rayTriangle(t, ox, oy, oz, dx, dy, dz);
+        if (hit >= 0.0f && hit < nearest) {
+          nearest = hit;
+        }
+      }
+    }
+
+    return nearest == Float.POSITIVE_INFINITY ? -1.0f : nearest;
+  }
+
+  /**
+   * Runs a test on the triangles whose bounds may overlap the given bounds, until the test returns
+   * true.
+   *
+   * @param bounds min x, y, z followed by max x, y, z
+   * @return true if the test returned true for any triangle
+   */
+  boolean anyTriangleInBounds(float[] bounds, TriangleTest test) {
+    if (triangleCount == 0) {
+      return false;
+    }
+
+    float[] triangle = new float[9];
+    int[] stack = new int[maxDepth + 1];
+    int stackSize = 0;
+    stack[stackSize++] = 0;
+    while (stackSize > 0) {
+      int node = stack[--stackSize];
+      if (!boundsOverlapNode(node, bounds)) {
+        continue;
+      }
+
+      int count = nodeCount[node];
+      if (count == 0) {
+        stack[stackSize++] = nodeStart[node];
+        stack[stackSize++] = nodeStart[node] + 1;
+        continue;
+      }
+
+      int start = nodeStart[node];
+      for (int t = start; t < start + count; t++) {
+        for (int vertex = 0; vertex < 3; vertex++) {
+          System.arraycopy(positions, triangles[t * 3 + vertex] * 3, triangle, vertex * 3, 3);
+        }
+        if (test.test(triangle)) {
+          return true;
+        }
+      }
+    }
+
+    return false;
+  }
+
+  private void computeBounds(int[] indices, int[] order, int start, int end, int node) {
+    int offset = node * 6;
+    Arrays.fill(nodeBounds, offset, offset + 3, Float.POSITIVE_INFINITY);
+    Arrays.fill(nodeBounds, offset + 3, offset + 6, Float.NEGATIVE_INFINITY);
+    for (int i = start; i < end; i++) {
+      int triangle = order[i];
+      for (int vertex = 0; vertex < 3; vertex++) {
+        int position = indices[triangle * 3 + vertex] * 3;
+        for (int axis = 0; axis < 3; axis++) {
+          float value = positions[position + axis];
+          nodeBounds[offset + axis] = Math.min(nodeBounds[offset + axis], value);
+          nodeBounds[offset + 3 + axis] = Math.max(nodeBounds[offset + 3 + axis], value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Splits a range of triangles at the middle of their centroids along the longest axis.
+   *
+   * @return the first triangle of the second half, always strictly inside the range
+   */
+  private static int partition(int[] order, float[] centroids, int start, int end) {
+    float[] min = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+    float[] max = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+    for (int i = start; i < end; i++) {
+      for (int axis = 0; axis < 3; axis++) {
+        float value = centroids[order[i] * 3 + axis];
+        min[axis] = Math.min(min[axis], value);
+        max[axis] = Math.max(max[axis], value);
+      }
+    }
+
+    int axis = 0;
+    for (int i = 1; i < 3; i++) {
+      if (max[i] - min[i] > max[axis] - min[axis]) {
+        axis = i;
+      }
+    }
+    float middle = (min[axis] + max[axis]) * 0.5f;
+
+    int split = start;
+    for (int i = start; i < end; i++) {
+      if (centroids[order[i] * 3 + axis] < middle) {
+        int temp = order[i];
+        order[i] = order[split];
+        order[split] = temp;
+        split++;
+      }
+    }
+
+    // All centroids are on one side, split the range in half instead.
+    if (split == start || split == end) {
+      split = (start + end) / 2;
+    }
+    return split;
+  }
+
+  private boolean rayHitsNode(
+      int node, float ox, float oy, float oz, float invX, float invY, float invZ, float maxT) {
+    int offset = node * 6;
+    float t1 = (nodeBounds[offset] - ox) * invX;
+    float t2 = (nodeBounds[offset + 3] - ox) * invX;
+    float tMin = Math.min(t1, t2);
+    float tMax = Math.max(t1, t2);
+
+    t1 = (nodeBounds[offset + 1] - oy) * invY;
+    t2 = (nodeBounds[offset + 4] - oy) * invY;
+    tMin = Math.max(tMin, Math.min(t1, t2));
+    tMax = Math.min(tMax, Math.max(t1, t2));
+
+    t1 = (nodeBounds[offset + 2] - oz) * invZ;
+    t2 = (nodeBounds[offset + 5] - oz) * invZ;
+    tMin = Math.max(tMin, Math.min(t1, t2));
+    tMax = Math.min(tMax, Math.max(t1, t2));
+
+    // NaN from a zero direction on a slab boundary fails these comparisons and rejects the node.
+    return tMax >= Math.max(tMin, 0.0f) && tMin <= maxT;
+  }
+
+  private boolean boundsOverlapNode(int node, float[] bounds) {
+    int offset = node * 6;
+    return nodeBounds[offset] <= bounds[3]
+        && nodeBounds[offset + 3] >= bounds[0]
+        && nodeBounds[offset + 1] <= bounds[4]
+        && nodeBounds[offset + 4] >= bounds[1]
+        && nodeBounds[offset + 2] <= bounds[5]
+        && nodeBounds[offset + 5] >= bounds[2];
+  }
+
+  /** Moller-Trumbore ray triangle intersection, for both faces of the triangle. */
+  private float rayTriangle(
+      int triangle, float ox, float oy, float oz, float dx, float dy, float dz) {
+    int a = triangles[triangle * 3] * 3;
+    int b = triangles[triangle * 3 + 1] * 3;
+    int c = triangles[triangle * 3 + 2] * 3;
+    float ax = positions[a];
+    float ay = positions[a + 1];
+    float az = positions[a + 2];
+    float e1x = positions[b] - ax;
+    float e1y = positions[b + 1] - ay;
+    float e1z = positions[b + 2] - az;
+    float e2x = positions[c] - ax;
+    float e2y = positions[c + 1] - ay;
+    float e2z = positions[c + 2] - az;
+
+    float px = dy * e2z - dz * e2y;
+    float py = dz * e2x - dx * e2z;
+    float pz = dx * e2y - dy * e2x;
+    float determinant = e1x * px + e1y * py + e1z * pz;
+    // The determinant scales with the lengths of both edges and of the direction, compare it to
+    // their product so that the test doesn't depend on the units of the mesh.
+    float e1LengthSquared = e1x * e1x + e1y * e1y + e1z * e1z;
+    float e2LengthSquared = e2x * e2x + e2y * e2y + e2z * e2z;
+    float dLengthSquared = dx * dx + dy * dy + dz * dz;
+    float scaleSquared = e1LengthSquared * e2LengthSquared * dLengthSquared;
+    if (determinant * determinant <= PARALLEL_EPSILON * PARALLEL_EPSILON * scaleSquared) {
+      return -1.0f;
+    }
+    float inverseDeterminant = 1.0f / determinant;
+
+    float sx = ox - ax;
+    float sy = oy - ay;
+    float sz = oz - az;
+    float u = (sx * px + sy * py + sz * pz) * inverseDeterminant;
+    if (u < 0.0f || u > 1.0f) {
+      return -1.0f;
+    }
+
+    float qx = sy * e1z - sz * e1y;
+    float qy = sz * e1x - sx * e1z;
+    float qz = sx * e1y - sy * e1x;
+    float v = (dx * qx + dy * qy + dz * qz) * inverseDeterminant;
+    if (v < 0.0f || u + v > 1.0f) {
+      return -1.0f;
+    }
+
+    return (e2x * qx + e2y * qy + e2z * qz) * inverseDeterminant;
+  }
+}
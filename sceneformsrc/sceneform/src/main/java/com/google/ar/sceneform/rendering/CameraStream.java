@@ -62,6 +62,7 @@ public class CameraStream {
   private int renderablePriority = Renderable.RENDER_PRIORITY_LAST;
 
   private boolean isTextureInitialized = false;
+  @Nullable private CleanupItem<CameraStream> cleanupItem;
 
   @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored", "initialization"})
   public CameraStream(int cameraTextureId, Renderer renderer) {
@@ -141,6 +142,33 @@ public class CameraStream {
             });
   }
 
+  /**
+   * Releases the camera stream renderable, its buffers and the camera texture right away. The
+   * camera stream must not be used afterwards.
+   */
+  public void release() {
+    AndroidPreconditions.checkUiThread();
+
+    CleanupItem<CameraStream> cleanupItem = this.cleanupItem;
+    if (cleanupItem != null) {
+      ResourceManager.getInstance().getCameraStreamCleanupRegistry().release(cleanupItem);
+      this.cleanupItem = null;
+    }
+
+    ExternalTexture cameraTexture = this.cameraTexture;
+    if (cameraTexture != null) {
+      cameraTexture.release();
+      this.cameraTexture = null;
+      isTextureInitialized = false;
+    }
+
+    Material defaultCameraMaterial = this.defaultCameraMaterial;
+    if (defaultCameraMaterial != null) {
+      defaultCameraMaterial.release();
+      this.defaultCameraMaterial = null;
+    }
+  }
+
   public boolean isTextureInitialized() {
     return isTextureInitialized;
   }
@@ -263,15 +291,16 @@ public class CameraStream {
     // add to the scene
     scene.addEntity(cameraStreamRenderable);
 
-    ResourceManager.getInstance()
-        .getCameraStreamCleanupRegistry()
-        .register(
-            this,
-            new CleanupCallback(
-                scene, cameraStreamRenderable, cameraIndexBuffer, cameraVertexBuffer));
+    cleanupItem =
+        ResourceManager.getInstance()
+            .getCameraStreamCleanupRegistry()
+            .register(
+                this,
+                new CleanupCallback(
+                    scene, cameraStreamRenderable, cameraIndexBuffer, cameraVertexBuffer));
   }
 
-  /** Cleanup filament objects after garbage collection */
+  /** Cleanup filament objects after release or garbage collection */
   private static final class CleanupCallback implements Runnable {
     private final Scene scene;
     private final int cameraStreamRenderable;
@@ -294,7 +323,7 @@ public class CameraStream {
       AndroidPreconditions.checkUiThread();
 
       IEngine engine = EngineInstance.getEngine();
-      if (engine == null && !engine.isValid()) {
+      if (engine == null || !engine.isValid()) {
         return;
       }
 
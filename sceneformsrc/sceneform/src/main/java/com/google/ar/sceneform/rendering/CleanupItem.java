@@ -9,6 +9,7 @@ package com.google.ar.sceneform.rendering;
  */
 class CleanupItem<T> extends java.lang.ref.PhantomReference<T> {
   private final Runnable cleanupCallback;
+  private boolean isLeakReported = true;
 
   /**
    * @param trackedObject The object to be tracked until garbage collection
@@ -21,6 +22,18 @@ class CleanupItem<T> extends java.lang.ref.PhantomReference<T> {
     this.cleanupCallback = cleanupCallback;
   }
 
+  /**
+   * Sets whether reaching the tracked object through garbage collection is reported as a leak.
+   * Objects that are only held weakly on purpose, such as registry entries, are not leaks.
+   */
+  void setLeakReported(boolean isLeakReported) {
+    this.isLeakReported = isLeakReported;
+  }
+
+  boolean isLeakReported() {
+    return isLeakReported;
+  }
+
   /** Executes the {@link Runnable}. */
   void run() {
     cleanupCallback.run();
@@ -1,37 +1,83 @@
 package com.google.ar.sceneform.rendering;
 
+import android.util.Log;
 import com.google.ar.sceneform.resources.ResourceHolder;
 import java.lang.ref.ReferenceQueue;
+import java.util.ArrayDeque;
 import java.util.HashSet;
 import java.util.Iterator;
 
 /**
  * Maintains a {@link ReferenceQueue} and executes a {@link Runnable} after each object in the queue
  * is garbage collected.
+ *
+ * <p>Objects are expected to be released explicitly with {@link #release(CleanupItem)}, which runs
+ * the {@link Runnable} right away. Garbage collection is only a fallback for objects that were
+ * never released, and these leaks are logged.
  */
 public class CleanupRegistry<T> implements ResourceHolder {
+  private static final String TAG = CleanupRegistry.class.getSimpleName();
+  // Leaks are logged for the first one and then once every this many, to avoid flooding the log.
+  private static final int LEAK_LOG_INTERVAL = 100;
 
   private final java.util.HashSet<CleanupItem<T>> cleanupItemHashSet;
   private final ReferenceQueue<T> referenceQueue;
+  // Collected objects whose cleanup has not run yet, carried over between budgeted reclaims.
+  private final ArrayDeque<CleanupItem<T>> pendingItems = new ArrayDeque<>();
+  private final String resourceName;
+  private int leakCount;
 
   public CleanupRegistry() {
-    this(new HashSet<>(), new ReferenceQueue<>());
+    this("Resource");
+  }
+
+  /** @param resourceName name of the tracked objects, used when logging leaks */
+  public CleanupRegistry(String resourceName) {
+    this(new HashSet<>(), new ReferenceQueue<>(), resourceName);
   }
 
   public CleanupRegistry(
       java.util.HashSet<CleanupItem<T>> cleanupItemHashSet, ReferenceQueue<T> referenceQueue) {
+    this(cleanupItemHashSet, referenceQueue, "Resource");
+  }
+
+  private CleanupRegistry(
+      java.util.HashSet<CleanupItem<T>> cleanupItemHashSet,
+      ReferenceQueue<T> referenceQueue,
+      String resourceName) {
     this.cleanupItemHashSet = cleanupItemHashSet;
     this.referenceQueue = referenceQueue;
+    this.resourceName = resourceName;
   }
 
   /**
    * Adds {@code trackedOBject} to the {@link ReferenceQueue}.
    *
    * @param trackedObject The target to be tracked.
-   * @param cleanupCallback Will be called after {@code trackedOBject} is disposed.
+   * @param cleanupCallback Will be called after {@code trackedOBject} is released or disposed.
+   * @return the handle used to release the object explicitly
+   */
+  public CleanupItem<T> register(T trackedObject, Runnable cleanupCallback) {
+    CleanupItem<T> cleanupItem = new CleanupItem<T>(trackedObject, referenceQueue, cleanupCallback);
+    cleanupItemHashSet.add(cleanupItem);
+    return cleanupItem;
+  }
+
+  /**
+   * Runs the {@link Runnable} of a tracked object right away, instead of after it is garbage
+   * collected. Does nothing if it already ran.
+   *
+   * @return true if the {@link Runnable} was run
    */
-  public void register(T trackedObject, Runnable cleanupCallback) {
-    cleanupItemHashSet.add(new CleanupItem<T>(trackedObject, referenceQueue, cleanupCallback));
+  public boolean release(CleanupItem<T> cleanupItem) {
+    if (!cleanupItemHashSet.remove(cleanupItem)) {
+      return false;
+    }
+
+    // The reference itself isn't needed anymore, this keeps it out of the queue.
+    cleanupItem.clear();
+    cleanupItem.run();
+    return true;
   }
 
   /**
@@ -41,16 +87,71 @@ public class CleanupRegistry<T> implements ResourceHolder {
    * @return count of resources remaining.
    */
   @Override
-  @SuppressWarnings("unchecked") // safe cast from Reference to a CleanupItem
   public long reclaimReleasedResources() {
+    reclaimReleasedResources(Integer.MAX_VALUE, Long.MAX_VALUE);
+    return cleanupItemHashSet.size();
+  }
+
+  /**
+   * Polls the {@link ReferenceQueue} for garbage collected objects and runs the associated {@link
+   * Runnable} of at most {@code maxCount} of them. The remaining ones are kept for the next call.
+   *
+   * @param maxCount the maximum number of cleanups to run
+   * @param deadlineNanos no cleanup is started once {@link System#nanoTime()} is past this time
+   * @return count of cleanups that were run
+   */
+  @SuppressWarnings("unchecked") // safe cast from Reference to a CleanupItem
+  int reclaimReleasedResources(int maxCount, long deadlineNanos) {
+    // Polling is cheap, the cleanups that destroy the resources are what the budget limits.
     CleanupItem<T> ref = (CleanupItem<T>) referenceQueue.poll();
     while (ref != null) {
-      if (cleanupItemHashSet.contains(ref)) {
-        ref.run();
-        cleanupItemHashSet.remove(ref);
-      }
+      pendingItems.add(ref);
       ref = (CleanupItem<T>) referenceQueue.poll();
     }
+
+    int count = 0;
+    while (count < maxCount && !pendingItems.isEmpty()) {
+      // At least one cleanup is run, so that the backlog always shrinks.
+      if (count > 0 && deadlineNanos != Long.MAX_VALUE && System.nanoTime() - deadlineNanos > 0) {
+        break;
+      }
+
+      CleanupItem<T> item = pendingItems.poll();
+      if (cleanupItemHashSet.remove(item)) {
+        if (item.isLeakReported()) {
+          onLeaked();
+        }
+        item.run();
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Returns the number of objects that were garbage collected without being released. */
+  int getLeakCount() {
+    return leakCount;
+  }
+
+  private void onLeaked() {
+    leakCount++;
+    if (leakCount == 1 || leakCount % LEAK_LOG_INTERVAL == 0) {
+      Log.w(
+          TAG,
+          resourceName
+              + " garbage collected without being released, "
+              + leakCount
+              + " so far. Call release() when it is no longer used to free its memory right away.");
+    }
+  }
+
+  /** Returns the number of collected objects whose cleanup has not run yet. */
+  int getPendingCount() {
+    return pendingItems.size();
+  }
+
+  /** Returns the number of tracked objects that have not been cleaned up. */
+  int getTrackedCount() {
     return cleanupItemHashSet.size();
   }
 
@@ -63,5 +164,6 @@ public class CleanupRegistry<T> implements ResourceHolder {
       iterator.remove();
       ref.run();
     }
+    pendingItems.clear();
   }
 }
@@ -32,6 +32,15 @@ public class EngineInstance {
     return headlessEngine;
   }
 
+  /**
+   * Returns the GL context the Filament engine was created with, or null if the engine has not
+   * been created yet or does not own its GL context.
+   */
+  @Nullable
+  public static EGLContext getGlContext() {
+    return glContext;
+  }
+
   /**
    * Get the Filament Engine instance, creating it if necessary.
    *
@@ -25,6 +25,7 @@ public class ExternalTexture {
 
   @Nullable private com.google.android.filament.Texture filamentTexture;
   @Nullable private Stream filamentStream;
+  @Nullable private CleanupItem<ExternalTexture> cleanupItem;
 
   /** Creates an ExternalTexture with a new Android {@link SurfaceTexture} and {@link Surface}. */
   @SuppressWarnings("initialization")
@@ -78,6 +79,29 @@ public class ExternalTexture {
     return Preconditions.checkNotNull(surface);
   }
 
+  /**
+   * Releases the texture and its stream right away, along with the {@link Surface} and {@link
+   * SurfaceTexture} created for it. The texture must not be used afterwards. Textures that are
+   * never released are freed after they are garbage collected.
+   */
+  public void release() {
+    AndroidPreconditions.checkUiThread();
+
+    CleanupItem<ExternalTexture> cleanupItem = this.cleanupItem;
+    CleanupRegistry<ExternalTexture> cleanupRegistry =
+        ResourceManager.getInstance().getExternalTextureCleanupRegistry();
+    if (cleanupItem == null || !cleanupRegistry.release(cleanupItem)) {
+      return;
+    }
+
+    if (surface != null) {
+      surface.release();
+    }
+    if (surfaceTexture != null) {
+      surfaceTexture.release();
+    }
+  }
+
   com.google.android.filament.Texture getFilamentTexture() {
     return Preconditions.checkNotNull(filamentTexture);
   }
@@ -109,12 +133,13 @@ public class ExternalTexture {
             .build(engine.getFilamentEngine());
 
     filamentTexture.setExternalStream(engine.getFilamentEngine(), filamentStream);
-    ResourceManager.getInstance()
-        .getExternalTextureCleanupRegistry()
-        .register(this, new CleanupCallback(filamentTexture, filamentStream));
+    cleanupItem =
+        ResourceManager.getInstance()
+            .getExternalTextureCleanupRegistry()
+            .register(this, new CleanupCallback(filamentTexture, filamentStream));
   }
 
-  /** Cleanup filament objects after garbage collection */
+  /** Cleanup filament objects after release or garbage collection */
   private static final class CleanupCallback implements Runnable {
     @Nullable private final com.google.android.filament.Texture filamentTexture;
     @Nullable private final Stream filamentStream;
@@ -0,0 +1,249 @@
+package com.google.ar.sceneform.rendering;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import com.google.android.filament.Texture;
+import com.google.android.filament.Viewport;
+import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ * Reads rendered frames back into a ring of preallocated direct buffers without waiting for the
+ * GPU.
+ *
+ * <p>Each read is issued while the frame is rendered and completes a few frames later, once the
+ * GPU is done with it. Buffers are reused between reads and only grow when a larger region is
+ * read. When every buffer is still in flight new reads are refused, so a slow consumer skips
+ * frames instead of stalling the renderer.
+ */
+class FrameReadback {
+  static final int DEFAULT_BUFFER_COUNT = 3;
+  private static final int BYTES_PER_PIXEL = 4;
+
+  /** One buffer of the ring and the read that uses it. */
+  private static final class Slot {
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(0);
+    private ByteBuffer scaledBuffer = ByteBuffer.allocateDirect(0);
+    private boolean isInUse;
+
+    private int left;
+    private int bottom;
+    private int width;
+    private int height;
+    private float scale;
+    @Nullable private Renderer.FrameReadCallback callback;
+  }
+
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final ArrayList<Slot> slots = new ArrayList<>();
+  // Reads waiting for the next rendered frame.
+  private final ArrayList<Slot> pendingSlots = new ArrayList<>();
+  private int bufferCount;
+  private boolean isDisposed;
+
+  FrameReadback() {
+    setBufferCount(DEFAULT_BUFFER_COUNT);
+  }
+
+  /**
+   * Sets how many reads may be in flight at once. Extra buffers that are in flight are dropped once
+   * they return.
+   */
+  void setBufferCount(int bufferCount) {
+    if (bufferCount < 1) {
+      throw new IllegalArgumentException("Buffer count must be at least 1.");
+    }
+
+    this.bufferCount = bufferCount;
+    for (int i = slots.size() - 1; i >= 0 && slots.size() > bufferCount; i--) {
+      if (!slots.get(i).isInUse) {
+        slots.remove(i);
+      }
+    }
+    while (slots.size() < bufferCount) {
+      slots.add(new Slot());
+    }
+  }
+
+  /**
+   * Queues a read of the next rendered frame.
+   *
+   * @return false if every buffer is in flight, in which case the callback is never called
+   */
+  boolean requestRead(
+      int left,
+      int bottom,
+      int width,
+      int height,
+      float scale,
+      Renderer.FrameReadCallback callback) {
+    AndroidPreconditions.checkUiThread();
+
+    Slot slot = null;
+    for (int i = 0; i < slots.size(); i++) {
+      if (!slots.get(i).isInUse) {
+        slot = slots.get(i);
+        break;
+      }
+    }
+    if (slot == null || isDisposed) {
+      return false;
+    }
+
+    slot.isInUse = true;
+    slot.left = left;
+    slot.bottom = bottom;
+    slot.width = width;
+    slot.height = height;
+    slot.scale = scale;
+    slot.callback = callback;
+    pendingSlots.add(slot);
+    return true;
+  }
+
+  boolean hasPendingReads() {
+    return !pendingSlots.isEmpty();
+  }
+
+  /**
+   * Issues the queued reads. Must be called after the frame is rendered and before it ends.
+   *
+   * @param viewport the viewport of the rendered view, reads are clamped to it
+   */
+  void issuePendingReads(com.google.android.filament.Renderer renderer, Viewport viewport) {
+    for (int i = 0; i < pendingSlots.size(); i++) {
+      Slot slot = pendingSlots.get(i);
+
+      // A zero width or height reads the whole viewport.
+      int left = Math.max(0, slot.left);
+      int bottom = Math.max(0, slot.bottom);
+      int right = slot.width == 0 ? viewport.width : Math.min(viewport.width, left + slot.width);
+      int top =
+          slot.height == 0 ? viewport.height : Math.min(viewport.height, bottom + slot.height);
+      if (right <= left || top <= bottom) {
+        releaseSlot(slot);
+        continue;
+      }
+
+      slot.left = left;
+      slot.bottom = bottom;
+      slot.width = right - left;
+      slot.height = top - bottom;
+
+      int size = slot.width * slot.height * BYTES_PER_PIXEL;
+      if (slot.buffer.capacity() < size) {
+        slot.buffer = ByteBuffer.allocateDirect(size);
+      }
+      slot.buffer.clear();
+      slot.buffer.limit(size);
+
+      Texture.PixelBufferDescriptor descriptor =
+          new Texture.PixelBufferDescriptor(
+              slot.buffer,
+              Texture.Format.RGBA,
+              Texture.Type.UBYTE,
+              1,
+              0,
+              0,
+              0,
+              handler,
+              () -> onReadComplete(slot));
+      renderer.readPixels(
+          viewport.left + slot.left,
+          viewport.bottom + slot.bottom,
+          slot.width,
+          slot.height,
+          descriptor);
+    }
+    pendingSlots.clear();
+  }
+
+  /** Drops the queued reads and stops delivering the reads in flight. */
+  void dispose() {
+    isDisposed = true;
+    for (int i = 0; i < pendingSlots.size(); i++) {
+      releaseSlot(pendingSlots.get(i));
+    }
+    pendingSlots.clear();
+  }
+
+  private void onReadComplete(Slot slot) {
+    if (isDisposed) {
+      releaseSlot(slot);
+      return;
+    }
+
+    slot.buffer.rewind();
+    if (slot.scale >= 1.0f) {
+      deliver(slot, slot.buffer, slot.width, slot.height);
+      return;
+    }
+
+    int scaledWidth = Math.max(1, Math.round(slot.width * slot.scale));
+    int scaledHeight = Math.max(1, Math.round(slot.height * slot.scale));
+    int size = scaledWidth * scaledHeight * BYTES_PER_PIXEL;
+    if (slot.scaledBuffer.capacity() < size) {
+      slot.scaledBuffer = ByteBuffer.allocateDirect(size);
+    }
+    slot.scaledBuffer.clear();
+    slot.scaledBuffer.limit(size);
+
+    // Downscaling a large frame takes a few milliseconds, keep it off the UI thread.
+    ThreadPools.getThreadPoolExecutor()
+        .execute(
+            () -> {
+              downscale(
+                  slot.buffer,
+                  slot.width,
+                  slot.height,
+                  slot.scaledBuffer,
+                  scaledWidth,
+                  scaledHeight);
+              handler.post(() -> deliver(slot, slot.scaledBuffer, scaledWidth, scaledHeight));
+            });
+  }
+
+  private void deliver(Slot slot, ByteBuffer pixels, int width, int height) {
+    Renderer.FrameReadCallback callback = slot.callback;
+    try {
+      if (!isDisposed && callback != null) {
+        callback.onFrameRead(pixels, width, height);
+      }
+    } finally {
+      releaseSlot(slot);
+    }
+  }
+
+  private void releaseSlot(Slot slot) {
+    slot.callback = null;
+    slot.isInUse = false;
+
+    // The buffer count was lowered while this read was in flight.
+    if (slots.size() > bufferCount) {
+      slots.remove(slot);
+    }
+  }
+
+  /** Point samples the source pixels at the center of each destination pixel. */
+  private static void downscale(
+      ByteBuffer source,
+      int sourceWidth,
+      int sourceHeight,
+      ByteBuffer destination,
+      int destinationWidth,
+      int destinationHeight) {
+    int destinationIndex = 0;
+    for (int y = 0; y < destinationHeight; y++) {
+      int sourceY = (2 * y + 1) * sourceHeight / (2 * destinationHeight);
+      int sourceRow = sourceY * sourceWidth;
+      for (int x = 0; x < destinationWidth; x++) {
+        int sourceX = (2 * x + 1) * sourceWidth / (2 * destinationWidth);
+        int sourceIndex = (sourceRow + sourceX) * BYTES_PER_PIXEL;
+        destination.putInt(destinationIndex, source.getInt(sourceIndex));
+        destinationIndex += BYTES_PER_PIXEL;
+      }
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package com.google.ar.sceneform.rendering;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.util.SparseArray;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The glyphs of a font rasterized once into a single {@link Texture}, used to draw {@link
+ * TextRenderable}s.
+ *
+ * <p>Create one atlas per font and color and share it between all of the labels that use them.
+ * All labels of an atlas sample the same {@link Texture}, each label draws with its own copy of
+ * the material of the atlas.
+ *
+ * <pre>{@code
+ * atlas = new GlyphAtlas(context, Typeface.DEFAULT, Color.WHITE);
+ * future = TextRenderable.builder().setGlyphAtlas(atlas).setText("Hello").build();
+ * }</pre>
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class GlyphAtlas {
+  /** Characters rasterized by default: printable ASCII. */
+  public static final String DEFAULT_CHARACTERS;
+
+  static {
+    StringBuilder characters = new StringBuilder();
+    for (char c = ' '; c <= '~'; c++) {
+      characters.append(c);
+    }
+    DEFAULT_CHARACTERS = characters.toString();
+  }
+
+  private static final float GLYPH_SIZE_PIXELS = 64.0f;
+  private static final int ATLAS_WIDTH = 1024;
+  private static final int MAX_ATLAS_HEIGHT = 4096;
+  // Empty pixels around each glyph so that filtering and mipmaps do not bleed between glyphs.
+  private static final int PADDING = 4;
+  private static final char FALLBACK_CHARACTER = '?';
+
+  // Parameters of the glyph material, which has no lighting of its own.
+  private static final float GLYPH_ROUGHNESS = 1.0f;
+  private static final float GLYPH_REFLECTANCE = 0.0f;
+
+  /**
+   * Position of a glyph relative to the pen and its texture coordinates. Horizontal metrics are
+   * in units of the line height.
+   */
+  static final class Glyph {
+    final float advance;
+    final float left;
+    final float right;
+    final float uvLeft;
+    final float uvTop;
+    final float uvRight;
+    final float uvBottom;
+    // False for glyphs without pixels, such as spaces, which only advance the pen.
+    final boolean isVisible;
+
+    private Glyph(
+        float advance,
+        float left,
+        float right,
+        float uvLeft,
+        float uvTop,
+        float uvRight,
+        float uvBottom,
+        boolean isVisible) {
+      this.advance = advance;
+      this.left = left;
+      this.right = right;
+      this.uvLeft = uvLeft;
+      this.uvTop = uvTop;
+      this.uvRight = uvRight;
+      this.uvBottom = uvBottom;
+      this.isVisible = isVisible;
+    }
+  }
+
+  private final SparseArray<Glyph> glyphs = new SparseArray<>();
+  @Nullable private final Glyph fallbackGlyph;
+  private final float glyphTop;
+  private final float glyphBottom;
+  private final float descent;
+  private final CompletableFuture<Material> materialFuture;
+
+  /** Rasterizes the printable ASCII characters of a typeface with the given color. */
+  public GlyphAtlas(Context context, Typeface typeface, int color) {
+    this(context, typeface, color, DEFAULT_CHARACTERS);
+  }
+
+  /**
+   * Rasterizes the given characters of a typeface.
+   *
+   * @param context the context used to load the glyph material
+   * @param typeface the typeface of the glyphs
+   * @param color the color of the glyphs, see {@link android.graphics.Color}
+   * @param characters the characters available to the labels of this atlas. Other characters are
+   *     drawn as '?' if it is available, and are otherwise skipped.
+   * @throws IllegalArgumentException if the glyphs do not fit in the largest atlas texture
+   */
+  @SuppressWarnings({"AndroidApiChecker", "initialization"})
+  public GlyphAtlas(Context context, Typeface typeface, int color, String characters) {
+    Preconditions.checkNotNull(context, "Parameter \"context\" was null.");
+    Preconditions.checkNotNull(typeface, "Parameter \"typeface\" was null.");
+    Preconditions.checkNotNull(characters, "Parameter \"characters\" was null.");
+
+    Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    paint.setTypeface(typeface);
+    paint.setTextSize(GLYPH_SIZE_PIXELS);
+    paint.setColor(color);
+    Paint.FontMetrics fontMetrics = paint.getFontMetrics();
+    float lineHeight = paint.getFontSpacing();
+
+    // Every glyph uses a cell as tall as the tallest glyph of the font, so that they share the same
+    // vertical metrics.
+    int cellHeight = (int) Math.ceil(fontMetrics.bottom - fontMetrics.top) + PADDING * 2;
+    glyphTop = (PADDING - fontMetrics.top) / lineHeight;
+    glyphBottom = -(cellHeight - PADDING + fontMetrics.top) / lineHeight;
+    descent = fontMetrics.descent / lineHeight;
+
+    // Measure the glyphs and pack them into rows.
+    int count = characters.length();
+    Rect[] bounds = new Rect[count];
+    int[] cellX = new int[count];
+    int[] cellY = new int[count];
+    int x = 0;
+    int y = 0;
+    for (int i = 0; i < count; i++) {
+      Rect glyphBounds = new Rect();
+      paint.getTextBounds(characters, i, i + 1, glyphBounds);
+      bounds[i] = glyphBounds;
+      if (glyphBounds.isEmpty()) {
+        continue;
+      }
+
+      int cellWidth = glyphBounds.width() + PADDING * 2;
+      if (x + cellWidth > ATLAS_WIDTH) {
+        x = 0;
+        y += cellHeight;
+      }
+      cellX[i] = x;
+      cellY[i] = y;
+      x += cellWidth;
+    }
+
+    int usedHeight = y + cellHeight;
+    int height = 1;
+    while (height < usedHeight) {
+      height *= 2;
+    }
+    if (height > MAX_ATLAS_HEIGHT) {
+      throw new IllegalArgumentException(
+          "Too many characters for a GlyphAtlas: " + count + " characters.");
+    }
+
+    // Draw the glyphs. Row 0 of the bitmap is at texture coordinate 0.
+    Bitmap bitmap = Bitmap.createBitmap(ATLAS_WIDTH, height, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    for (int i = 0; i < count; i++) {
+      char character = characters.charAt(i);
+      Rect glyphBounds = bounds[i];
+      float advance = paint.measureText(characters, i, i + 1) / lineHeight;
+      if (glyphBounds.isEmpty()) {
+        glyphs.put(character, new Glyph(advance, 0, 0, 0, 0, 0, 0, false));
+        continue;
+      }
+
+      canvas.drawText(
+          characters,
+          i,
+          i + 1,
+          cellX[i] + PADDING - glyphBounds.left,
+          cellY[i] + PADDING - fontMetrics.top,
+          paint);
+
+      int cellWidth = glyphBounds.width() + PADDING * 2;
+      glyphs.put(
+          character,
+          new Glyph(
+              advance,
+              (glyphBounds.left - PADDING) / lineHeight,
+              (glyphBounds.right + PADDING) / lineHeight,
+              (float) cellX[i] / ATLAS_WIDTH,
+              (float) cellY[i] / height,
+              (float) (cellX[i] + cellWidth) / ATLAS_WIDTH,
+              (float) (cellY[i] + cellHeight) / height,
+              true));
+    }
+    fallbackGlyph = glyphs.get(FALLBACK_CHARACTER);
+
+    materialFuture =
+        Texture.builder()
+            .setSource(bitmap)
+            .build()
+            .thenCompose(texture -> MaterialFactory.makeTransparentWithTexture(context, texture))
+            .thenApply(
+                material -> {
+                  material.setFloat(MaterialFactory.MATERIAL_ROUGHNESS, GLYPH_ROUGHNESS);
+                  material.setFloat(MaterialFactory.MATERIAL_REFLECTANCE, GLYPH_REFLECTANCE);
+                  return material;
+                });
+  }
+
+  /**
+   * Material that samples the glyph texture. Each label is built from it and draws with its own
+   * copy.
+   */
+  CompletableFuture<Material> getMaterial() {
+    return materialFuture;
+  }
+
+  /** Returns the glyph of a character, or null if it is not in the atlas. */
+  @Nullable
+  Glyph getGlyph(char character) {
+    Glyph glyph = glyphs.get(character);
+    return glyph != null ? glyph : fallbackGlyph;
+  }
+
+  /** Top of every glyph quad relative to the baseline, in units of the line height. */
+  float getGlyphTop() {
+    return glyphTop;
+  }
+
+  /** Bottom of every glyph quad relative to the baseline, in units of the line height. */
+  float getGlyphBottom() {
+    return glyphBottom;
+  }
+
+  /** Distance from the baseline to the bottom of a line, in units of the line height. */
+  float getDescent() {
+    return descent;
+  }
+}
@@ -0,0 +1,194 @@
+package com.google.ar.sceneform.rendering;
+
+import android.support.annotation.Nullable;
+import com.google.android.filament.Scene;
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Vector3;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps the lights that contribute the most to the view in the Filament scene, up to a budget.
+ * There is no budget by default, so only lights that can't reach the view are left out.
+ *
+ * <p>Each point and spot light is ranked by an estimate of its contribution: its intensity, scaled
+ * by how large its sphere of influence appears from the camera. Lights whose sphere of influence
+ * is outside of the view frustum cannot light anything visible and are always removed. Directional
+ * lights light the whole scene and are always kept, without counting against the budget.
+ */
+class LightBudget {
+  static final int DEFAULT_MAX_ACTIVE_LIGHTS = Integer.MAX_VALUE;
+  private static final int FRUSTUM_PLANE_COUNT = 6;
+
+  private static final Comparator<LightInstance> BY_IMPORTANCE =
+      (a, b) -> Float.compare(b.importance, a.importance);
+
+  private int maxActiveLights = DEFAULT_MAX_ACTIVE_LIGHTS;
+  private final ArrayList<LightInstance> rankedLights = new ArrayList<>();
+  private final Matrix viewProjectionMatrix = new Matrix();
+  // Planes of the view frustum as (a, b, c, d), normalized and pointing inward.
+  private final float[] frustumPlanes = new float[FRUSTUM_PLANE_COUNT * 4];
+  private final Vector3 cameraPosition = new Vector3();
+
+  private int activeLightCount;
+  private int culledLightCount;
+  private int updatedLightCount;
+
+  void setMaxActiveLights(int maxActiveLights) {
+    if (maxActiveLights < 0) {
+      throw new IllegalArgumentException("Maximum active light count must not be negative.");
+    }
+    this.maxActiveLights = maxActiveLights;
+  }
+
+  int getMaxActiveLights() {
+    return maxActiveLights;
+  }
+
+  /** Returns the number of lights in the scene during the last frame. */
+  int getActiveLightCount() {
+    return activeLightCount;
+  }
+
+  /** Returns the number of lights left out of the scene during the last frame. */
+  int getCulledLightCount() {
+    return culledLightCount;
+  }
+
+  /** Returns the number of lights whose transform or properties were updated last frame. */
+  int getUpdatedLightCount() {
+    return updatedLightCount;
+  }
+
+  /**
+   * Pushes the changed lights to Filament and selects the lights of this frame.
+   *
+   * @param cameraProvider the camera the lights are ranked for, or null to keep every light
+   */
+  void update(List<LightInstance> lights, @Nullable CameraProvider cameraProvider, Scene scene) {
+    updatedLightCount = 0;
+    for (int i = 0; i < lights.size(); i++) {
+      if (lights.get(i).updateTransform()) {
+        updatedLightCount++;
+      }
+    }
+
+    rankedLights.clear();
+    activeLightCount = 0;
+    culledLightCount = 0;
+
+    if (cameraProvider != null) {
+      float[] cameraTransform = cameraProvider.getWorldModelMatrix().data;
+      cameraPosition.set(cameraTransform[12], cameraTransform[13], cameraTransform[14]);
+      Matrix.multiply(
+          cameraProvider.getProjectionMatrix(),
+          cameraProvider.getViewMatrix(),
+          viewProjectionMatrix);
+      extractFrustumPlanes(viewProjectionMatrix.data);
+    }
+
+    for (int i = 0; i < lights.size(); i++) {
+      LightInstance light = lights.get(i);
+      if (cameraProvider == null || light.getLight().getType() == Light.Type.DIRECTIONAL) {
+        setInScene(light, true, scene);
+        continue;
+      }
+
+      light.importance = estimateImportance(light);
+      if (light.importance > 0.0f) {
+        rankedLights.add(light);
+      } else {
+        setInScene(light, false, scene);
+      }
+    }
+
+    if (rankedLights.size() > maxActiveLights) {
+      Collections.sort(rankedLights, BY_IMPORTANCE);
+    }
+    for (int i = 0; i < rankedLights.size(); i++) {
+      setInScene(rankedLights.get(i), i < maxActiveLights, scene);
+    }
+    rankedLights.clear();
+  }
+
+  private void setInScene(LightInstance light, boolean isInScene, Scene scene) {
+    if (isInScene) {
+      activeLightCount++;
+    } else {
+      culledLightCount++;
+    }
+
+    if (light.isInScene == isInScene) {
+      return;
+    }
+    light.isInScene = isInScene;
+    if (isInScene) {
+      scene.addEntity(light.getEntity());
+    } else {
+      scene.remove(light.getEntity());
+    }
+  }
+
+  /**
+   * Estimates how much a point or spot light contributes to the view, or returns 0 if its sphere
+   * of influence is outside of the view frustum.
+   */
+  private float estimateImportance(LightInstance lightInstance) {
+    Light light = lightInstance.getLight();
+    Vector3 position = lightInstance.getWorldPosition();
+    float radius = light.getFalloffRadius();
+    if (radius <= 0.0f || light.getIntensity() <= 0.0f) {
+      return 0.0f;
+    }
+
+    for (int i = 0; i < FRUSTUM_PLANE_COUNT; i++) {
+      int offset = i * 4;
+      float distance =
+          frustumPlanes[offset] * position.x
+              + frustumPlanes[offset + 1] * position.y
+              + frustumPlanes[offset + 2] * position.z
+              + frustumPlanes[offset + 3];
+      if (distance < -radius) {
+        return 0.0f;
+      }
+    }
+
+    // The solid angle of the sphere of influence falls off with the square of the distance, and is
+    // at its largest when the camera is inside of it.
+    float dx = position.x - cameraPosition.x;
+    float dy = position.y - cameraPosition.y;
+    float dz = position.z - cameraPosition.z;
+    float distanceSquared = dx * dx + dy * dy + dz * dz;
+    float radiusSquared = radius * radius;
+    float coverage = distanceSquared <= radiusSquared ? 1.0f : radiusSquared / distanceSquared;
+    return light.getIntensity() * coverage;
+  }
+
+  /** Extracts the frustum planes from a column major view projection matrix. */
+  private void extractFrustumPlanes(float[] m) {
+    for (int i = 0; i < FRUSTUM_PLANE_COUNT; i++) {
+      // Left, right, bottom, top, near and far planes are the last row plus or minus a row.
+      int row = i / 2;
+      float sign = (i % 2 == 0) ? 1.0f : -1.0f;
+      float a = m[3] + sign * m[row];
+      float b = m[7] + sign * m[4 + row];
+      float c = m[11] + sign * m[8 + row];
+      float d = m[15] + sign * m[12 + row];
+      float length = (float) Math.sqrt(a * a + b * b + c * c);
+      if (length > 0.0f) {
+        a /= length;
+        b /= length;
+        c /= length;
+        d /= length;
+      }
+
+      int offset = i * 4;
+      frustumPlanes[offset] = a;
+      frustumPlanes[offset + 1] = b;
+      frustumPlanes[offset + 2] = c;
+      frustumPlanes[offset + 3] = d;
+    }
+  }
+}
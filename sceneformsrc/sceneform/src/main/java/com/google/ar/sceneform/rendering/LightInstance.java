@@ -9,6 +9,7 @@ import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import java.util.Arrays;
 
 /**
  * Wraps a Filament Light.
@@ -22,6 +23,9 @@ public class LightInstance {
     @Override
     public void onChange() {
       dirty = true;
+      if (renderer != null) {
+        renderer.requestRender();
+      }
     }
   }
 
@@ -35,6 +39,15 @@ public class LightInstance {
   private Vector3 localDirection;
   private boolean dirty;
 
+  // The world transform last pushed to Filament, so that lights that did not move are skipped.
+  private final float[] capturedTransform = new float[16];
+  private boolean hasCapturedTransform = false;
+  private final Vector3 worldPosition = new Vector3();
+
+  // Managed by the renderer's LightBudget.
+  boolean isInScene = false;
+  float importance;
+
   private LightInstanceChangeListener changeListener = new LightInstanceChangeListener();
 
   LightInstance(Light light, TransformProvider transformProvider) {
@@ -43,6 +56,7 @@ public class LightInstance {
     this.localPosition = light.getLocalPosition();
     this.localDirection = light.getLocalDirection();
     this.dirty = false;
+    worldPosition.set(localPosition);
 
     // Add a listener so the light instance knows when the light changes.
     light.addChangedListener(changeListener);
@@ -100,29 +114,47 @@ public class LightInstance {
     }
   }
 
-  public void updateTransform() {
+  /**
+   * Pushes the changes of the light and of its world transform to Filament.
+   *
+   * @return true if the light or its transform changed since the last update
+   */
+  public boolean updateTransform() {
     // Update the light instance based on changes to the source light.
-    updateProperties();
+    boolean propertiesChanged = updateProperties();
 
     // Handle lights that do not have transform providers such as default global sunlight.
     if (transformProvider == null) {
-      return;
+      if (propertiesChanged) {
+        worldPosition.set(localPosition);
+      }
+      return propertiesChanged;
     }
 
+    final Matrix transform = transformProvider.getWorldModelMatrix();
+    if (!propertiesChanged
+        && hasCapturedTransform
+        && Arrays.equals(capturedTransform, transform.data)) {
+      return false;
+    }
+    System.arraycopy(transform.data, 0, capturedTransform, 0, capturedTransform.length);
+    hasCapturedTransform = true;
+
     IEngine engine = EngineInstance.getEngine();
     LightManager lightManager = engine.getLightManager();
 
     final int instance = lightManager.getInstance(entity);
-    final Matrix transform = transformProvider.getWorldModelMatrix();
 
     if (lightTypeRequiresPosition(light.getType())) {
       final Vector3 position = transform.transformPoint(localPosition);
       lightManager.setPosition(instance, position.x, position.y, position.z);
+      worldPosition.set(position);
     }
     if (lightTypeRequiresDirection(light.getType())) {
       final Vector3 direction = transform.transformDirection(localDirection);
       lightManager.setDirection(instance, direction.x, direction.y, direction.z);
     }
+    return true;
   }
 
   public void attachToRenderer(Renderer renderer) {
@@ -145,6 +177,11 @@ public class LightInstance {
     return entity;
   }
 
+  /** Returns the world position of the light as of the last update. */
+  Vector3 getWorldPosition() {
+    return worldPosition;
+  }
+
   public void dispose() {
     AndroidPreconditions.checkUiThread();
 
@@ -180,10 +217,10 @@ public class LightInstance {
    * Copy updated light properites from the light data
    * This just updates a light rather than creating a new one.
    */
-  private void updateProperties() {
+  private boolean updateProperties() {
     // Only update the properties if the light is marked as dirty.
     if (!dirty) {
-      return;
+      return false;
     }
     dirty = false;
 
@@ -215,6 +252,7 @@ public class LightInstance {
           Math.min(light.getInnerConeAngle(), light.getOuterConeAngle()),
           light.getOuterConeAngle());
     }
+    return true;
   }
 
   private static boolean lightTypeRequiresPosition(Light.Type type) {
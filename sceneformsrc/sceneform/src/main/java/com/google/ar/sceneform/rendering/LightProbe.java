@@ -30,6 +30,7 @@ import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Loads "light probe" data needed for Image Based Lighting. This includes a cubemap with mip maps
@@ -65,6 +66,13 @@ public class LightProbe {
     LightingCubeFaceType.nz
   };
   private static final int EXPECTED_SPHERICAL_HARMONICS_LENGTH = 27;
+  private static final long DEFAULT_HDR_CUBEMAP_UPDATE_INTERVAL_MILLIS = 200;
+  private static final float DEFAULT_HDR_CUBEMAP_CHANGE_THRESHOLD = 0.02f;
+  // Number of pixels of each face sampled to detect that an HDR cubemap changed.
+  private static final int COLOR_SAMPLES_PER_FACE = 64;
+  private static final float MIN_AVERAGE_COLOR = 0.001f;
+  // 2^-24, the value of the lowest bit of a subnormal half float.
+  private static final float HALF_SUBNORMAL_SCALE = 1.0f / 16777216.0f;
 
   /**
    * Convert Environmental HDR's spherical harmonics to Filament spherical harmonics.
@@ -100,12 +108,29 @@ public class LightProbe {
     0, 1, 2, 3, 4, 5, 7, 6, 8
   };
 
-  private ByteBuffer cubemapBuffer = ByteBuffer.allocate(10000);
+  // Environmental HDR cubemap updates. The buffers are reused between updates, and only one
+  // update is processed at a time.
+  private ByteBuffer cubemapBuffer = ByteBuffer.allocateDirect(0);
+  private byte[] hdrCubemapStagingData = new byte[0];
+  private byte[] hdrCubemapRgbData = new byte[0];
+  private final int[] hdrCubemapFaceOffsets = new int[CUBEMAP_FACE_COUNT];
+  private final float[] hdrCubemapAverageColor = new float[RGB_CHANNEL_COUNT];
+  private final float[] lastHdrCubemapAverageColor = new float[RGB_CHANNEL_COUNT];
+  // Width of the reflection cubemap if it was created from Environmental HDR cubemaps, zero
+  // otherwise.
+  private int hdrCubemapWidth;
+  private int hdrCubemapUpdateId;
+  private boolean isHdrCubemapUpdatePending;
+  private long lastHdrCubemapUpdateNanos;
+  private long hdrCubemapUpdateIntervalNanos =
+      TimeUnit.MILLISECONDS.toNanos(DEFAULT_HDR_CUBEMAP_UPDATE_INTERVAL_MILLIS);
+  private float hdrCubemapChangeThreshold = DEFAULT_HDR_CUBEMAP_CHANGE_THRESHOLD;
   @Nullable private Texture reflectCubemap = null;
   private final Color colorCorrection = new Color(1f, 1f, 1f);
   private final Color ambientColor = new Color();
   private float[] irradianceData;
   @Nullable private String name = null;
+  private boolean isReleased = false;
 
   private ChangeId changeId = new ChangeId();
 
@@ -246,7 +271,10 @@ public class LightProbe {
   @Override
   protected void finalize() throws Throwable {
     try {
-      ThreadPools.getMainExecutor().execute(() -> dispose());
+      if (!isReleased) {
+        Log.w(TAG, "LightProbe '" + name + "' was garbage collected without being released.");
+        ThreadPools.getMainExecutor().execute(() -> dispose());
+      }
     } catch (Exception e) {
       Log.e(TAG, "Error while Finalizing Light Probe.", e);
     } finally {
@@ -254,12 +282,23 @@ public class LightProbe {
     }
   }
 
+  /**
+   * Destroys the cubemap of this light probe as soon as it is no longer needed, instead of when it
+   * is garbage collected. The light probe must no longer be set on a scene.
+   */
+  public void release() {
+    dispose();
+    isReleased = true;
+  }
+
   /** @hide */
   @SuppressWarnings("nullness")
   public void dispose() {
     AndroidPreconditions.checkUiThread();
 
     setCubeMapFromTexture(null);
+    // Drops any cubemap update still in progress.
+    hdrCubemapUpdateId++;
 
     changeId = new ChangeId();
   }
@@ -271,6 +310,7 @@ public class LightProbe {
       engine.destroyTexture(prevTexture);
     }
     reflectCubemap = nextCubemap;
+    hdrCubemapWidth = 0;
   }
 
   /**
@@ -522,26 +562,66 @@ public class LightProbe {
     }
   }
 
+  /**
+   * Sets the minimum time between two updates of the reflection cubemap from Environmental HDR
+   * cubemaps. Cubemaps received sooner are ignored.
+   *
+   * @param intervalMillis the minimum time between updates, the default is 200 milliseconds
+   * @hide intended for use by other Sceneform packages which update Hdr lighting every frame.
+   */
+  public void setHdrCubemapUpdateInterval(long intervalMillis) {
+    if (intervalMillis < 0) {
+      throw new IllegalArgumentException("Update interval must not be negative.");
+    }
+    hdrCubemapUpdateIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+  }
+
+  /**
+   * Sets how much the average color of an Environmental HDR cubemap must change, relative to the
+   * last applied cubemap, for the reflection cubemap to be updated.
+   *
+   * @param changeThreshold the minimum relative change, the default is 0.02. Use 0 to apply every
+   *     cubemap received after the update interval.
+   * @hide intended for use by other Sceneform packages which update Hdr lighting every frame.
+   */
+  public void setHdrCubemapChangeThreshold(float changeThreshold) {
+    if (changeThreshold < 0.0f) {
+      throw new IllegalArgumentException("Change threshold must not be negative.");
+    }
+    hdrCubemapChangeThreshold = changeThreshold;
+  }
+
+  /**
+   * Updates the reflection cubemap from Environmental HDR cubemap images.
+   *
+   * <p>The images are copied before this returns, so they may be closed right after. Cubemaps are
+   * ignored when they arrive sooner than the update interval, when they barely differ from the
+   * last applied cubemap, or while the previous one is still being processed. The pixels are
+   * converted on a background thread into a reused buffer, and the prefiltered mip maps are then
+   * generated into a texture that is kept between updates.
+   *
+   * @hide intended for use by other Sceneform packages which update Hdr lighting every frame.
+   */
+  @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"}) // CompletableFuture
   public void setCubeMap(Image[] cubemapImageArray) {
-    // TODO: Update once Filament updates past v1.3.0.
     if (cubemapImageArray.length != CUBEMAP_FACE_COUNT) {
       throw new IllegalArgumentException(
           "Unexpected cubemap array length: " + cubemapImageArray.length);
     }
 
-    int width = cubemapImageArray[0].getWidth();
-    int height = cubemapImageArray[0].getHeight();
-    int bufferCapacity =
-        width * height * CUBEMAP_FACE_COUNT * RGB_CHANNEL_COUNT * BYTES_PER_FLOAT16;
-    if (cubemapBuffer.capacity() < bufferCapacity) {
-      cubemapBuffer = ByteBuffer.allocate(bufferCapacity);
-    } else {
-      cubemapBuffer.clear();
+    if (isHdrCubemapUpdatePending) {
+      return;
+    }
+
+    long now = System.nanoTime();
+    if (hdrCubemapWidth != 0 && now - lastHdrCubemapUpdateNanos < hdrCubemapUpdateIntervalNanos) {
+      return;
     }
 
-    int[] faceOffsets = new int[CUBEMAP_FACE_COUNT];
+    int width = cubemapImageArray[0].getWidth();
+    int height = cubemapImageArray[0].getHeight();
+    int faceSize = width * height * RGBA_BYTES_PER_PIXEL;
     for (int i = 0; i < CUBEMAP_FACE_COUNT; i++) {
-      faceOffsets[i] = cubemapBuffer.position();
       Image.Plane[] planes = cubemapImageArray[i].getPlanes();
       if (planes.length != 1) {
         throw new IllegalArgumentException(
@@ -562,28 +642,114 @@ public class LightProbe {
                 + ", got "
                 + currentPlane.getRowStride());
       }
-      ByteBuffer rgbaBuffer = currentPlane.getBuffer();
-      while (rgbaBuffer.hasRemaining()) {
-        for (int byt = 0; byt < RGBA_BYTES_PER_PIXEL; byt++) {
-          byte b = rgbaBuffer.get();
-          if (byt < RGB_BYTES_PER_PIXEL) {
-            cubemapBuffer.put(b);
-          }
-        }
+      if (currentPlane.getBuffer().remaining() < faceSize) {
+        throw new IllegalArgumentException("Unexpected size of cubemap data.");
       }
     }
+
+    lastHdrCubemapUpdateNanos = now;
+
+    // Sampling a few pixels is much cheaper than converting and prefiltering a cubemap that looks
+    // the same as the current one.
+    float[] averageColor = hdrCubemapAverageColor;
+    computeAverageColor(cubemapImageArray, width * height, averageColor);
+    if (hdrCubemapWidth == width && !hasColorChanged(averageColor)) {
+      return;
+    }
+    System.arraycopy(averageColor, 0, lastHdrCubemapAverageColor, 0, RGB_CHANNEL_COUNT);
+
+    // The images are closed by the caller once this returns, so their contents are copied in bulk
+    // before the conversion continues on another thread.
+    int stagingSize = faceSize * CUBEMAP_FACE_COUNT;
+    if (hdrCubemapStagingData.length < stagingSize) {
+      hdrCubemapStagingData = new byte[stagingSize];
+    }
+    for (int i = 0; i < CUBEMAP_FACE_COUNT; i++) {
+      ByteBuffer rgbaBuffer = cubemapImageArray[i].getPlanes()[0].getBuffer().duplicate();
+      rgbaBuffer.get(hdrCubemapStagingData, i * faceSize, faceSize);
+    }
+
+    int updateId = hdrCubemapUpdateId;
+    if (reflectCubemap == null) {
+      // Nothing to render with until the first cubemap is ready, so it is applied right away.
+      convertHdrCubemap(width, height);
+      applyHdrCubemap(width, height, updateId);
+      return;
+    }
+
+    isHdrCubemapUpdatePending = true;
+    CompletableFuture<Void> result =
+        CompletableFuture.runAsync(
+                () -> convertHdrCubemap(width, height), ThreadPools.getThreadPoolExecutor())
+            .thenRunAsync(
+                () -> applyHdrCubemap(width, height, updateId), ThreadPools.getMainExecutor())
+            .whenCompleteAsync(
+                (unused, throwable) -> isHdrCubemapUpdatePending = false,
+                ThreadPools.getMainExecutor());
+    FutureHelper.logOnException(TAG, result, "Unable to update the Environmental HDR cubemap.");
+  }
+
+  /** Drops the alpha channel of the staged RGBA16F faces into the reused RGB16F buffer. */
+  private void convertHdrCubemap(int width, int height) {
+    int pixelCount = width * height * CUBEMAP_FACE_COUNT;
+    int rgbSize = pixelCount * RGB_BYTES_PER_PIXEL;
+    if (hdrCubemapRgbData.length < rgbSize) {
+      hdrCubemapRgbData = new byte[rgbSize];
+    }
+    if (cubemapBuffer.capacity() < rgbSize) {
+      cubemapBuffer = ByteBuffer.allocateDirect(rgbSize);
+    }
+
+    byte[] rgba = hdrCubemapStagingData;
+    byte[] rgb = hdrCubemapRgbData;
+    for (int pixel = 0, src = 0, dst = 0;
+        pixel < pixelCount;
+        pixel++, src += RGBA_BYTES_PER_PIXEL, dst += RGB_BYTES_PER_PIXEL) {
+      rgb[dst] = rgba[src];
+      rgb[dst + 1] = rgba[src + 1];
+      rgb[dst + 2] = rgba[src + 2];
+      rgb[dst + 3] = rgba[src + 3];
+      rgb[dst + 4] = rgba[src + 4];
+      rgb[dst + 5] = rgba[src + 5];
+    }
+
+    cubemapBuffer.clear();
+    cubemapBuffer.put(rgb, 0, rgbSize);
     cubemapBuffer.flip();
+  }
+
+  /** Generates the prefiltered mip maps of the converted cubemap into the reflection texture. */
+  private void applyHdrCubemap(int width, int height, int updateId) {
+    if (updateId != hdrCubemapUpdateId) {
+      // The light probe was disposed since this update started.
+      return;
+    }
 
     IEngine engine = EngineInstance.getEngine();
-    int levels = (int) (1 + Math.log(width) / Math.log(2.0));
-    Texture cubemapTexture =
-        new com.google.android.filament.Texture.Builder()
-            .width(width)
-            .height(height)
-            .levels(levels)
-            .sampler(com.google.android.filament.Texture.Sampler.SAMPLER_CUBEMAP)
-            .format(com.google.android.filament.Texture.InternalFormat.R11F_G11F_B10F)
-            .build(engine.getFilamentEngine());
+    if (engine == null || !engine.isValid()) {
+      return;
+    }
+
+    Texture cubemapTexture = reflectCubemap;
+    if (cubemapTexture == null || hdrCubemapWidth != width) {
+      int levels = (int) (1 + Math.log(width) / Math.log(2.0));
+      cubemapTexture =
+          new com.google.android.filament.Texture.Builder()
+              .width(width)
+              .height(height)
+              .levels(levels)
+              .sampler(com.google.android.filament.Texture.Sampler.SAMPLER_CUBEMAP)
+              .format(com.google.android.filament.Texture.InternalFormat.R11F_G11F_B10F)
+              .build(engine.getFilamentEngine());
+      setCubeMapFromTexture(cubemapTexture);
+      hdrCubemapWidth = width;
+    }
+
+    int faceSize = width * height * RGB_BYTES_PER_PIXEL;
+    for (int i = 0; i < CUBEMAP_FACE_COUNT; i++) {
+      hdrCubemapFaceOffsets[i] = i * faceSize;
+    }
+
     com.google.android.filament.Texture.PixelBufferDescriptor pixelBuf =
         new com.google.android.filament.Texture.PixelBufferDescriptor(
             cubemapBuffer,
@@ -593,8 +759,60 @@ public class LightProbe {
         new com.google.android.filament.Texture.PrefilterOptions();
     options.mirror = false;
     cubemapTexture.generatePrefilterMipmap(
-        engine.getFilamentEngine(), pixelBuf, faceOffsets, options);
-    setCubeMapFromTexture(cubemapTexture);
+        engine.getFilamentEngine(), pixelBuf, hdrCubemapFaceOffsets, options);
+  }
+
+  private boolean hasColorChanged(float[] averageColor) {
+    for (int i = 0; i < RGB_CHANNEL_COUNT; i++) {
+      float last = lastHdrCubemapAverageColor[i];
+      float change = Math.abs(averageColor[i] - last) / Math.max(last, MIN_AVERAGE_COLOR);
+      if (change > hdrCubemapChangeThreshold) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Averages the colors of an evenly spaced subset of the pixels of every face. */
+  private static void computeAverageColor(
+      Image[] cubemapImageArray, int facePixelCount, float[] averageColor) {
+    int sampleStep = Math.max(1, facePixelCount / COLOR_SAMPLES_PER_FACE);
+    int sampleCount = 0;
+    averageColor[0] = 0.0f;
+    averageColor[1] = 0.0f;
+    averageColor[2] = 0.0f;
+    for (int i = 0; i < CUBEMAP_FACE_COUNT; i++) {
+      ByteBuffer rgbaBuffer = cubemapImageArray[i].getPlanes()[0].getBuffer();
+      int base = rgbaBuffer.position();
+      for (int pixel = 0; pixel < facePixelCount; pixel += sampleStep) {
+        int offset = base + pixel * RGBA_BYTES_PER_PIXEL;
+        for (int c = 0; c < RGB_CHANNEL_COUNT; c++) {
+          int index = offset + c * BYTES_PER_FLOAT16;
+          // ARCore writes the half floats in little endian order.
+          int half = (rgbaBuffer.get(index) & 0xFF) | ((rgbaBuffer.get(index + 1) & 0xFF) << 8);
+          averageColor[c] += halfToFloat(half);
+        }
+        sampleCount++;
+      }
+    }
+    for (int c = 0; c < RGB_CHANNEL_COUNT; c++) {
+      averageColor[c] /= sampleCount;
+    }
+  }
+
+  private static float halfToFloat(int half) {
+    int sign = (half & 0x8000) << 16;
+    int exponent = (half >>> 10) & 0x1F;
+    int mantissa = half & 0x3FF;
+    if (exponent == 0) {
+      // Zero or subnormal.
+      float value = mantissa * HALF_SUBNORMAL_SCALE;
+      return sign == 0 ? value : -value;
+    } else if (exponent == 0x1F) {
+      // Infinity or NaN.
+      return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+    }
+    return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
   }
 
   private static Texture loadReflectCubemapFromLightingDef(LightingDef lightingDef) {
@@ -0,0 +1,452 @@
+package com.google.ar.sceneform.rendering;
+
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import com.google.ar.sceneform.math.Vector3;
+import com.google.ar.sceneform.resources.ResourceRegistry;
+import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Renders a set of line segments, each drawn as a thin box. Attach it to a {@link
+ * com.google.ar.sceneform.Node} with {@link
+ * com.google.ar.sceneform.Node#setRenderable(Renderable)}.
+ *
+ * <p>Segments, thickness and color are edited in place. All edits made during a frame are written
+ * into persistent vertex buffers and uploaded once, just before the frame is drawn, so a line can
+ * be updated every frame without creating new renderables, buffers or entities.
+ *
+ * <pre>{@code
+ * LineRenderable.builder().setMaterial(material).build().thenAccept(line -> {
+ *   node.setRenderable(line);
+ *   line.addSegment(start, end);
+ * });
+ * }</pre>
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class LineRenderable extends Renderable {
+  private static final float DEFAULT_THICKNESS = 0.005f;
+  private static final int DEFAULT_SEGMENT_CAPACITY = 16;
+
+  private final LineGeometry geometry;
+  private int appliedVersion;
+
+  private LineRenderable(Builder builder, LineGeometry geometry) {
+    super(builder);
+    this.geometry = geometry;
+    appliedVersion = geometry.getVersion();
+  }
+
+  @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
+  private LineRenderable(LineRenderable other) {
+    super(other);
+    geometry = other.geometry;
+    appliedVersion = other.appliedVersion;
+  }
+
+  /**
+   * Creates a new instance of this LineRenderable.
+   *
+   * <p>The new renderable will have unique copy of all mutable state except the segments and the
+   * thickness, which are shared with this LineRenderable. Editing the segments of either one
+   * updates both.
+   */
+  @Override
+  public LineRenderable makeCopy() {
+    return new LineRenderable(this);
+  }
+
+  /** Returns the number of segments in the line. */
+  public int getSegmentCount() {
+    return geometry.segmentCount;
+  }
+
+  /**
+   * Adds a segment to the line.
+   *
+   * @return the index of the new segment
+   */
+  public int addSegment(Vector3 start, Vector3 end) {
+    Preconditions.checkNotNull(start, "Parameter \"start\" was null.");
+    Preconditions.checkNotNull(end, "Parameter \"end\" was null.");
+
+    int index = geometry.segmentCount;
+    geometry.ensureCapacity(index + 1);
+    geometry.segmentCount++;
+    geometry.setSegment(index, start, end);
+    return index;
+  }
+
+  /** Moves the end points of an existing segment. */
+  public void setSegment(int index, Vector3 start, Vector3 end) {
+    Preconditions.checkElementIndex(index, geometry.segmentCount, "index");
+    Preconditions.checkNotNull(start, "Parameter \"start\" was null.");
+    Preconditions.checkNotNull(end, "Parameter \"end\" was null.");
+
+    geometry.setSegment(index, start, end);
+  }
+
+  /** Returns the start point of a segment. */
+  public Vector3 getSegmentStart(int index) {
+    Preconditions.checkElementIndex(index, geometry.segmentCount, "index");
+    return geometry.getPoint(index * LineGeometry.FLOATS_PER_SEGMENT);
+  }
+
+  /** Returns the end point of a segment. */
+  public Vector3 getSegmentEnd(int index) {
+    Preconditions.checkElementIndex(index, geometry.segmentCount, "index");
+    return geometry.getPoint(index * LineGeometry.FLOATS_PER_SEGMENT + 3);
+  }
+
+  /**
+   * Replaces the segments of the line with a polyline that connects the given points in order.
+   * Fewer than two points leave the line empty.
+   */
+  public void setPoints(List<Vector3> points) {
+    Preconditions.checkNotNull(points, "Parameter \"points\" was null.");
+
+    int segmentCount = Math.max(points.size() - 1, 0);
+    geometry.ensureCapacity(segmentCount);
+    geometry.segmentCount = segmentCount;
+    for (int i = 0; i < segmentCount; i++) {
+      geometry.setSegment(i, points.get(i), points.get(i + 1));
+    }
+    geometry.markChanged();
+  }
+
+  /** Removes all segments from the line. */
+  public void clear() {
+    geometry.segmentCount = 0;
+    geometry.markChanged();
+  }
+
+  /** Returns the thickness of the line in meters. */
+  public float getThickness() {
+    return geometry.thickness;
+  }
+
+  /** Sets the thickness of the line in meters. */
+  public void setThickness(float thickness) {
+    if (thickness == geometry.thickness) {
+      return;
+    }
+
+    geometry.thickness = thickness;
+    geometry.markSegmentsDirty(0, geometry.segmentCount);
+  }
+
+  /**
+   * Sets the color of the line by setting {@link MaterialFactory#MATERIAL_COLOR} on its material,
+   * as created by {@link MaterialFactory#makeOpaqueWithColor}.
+   */
+  public void setColor(Color color) {
+    Preconditions.checkNotNull(color, "Parameter \"color\" was null.");
+    getMaterial().setFloat3(MaterialFactory.MATERIAL_COLOR, color);
+  }
+
+  @Override
+  void prepareForDraw() {
+    appliedVersion = geometry.prepareForDraw(this, appliedVersion);
+  }
+
+  /** Constructs a {@link LineRenderable}. */
+  public static Builder builder() {
+    AndroidPreconditions.checkMinAndroidApiLevel();
+    return new Builder();
+  }
+
+  /**
+   * Segments and GPU-side buffers of a line, shared by all copies of a {@link LineRenderable}.
+   *
+   * <p>Each segment is a box made of six faces with four vertices each, so that every face has its
+   * own normal.
+   */
+  private static final class LineGeometry extends QuadGeometry {
+    static final int FLOATS_PER_SEGMENT = 6; // Start and end x, y, z.
+    private static final int POSITION_SIZE = 3;
+    private static final int FACES_PER_SEGMENT = 6;
+    private static final int VERTICES_PER_FACE = VERTICES_PER_QUAD;
+    private static final int VERTICES_PER_SEGMENT = FACES_PER_SEGMENT * VERTICES_PER_FACE;
+    private static final float MIN_LENGTH = 1e-6f;
+
+    // Normal of each face as coefficients of the segment frame (side, up, direction).
+    private static final float[] FACE_NORMALS = {
+      1, 0, 0,
+      -1, 0, 0,
+      0, 1, 0,
+      0, -1, 0,
+      0, 0, 1,
+      0, 0, -1
+    };
+
+    // Corners of each face in counter-clockwise order, as (end point, side sign, up sign).
+    private static final int[] FACE_CORNERS = {
+      0, 1, -1, 0, 1, 1, 1, 1, 1, 1, 1, -1,
+      0, -1, -1, 1, -1, -1, 1, -1, 1, 0, -1, 1,
+      0, -1, 1, 1, -1, 1, 1, 1, 1, 0, 1, 1,
+      0, -1, -1, 0, 1, -1, 1, 1, -1, 1, -1, -1,
+      1, -1, -1, 1, 1, -1, 1, 1, 1, 1, -1, 1,
+      0, -1, -1, 0, -1, 1, 0, 1, 1, 0, 1, -1
+    };
+
+    float[] points = new float[0];
+    int segmentCount;
+    float thickness;
+
+    private FloatBuffer positions = FloatBuffer.allocate(0);
+    private FloatBuffer normals = FloatBuffer.allocate(0);
+
+    // Range of segments whose vertices must be rewritten.
+    private int dirtyStart = Integer.MAX_VALUE;
+    private int dirtyEnd = 0;
+
+    LineGeometry(Material material, float thickness, int capacity) {
+      super(material);
+      this.thickness = thickness;
+      ensureCapacity(Math.max(capacity, 1));
+    }
+
+    Vector3 getPoint(int offset) {
+      return new Vector3(points[offset], points[offset + 1], points[offset + 2]);
+    }
+
+    void setSegment(int index, Vector3 start, Vector3 end) {
+      int offset = index * FLOATS_PER_SEGMENT;
+      points[offset] = start.x;
+      points[offset + 1] = start.y;
+      points[offset + 2] = start.z;
+      points[offset + 3] = end.x;
+      points[offset + 4] = end.y;
+      points[offset + 5] = end.z;
+      markSegmentsDirty(index, index + 1);
+    }
+
+    void markSegmentsDirty(int start, int end) {
+      dirtyStart = Math.min(dirtyStart, start);
+      dirtyEnd = Math.max(dirtyEnd, end);
+      markChanged();
+    }
+
+    void ensureCapacity(int segmentCount) {
+      ensureQuadCapacity(segmentCount * FACES_PER_SEGMENT);
+    }
+
+    @Override
+    void onQuadCapacityChanged(int quadCapacity) {
+      int segmentCapacity = quadCapacity / FACES_PER_SEGMENT;
+      points = Arrays.copyOf(points, segmentCapacity * FLOATS_PER_SEGMENT);
+
+      int vertexCapacity = segmentCapacity * VERTICES_PER_SEGMENT;
+      positions = FloatBuffer.allocate(vertexCapacity * POSITION_SIZE);
+      normals = FloatBuffer.allocate(vertexCapacity * POSITION_SIZE);
+      definition.setPositions(positions);
+      definition.setNormals(normals);
+      markSegmentsDirty(0, segmentCount);
+    }
+
+    @Override
+    void setVertexLimit(int vertexCount) {
+      positions.limit(vertexCount * POSITION_SIZE);
+      normals.limit(vertexCount * POSITION_SIZE);
+    }
+
+    /** Writes the changed segments into the buffers and sets the ranges to upload. */
+    @Override
+    void writePendingChanges() {
+      // The definition needs at least one vertex, so an empty line keeps a degenerate segment.
+      int bufferSegments = Math.max(segmentCount, 1);
+      if (segmentCount == 0) {
+        Arrays.fill(points, 0, FLOATS_PER_SEGMENT, 0.0f);
+        dirtyStart = 0;
+        dirtyEnd = 1;
+      }
+
+      int start = Math.min(dirtyStart, bufferSegments);
+      int end = Math.min(dirtyEnd, bufferSegments);
+      for (int segment = start; segment < end; segment++) {
+        writeSegment(segment);
+      }
+
+      dirtyStart = Integer.MAX_VALUE;
+      dirtyEnd = 0;
+      finishWrite(
+          segmentCount * FACES_PER_SEGMENT, start * FACES_PER_SEGMENT, end * FACES_PER_SEGMENT);
+    }
+
+    private void writeSegment(int segment) {
+      int offset = segment * FLOATS_PER_SEGMENT;
+      float ax = points[offset];
+      float ay = points[offset + 1];
+      float az = points[offset + 2];
+      float bx = points[offset + 3];
+      float by = points[offset + 4];
+      float bz = points[offset + 5];
+
+      // Direction of the segment, pointing up for zero length segments.
+      float dx = bx - ax;
+      float dy = by - ay;
+      float dz = bz - az;
+      float length = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+      if (length < MIN_LENGTH) {
+        dx = 0.0f;
+        dy = 1.0f;
+        dz = 0.0f;
+      } else {
+        dx /= length;
+        dy /= length;
+        dz /= length;
+      }
+
+      // side = direction x up, or direction x right when the segment is vertical.
+      float ux = -dz;
+      float uy = 0.0f;
+      float uz = dx;
+      float sideLength = (float) Math.sqrt(ux * ux + uz * uz);
+      if (sideLength < MIN_LENGTH) {
+        ux = 0.0f;
+        uy = dz;
+        uz = -dy;
+        sideLength = (float) Math.sqrt(uy * uy + uz * uz);
+      }
+      ux /= sideLength;
+      uy /= sideLength;
+      uz /= sideLength;
+
+      // up = direction x side, so that (side, up, direction) is right handed.
+      float vx = dy * uz - dz * uy;
+      float vy = dz * ux - dx * uz;
+      float vz = dx * uy - dy * ux;
+
+      float halfThickness = thickness * 0.5f;
+      int vertex = segment * VERTICES_PER_SEGMENT;
+      for (int face = 0; face < FACES_PER_SEGMENT; face++) {
+        float nu = FACE_NORMALS[face * 3];
+        float nv = FACE_NORMALS[face * 3 + 1];
+        float nd = FACE_NORMALS[face * 3 + 2];
+        float nx = nu * ux + nv * vx + nd * dx;
+        float ny = nu * uy + nv * vy + nd * dy;
+        float nz = nu * uz + nv * vz + nd * dz;
+
+        for (int corner = 0; corner < VERTICES_PER_FACE; corner++) {
+          int cornerOffset = (face * VERTICES_PER_FACE + corner) * 3;
+          boolean isEnd = FACE_CORNERS[cornerOffset] == 1;
+          float su = FACE_CORNERS[cornerOffset + 1] * halfThickness;
+          float sv = FACE_CORNERS[cornerOffset + 2] * halfThickness;
+
+          int bufferOffset = vertex * POSITION_SIZE;
+          positions.put(bufferOffset, (isEnd ? bx : ax) + su * ux + sv * vx);
+          positions.put(bufferOffset + 1, (isEnd ? by : ay) + su * uy + sv * vy);
+          positions.put(bufferOffset + 2, (isEnd ? bz : az) + su * uz + sv * vz);
+          normals.put(bufferOffset, nx);
+          normals.put(bufferOffset + 1, ny);
+          normals.put(bufferOffset + 2, nz);
+          vertex++;
+        }
+      }
+    }
+  }
+
+  /** Factory class for {@link LineRenderable}. */
+  public static final class Builder extends Renderable.Builder<LineRenderable, Builder> {
+    @Nullable private Material material;
+    private float thickness = DEFAULT_THICKNESS;
+    private int segmentCapacity = DEFAULT_SEGMENT_CAPACITY;
+    @Nullable private List<Vector3> points;
+    @Nullable private LineGeometry geometry;
+
+    private Builder() {}
+
+    /**
+     * Sets the material used to draw the line, for example one created with {@link
+     * MaterialFactory#makeOpaqueWithColor}.
+     */
+    public Builder setMaterial(Material material) {
+      this.material = material;
+      return this;
+    }
+
+    /** Sets the thickness of the line in meters. */
+    public Builder setThickness(float thickness) {
+      this.thickness = thickness;
+      return this;
+    }
+
+    /**
+     * Sets the number of segments the line can hold before its buffers need to grow. Growing the
+     * buffers re-creates them, so this should be set when the number of segments is known upfront.
+     */
+    public Builder setSegmentCapacity(int segmentCapacity) {
+      this.segmentCapacity = segmentCapacity;
+      return this;
+    }
+
+    /** Sets the initial points of the line. See {@link LineRenderable#setPoints(List)}. */
+    public Builder setPoints(List<Vector3> points) {
+      this.points = points;
+      return this;
+    }
+
+    @Override
+    @SuppressWarnings("AndroidApiChecker") // java.util.concurrent.CompletableFuture
+    public CompletableFuture<LineRenderable> build() {
+      Material material = this.material;
+      if (material != null) {
+        List<Vector3> points = this.points;
+        LineGeometry geometry =
+            new LineGeometry(
+                material,
+                thickness,
+                Math.max(segmentCapacity, points != null ? points.size() - 1 : 0));
+        if (points != null) {
+          geometry.segmentCount = Math.max(points.size() - 1, 0);
+          for (int i = 0; i < geometry.segmentCount; i++) {
+            geometry.setSegment(i, points.get(i), points.get(i + 1));
+          }
+        }
+        this.geometry = geometry;
+        setSource(geometry.buildSource());
+      }
+
+      return super.build();
+    }
+
+    /** @hide */
+    @Override
+    protected LineRenderable makeRenderable() {
+      return new LineRenderable(this, Preconditions.checkNotNull(geometry));
+    }
+
+    /** @hide */
+    @Override
+    protected Class<LineRenderable> getRenderableClass() {
+      return LineRenderable.class;
+    }
+
+    /** @hide */
+    @Override
+    protected ResourceRegistry<LineRenderable> getRenderableRegistry() {
+      return ResourceManager.getInstance().getLineRenderableRegistry();
+    }
+
+    /** @hide */
+    @Override
+    protected Builder getSelf() {
+      return this;
+    }
+
+    /** @hide */
+    @Override
+    protected void checkPreconditions() {
+      if (material == null) {
+        throw new AssertionError("LineRenderable must have a material.");
+      }
+
+      super.checkPreconditions();
+    }
+  }
+}
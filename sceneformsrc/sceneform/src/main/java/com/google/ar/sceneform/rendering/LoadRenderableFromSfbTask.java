@@ -7,6 +7,7 @@ import com.google.android.filament.IndexBuffer;
 import com.google.android.filament.TextureSampler;
 import com.google.android.filament.VertexBuffer;
 
+import com.google.ar.sceneform.collision.MeshShape;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.SceneformBundle.VersionException;
 import com.google.ar.sceneform.utilities.Preconditions;
@@ -43,11 +44,14 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 /** Task for initializing a Renderable with data from an SFB. */
 @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"}) // CompletableFuture
@@ -62,6 +66,32 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     }
   }
 
+  /** A sampler parameter of a material and the name of the texture it samples. */
+  private static class SamplerBinding {
+    final String parameterName;
+    final String textureName;
+
+    SamplerBinding(String parameterName, String textureName) {
+      this.parameterName = parameterName;
+      this.textureName = textureName;
+    }
+  }
+
+  /** Geometry of one level of detail, copied out of the SFB for upload to Filament. */
+  private static class LodGeometry {
+    final ModelInstanceDef modelInstanceDef;
+    int vertexCount;
+    int vertexStride;
+    int indexCount;
+    IndexBuffer.Builder.IndexType indexType;
+    ByteBuffer vertexBufferData;
+    ByteBuffer indexBufferData;
+
+    LodGeometry(ModelInstanceDef modelInstanceDef) {
+      this.modelInstanceDef = modelInstanceDef;
+    }
+  }
+
   private static final String TAG = LoadRenderableFromSfbTask.class.getSimpleName();
   private final T renderable;
   private final RenderableInternalData renderableData;
@@ -73,20 +103,22 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
 
   private int meshCount;
   private int textureCount;
+  private boolean useMeshCollision;
 
-  private int vertexCount;
-  private int vertexStride;
-
-  private int indexCount;
-  private IndexBuffer.Builder.IndexType indexType;
-  private ByteBuffer vertexBufferData;
-  private ByteBuffer indexBufferData;
+  // Levels of detail whose geometry is loaded, ordered from the most to the least detailed.
+  private final ArrayList<ModelInstanceDef> lodInstanceDefs = new ArrayList<>();
+  // Geometry of every level of detail, in the same order.
+  private final ArrayList<LodGeometry> lodGeometries = new ArrayList<>();
 
   private final ArrayList<ModelTexture> textures = new ArrayList<>();
+  private final ArrayList<ByteBuffer> compiledMaterialCopies = new ArrayList<>();
+  private final ArrayList<Integer> compiledMaterialIds = new ArrayList<>();
   private final ArrayList<Material> compiledMaterials = new ArrayList<>();
   private final ArrayList<Integer> compiledMaterialIndex = new ArrayList<>();
   private final ArrayList<MaterialParameters> materialParameters = new ArrayList<>();
   private final ArrayList<String> materialNames = new ArrayList<>();
+  // Sampler parameters of each material, bound once the textures are loaded.
+  private final ArrayList<ArrayList<SamplerBinding>> samplerBindings = new ArrayList<>();
 
   private static final int BYTES_PER_FLOAT = Float.SIZE / 8;
   private static final int BYTES_PER_SHORT = 2;
@@ -104,6 +136,18 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
   }
 
   /**
+   * Replaces the suggested collision shape of the SFB with a {@link MeshShape} of the most detailed
+   * geometry of the model.
+   */
+  void setUseMeshCollision(boolean useMeshCollision) {
+    this.useMeshCollision = useMeshCollision;
+  }
+
+  /**
+   * Parses the SFB on the thread pool, then prepares the geometry, the collision shape, the
+   * material parameters and the textures in parallel. Only the creation of the Filament objects
+   * runs on the main thread.
+   *
    * @param inputStreamCreator supplies {@link Renderable} in serialized format
    * @return {@link CompletableFuture} for a new {@link Renderable}
    */
@@ -119,25 +163,14 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
 
                   // Parse byte buffer via thread pool
                   SceneformBundleDef sfb = byteBufferToSfb(assetData);
-                  setCollisionShape(sfb);
-                  // Create sub-assets including material parameters, textures and geometry
-                  loadModel(sfb);
-                  return sfb;
+                  return loadModel(sfb);
                 },
                 ThreadPools.getThreadPoolExecutor())
-            .thenComposeAsync(
-                sfb -> {
-                  loadAnimations(sfb);
-
-                  // Load textures and wait for them to finish.
-                  return loadTexturesAsync(sfb);
-                },
-                ThreadPools.getMainExecutor())
+            .thenCompose(this::prepareSubAssetsAsync)
             .thenApplyAsync(
                 sfb -> {
-                  // Fill in the material parameters. could be done on another thread, but kept here
-                  // to reduce switching.
-                  buildMaterialParameters(sfb);
+                  loadAnimations(sfb);
+                  bindMaterialTextures();
                   return setupFilament(sfb);
                 },
                 ThreadPools.getMainExecutor());
@@ -151,6 +184,41 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     return result;
   }
 
+  /**
+   * Starts the independent stages of loading the sub-assets of the SFB. Each stage writes its own
+   * fields of the task, which are read on the main thread once all of them are done.
+   */
+  private CompletableFuture<SceneformBundleDef> prepareSubAssetsAsync(SceneformBundleDef sfb) {
+    Executor threadPoolExecutor = ThreadPools.getThreadPoolExecutor();
+
+    CompletableFuture<Void> geometryFuture = buildGeometryAsync();
+
+    CompletableFuture<Void> collisionFuture =
+        CompletableFuture.runAsync(() -> setCollisionShape(sfb), threadPoolExecutor);
+    if (useMeshCollision) {
+      collisionFuture =
+          collisionFuture.runAfterBothAsync(
+              geometryFuture, this::setMeshCollisionShape, threadPoolExecutor);
+    }
+
+    CompletableFuture<Void> materialFuture =
+        CompletableFuture.runAsync(
+            () -> {
+              copyCompiledMaterials(sfb);
+              buildMaterialParameters(sfb);
+            },
+            threadPoolExecutor);
+
+    // Building a texture has to start on the main thread, the bitmaps of the samplers are then
+    // decoded in parallel on the thread pool.
+    CompletableFuture<SceneformBundleDef> textureFuture =
+        CompletableFuture.supplyAsync(() -> loadTexturesAsync(sfb), ThreadPools.getMainExecutor())
+            .thenCompose(texturesLoaded -> texturesLoaded);
+
+    return CompletableFuture.allOf(geometryFuture, collisionFuture, materialFuture, textureFuture)
+        .thenApply(unused -> sfb);
+  }
+
   
   private void loadAnimations(SceneformBundleDef sfb) {return ;}
 
@@ -208,35 +276,193 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
 
     modelInstanceDef = modelDef.lods(0);
     Preconditions.checkNotNull(modelInstanceDef, "Lull Model error: ModelInstanceDef is invalid.");
+    meshCount = modelInstanceDef.rangesLength();
 
-    // The data buffers for Geometry have to stick around anyway, so go ahead and load them
-    // now. The Filament buffers will be created in createAssetFromBuffer()
-    buildGeometry();
+    // Coarser levels share the materials of the first one, so they must have the same meshes.
+    lodInstanceDefs.add(modelInstanceDef);
+    int lodCount = modelDef.lodsLength();
+    for (int lod = 1; lod < lodCount; lod++) {
+      ModelInstanceDef lodInstanceDef = modelDef.lods(lod);
+      if (lodInstanceDef == null || lodInstanceDef.rangesLength() != meshCount) {
+        Log.w(TAG, "Skipping level of detail " + lod + ", its meshes don't match level 0.");
+        continue;
+      }
+      lodInstanceDefs.add(lodInstanceDef);
+    }
     return sfb;
   }
 
+  /**
+   * Copies the geometry of every level of detail out of the SFB, each on its own thread. The
+   * Filament buffers will be created in setupFilamentGeometryBuffers().
+   */
+  private CompletableFuture<Void> buildGeometryAsync() {
+    int lodCount = lodInstanceDefs.size();
+    LodGeometry[] geometries = new LodGeometry[lodCount];
+    CompletableFuture<?>[] geometryFutures = new CompletableFuture<?>[lodCount];
+    for (int lod = 0; lod < lodCount; lod++) {
+      int index = lod;
+      ModelInstanceDef lodInstanceDef = lodInstanceDefs.get(lod);
+      geometryFutures[lod] =
+          CompletableFuture.runAsync(
+              () -> geometries[index] = buildGeometry(lodInstanceDef),
+              ThreadPools.getThreadPoolExecutor());
+    }
+
+    return CompletableFuture.allOf(geometryFutures)
+        .thenRun(() -> Collections.addAll(lodGeometries, geometries));
+  }
+
+  private void setMeshCollisionShape() {
+    MeshShape meshShape = buildMeshShape(lodGeometries.get(0), transformDef);
+    if (meshShape != null) {
+      renderable.collisionShape = meshShape;
+    }
+  }
+
+  /**
+   * Copies the triangles of a level of detail into a {@link MeshShape}, in the space of the node.
+   *
+   * @return the shape, or null if the geometry has no usable positions
+   */
+  @Nullable
+  private static MeshShape buildMeshShape(
+      LodGeometry geometry, @Nullable TransformDef transformDef) {
+    ModelInstanceDef modelInstanceDef = geometry.modelInstanceDef;
+    int positionOffset = -1;
+    int byteOffset = 0;
+    int vertexAttributeCount = modelInstanceDef.vertexAttributesLength();
+    for (int i = 0; i < vertexAttributeCount; i++) {
+      VertexAttribute attribute = modelInstanceDef.vertexAttributes(i);
+      if (attribute.usage() == VertexAttributeUsage.Position) {
+        if (attribute.type() == VertexAttributeType.Vec3f) {
+          positionOffset = byteOffset;
+        }
+        break;
+      }
+      byteOffset += getVertexAttributeTypeSizeInBytes(attribute.type());
+    }
+
+    if (positionOffset < 0) {
+      Log.w(TAG, "Model has no float positions, using the suggested collision shape.");
+      return null;
+    }
+
+    // Transform the positions the same way the renderable transforms its vertices.
+    float scale = 1.0f;
+    float offsetX = 0.0f;
+    float offsetY = 0.0f;
+    float offsetZ = 0.0f;
+    if (transformDef != null && transformDef.scale() != 0.0f) {
+      scale = transformDef.scale();
+      Vec3 modelOffset = transformDef.offset();
+      offsetX = modelOffset.x();
+      offsetY = modelOffset.y();
+      offsetZ = modelOffset.z();
+    }
+
+    // SFB buffers are little endian.
+    ByteBuffer vertexData = geometry.vertexBufferData.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    float[] positions = new float[geometry.vertexCount * 3];
+    for (int v = 0; v < geometry.vertexCount; v++) {
+      int position = v * geometry.vertexStride + positionOffset;
+      positions[v * 3] = vertexData.getFloat(position) * scale + offsetX;
+      positions[v * 3 + 1] = vertexData.getFloat(position + BYTES_PER_FLOAT) * scale + offsetY;
+      positions[v * 3 + 2] =
+          vertexData.getFloat(position + 2 * BYTES_PER_FLOAT) * scale + offsetZ;
+    }
+
+    ByteBuffer indexData = geometry.indexBufferData.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    int[] indices = new int[geometry.indexCount];
+    for (int i = 0; i < geometry.indexCount; i++) {
+      if (geometry.indexType == IndexBuffer.Builder.IndexType.UINT) {
+        indices[i] = indexData.getInt(i * BYTES_PER_INT);
+      } else {
+        indices[i] = indexData.getShort(i * BYTES_PER_SHORT) & 0xFFFF;
+      }
+    }
+
+    return new MeshShape(positions, indices);
+  }
+
   private T setupFilament(SceneformBundleDef sfb) {
     Preconditions.checkNotNull(sfb);
     setupFilamentGeometryBuffers();
     setupFilamentMaterials(sfb);
     setupRenderableData();
+    releaseLoadedResources();
     renderable.getId().update();
     return renderable;
   }
 
+  /**
+   * Releases the materials, textures and parameters used while loading. The materials of the
+   * renderable hold their own references to what they use.
+   */
+  private void releaseLoadedResources() {
+    for (int i = 0; i < compiledMaterials.size(); ++i) {
+      compiledMaterials.get(i).release();
+    }
+    compiledMaterials.clear();
+
+    for (int i = 0; i < materialParameters.size(); ++i) {
+      materialParameters.get(i).clear();
+    }
+
+    for (int t = 0; t < textures.size(); ++t) {
+      Texture texture = textures.get(t).data;
+      if (texture != null) {
+        texture.release();
+      }
+    }
+  }
+
   private void setupFilamentGeometryBuffers() {
+    LodGeometry geometry = lodGeometries.get(0);
+    renderableData.setIndexBuffer(createIndexBuffer(geometry));
+    renderableData.setVertexBuffer(createVertexBuffer(geometry));
+
+    setupAnimation();
+
+    for (int lod = 1; lod < lodGeometries.size(); lod++) {
+      LodGeometry lodGeometry = lodGeometries.get(lod);
+      RenderableInternalData.LevelOfDetail levelOfDetail =
+          new RenderableInternalData.LevelOfDetail(
+              createVertexBuffer(lodGeometry), createIndexBuffer(lodGeometry));
+      for (int m = 0; m < meshCount; ++m) {
+        final ModelIndexRange range = lodGeometry.modelInstanceDef.ranges(m);
+        RenderableInternalData.MeshData meshData = new RenderableInternalData.MeshData();
+        meshData.indexStart = (int) range.start();
+        meshData.indexEnd = (int) range.end();
+        levelOfDetail.meshes.add(meshData);
+      }
+      renderableData.addLevelOfDetail(levelOfDetail);
+    }
+
+    // The CPU copies are no longer needed once uploaded.
+    lodGeometries.clear();
+    lodInstanceDefs.clear();
+  }
+
+  private static IndexBuffer createIndexBuffer(LodGeometry geometry) {
     IEngine engine = EngineInstance.getEngine();
 
     IndexBuffer indexBuffer =
         new IndexBuffer.Builder()
-            .indexCount(indexCount)
-            .bufferType(indexType)
+            .indexCount(geometry.indexCount)
+            .bufferType(geometry.indexType)
             .build(engine.getFilamentEngine());
-    indexBuffer.setBuffer(engine.getFilamentEngine(), indexBufferData);
-    renderableData.setIndexBuffer(indexBuffer);
+    indexBuffer.setBuffer(engine.getFilamentEngine(), geometry.indexBufferData);
+    return indexBuffer;
+  }
+
+  private static VertexBuffer createVertexBuffer(LodGeometry geometry) {
+    IEngine engine = EngineInstance.getEngine();
+    ModelInstanceDef modelInstanceDef = geometry.modelInstanceDef;
+    int vertexStride = geometry.vertexStride;
 
     VertexBuffer.Builder vertexBufferBuilder =
-        new VertexBuffer.Builder().vertexCount(vertexCount).bufferCount(1);
+        new VertexBuffer.Builder().vertexCount(geometry.vertexCount).bufferCount(1);
 
     int vertexAttributeCount = modelInstanceDef.vertexAttributesLength();
     int byteOffset = 0;
@@ -260,10 +486,8 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     }
 
     VertexBuffer vertexBuffer = vertexBufferBuilder.build(engine.getFilamentEngine());
-    vertexBuffer.setBufferAt(engine.getFilamentEngine(), 0, vertexBufferData);
-    renderableData.setVertexBuffer(vertexBuffer);
-
-    setupAnimation();
+    vertexBuffer.setBufferAt(engine.getFilamentEngine(), 0, geometry.vertexBufferData);
+    return vertexBuffer;
   }
 
   
@@ -277,26 +501,36 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
 
 
 
-  private void setupFilamentMaterials(SceneformBundleDef sfb) {
+  /** Copies the compiled materials out of the SFB, so that Filament can load them later. */
+  private void copyCompiledMaterials(SceneformBundleDef sfb) {
     int compiledMaterialLength = sfb.compiledMaterialsLength();
 
     for (int i = 0; i < compiledMaterialLength; ++i) {
       CompiledMaterialDef compiledMaterial = sfb.compiledMaterials(i);
+      ByteBuffer compiledMaterialData = compiledMaterial.compiledMaterialAsByteBuffer();
 
       // If the same material buffer exists in multiple places this will ensure we
       // only load it into graphics memory once.
-      int materialId = compiledMaterial.compiledMaterialAsByteBuffer().hashCode();
+      compiledMaterialIds.add(compiledMaterialData.hashCode());
 
-      // use the registry to get the material or create it if needed
-      ByteBuffer copy;
       try {
-        copy = SceneformBufferUtils.copyByteBuffer(compiledMaterial.compiledMaterialAsByteBuffer());
+        compiledMaterialCopies.add(SceneformBufferUtils.copyByteBuffer(compiledMaterialData));
       } catch (IOException e) {
         throw new CompletionException("Failed to create material", e);
       }
+    }
+  }
+
+  private void setupFilamentMaterials(SceneformBundleDef sfb) {
+    Preconditions.checkNotNull(sfb);
 
+    for (int i = 0; i < compiledMaterialCopies.size(); ++i) {
+      // use the registry to get the material or create it if needed
       CompletableFuture<Material> materialFuture =
-          Material.builder().setSource(copy).setRegistryId(materialId).build();
+          Material.builder()
+              .setSource(compiledMaterialCopies.get(i))
+              .setRegistryId(compiledMaterialIds.get(i))
+              .build();
 
       @SuppressWarnings("nullness")
       Material material = materialFuture.getNow(null);
@@ -308,6 +542,8 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
 
       compiledMaterials.add(material);
     }
+
+    compiledMaterialCopies.clear();
   }
 
   private void setupRenderableData() {
@@ -338,7 +574,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       final int end = (int) range.end();
 
       int materialIndex = compiledMaterialIndex.get(m);
-      Material material = compiledMaterials.get(materialIndex).makeCopy();
+      Material material = compiledMaterials.get(materialIndex).makeInternalCopy();
       MaterialParameters params = materialParameters.get(m);
       material.copyMaterialParameters(params);
 
@@ -351,17 +587,21 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     }
   }
 
-  private void buildGeometry() {
+  private static LodGeometry buildGeometry(ModelInstanceDef modelInstanceDef) {
+    LodGeometry geometry = new LodGeometry(modelInstanceDef);
     ByteBuffer vertexData = modelInstanceDef.vertexDataAsByteBuffer();
 
     Preconditions.checkNotNull(
         vertexData, "Model Instance geometry data is invalid (vertexData is null).");
 
     int vertexDataCount = modelInstanceDef.vertexDataLength();
-    meshCount = modelInstanceDef.rangesLength();
 
     int bytesPerVertex = LullModel.getByteCountPerVertex(modelInstanceDef);
-    vertexCount = vertexDataCount / bytesPerVertex;
+    geometry.vertexCount = vertexDataCount / bytesPerVertex;
+
+    int indexCount;
+    IndexBuffer.Builder.IndexType indexType;
+    ByteBuffer indexBufferData;
 
     // TODO: Fix crash in filament when using flatbuffer buffers directly.
     if (modelInstanceDef.indices32Length() > 0) {
@@ -381,15 +621,19 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
           "Model Instance geometry data is invalid (model has no index data).");
     }
     indexBufferData.flip();
+    geometry.indexCount = indexCount;
+    geometry.indexType = indexType;
+    geometry.indexBufferData = indexBufferData;
 
-    vertexBufferData = ByteBuffer.allocateDirect(vertexData.remaining());
+    ByteBuffer vertexBufferData = ByteBuffer.allocateDirect(vertexData.remaining());
     Preconditions.checkNotNull(vertexBufferData, "Failed to allocate geometry for FilamentModel.");
 
     vertexBufferData.put(vertexData);
     vertexBufferData.flip();
+    geometry.vertexBufferData = vertexBufferData;
 
     // Calculate vertex stride
-    vertexStride = 0;
+    int vertexStride = 0;
     int vertexAttributeCount = modelInstanceDef.vertexAttributesLength();
     for (int i = 0; i < vertexAttributeCount; i++) {
       VertexAttribute attribute = modelInstanceDef.vertexAttributes(i);
@@ -397,10 +641,10 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
 
       // TODO: check all attributes available.
     }
+    geometry.vertexStride = vertexStride;
+    return geometry;
   }
 
-  // TODO: Return a future for all texture loads, use theComposeAsync to
-  // combine it in downloadAndProcessRenderable
   private CompletableFuture<SceneformBundleDef> loadTexturesAsync(SceneformBundleDef sfb) {
     textureCount = sfb.samplersLength();
 
@@ -522,6 +766,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       SamplerInit samplerCache = new SamplerInit();
 
       MaterialParameters materialParameters = new MaterialParameters();
+      ArrayList<SamplerBinding> materialSamplerBindings = new ArrayList<>();
 
       int paramCount = materialDef.parametersLength();
       for (int i = 0; i < paramCount; ++i) {
@@ -587,11 +832,8 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
             break;
           case ParameterInitDefType.SamplerInit:
             parameterInitCache.init(samplerCache);
-            String path = samplerCache.path();
-            Texture texture = getTextureByName(path);
-            if (texture != null) {
-              materialParameters.setTexture(id, texture);
-            }
+            // Textures are still loading, they are bound in bindMaterialTextures().
+            materialSamplerBindings.add(new SamplerBinding(id, samplerCache.path()));
             break;
           case ParameterInitDefType.ExternalSamplerInit:
             // No-op; handled externally from this loader.
@@ -602,12 +844,28 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
       }
 
       this.materialParameters.add(materialParameters);
+      this.samplerBindings.add(materialSamplerBindings);
       String materialName = materialDef.name();
       this.materialNames.add(materialName != null ? materialName : "");
     }
     return sfb;
   }
 
+  /** Sets the loaded textures on the sampler parameters of the materials. */
+  private void bindMaterialTextures() {
+    for (int m = 0; m < samplerBindings.size(); ++m) {
+      MaterialParameters parameters = materialParameters.get(m);
+      ArrayList<SamplerBinding> bindings = samplerBindings.get(m);
+      for (int i = 0; i < bindings.size(); ++i) {
+        SamplerBinding binding = bindings.get(i);
+        Texture texture = getTextureByName(binding.textureName);
+        if (texture != null) {
+          parameters.setTexture(binding.parameterName, texture);
+        }
+      }
+    }
+  }
+
   @Nullable
   private Texture getTextureByName(String name) {
     for (int t = 0; t < textureCount; ++t) {
@@ -651,7 +909,7 @@ class LoadRenderableFromSfbTask<T extends Renderable> {
     return sizeInBytes;
   }
 
-  private boolean isAttributeNormalized(int attributeUsage) {
+  private static boolean isAttributeNormalized(int attributeUsage) {
     return attributeUsage == VertexAttributeUsage.Color
         || attributeUsage == VertexAttributeUsage.BoneWeights;
   }
@@ -28,6 +28,11 @@ public class Material {
   private final MaterialParameters materialParameters = new MaterialParameters();
   @Nullable private final MaterialInternalData materialData;
   private final IMaterialInstance internalMaterialInstance;
+  private final CleanupItem<Material> cleanupItem;
+  // Renderable instances that draw with this material. A released material is only destroyed once
+  // none of them draw with it anymore.
+  private int userCount;
+  private boolean isReleaseRequested;
 
   /**
    * Creates a new instance of this Material.
@@ -40,6 +45,51 @@ public class Material {
     return new Material(this);
   }
 
+  /**
+   * Creates a copy owned by a renderable. Renderables are not released explicitly, so the copy
+   * isn't reported as leaked when it is garbage collected.
+   */
+  Material makeInternalCopy() {
+    Material copy = new Material(this);
+    copy.cleanupItem.setLeakReported(false);
+    return copy;
+  }
+
+  /**
+   * Releases this material. Its material instance is destroyed right away, and the shared material
+   * resource once every copy of the material has been released.
+   *
+   * <p>The material must not be used afterwards. A material that is still drawn by a renderable
+   * is destroyed once the renderable stops drawing with it. Materials that are never released are
+   * freed after they are garbage collected.
+   */
+  public void release() {
+    AndroidPreconditions.checkUiThread();
+    isReleaseRequested = true;
+    if (userCount == 0) {
+      ResourceManager.getInstance().getMaterialCleanupRegistry().release(cleanupItem);
+    }
+  }
+
+  /** Called when a renderable instance starts drawing with this material. */
+  void addUser() {
+    userCount++;
+  }
+
+  /** Called when a renderable instance stops drawing with this material. */
+  void removeUser() {
+    userCount--;
+    if (userCount == 0 && isReleaseRequested) {
+      ResourceManager.getInstance().getMaterialCleanupRegistry().release(cleanupItem);
+    }
+  }
+
+  /** Marks a material only held weakly by the registry, which isn't leaked when collected. */
+  private Material asRegistryEntry() {
+    cleanupItem.setLeakReported(false);
+    return this;
+  }
+
   
 
 
@@ -47,9 +97,7 @@ public class Material {
 
   public void setBoolean(String name, boolean x) {
     materialParameters.setBoolean(name, x);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -59,9 +107,7 @@ public class Material {
 
   public void setBoolean2(String name, boolean x, boolean y) {
     materialParameters.setBoolean2(name, x, y);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -72,9 +118,7 @@ public class Material {
 
   public void setBoolean3(String name, boolean x, boolean y, boolean z) {
     materialParameters.setBoolean3(name, x, y, z);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -85,9 +129,7 @@ public class Material {
 
   public void setBoolean4(String name, boolean x, boolean y, boolean z, boolean w) {
     materialParameters.setBoolean4(name, x, y, z, w);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -98,9 +140,7 @@ public class Material {
 
   public void setFloat(String name, float x) {
     materialParameters.setFloat(name, x);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -110,9 +150,7 @@ public class Material {
 
   public void setFloat2(String name, float x, float y) {
     materialParameters.setFloat2(name, x, y);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -123,23 +161,17 @@ public class Material {
 
   public void setFloat3(String name, float x, float y, float z) {
     materialParameters.setFloat3(name, x, y, z);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   public void setFloat3(String name, Vector3 value) {
     materialParameters.setFloat3(name, value);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   public void setFloat3(String name, Color color) {
     materialParameters.setFloat3(name, color.r, color.g, color.b);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -150,16 +182,12 @@ public class Material {
 
   public void setFloat4(String name, float x, float y, float z, float w) {
     materialParameters.setFloat4(name, x, y, z, w);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   public void setFloat4(String name, Color color) {
     materialParameters.setFloat4(name, color.r, color.g, color.b, color.a);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -170,9 +198,7 @@ public class Material {
 
   public void setInt(String name, int x) {
     materialParameters.setInt(name, x);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -182,9 +208,7 @@ public class Material {
 
   public void setInt2(String name, int x, int y) {
     materialParameters.setInt2(name, x, y);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -195,9 +219,7 @@ public class Material {
 
   public void setInt3(String name, int x, int y, int z) {
     materialParameters.setInt3(name, x, y, z);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -208,9 +230,7 @@ public class Material {
 
   public void setInt4(String name, int x, int y, int z, int w) {
     materialParameters.setInt4(name, x, y, z, w);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -221,9 +241,7 @@ public class Material {
 
   public void setTexture(String name, Texture texture) {
     materialParameters.setTexture(name, texture);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   
@@ -240,9 +258,7 @@ public class Material {
    */
   public void setExternalTexture(String name, ExternalTexture externalTexture) {
     materialParameters.setExternalTexture(name, externalTexture);
-    if (internalMaterialInstance.isValidInstance()) {
-      materialParameters.applyTo(internalMaterialInstance.getInstance());
-    }
+    applyParameters();
   }
 
   @Nullable
@@ -262,6 +278,14 @@ public class Material {
     return new Builder();
   }
 
+  private void applyParameters() {
+    if (internalMaterialInstance.isValidInstance()) {
+      materialParameters.applyTo(internalMaterialInstance.getInstance());
+      // Views that render on demand would not otherwise notice that the material changed.
+      Renderer.requestRenderAll();
+    }
+  }
+
   void copyMaterialParameters(MaterialParameters materialParameters) {
     this.materialParameters.copyFrom(materialParameters);
     if (internalMaterialInstance.isValidInstance()) {
@@ -305,9 +329,12 @@ public class Material {
       internalMaterialInstance = new InternalGltfMaterialInstance();
     }
 
-    ResourceManager.getInstance()
-        .getMaterialCleanupRegistry()
-        .register(this, new CleanupCallback(internalMaterialInstance, materialData));
+    cleanupItem =
+        ResourceManager.getInstance()
+            .getMaterialCleanupRegistry()
+            .register(
+                this,
+                new CleanupCallback(internalMaterialInstance, materialData, materialParameters));
   }
 
   void updateGltfMaterialInstance(MaterialInstance instance) {
@@ -473,10 +500,13 @@ public class Material {
         // Register the new material in the registry.
         if (registryId != null) {
           ResourceRegistry<Material> registry = ResourceManager.getInstance().getMaterialRegistry();
-          registry.register(registryId, CompletableFuture.completedFuture(material));
+          registry.register(
+              registryId, CompletableFuture.completedFuture(material.asRegistryEntry()));
         }
 
-        CompletableFuture<Material> result = CompletableFuture.completedFuture(material.makeCopy());
+        // Without a registry nothing else references the new material, so no copy is needed.
+        CompletableFuture<Material> result =
+            CompletableFuture.completedFuture(registryId != null ? material.makeCopy() : material);
         FutureHelper.logOnException(
             TAG, result, "Unable to load Material registryId='" + registryId + "'");
         return result;
@@ -489,7 +519,8 @@ public class Material {
         if (registryId != null) {
           ResourceRegistry<Material> registry = ResourceManager.getInstance().getMaterialRegistry();
           // In this case register a copy of the material.
-          registry.register(registryId, CompletableFuture.completedFuture(material.makeCopy()));
+          registry.register(
+              registryId, CompletableFuture.completedFuture(material.makeCopy().asRegistryEntry()));
         }
 
         // The current existing (in use) material is returned.
@@ -534,11 +565,14 @@ public class Material {
                   },
                   ThreadPools.getMainExecutor());
 
-      if (registryId != null) {
-        ResourceRegistry<Material> registry = ResourceManager.getInstance().getMaterialRegistry();
-        registry.register(registryId, result);
+      if (registryId == null) {
+        return result;
       }
 
+      result = result.thenApply(Material::asRegistryEntry);
+      ResourceRegistry<Material> registry = ResourceManager.getInstance().getMaterialRegistry();
+      registry.register(registryId, result);
+
       return result.thenApply(material -> material.makeCopy());
     }
 
@@ -627,16 +661,19 @@ public class Material {
     }
   }
 
-  /** Cleanup filament objects after garbage collection */
+  /** Cleanup filament objects after release or garbage collection */
   private static final class CleanupCallback implements Runnable {
     @Nullable private final MaterialInternalData materialInternalData;
     @Nullable private final IMaterialInstance materialInstance;
+    private final MaterialParameters materialParameters;
 
     CleanupCallback(
         @Nullable IMaterialInstance materialInstance,
-        @Nullable MaterialInternalData materialInternalData) {
+        @Nullable MaterialInternalData materialInternalData,
+        MaterialParameters materialParameters) {
       this.materialInstance = materialInstance;
       this.materialInternalData = materialInternalData;
+      this.materialParameters = materialParameters;
     }
 
     @Override
@@ -646,6 +683,9 @@ public class Material {
         materialInstance.dispose();
       }
 
+      // Lets go of the textures bound to the material.
+      materialParameters.clear();
+
       if (materialInternalData != null) {
         materialInternalData.release();
       }
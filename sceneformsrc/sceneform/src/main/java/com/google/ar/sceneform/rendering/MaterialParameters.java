@@ -20,7 +20,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setBoolean(String name, boolean x) {
-    namedParameters.put(name, new MaterialParameters.BooleanParameter(name, x));
+    putParameter(new MaterialParameters.BooleanParameter(name, x));
   }
 
   boolean getBoolean(String name) {
@@ -35,7 +35,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setBoolean2(String name, boolean x, boolean y) {
-    namedParameters.put(name, new MaterialParameters.Boolean2Parameter(name, x, y));
+    putParameter(new MaterialParameters.Boolean2Parameter(name, x, y));
   }
 
   @Nullable
@@ -51,7 +51,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setBoolean3(String name, boolean x, boolean y, boolean z) {
-    namedParameters.put(name, new MaterialParameters.Boolean3Parameter(name, x, y, z));
+    putParameter(new MaterialParameters.Boolean3Parameter(name, x, y, z));
   }
 
   @Nullable
@@ -67,7 +67,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setBoolean4(String name, boolean x, boolean y, boolean z, boolean w) {
-    namedParameters.put(name, new MaterialParameters.Boolean4Parameter(name, x, y, z, w));
+    putParameter(new MaterialParameters.Boolean4Parameter(name, x, y, z, w));
   }
 
   @Nullable
@@ -83,7 +83,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setFloat(String name, float x) {
-    namedParameters.put(name, new MaterialParameters.FloatParameter(name, x));
+    putParameter(new MaterialParameters.FloatParameter(name, x));
   }
 
   float getFloat(String name) {
@@ -98,7 +98,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setFloat2(String name, float x, float y) {
-    namedParameters.put(name, new MaterialParameters.Float2Parameter(name, x, y));
+    putParameter(new MaterialParameters.Float2Parameter(name, x, y));
   }
 
   @Nullable
@@ -114,12 +114,11 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setFloat3(String name, float x, float y, float z) {
-    namedParameters.put(name, new MaterialParameters.Float3Parameter(name, x, y, z));
+    putParameter(new MaterialParameters.Float3Parameter(name, x, y, z));
   }
 
   void setFloat3(String name, Vector3 value) {
-    namedParameters.put(
-        name, new MaterialParameters.Float3Parameter(name, value.x, value.y, value.z));
+    putParameter(new MaterialParameters.Float3Parameter(name, value.x, value.y, value.z));
   }
 
   @Nullable
@@ -135,7 +134,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setFloat4(String name, float x, float y, float z, float w) {
-    namedParameters.put(name, new MaterialParameters.Float4Parameter(name, x, y, z, w));
+    putParameter(new MaterialParameters.Float4Parameter(name, x, y, z, w));
   }
 
   @Nullable
@@ -151,7 +150,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setInt(String name, int x) {
-    namedParameters.put(name, new MaterialParameters.IntParameter(name, x));
+    putParameter(new MaterialParameters.IntParameter(name, x));
   }
 
   int getInt(String name) {
@@ -166,7 +165,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setInt2(String name, int x, int y) {
-    namedParameters.put(name, new MaterialParameters.Int2Parameter(name, x, y));
+    putParameter(new MaterialParameters.Int2Parameter(name, x, y));
   }
 
   @Nullable
@@ -182,7 +181,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setInt3(String name, int x, int y, int z) {
-    namedParameters.put(name, new MaterialParameters.Int3Parameter(name, x, y, z));
+    putParameter(new MaterialParameters.Int3Parameter(name, x, y, z));
   }
 
   @Nullable
@@ -198,7 +197,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setInt4(String name, int x, int y, int z, int w) {
-    namedParameters.put(name, new MaterialParameters.Int4Parameter(name, x, y, z, w));
+    putParameter(new MaterialParameters.Int4Parameter(name, x, y, z, w));
   }
 
   @Nullable
@@ -214,7 +213,7 @@ final class MaterialParameters {
 
   @UsedByNative("material_java_wrappers.h")
   void setTexture(String name, Texture texture) {
-    namedParameters.put(name, new MaterialParameters.TextureParameter(name, texture));
+    putParameter(new MaterialParameters.TextureParameter(name, texture));
   }
 
   @Nullable
@@ -228,8 +227,7 @@ final class MaterialParameters {
   }
 
   void setExternalTexture(String name, ExternalTexture externalTexture) {
-    namedParameters.put(
-        name, new MaterialParameters.ExternalTextureParameter(name, externalTexture));
+    putParameter(new MaterialParameters.ExternalTextureParameter(name, externalTexture));
   }
 
   @Nullable
@@ -253,14 +251,29 @@ final class MaterialParameters {
   }
 
   void copyFrom(MaterialParameters other) {
-    namedParameters.clear();
+    clear();
     merge(other);
   }
 
+  /** Removes every parameter, and lets go of the textures they were bound to. */
+  void clear() {
+    for (MaterialParameters.Parameter value : namedParameters.values()) {
+      value.release();
+    }
+    namedParameters.clear();
+  }
+
+  private void putParameter(MaterialParameters.Parameter parameter) {
+    MaterialParameters.Parameter previous = namedParameters.put(parameter.name, parameter);
+    if (previous != null) {
+      previous.release();
+    }
+  }
+
   void merge(MaterialParameters other) {
     for (MaterialParameters.Parameter value : other.namedParameters.values()) {
       MaterialParameters.Parameter clonedValue = value.clone();
-      namedParameters.put(clonedValue.name, clonedValue);
+      putParameter(clonedValue);
     }
   }
 
@@ -268,7 +281,7 @@ final class MaterialParameters {
     for (MaterialParameters.Parameter value : other.namedParameters.values()) {
       if (!namedParameters.containsKey(value.name)) {
         MaterialParameters.Parameter clonedValue = value.clone();
-        namedParameters.put(clonedValue.name, clonedValue);
+        putParameter(clonedValue);
       }
     }
   }
@@ -278,6 +291,9 @@ final class MaterialParameters {
 
     abstract void applyTo(MaterialInstance materialInstance);
 
+    /** Called once the parameter is removed from its material. */
+    void release() {}
+
     @Override
     public MaterialParameters.Parameter clone() {
       try {
@@ -498,6 +514,13 @@ final class MaterialParameters {
     TextureParameter(String name, Texture texture) {
       this.name = name;
       this.texture = texture;
+      // Keeps the texture alive while it is bound, even if it is released.
+      texture.retainData();
+    }
+
+    @Override
+    void release() {
+      texture.releaseData();
     }
 
     @Override
@@ -90,6 +90,35 @@ public class ModelRenderable extends Renderable {
 
 
 
+  /**
+   * Returns the number of levels of detail loaded from the model, including the full detail
+   * geometry. Each level is drawn when the projected size of the renderable falls below its screen
+   * size, see {@link #setLevelOfDetailScreenSize(int, float)}.
+   */
+  public int getLevelOfDetailCount() {
+    IRenderableInternalData data = getRenderableData();
+    if (data instanceof RenderableInternalData) {
+      return ((RenderableInternalData) data).getLevelOfDetailCount();
+    }
+    return 1;
+  }
+
+  /**
+   * Sets the screen size below which a level of detail is drawn, as the projected diameter of the
+   * renderable divided by the height of the viewport. By default the first coarser level is drawn
+   * below 0.5 and each following level below half the size of the previous one. The setting is
+   * shared by all copies of this ModelRenderable.
+   *
+   * @param level the level of detail, from 1 to {@link #getLevelOfDetailCount()} - 1
+   * @param screenSize the screen size below which the level is drawn
+   */
+  public void setLevelOfDetailScreenSize(int level, float screenSize) {
+    if (level < 1 || level >= getLevelOfDetailCount()) {
+      throw new IndexOutOfBoundsException("Invalid level of detail: " + level);
+    }
+    ((RenderableInternalData) getRenderableData()).setLevelOfDetailScreenSize(level, screenSize);
+  }
+
   /**
    * Creates a new instance of this ModelRenderable.
    *
@@ -169,8 +169,23 @@ public class PlaneRenderer {
 
   /** @hide PlaneRenderer is updated in a different package, but not part of external API. */
   public void update(Frame frame, int viewWidth, int viewHeight) {
-    Collection<Plane> updatedPlanes = frame.getUpdatedTrackables(Plane.class);
-    Vector3 focusPoint = getFocusPoint(frame, viewWidth, viewHeight);
+    update(
+        frame,
+        frame.getUpdatedTrackables(Plane.class),
+        frame.hitTest(viewWidth / 2, viewHeight / 2));
+  }
+
+  /**
+   * Updates the planes from pre-computed frame data.
+   *
+   * @hide PlaneRenderer is updated in a different package, but not part of external API.
+   * @param frame the frame the data was computed from
+   * @param updatedPlanes the planes updated in the frame
+   * @param centerHits the results of hit testing the center of the view
+   */
+  public void update(Frame frame, Collection<Plane> updatedPlanes, List<HitResult> centerHits) {
+    Vector3 focusPoint = getFocusPoint(frame, centerHits);
+    Pose cameraPose = frame.getCamera().getPose();
 
     @SuppressWarnings("nullness")
     @Nullable
@@ -205,7 +220,7 @@ public class PlaneRenderer {
       }
 
       // Update the plane visualizer.
-      planeVisualizer.updatePlane();
+      planeVisualizer.updatePlane(cameraPose);
     }
 
     // Remove plane visualizers for old planes that are no longer tracking.
@@ -295,11 +310,10 @@ public class PlaneRenderer {
                 });
   }
 
-  private Vector3 getFocusPoint(Frame frame, int width, int height) {
+  private Vector3 getFocusPoint(Frame frame, @Nullable List<HitResult> hits) {
     Vector3 focusPoint;
 
     // If we hit a plane, return the hit point.
-    List<HitResult> hits = frame.hitTest(width / 2, height / 2);
     if (hits != null && !hits.isEmpty()) {
       for (HitResult hit : hits) {
         Trackable trackable = hit.getTrackable();
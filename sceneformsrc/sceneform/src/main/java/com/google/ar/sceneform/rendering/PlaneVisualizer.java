@@ -2,13 +2,18 @@ package com.google.ar.sceneform.rendering;
 
 import android.support.annotation.Nullable;
 import com.google.ar.core.Plane;
+import com.google.ar.core.Pose;
 import com.google.ar.core.TrackingState;
 import com.google.ar.sceneform.common.TransformProvider;
 import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.math.Quaternion;
 import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.FloatBuffer;
-import java.util.ArrayList;
+import java.nio.IntBuffer;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
 
@@ -29,13 +34,32 @@ class PlaneVisualizer implements TransformProvider {
   @Nullable private ModelRenderable planeRenderable = null;
   @Nullable private RenderableInstance planeRenderableInstance;
 
-  private final ArrayList<Vertex> vertices = new ArrayList<>();
-  private final ArrayList<Integer> triangleIndices = new ArrayList<>();
+  // The mesh is generated straight into these buffers, which are reused between updates and only
+  // grow when a plane's polygon gains vertices.
+  private FloatBuffer positionData = allocateFloatBuffer(0);
+  private FloatBuffer tangentsData = allocateFloatBuffer(0);
+  private IntBuffer indexData = allocateIntBuffer(0);
   private final RenderableDefinition renderableDefinition;
   @Nullable private Submesh planeSubmesh;
   @Nullable private Submesh shadowSubmesh;
 
+  // Used to skip rebuilding the mesh when the polygon has not changed.
+  private int lastPolygonHash;
+  private int lastBoundaryVertexCount = 0;
+  private int updatesSinceRebuild = 0;
+
   private static final int VERTS_PER_BOUNDARY_VERT = 2;
+  private static final int POSITION_SIZE = 3;
+  private static final int TANGENTS_SIZE = 4;
+
+  // All plane vertices share the same normal, so they also share the same tangent.
+  private static final Quaternion PLANE_TANGENT =
+      RenderableDefinition.normalToTangent(Vector3.up());
+
+  // Large planes far away from the camera only rebuild their mesh every few updates.
+  private static final float THROTTLE_MIN_AREA = 4.0f;
+  private static final float THROTTLE_MIN_DISTANCE = 3.0f;
+  private static final int THROTTLED_UPDATE_INTERVAL = 10;
 
   // Feather distance 0.2 meters.
   private static final float FEATHER_LENGTH = 0.2f;
@@ -68,7 +92,8 @@ class PlaneVisualizer implements TransformProvider {
     this.plane = plane;
     this.renderer = renderer;
 
-    renderableDefinition = RenderableDefinition.builder().setVertices(vertices).build();
+    renderableDefinition =
+        RenderableDefinition.builder().setVertices(Collections.emptyList()).build();
   }
 
   Plane getPlane() {
@@ -78,7 +103,10 @@ class PlaneVisualizer implements TransformProvider {
   void setShadowMaterial(Material material) {
     if (shadowSubmesh == null) {
       shadowSubmesh =
-          Submesh.builder().setTriangleIndices(triangleIndices).setMaterial(material).build();
+          Submesh.builder()
+              .setTriangleIndices(Collections.emptyList())
+              .setMaterial(material)
+              .build();
     } else {
       shadowSubmesh.setMaterial(material);
     }
@@ -91,7 +119,10 @@ class PlaneVisualizer implements TransformProvider {
   void setPlaneMaterial(Material material) {
     if (planeSubmesh == null) {
       planeSubmesh =
-          Submesh.builder().setTriangleIndices(triangleIndices).setMaterial(material).build();
+          Submesh.builder()
+              .setTriangleIndices(Collections.emptyList())
+              .setMaterial(material)
+              .build();
     } else {
       planeSubmesh.setMaterial(material);
     }
@@ -107,6 +138,20 @@ class PlaneVisualizer implements TransformProvider {
   }
 
   void updatePlane() {
+    updatePlane(null, true);
+  }
+
+  /**
+   * Updates the pose and mesh of the plane for a new frame.
+   *
+   * @param cameraPose pose of the ARCore camera, used to throttle mesh rebuilds of large planes far
+   *     away from the camera
+   */
+  void updatePlane(Pose cameraPose) {
+    updatePlane(cameraPose, false);
+  }
+
+  private void updatePlane(@Nullable Pose cameraPose, boolean forceRenderableUpdate) {
     if (!isEnabled || (!isVisible && !isShadowReceiver)) {
       removePlaneFromScene();
       return;
@@ -118,19 +163,46 @@ class PlaneVisualizer implements TransformProvider {
     }
 
     // Set the transformation matrix to the pose of the plane.
-    plane.getCenterPose().toMatrix(planeMatrix.data, 0);
+    Pose centerPose = plane.getCenterPose();
+    centerPose.toMatrix(planeMatrix.data, 0);
+
+    updatesSinceRebuild++;
+    if (!forceRenderableUpdate
+        && planeRenderable != null
+        && cameraPose != null
+        && shouldThrottleRebuild(centerPose, cameraPose)) {
+      addPlaneToScene();
+      return;
+    }
 
     // Calculate the mesh for the plane.
-    boolean success = updateRenderableDefinitionForPlane();
-    if (!success) {
+    MeshUpdate meshUpdate = updateRenderableDefinitionForPlane();
+    if (meshUpdate == MeshUpdate.FAILED) {
       removePlaneFromScene();
       return;
     }
 
-    updateRenderable();
+    if (forceRenderableUpdate || meshUpdate == MeshUpdate.CHANGED || planeRenderable == null) {
+      updateRenderable();
+    }
     addPlaneToScene();
   }
 
+  private boolean shouldThrottleRebuild(Pose centerPose, Pose cameraPose) {
+    if (updatesSinceRebuild >= THROTTLED_UPDATE_INTERVAL) {
+      return false;
+    }
+
+    if (plane.getExtentX() * plane.getExtentZ() < THROTTLE_MIN_AREA) {
+      return false;
+    }
+
+    float dx = centerPose.tx() - cameraPose.tx();
+    float dy = centerPose.ty() - cameraPose.ty();
+    float dz = centerPose.tz() - cameraPose.tz();
+    return dx * dx + dy * dy + dz * dz > THROTTLE_MIN_DISTANCE * THROTTLE_MIN_DISTANCE;
+  }
+
   @SuppressWarnings({"AndroidApiChecker", "FutureReturnValueIgnored"})
   void updateRenderable() {
     List<Submesh> submeshes = renderableDefinition.getSubmeshes();
@@ -198,42 +270,54 @@ class PlaneVisualizer implements TransformProvider {
     isPlaneAddedToScene = false;
   }
 
-  private boolean updateRenderableDefinitionForPlane() {
+  /** Result of regenerating the plane mesh from its polygon. */
+  private enum MeshUpdate {
+    FAILED,
+    UNCHANGED,
+    CHANGED
+  }
+
+  private MeshUpdate updateRenderableDefinitionForPlane() {
     FloatBuffer boundary = plane.getPolygon();
 
     if (boundary == null) {
-      return false;
+      return MeshUpdate.FAILED;
     }
 
     boundary.rewind();
     int boundaryVertices = boundary.limit() / 2;
 
     if (boundaryVertices == 0) {
-      return false;
+      return MeshUpdate.FAILED;
     }
 
-    int numVertices = boundaryVertices * VERTS_PER_BOUNDARY_VERT;
-    vertices.clear();
-    vertices.ensureCapacity(numVertices);
+    // Skip the rebuild if the polygon is the same as last time.
+    int polygonHash = boundary.hashCode();
+    if (boundaryVertices == lastBoundaryVertexCount && polygonHash == lastPolygonHash) {
+      return MeshUpdate.UNCHANGED;
+    }
+    lastBoundaryVertexCount = boundaryVertices;
+    lastPolygonHash = polygonHash;
+    updatesSinceRebuild = 0;
 
-    int numIndices = (boundaryVertices * 6) + ((boundaryVertices - 2) * 3);
-    triangleIndices.clear();
-    triangleIndices.ensureCapacity(numIndices);
+    int numVertices = boundaryVertices * VERTS_PER_BOUNDARY_VERT;
+    int numIndices = getIndexCount(boundaryVertices);
+    ensureCapacity(numVertices, numIndices);
 
-    Vector3 normal = Vector3.up();
+    positionData.clear();
+    indexData.clear();
 
     // Copy the perimeter vertices into the vertex buffer and add in the y-coordinate.
-    while (boundary.hasRemaining()) {
-      float x = boundary.get();
-      float z = boundary.get();
-      vertices.add(Vertex.builder().setPosition(new Vector3(x, 0.0f, z)).setNormal(normal).build());
+    for (int i = 0; i < boundaryVertices; ++i) {
+      float x = boundary.get(i * 2);
+      float z = boundary.get(i * 2 + 1);
+      positionData.put(x).put(0.0f).put(z);
     }
 
     // Generate the interior vertices.
-    boundary.rewind();
-    while (boundary.hasRemaining()) {
-      float x = boundary.get();
-      float z = boundary.get();
+    for (int i = 0; i < boundaryVertices; ++i) {
+      float x = boundary.get(i * 2);
+      float z = boundary.get(i * 2 + 1);
 
       float magnitude = (float) Math.hypot(x, z);
       float scale = 1.0f - FEATHER_SCALE;
@@ -241,21 +325,17 @@ class PlaneVisualizer implements TransformProvider {
         scale = 1.0f - Math.min(FEATHER_LENGTH / magnitude, FEATHER_SCALE);
       }
 
-      vertices.add(
-          Vertex.builder()
-              .setPosition(new Vector3(x * scale, 1.0f, z * scale))
-              .setNormal(normal)
-              .build());
+      positionData.put(x * scale).put(1.0f).put(z * scale);
     }
 
     int firstOuterVertex = 0;
-    int firstInnerVertex = (short) boundaryVertices;
+    int firstInnerVertex = boundaryVertices;
 
     // Generate triangle (4, 5, 6) and (4, 6, 7).
     for (int i = 0; i < boundaryVertices - 2; ++i) {
-      triangleIndices.add(firstInnerVertex);
-      triangleIndices.add(firstInnerVertex + i + 1);
-      triangleIndices.add(firstInnerVertex + i + 2);
+      indexData.put(firstInnerVertex);
+      indexData.put(firstInnerVertex + i + 1);
+      indexData.put(firstInnerVertex + i + 2);
     }
 
     // Generate triangle (0, 1, 4), (4, 1, 5), (5, 1, 2), (5, 2, 6), (6, 2, 3), (6, 3, 7)
@@ -266,15 +346,60 @@ class PlaneVisualizer implements TransformProvider {
       int innerVertex1 = firstInnerVertex + i;
       int innerVertex2 = firstInnerVertex + ((i + 1) % boundaryVertices);
 
-      triangleIndices.add(outerVertex1);
-      triangleIndices.add(outerVertex2);
-      triangleIndices.add(innerVertex1);
+      indexData.put(outerVertex1);
+      indexData.put(outerVertex2);
+      indexData.put(innerVertex1);
+
+      indexData.put(innerVertex1);
+      indexData.put(outerVertex2);
+      indexData.put(innerVertex2);
+    }
+
+    positionData.flip();
+    indexData.flip();
+    renderableDefinition.setPositions(positionData);
+    renderableDefinition.setTangents(tangentsData);
+    renderableDefinition.setIndices(indexData);
+    return MeshUpdate.CHANGED;
+  }
 
-      triangleIndices.add(innerVertex1);
-      triangleIndices.add(outerVertex2);
-      triangleIndices.add(innerVertex2);
+  private void ensureCapacity(int numVertices, int numIndices) {
+    // Grow with headroom, polygons tend to gain vertices as the plane is refined.
+    if (positionData.capacity() < numVertices * POSITION_SIZE) {
+      positionData = allocateFloatBuffer(numVertices * 2 * POSITION_SIZE);
     }
 
-    return true;
+    if (indexData.capacity() < numIndices) {
+      indexData = allocateIntBuffer(numIndices * 2);
+    }
+
+    // The tangents never change, so they only need to be written when the buffer grows.
+    if (tangentsData.capacity() < numVertices * TANGENTS_SIZE) {
+      tangentsData = allocateFloatBuffer(numVertices * 2 * TANGENTS_SIZE);
+      while (tangentsData.hasRemaining()) {
+        tangentsData
+            .put(PLANE_TANGENT.x)
+            .put(PLANE_TANGENT.y)
+            .put(PLANE_TANGENT.z)
+            .put(PLANE_TANGENT.w);
+      }
+      tangentsData.rewind();
+    }
+  }
+
+  private static int getIndexCount(int boundaryVertices) {
+    return (boundaryVertices * 6) + ((boundaryVertices - 2) * 3);
+  }
+
+  private static FloatBuffer allocateFloatBuffer(int floatCount) {
+    return ByteBuffer.allocateDirect(floatCount * Float.BYTES)
+        .order(ByteOrder.nativeOrder())
+        .asFloatBuffer();
+  }
+
+  private static IntBuffer allocateIntBuffer(int intCount) {
+    return ByteBuffer.allocateDirect(intCount * Integer.BYTES)
+        .order(ByteOrder.nativeOrder())
+        .asIntBuffer();
   }
 }
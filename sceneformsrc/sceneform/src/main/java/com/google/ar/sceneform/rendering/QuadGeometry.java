@@ -0,0 +1,166 @@
+package com.google.ar.sceneform.rendering;
+
+import com.google.ar.sceneform.rendering.RenderableDefinition.Submesh;
+import java.nio.Buffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Buffers of a renderable made of quads that are rewritten in place, shared by all copies of the
+ * renderable.
+ *
+ * <p>Edits call {@link #markChanged()}. Before the next frame, the first copy to be drawn writes
+ * the changes into the buffers and uploads the changed range, the other copies only apply the
+ * definition. Subclasses own the vertex buffers and write the quads, this class owns the indices,
+ * which never change for a quad and are written once for the whole capacity.
+ */
+abstract class QuadGeometry {
+  static final int VERTICES_PER_QUAD = 4;
+  static final int INDICES_PER_QUAD = 6;
+  private static final int MAX_SHORT_INDEX_QUADS = 0x10000 / VERTICES_PER_QUAD;
+
+  final RenderableDefinition definition;
+  final Submesh submesh;
+
+  private Buffer indices = ShortBuffer.allocate(0);
+  private int quadCapacity;
+  private int uploadedIndexQuads;
+  private int version;
+  private boolean hasPendingUpload;
+  private boolean isChanged;
+
+  QuadGeometry(Material material) {
+    submesh = Submesh.builder().setIndexRange(0, 0).setMaterial(material).build();
+    definition =
+        RenderableDefinition.builder()
+            .setVertices(Collections.emptyList())
+            .setSubmeshes(Arrays.asList(submesh))
+            .build();
+  }
+
+  /** Allocates vertex buffers for the given number of quads and sets them on the definition. */
+  abstract void onQuadCapacityChanged(int quadCapacity);
+
+  /** Limits the vertex buffers to the given number of vertices. */
+  abstract void setVertexLimit(int vertexCount);
+
+  /** Writes the changes into the vertex buffers, then calls {@link #finishWrite}. */
+  abstract void writePendingChanges();
+
+  int getVersion() {
+    return version;
+  }
+
+  void markChanged() {
+    isChanged = true;
+    // Views that render on demand would not otherwise draw the new geometry.
+    Renderer.requestRenderAll();
+  }
+
+  void ensureQuadCapacity(int quadCount) {
+    if (quadCount <= quadCapacity) {
+      return;
+    }
+
+    int newCapacity = Math.max(quadCount, quadCapacity * 2);
+    int vertexCapacity = newCapacity * VERTICES_PER_QUAD;
+    int indexCapacity = newCapacity * INDICES_PER_QUAD;
+    if (newCapacity <= MAX_SHORT_INDEX_QUADS) {
+      ShortBuffer indices = ShortBuffer.allocate(indexCapacity);
+      for (int vertex = 0; vertex < vertexCapacity; vertex += VERTICES_PER_QUAD) {
+        indices.put((short) vertex).put((short) (vertex + 1)).put((short) (vertex + 2));
+        indices.put((short) vertex).put((short) (vertex + 2)).put((short) (vertex + 3));
+      }
+      indices.flip();
+      definition.setIndices(indices);
+      this.indices = indices;
+    } else {
+      IntBuffer indices = IntBuffer.allocate(indexCapacity);
+      for (int vertex = 0; vertex < vertexCapacity; vertex += VERTICES_PER_QUAD) {
+        indices.put(vertex).put(vertex + 1).put(vertex + 2);
+        indices.put(vertex).put(vertex + 2).put(vertex + 3);
+      }
+      indices.flip();
+      definition.setIndices(indices);
+      this.indices = indices;
+    }
+
+    quadCapacity = newCapacity;
+    uploadedIndexQuads = 0;
+    onQuadCapacityChanged(newCapacity);
+  }
+
+  /**
+   * Sets the ranges to upload once the vertices of the quads from start to end were written, and
+   * draws the first quads of the buffers. The buffers hold the drawn and the written quads.
+   *
+   * @param quadCount the number of quads to draw
+   * @param start the first quad whose vertices were written
+   * @param end the quad after the last one whose vertices were written
+   */
+  final void finishWrite(int quadCount, int start, int end) {
+    // The definition needs at least one vertex, so empty geometry writes degenerate quads.
+    int bufferQuads = Math.max(Math.max(quadCount, end), 1);
+    setVertexLimit(bufferQuads * VERTICES_PER_QUAD);
+    definition.setVertexUpdateRange(
+        start * VERTICES_PER_QUAD, Math.max(end - start, 0) * VERTICES_PER_QUAD);
+
+    if (bufferQuads > uploadedIndexQuads) {
+      definition.setIndexUpdateRange(
+          uploadedIndexQuads * INDICES_PER_QUAD,
+          (bufferQuads - uploadedIndexQuads) * INDICES_PER_QUAD);
+      uploadedIndexQuads = bufferQuads;
+    } else {
+      definition.setIndexUpdateRange(0, 0);
+    }
+    indices.limit(bufferQuads * INDICES_PER_QUAD);
+    submesh.setIndexRange(0, quadCount * INDICES_PER_QUAD);
+
+    isChanged = false;
+    hasPendingUpload = true;
+    version++;
+  }
+
+  /**
+   * Writes the initial contents of the buffers for a builder.
+   *
+   * @return the definition to use as the source of the builder
+   */
+  RenderableDefinition buildSource() {
+    writePendingChanges();
+    // The renderable is created from these buffers, so nothing is left to upload.
+    hasPendingUpload = false;
+    return definition;
+  }
+
+  /**
+   * Writes pending changes and applies the definition to a copy of the renderable that last
+   * applied the given version.
+   *
+   * @return the version applied by the renderable
+   */
+  int prepareForDraw(Renderable renderable, int appliedVersion) {
+    if (isChanged) {
+      writePendingChanges();
+    }
+
+    if (appliedVersion == version) {
+      return version;
+    }
+
+    if (!hasPendingUpload) {
+      // Another copy already uploaded this version to the shared buffers.
+      definition.setVertexUpdateRange(0, 0);
+      definition.setIndexUpdateRange(0, 0);
+    }
+    hasPendingUpload = false;
+
+    // Keep the material bound to this copy rather than the one of the shared submesh.
+    submesh.setMaterial(renderable.getMaterial());
+    // The change that led here already requested this frame.
+    renderable.applyDefinition(definition);
+    return version;
+  }
+}
@@ -0,0 +1,76 @@
+package com.google.ar.sceneform.rendering;
+
+import android.support.annotation.Nullable;
+import com.google.android.filament.TransformManager;
+import com.google.ar.sceneform.math.Vector3;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records which renderable instances moved during a frame, so that the {@link Renderer} submits
+ * only their transforms to Filament.
+ *
+ * <p>The changed instances are captured at the end of the update phase and then submitted in a
+ * single transform transaction. Only instances whose world transform changed since they were last
+ * submitted are recorded, so static content costs a matrix comparison per frame instead of a
+ * transform update through JNI. Material and light state is not captured, it is still applied to
+ * Filament directly when it changes.
+ *
+ * <p>While capturing, each instance also selects the level of detail that matches its size on
+ * screen from the point of view of the camera.
+ */
+class RenderSnapshot {
+  private final ArrayList<RenderableInstance> changedInstances = new ArrayList<>();
+  private final Vector3 cameraPosition = new Vector3();
+
+  /**
+   * Prepares the instances for drawing and records the ones whose transform has changed.
+   *
+   * @param cameraProvider the camera used to select levels of detail, or null to keep the current
+   *     levels
+   * @param levelOfDetailBias how much smaller renderables are considered when selecting their
+   *     level of detail
+   */
+  void capture(
+      List<RenderableInstance> renderableInstances,
+      @Nullable CameraProvider cameraProvider,
+      float levelOfDetailBias) {
+    changedInstances.clear();
+
+    float projectionScale = 0.0f;
+    if (cameraProvider != null) {
+      float[] cameraTransform = cameraProvider.getWorldModelMatrix().data;
+      cameraPosition.set(cameraTransform[12], cameraTransform[13], cameraTransform[14]);
+      projectionScale = cameraProvider.getProjectionMatrix().data[5] / levelOfDetailBias;
+    }
+
+    for (RenderableInstance renderableInstance : renderableInstances) {
+      renderableInstance.prepareForDraw();
+
+      float[] transform = renderableInstance.getWorldModelMatrix().data;
+      if (renderableInstance.captureTransform(transform)) {
+        changedInstances.add(renderableInstance);
+      }
+
+      if (cameraProvider != null) {
+        renderableInstance.updateLevelOfDetail(cameraPosition, projectionScale);
+      }
+    }
+  }
+
+  /** Submits the captured transforms to Filament. */
+  void submit(TransformManager transformManager) {
+    if (changedInstances.isEmpty()) {
+      return;
+    }
+
+    transformManager.openLocalTransformTransaction();
+
+    for (RenderableInstance renderableInstance : changedInstances) {
+      renderableInstance.submitTransform(transformManager);
+    }
+
+    transformManager.commitLocalTransformTransaction();
+    changedInstances.clear();
+  }
+}
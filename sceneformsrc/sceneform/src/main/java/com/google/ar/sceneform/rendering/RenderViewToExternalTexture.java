@@ -1,10 +1,12 @@
 package com.google.ar.sceneform.rendering;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Picture;
 import android.graphics.PorterDuff;
+import android.os.Build;
 import android.support.annotation.Nullable;
 import android.view.Surface;
 import android.view.View;
@@ -25,10 +27,15 @@ import java.util.ArrayList;
  *   <li>Override dispatchDraw.
  *   <li>Call super.dispatchDraw with the real DisplayListCanvas
  *   <li>Draw the clear color the DisplayListCanvas so that it isn't visible on screen.
- *   <li>Draw the view to the SurfaceTexture every frame. This must be done every frame, because the
- *       view will not be marked as dirty when child views are animating when hardware accelerated.
+ *   <li>Draw the view to the SurfaceTexture when it is invalidated. The view is not marked as
+ *       dirty when child views are animating while hardware accelerated, so invalidations of
+ *       descendants are forwarded to RenderViewToExternalTexture. Before Android O there is no
+ *       public callback for this, and the view is drawn every frame instead.
  * </ul>
  *
+ * <p>A view that never changes can be rasterized once with {@link #drawToBitmap()}, after which
+ * {@link #releaseSurface()} stops drawing it and releases its surface.
+ *
  * @hide
  */
 
@@ -38,20 +45,34 @@ class RenderViewToExternalTexture extends LinearLayout {
     void onViewSizeChanged(int width, int height);
   }
 
+  // Descendant invalidation can only be observed with onDescendantInvalidated, added in Android O.
+  private static final boolean REQUIRES_CONTINUOUS_DRAW =
+      Build.VERSION.SDK_INT < Build.VERSION_CODES.O;
+
   private final View view;
-  private final ExternalTexture externalTexture;
+  @Nullable private ExternalTexture externalTexture;
   private final Picture picture = new Picture();
   private boolean hasDrawnToSurfaceTexture = false;
+  private boolean isSurfaceReleased = false;
+
+  // When set, the view is drawn into a region of the shared atlas instead of its own texture.
+  @Nullable private final ViewRenderableAtlas atlas;
+  @Nullable private ViewRenderableAtlas.Region atlasRegion;
 
   @Nullable private ViewAttachmentManager viewAttachmentManager;
   private final ArrayList<OnViewSizeChangedListener> onViewSizeChangedListeners = new ArrayList<>();
 
-  @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
   RenderViewToExternalTexture(Context context, View view) {
+    this(context, view, null);
+  }
+
+  @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
+  RenderViewToExternalTexture(Context context, View view, @Nullable ViewRenderableAtlas atlas) {
     super(context);
     Preconditions.checkNotNull(view, "Parameter \"view\" was null.");
 
-    externalTexture = new ExternalTexture();
+    this.atlas = atlas;
+    externalTexture = atlas != null ? atlas.getExternalTexture() : new ExternalTexture();
 
     this.view = view;
     addView(view);
@@ -78,13 +99,27 @@ class RenderViewToExternalTexture extends LinearLayout {
   }
 
   ExternalTexture getExternalTexture() {
-    return externalTexture;
+    return Preconditions.checkNotNull(externalTexture);
   }
 
   boolean hasDrawnToSurfaceTexture() {
+    if (atlas != null) {
+      return atlasRegion != null && atlasRegion.hasDrawn();
+    }
     return hasDrawnToSurfaceTexture;
   }
 
+  @Nullable
+  ViewRenderableAtlas getAtlas() {
+    return atlas;
+  }
+
+  /** Returns the region of the atlas the view is drawn into, if it uses an atlas. */
+  @Nullable
+  ViewRenderableAtlas.Region getAtlasRegion() {
+    return atlasRegion;
+  }
+
   @Override
   public void onAttachedToWindow() {
     super.onAttachedToWindow();
@@ -93,7 +128,17 @@ class RenderViewToExternalTexture extends LinearLayout {
   @Override
   public void onLayout(boolean changed, int left, int top, int right, int bottom) {
     super.onLayout(changed, left, top, right, bottom);
-    externalTexture.getSurfaceTexture().setDefaultBufferSize(view.getWidth(), view.getHeight());
+    if (isSurfaceReleased) {
+      return;
+    }
+
+    if (atlas != null) {
+      atlasRegion = atlas.resize(atlasRegion, picture, view.getWidth(), view.getHeight());
+    } else {
+      getExternalTexture()
+          .getSurfaceTexture()
+          .setDefaultBufferSize(view.getWidth(), view.getHeight());
+    }
   }
 
   @Override
@@ -103,10 +148,27 @@ class RenderViewToExternalTexture extends LinearLayout {
     }
   }
 
+  @Override
+  public void onDescendantInvalidated(View child, View target) {
+    super.onDescendantInvalidated(child, target);
+
+    // Make sure dispatchDraw is called again so that the change reaches the texture.
+    invalidate();
+  }
+
   @Override
   public void dispatchDraw(Canvas canvas) {
+    if (isSurfaceReleased) {
+      return;
+    }
+
+    if (atlas != null) {
+      dispatchDrawToAtlas(atlas);
+      return;
+    }
+
     // Sanity that the surface is valid.
-    Surface targetSurface = externalTexture.getSurface();
+    Surface targetSurface = getExternalTexture().getSurface();
     if (!targetSurface.isValid()) {
       return;
     }
@@ -122,12 +184,72 @@ class RenderViewToExternalTexture extends LinearLayout {
       targetSurface.unlockCanvasAndPost(surfaceCanvas);
 
       hasDrawnToSurfaceTexture = true;
+      Renderer.requestRenderAll();
     }
 
-    invalidate();
+    if (REQUIRES_CONTINUOUS_DRAW) {
+      invalidate();
+    }
+  }
+
+  private void dispatchDrawToAtlas(ViewRenderableAtlas atlas) {
+    ViewRenderableAtlas.Region atlasRegion = this.atlasRegion;
+    if (atlasRegion != null && view.isDirty()) {
+      Canvas pictureCanvas = picture.beginRecording(view.getWidth(), view.getHeight());
+      super.dispatchDraw(pictureCanvas);
+      picture.endRecording();
+
+      // The atlas copies the picture into its texture together with the other changed views.
+      atlas.invalidate(atlasRegion);
+      Renderer.requestRenderAll();
+    }
+
+    if (REQUIRES_CONTINUOUS_DRAW) {
+      invalidate();
+    }
+  }
+
+  /**
+   * Rasterizes the last drawn contents of the view into a new bitmap. The rows are flipped so that
+   * the first row of the bitmap is the bottom of the view, matching the texture coordinates of the
+   * quad a {@link ViewRenderable} is drawn on.
+   */
+  Bitmap drawToBitmap() {
+    int width = Math.max(view.getWidth(), 1);
+    int height = Math.max(view.getHeight(), 1);
+    Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    Canvas canvas = new Canvas(bitmap);
+    canvas.scale(1.0f, -1.0f, 0.0f, height * 0.5f);
+    picture.draw(canvas);
+    return bitmap;
+  }
+
+  /**
+   * Stops drawing the view and releases the texture it was drawn to right away, along with its
+   * Surface and SurfaceTexture. No material may sample the texture afterwards. Textures of an atlas
+   * are owned by the atlas and are left to it.
+   */
+  void releaseSurface() {
+    if (isSurfaceReleased) {
+      return;
+    }
+
+    isSurfaceReleased = true;
+    releaseResources();
+    if (atlas == null) {
+      externalTexture = null;
+    }
+  }
+
+  boolean isSurfaceReleased() {
+    return isSurfaceReleased;
   }
 
   void attachView(ViewAttachmentManager viewAttachmentManager) {
+    if (isSurfaceReleased) {
+      return;
+    }
+
     if (this.viewAttachmentManager != null) {
       if (this.viewAttachmentManager != viewAttachmentManager) {
         throw new IllegalStateException(
@@ -148,10 +270,25 @@ class RenderViewToExternalTexture extends LinearLayout {
     }
   }
 
+  /**
+   * Stops drawing the view and releases the texture it was drawn to, along with its Surface and
+   * SurfaceTexture. Textures of an atlas are owned by the atlas and are left to it.
+   */
   void releaseResources() {
+    stopDrawing();
+
+    ExternalTexture externalTexture = this.externalTexture;
+    if (atlas == null && externalTexture != null) {
+      externalTexture.release();
+    }
+  }
+
+  private void stopDrawing() {
     detachView();
 
-    // Let Surface and SurfaceTexture be released
-    // automatically by their finalizers.
+    if (atlas != null && atlasRegion != null) {
+      atlas.free(atlasRegion);
+      atlasRegion = null;
+    }
   }
 }
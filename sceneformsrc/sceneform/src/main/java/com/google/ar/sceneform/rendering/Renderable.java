@@ -18,6 +18,7 @@ import com.google.ar.sceneform.utilities.LoadHelper;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import java.util.Map;
@@ -80,7 +81,7 @@ public abstract class Renderable {
     Preconditions.checkState(other.materialNames.size() == other.materialBindings.size());
     for (int i = 0; i < other.materialBindings.size(); i++) {
       Material otherMaterial = other.materialBindings.get(i);
-      materialBindings.add(otherMaterial.makeCopy());
+      materialBindings.add(otherMaterial.makeInternalCopy());
       materialNames.add(other.materialNames.get(i));
     }
 
@@ -104,7 +105,7 @@ public abstract class Renderable {
   /** Set the {@link CollisionShape} used for collision detection with this {@link Renderable}. */
   public void setCollisionShape(@Nullable CollisionShape collisionShape) {
     this.collisionShape = collisionShape;
-    changeId.update();
+    markChanged();
   }
 
   /** Returns the material bound to the first submesh. */
@@ -130,7 +131,7 @@ public abstract class Renderable {
   public void setMaterial(int submeshIndex, Material material) {
     if (submeshIndex < materialBindings.size()) {
       materialBindings.set(submeshIndex, material);
-      changeId.update();
+      markChanged();
     } else {
       throw makeSubmeshOutOfRangeException(submeshIndex);
     }
@@ -166,7 +167,7 @@ public abstract class Renderable {
       @IntRange(from = RENDER_PRIORITY_FIRST, to = RENDER_PRIORITY_LAST) int renderPriority) {
     this.renderPriority =
         Math.min(RENDER_PRIORITY_LAST, Math.max(RENDER_PRIORITY_FIRST, renderPriority));
-    changeId.update();
+    markChanged();
   }
 
   /** Returns true if configured to cast shadows on other renderables. */
@@ -177,7 +178,7 @@ public abstract class Renderable {
   /** Sets whether the renderable casts shadow on other renderables in the scene. */
   public void setShadowCaster(boolean isShadowCaster) {
     this.isShadowCaster = isShadowCaster;
-    changeId.update();
+    markChanged();
   }
 
   /** Returns true if configured to receive shadows cast by other renderables. */
@@ -188,7 +189,7 @@ public abstract class Renderable {
   /** Sets whether the renderable receives shadows cast by other renderables in the scene. */
   public void setShadowReceiver(boolean isShadowReceiver) {
     this.isShadowReceiver = isShadowReceiver;
-    changeId.update();
+    markChanged();
   }
 
   /**
@@ -198,6 +199,12 @@ public abstract class Renderable {
     return renderableData.getMeshes().size();
   }
 
+  private void markChanged() {
+    changeId.update();
+    // Views that render on demand would not otherwise notice that the renderable changed.
+    Renderer.requestRenderAll();
+  }
+
   /** @hide */
   public ChangeId getId() {
     return changeId;
@@ -209,6 +216,16 @@ public abstract class Renderable {
   }
 
   public void updateFromDefinition(RenderableDefinition definition) {
+    applyDefinition(definition);
+    // Views that render on demand would not otherwise notice the new definition.
+    Renderer.requestRenderAll();
+  }
+
+  /**
+   * Updates the renderable from a definition without requesting a frame. Used while drawing, by
+   * renderables whose change already requested the frame being drawn.
+   */
+  void applyDefinition(RenderableDefinition definition) {
     Preconditions.checkState(!definition.getSubmeshes().isEmpty());
 
     changeId.update();
@@ -306,6 +323,7 @@ public abstract class Renderable {
     @Nullable private RenderableDefinition definition = null;
     private boolean isGltf = false;
     private boolean isFilamentAsset = false;
+    private boolean useMeshCollision = false;
     @Nullable private LoadGltfListener loadGltfListener;
     @Nullable private Function<String, Uri> uriResolver = null;
     @Nullable private byte[] materialsBytes = null;
@@ -361,6 +379,19 @@ public abstract class Renderable {
 
 
 
+    /**
+     * Use the triangles of the model as its collision shape instead of the box or sphere suggested
+     * by the SFB. Mesh collision gives exact ray hits and overlaps for concave or irregular models
+     * at the cost of memory for a copy of the triangles. Only applies to SFB sources.
+     *
+     * <p>The setting is part of the registry key. Renderables built from the same registry id with
+     * and without mesh collision are loaded and registered separately.
+     */
+    public B setUseMeshCollision(boolean useMeshCollision) {
+      this.useMeshCollision = useMeshCollision;
+      return getSelf();
+    }
+
     public B setIsFilamentGltf(boolean isFilamentGltf) {
       this.isFilamentAsset = isFilamentGltf;
       return getSelf();
@@ -400,7 +431,7 @@ public abstract class Renderable {
       }
 
       // For static-analysis check.
-      Object registryId = this.registryId;
+      Object registryId = getRegistryKey();
       if (registryId != null) {
         // See if a renderable has already been registered by this id, if so re-use it.
         ResourceRegistry<T> registry = getRenderableRegistry();
@@ -445,6 +476,7 @@ public abstract class Renderable {
       } else {
         LoadRenderableFromSfbTask<T> loader =
             new LoadRenderableFromSfbTask<>(renderable, sourceUri);
+        loader.setUseMeshCollision(useMeshCollision);
         result = loader.downloadAndProcessRenderable(inputStreamCreator);
       }
 
@@ -461,6 +493,19 @@ public abstract class Renderable {
           resultRenderable -> getRenderableClass().cast(resultRenderable.makeCopy()));
     }
 
+    /**
+     * Returns the key of the renderable in the registry. Mesh collision changes the loaded
+     * renderable, so it is part of the key.
+     */
+    @Nullable
+    private Object getRegistryKey() {
+      Object registryId = this.registryId;
+      if (registryId == null || !useMeshCollision) {
+        return registryId;
+      }
+      return Arrays.asList(registryId, "meshCollision");
+    }
+
     protected void checkPreconditions() {
       AndroidPreconditions.checkUiThread();
 
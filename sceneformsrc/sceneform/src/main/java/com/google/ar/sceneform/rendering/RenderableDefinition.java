@@ -14,7 +14,9 @@ import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import com.google.ar.sceneform.utilities.Preconditions;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 
@@ -33,16 +35,20 @@ public class RenderableDefinition {
    * Submeshes.
    */
   public static class Submesh {
-    private List<Integer> triangleIndices;
+    // Null for submeshes that draw a range of the index buffer of the definition.
+    @Nullable private List<Integer> triangleIndices;
     private Material material;
     @Nullable private String name;
+    private int indexStart;
+    private int indexCount = -1;
 
     public void setTriangleIndices(List<Integer> triangleIndices) {
       this.triangleIndices = triangleIndices;
     }
 
     public List<Integer> getTriangleIndices() {
-      return triangleIndices;
+      List<Integer> triangleIndices = this.triangleIndices;
+      return triangleIndices != null ? triangleIndices : Collections.emptyList();
     }
 
     public void setMaterial(Material material) {
@@ -62,10 +68,25 @@ public class RenderableDefinition {
       return name;
     }
 
+    /**
+     * Sets the range of the definition's index buffer drawn by this submesh. Only used when the
+     * geometry is supplied with {@link RenderableDefinition#setPositions(FloatBuffer)}; by default
+     * the submesh draws every index.
+     */
+    public void setIndexRange(int indexStart, int indexCount) {
+      if (indexStart < 0 || indexCount < 0) {
+        throw new IllegalArgumentException("Invalid index range.");
+      }
+      this.indexStart = indexStart;
+      this.indexCount = indexCount;
+    }
+
     private Submesh(Builder builder) {
-      triangleIndices = Preconditions.checkNotNull(builder.triangleIndices);
       material = Preconditions.checkNotNull(builder.material);
       name = builder.name;
+      indexStart = builder.indexStart;
+      indexCount = builder.indexCount;
+      triangleIndices = builder.triangleIndices;
     }
 
     public static Builder builder() {
@@ -77,6 +98,8 @@ public class RenderableDefinition {
       @Nullable private List<Integer> triangleIndices;
       @Nullable private Material material;
       @Nullable private String name;
+      private int indexStart;
+      private int indexCount = -1;
 
       public Builder setTriangleIndices(List<Integer> triangleIndices) {
         this.triangleIndices = triangleIndices;
@@ -93,6 +116,16 @@ public class RenderableDefinition {
         return this;
       }
 
+      /** @see Submesh#setIndexRange(int, int) */
+      public Builder setIndexRange(int indexStart, int indexCount) {
+        if (indexStart < 0 || indexCount < 0) {
+          throw new IllegalArgumentException("Invalid index range.");
+        }
+        this.indexStart = indexStart;
+        this.indexCount = indexCount;
+        return this;
+      }
+
       public Submesh build() {
         return new Submesh(this);
       }
@@ -102,11 +135,36 @@ public class RenderableDefinition {
   private List<Vertex> vertices;
   private List<Submesh> submeshes;
 
+  // Geometry supplied as primitive arrays or NIO buffers. When positions are set they are used
+  // instead of the vertices and the submesh triangle index lists.
+  @Nullable private FloatBuffer positions;
+  @Nullable private FloatBuffer normals;
+  @Nullable private FloatBuffer tangents;
+  @Nullable private FloatBuffer uvs;
+  @Nullable private FloatBuffer colors;
+  @Nullable private IntBuffer intIndices;
+  @Nullable private ShortBuffer shortIndices;
+
+  // Buffers derived from the supplied geometry, reused between updates.
+  @Nullable private FloatBuffer computedTangents;
+  @Nullable private ShortBuffer packedIndices;
+
+  // Ranges to upload on the next update. A negative count uploads everything.
+  private int vertexUpdateStart = 0;
+  private int vertexUpdateCount = -1;
+  private int indexUpdateStart = 0;
+  private int indexUpdateCount = -1;
+
   private static final int BYTES_PER_FLOAT = Float.SIZE / 8;
   private static final int POSITION_SIZE = 3; // x, y, z
   private static final int UV_SIZE = 2;
   private static final int TANGENTS_SIZE = 4; // quaternion
   private static final int COLOR_SIZE = 4; // RGBA
+  private static final int NORMAL_SIZE = 3; // x, y, z
+  private static final int BYTES_PER_SHORT = Short.SIZE / 8;
+  private static final int BYTES_PER_INT = Integer.SIZE / 8;
+  // 16 bit indices are used whenever every vertex can be addressed by an unsigned short.
+  private static final int MAX_SHORT_INDEX_VERTICES = 0x10000;
 
   public void setVertices(List<Vertex> vertices) {
     this.vertices = vertices;
@@ -124,6 +182,86 @@ public class RenderableDefinition {
     return submeshes;
   }
 
+  /**
+   * Sets the vertex positions, three floats (x, y, z) per vertex. The number of vertices is
+   * determined by the limit of the buffer.
+   *
+   * <p>When positions are set, the geometry is taken from the buffers set on this definition
+   * instead of the {@link Vertex} list, and submeshes use their index range instead of their
+   * triangle index list. Buffers are not copied, so they can be modified in place and re-applied
+   * with {@link Renderable#updateFromDefinition(RenderableDefinition)}. The GPU buffers are sized
+   * to the capacity of the supplied buffers, so the geometry can grow up to the capacity without
+   * the GPU buffers being re-created.
+   */
+  public void setPositions(@Nullable FloatBuffer positions) {
+    this.positions = positions;
+  }
+
+  /**
+   * Sets the vertex normals, three floats per vertex. Tangents are derived from the normals unless
+   * they are set with {@link #setTangents(FloatBuffer)}.
+   */
+  public void setNormals(@Nullable FloatBuffer normals) {
+    this.normals = normals;
+  }
+
+  /** Sets precomputed tangent frames, four floats per vertex as a quaternion (x, y, z, w). */
+  public void setTangents(@Nullable FloatBuffer tangents) {
+    this.tangents = tangents;
+  }
+
+  /** Sets the texture coordinates, two floats per vertex. */
+  public void setUvs(@Nullable FloatBuffer uvs) {
+    this.uvs = uvs;
+  }
+
+  /** Sets the vertex colors, four floats (r, g, b, a) per vertex. */
+  public void setColors(@Nullable FloatBuffer colors) {
+    this.colors = colors;
+  }
+
+  /**
+   * Sets the triangle indices used with {@link #setPositions(FloatBuffer)}. The number of indices
+   * is determined by the limit of the buffer. Indices are uploaded as 16 bit when every vertex can
+   * be addressed with 16 bits.
+   */
+  public void setIndices(IntBuffer indices) {
+    this.intIndices = Preconditions.checkNotNull(indices, "Parameter \"indices\" was null.");
+    this.shortIndices = null;
+  }
+
+  /** Sets 16 bit triangle indices used with {@link #setPositions(FloatBuffer)}. */
+  public void setIndices(ShortBuffer indices) {
+    this.shortIndices = Preconditions.checkNotNull(indices, "Parameter \"indices\" was null.");
+    this.intIndices = null;
+  }
+
+  /**
+   * Limits the next update of a {@link Renderable} from this definition to a range of vertices.
+   * The whole vertex data is still uploaded if the GPU buffers need to be re-created. The range is
+   * reset after each update.
+   */
+  public void setVertexUpdateRange(int firstVertex, int vertexCount) {
+    if (firstVertex < 0 || vertexCount < 0) {
+      throw new IllegalArgumentException("Invalid vertex range.");
+    }
+    vertexUpdateStart = firstVertex;
+    vertexUpdateCount = vertexCount;
+  }
+
+  /**
+   * Limits the next update of a {@link Renderable} from this definition to a range of indices. The
+   * whole index data is still uploaded if the GPU buffer needs to be re-created. The range is reset
+   * after each update.
+   */
+  public void setIndexUpdateRange(int firstIndex, int indexCount) {
+    if (firstIndex < 0 || indexCount < 0) {
+      throw new IllegalArgumentException("Invalid index range.");
+    }
+    indexUpdateStart = firstIndex;
+    indexUpdateCount = indexCount;
+  }
+
   void applyDefinitionToData(
       // TODO: Split into RenderableInternalSfbData & RenderableInternalDefinitionData
       IRenderableInternalData data,
@@ -131,11 +269,17 @@ public class RenderableDefinition {
       ArrayList<String> materialNames) {
     AndroidPreconditions.checkUiThread();
 
-    applyDefinitionToDataIndexBuffer(data);
-    applyDefinitionToDataVertexBuffer(data);
+    boolean hasBufferData = positions != null;
+    if (hasBufferData) {
+      applyBufferDataToData(data);
+    } else {
+      applyDefinitionToDataIndexBuffer(data);
+      applyDefinitionToDataVertexBuffer(data);
+    }
 
     // Update/Add mesh data.
     int indexStart = 0;
+    int bufferIndexCount = hasBufferData ? getIndexCount() : 0;
     materialBindings.clear();
     materialNames.clear();
     for (int i = 0; i < submeshes.size(); i++) {
@@ -149,9 +293,23 @@ public class RenderableDefinition {
         data.getMeshes().add(meshData);
       }
 
-      meshData.indexStart = indexStart;
-      meshData.indexEnd = indexStart + submesh.getTriangleIndices().size();
-      indexStart = meshData.indexEnd;
+      if (hasBufferData) {
+        if (submesh.indexCount >= 0) {
+          if (submesh.indexStart + submesh.indexCount > bufferIndexCount) {
+            throw new IllegalArgumentException(
+                "Submesh index range exceeds the " + bufferIndexCount + " indices of the buffer.");
+          }
+          meshData.indexStart = submesh.indexStart;
+          meshData.indexEnd = submesh.indexStart + submesh.indexCount;
+        } else {
+          meshData.indexStart = 0;
+          meshData.indexEnd = bufferIndexCount;
+        }
+      } else {
+        meshData.indexStart = indexStart;
+        meshData.indexEnd = indexStart + submesh.getTriangleIndices().size();
+        indexStart = meshData.indexEnd;
+      }
       materialBindings.add(submesh.getMaterial());
       final String name = submesh.getName();
       materialNames.add(name != null ? name : "");
@@ -163,17 +321,431 @@ public class RenderableDefinition {
     }
   }
 
+  private int getIndexCount() {
+    if (shortIndices != null) {
+      return shortIndices.limit();
+    }
+    return Preconditions.checkNotNull(intIndices, "Missing indices.").limit();
+  }
+
+  private int getIndexCapacity() {
+    if (shortIndices != null) {
+      return shortIndices.capacity();
+    }
+    return Preconditions.checkNotNull(intIndices, "Missing indices.").capacity();
+  }
+
+  private void applyBufferDataToData(IRenderableInternalData data) {
+    FloatBuffer positions = Preconditions.checkNotNull(this.positions);
+    int vertexCount = positions.limit() / POSITION_SIZE;
+    if (vertexCount == 0) {
+      throw new IllegalArgumentException("RenderableDescription must have at least one vertex.");
+    }
+    checkAttributeSize(normals, NORMAL_SIZE, vertexCount, "normals");
+    checkAttributeSize(tangents, TANGENTS_SIZE, vertexCount, "tangents");
+    checkAttributeSize(uvs, UV_SIZE, vertexCount, "uvs");
+    checkAttributeSize(colors, COLOR_SIZE, vertexCount, "colors");
+
+    try {
+      applyBufferDataToDataIndexBuffer(data, vertexCount);
+      applyBufferDataToDataVertexBuffer(data, positions, vertexCount);
+    } finally {
+      vertexUpdateCount = -1;
+      indexUpdateCount = -1;
+    }
+  }
+
+  private void applyBufferDataToDataIndexBuffer(IRenderableInternalData data, int vertexCount) {
+    int indexCount = getIndexCount();
+    boolean useShortIndices = shortIndices != null || vertexCount <= MAX_SHORT_INDEX_VERTICES;
+
+    // Create the filament index buffer if needed.
+    IEngine engine = EngineInstance.getEngine();
+    IndexBuffer indexBuffer = data.getIndexBuffer();
+    boolean hasShortIndices = data.getRawShortIndexBuffer() != null;
+    boolean createIndexBuffer =
+        indexBuffer == null
+            || indexBuffer.getIndexCount() < indexCount
+            || hasShortIndices != useShortIndices;
+    if (createIndexBuffer) {
+      if (indexBuffer != null) {
+        engine.destroyIndexBuffer(indexBuffer);
+      }
+
+      // Size the buffer to the capacity so that the geometry can grow without re-creating it.
+      indexBuffer =
+          new IndexBuffer.Builder()
+              .indexCount(Math.max(indexCount, getIndexCapacity()))
+              .bufferType(useShortIndices ? IndexType.USHORT : IndexType.UINT)
+              .build(engine.getFilamentEngine());
+      data.setIndexBuffer(indexBuffer);
+    }
+
+    // Determine the range of indices to upload.
+    int start = 0;
+    int count = indexCount;
+    if (!createIndexBuffer && indexUpdateCount >= 0) {
+      start = Math.min(indexUpdateStart, indexCount);
+      count = Math.min(indexUpdateCount, indexCount - start);
+    }
+    if (count == 0) {
+      return;
+    }
+
+    if (useShortIndices) {
+      ShortBuffer indices = shortIndices;
+      if (indices == null) {
+        indices = packIndices(Preconditions.checkNotNull(intIndices), start, count);
+      }
+      data.setRawShortIndexBuffer(indices.asReadOnlyBuffer());
+      data.setRawIndexBuffer(null);
+
+      // Read through a view so that the position of the caller's buffer is left alone.
+      ShortBuffer range = indices.duplicate();
+      range.position(start);
+      indexBuffer.setBuffer(engine.getFilamentEngine(), range, start * BYTES_PER_SHORT, count);
+    } else {
+      IntBuffer indices = Preconditions.checkNotNull(intIndices);
+      data.setRawIndexBuffer(indices.asReadOnlyBuffer());
+      data.setRawShortIndexBuffer(null);
+
+      IntBuffer range = indices.duplicate();
+      range.position(start);
+      indexBuffer.setBuffer(engine.getFilamentEngine(), range, start * BYTES_PER_INT, count);
+    }
+  }
+
+  private void applyBufferDataToDataVertexBuffer(
+      IRenderableInternalData data, FloatBuffer positions, int vertexCount) {
+    FloatBuffer tangents = this.tangents;
+    FloatBuffer normals = this.normals;
+
+    // Determine which attributes this VertexBuffer needs.
+    EnumSet<VertexAttribute> descriptionAttributes = EnumSet.of(VertexAttribute.POSITION);
+    if (tangents != null || normals != null) {
+      descriptionAttributes.add(VertexAttribute.TANGENTS);
+    }
+    if (uvs != null) {
+      descriptionAttributes.add(VertexAttribute.UV0);
+    }
+    if (colors != null) {
+      descriptionAttributes.add(VertexAttribute.COLOR);
+    }
+
+    // Determine if the filament vertex buffer needs to be re-created.
+    IEngine engine = EngineInstance.getEngine();
+    VertexBuffer vertexBuffer = data.getVertexBuffer();
+    boolean createVertexBuffer =
+        vertexBuffer == null
+            || !getAttributes(data).equals(descriptionAttributes)
+            || vertexBuffer.getVertexCount() < vertexCount;
+    if (createVertexBuffer) {
+      if (vertexBuffer != null) {
+        engine.destroyVertexBuffer(vertexBuffer);
+      }
+
+      int vertexCapacity = Math.max(vertexCount, positions.capacity() / POSITION_SIZE);
+      vertexBuffer = createVertexBuffer(vertexCapacity, descriptionAttributes);
+      data.setVertexBuffer(vertexBuffer);
+    }
+
+    // Determine the range of vertices to upload.
+    int start = 0;
+    int count = vertexCount;
+    boolean isRangeUpdate = !createVertexBuffer && vertexUpdateCount >= 0;
+    if (isRangeUpdate) {
+      start = Math.min(vertexUpdateStart, vertexCount);
+      count = Math.min(vertexUpdateCount, vertexCount - start);
+    }
+
+    // Derive the tangents from the normals if they were not supplied.
+    if (tangents == null && normals != null) {
+      FloatBuffer computedTangents = this.computedTangents;
+      if (computedTangents == null || computedTangents.capacity() < vertexCount * TANGENTS_SIZE) {
+        computedTangents = FloatBuffer.allocate(vertexCount * TANGENTS_SIZE);
+        this.computedTangents = computedTangents;
+        normalsToTangents(normals, computedTangents, 0, vertexCount);
+      } else {
+        normalsToTangents(normals, computedTangents, start, count);
+      }
+      tangents = computedTangents;
+    }
+
+    // The raw buffers record which attributes the filament vertex buffer holds. They are stored
+    // read only so that the Vertex path never writes into buffers owned by the caller.
+    data.setRawPositionBuffer(positions.asReadOnlyBuffer());
+    data.setRawTangentsBuffer(tangents != null ? tangents.asReadOnlyBuffer() : null);
+    data.setRawUvBuffer(uvs != null ? uvs.asReadOnlyBuffer() : null);
+    data.setRawColorBuffer(colors != null ? colors.asReadOnlyBuffer() : null);
+
+    updateAabbFromPositions(data, positions, start, count, isRangeUpdate);
+
+    if (count == 0) {
+      return;
+    }
+
+    int bufferIndex = 0;
+    setVertexBufferRange(vertexBuffer, bufferIndex, positions, POSITION_SIZE, start, count);
+
+    if (tangents != null) {
+      bufferIndex++;
+      setVertexBufferRange(vertexBuffer, bufferIndex, tangents, TANGENTS_SIZE, start, count);
+    }
+
+    if (uvs != null) {
+      bufferIndex++;
+      setVertexBufferRange(vertexBuffer, bufferIndex, uvs, UV_SIZE, start, count);
+    }
+
+    if (colors != null) {
+      bufferIndex++;
+      setVertexBufferRange(vertexBuffer, bufferIndex, colors, COLOR_SIZE, start, count);
+    }
+  }
+
+  private static void setVertexBufferRange(
+      VertexBuffer vertexBuffer,
+      int bufferIndex,
+      FloatBuffer buffer,
+      int attributeSize,
+      int firstVertex,
+      int vertexCount) {
+    int offset = firstVertex * attributeSize;
+    // Read through a view so that the position of the caller's buffer is left alone.
+    FloatBuffer range = buffer.duplicate();
+    range.position(offset);
+    vertexBuffer.setBufferAt(
+        EngineInstance.getEngine().getFilamentEngine(),
+        bufferIndex,
+        range,
+        offset * BYTES_PER_FLOAT,
+        vertexCount * attributeSize);
+  }
+
+  /**
+   * Sets the bounds of the renderable from a range of positions. When only a range of the vertices
+   * was updated, the current bounds are widened to include it rather than computed again from
+   * every vertex, so they may stay larger than the geometry until it is uploaded in full.
+   */
+  private static void updateAabbFromPositions(
+      IRenderableInternalData data,
+      FloatBuffer positions,
+      int firstVertex,
+      int vertexCount,
+      boolean isRangeUpdate) {
+    if (vertexCount == 0) {
+      return;
+    }
+
+    float minX;
+    float minY;
+    float minZ;
+    float maxX;
+    float maxY;
+    float maxZ;
+    int end = firstVertex + vertexCount;
+    int start = firstVertex;
+    if (isRangeUpdate) {
+      Vector3 center = data.getCenterAabb();
+      Vector3 extents = data.getExtentsAabb();
+      minX = center.x - extents.x;
+      minY = center.y - extents.y;
+      minZ = center.z - extents.z;
+      maxX = center.x + extents.x;
+      maxY = center.y + extents.y;
+      maxZ = center.z + extents.z;
+    } else {
+      int offset = start * POSITION_SIZE;
+      minX = positions.get(offset);
+      minY = positions.get(offset + 1);
+      minZ = positions.get(offset + 2);
+      maxX = minX;
+      maxY = minY;
+      maxZ = minZ;
+      start++;
+    }
+
+    for (int i = start; i < end; i++) {
+      int offset = i * POSITION_SIZE;
+      float x = positions.get(offset);
+      float y = positions.get(offset + 1);
+      float z = positions.get(offset + 2);
+      minX = Math.min(minX, x);
+      minY = Math.min(minY, y);
+      minZ = Math.min(minZ, z);
+      maxX = Math.max(maxX, x);
+      maxY = Math.max(maxY, y);
+      maxZ = Math.max(maxZ, z);
+    }
+
+    Vector3 extentsAabb =
+        new Vector3((maxX - minX) * 0.5f, (maxY - minY) * 0.5f, (maxZ - minZ) * 0.5f);
+    Vector3 centerAabb =
+        new Vector3(minX + extentsAabb.x, minY + extentsAabb.y, minZ + extentsAabb.z);
+    data.setExtentsAabb(extentsAabb);
+    data.setCenterAabb(centerAabb);
+  }
+
+  /** Copies a range of 32 bit indices into the reusable 16 bit index buffer. */
+  private ShortBuffer packIndices(IntBuffer indices, int start, int count) {
+    int indexCount = indices.limit();
+    ShortBuffer packedIndices = this.packedIndices;
+    if (packedIndices == null || packedIndices.capacity() < indexCount) {
+      packedIndices = ShortBuffer.allocate(indexCount);
+      this.packedIndices = packedIndices;
+      start = 0;
+      count = indexCount;
+    }
+    packedIndices.limit(indexCount);
+
+    for (int i = start; i < start + count; i++) {
+      packedIndices.put(i, (short) indices.get(i));
+    }
+    return packedIndices;
+  }
+
+  private static void checkAttributeSize(
+      @Nullable FloatBuffer buffer, int attributeSize, int vertexCount, String name) {
+    if (buffer != null && buffer.limit() < vertexCount * attributeSize) {
+      throw new IllegalArgumentException(
+          "Not enough " + name + ": expected at least " + vertexCount + " vertices.");
+    }
+  }
+
+  /**
+   * Computes tangent frames for a range of normals without allocating. Uses the same basis as
+   * {@link #normalToTangent(Vector3)}.
+   */
+  private static void normalsToTangents(
+      FloatBuffer normals, FloatBuffer tangents, int firstVertex, int vertexCount) {
+    for (int i = firstVertex; i < firstVertex + vertexCount; i++) {
+      int normalOffset = i * NORMAL_SIZE;
+      float nx = normals.get(normalOffset);
+      float ny = normals.get(normalOffset + 1);
+      float nz = normals.get(normalOffset + 2);
+
+      // tangent = up x normal.
+      float tx = nz;
+      float ty = 0.0f;
+      float tz = -nx;
+      float bx;
+      float by;
+      float bz;
+      if (MathHelper.almostEqualRelativeAndAbs(tx * tx + tz * tz, 0.0f)) {
+        // bitangent = normal x right, tangent = bitangent x normal.
+        bx = 0.0f;
+        by = nz;
+        bz = -ny;
+        float length = (float) Math.sqrt(by * by + bz * bz);
+        if (length != 0.0f) {
+          by /= length;
+          bz /= length;
+        }
+        tx = by * nz - bz * ny;
+        ty = bz * nx - bx * nz;
+        tz = bx * ny - by * nx;
+        length = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+        if (length != 0.0f) {
+          tx /= length;
+          ty /= length;
+          tz /= length;
+        }
+      } else {
+        float length = (float) Math.sqrt(tx * tx + tz * tz);
+        tx /= length;
+        tz /= length;
+        // bitangent = normal x tangent.
+        bx = ny * tz - nz * ty;
+        by = nz * tx - nx * tz;
+        bz = nx * ty - ny * tx;
+        length = (float) Math.sqrt(bx * bx + by * by + bz * bz);
+        if (length != 0.0f) {
+          bx /= length;
+          by /= length;
+          bz /= length;
+        }
+      }
+
+      // Extract the quaternion from the rotation matrix with rows tangent, bitangent and normal.
+      float qx;
+      float qy;
+      float qz;
+      float qw;
+      float trace = tx + by + nz;
+      if (trace > 0) {
+        float s = (float) Math.sqrt(trace + 1.0) * 2.0f;
+        qw = 0.25f * s;
+        qx = (bz - ny) / s;
+        qy = (nx - tz) / s;
+        qz = (ty - bx) / s;
+      } else if ((tx > by) && (tx > nz)) {
+        float s = (float) Math.sqrt(1.0f + tx - by - nz) * 2.0f;
+        qw = (bz - ny) / s;
+        qx = 0.25f * s;
+        qy = (bx + ty) / s;
+        qz = (nx + tz) / s;
+      } else if (by > nz) {
+        float s = (float) Math.sqrt(1.0f + by - tx - nz) * 2.0f;
+        qw = (nx - tz) / s;
+        qx = (bx + ty) / s;
+        qy = 0.25f * s;
+        qz = (ny + bz) / s;
+      } else {
+        float s = (float) Math.sqrt(1.0f + nz - tx - by) * 2.0f;
+        qw = (ty - bx) / s;
+        qx = (nx + tz) / s;
+        qy = (ny + bz) / s;
+        qz = 0.25f * s;
+      }
+      float length = (float) Math.sqrt(qx * qx + qy * qy + qz * qz + qw * qw);
+      if (length != 0.0f) {
+        qx /= length;
+        qy /= length;
+        qz /= length;
+        qw /= length;
+      }
+
+      int tangentOffset = i * TANGENTS_SIZE;
+      tangents.put(tangentOffset, qx);
+      tangents.put(tangentOffset + 1, qy);
+      tangents.put(tangentOffset + 2, qz);
+      tangents.put(tangentOffset + 3, qw);
+    }
+  }
+
+  /** Returns the vertex attributes of the buffers currently held by the data. */
+  private static EnumSet<VertexAttribute> getAttributes(IRenderableInternalData data) {
+    EnumSet<VertexAttribute> attributes = EnumSet.of(VertexAttribute.POSITION);
+    if (data.getRawTangentsBuffer() != null) {
+      attributes.add(VertexAttribute.TANGENTS);
+    }
+    if (data.getRawUvBuffer() != null) {
+      attributes.add(VertexAttribute.UV0);
+    }
+    if (data.getRawColorBuffer() != null) {
+      attributes.add(VertexAttribute.COLOR);
+    }
+    return attributes;
+  }
+
   private void applyDefinitionToDataIndexBuffer(IRenderableInternalData data) {
     // Determine how many indices there are.
     int numIndices = 0;
     for (int i = 0; i < submeshes.size(); i++) {
       Submesh submesh = submeshes.get(i);
+      if (submesh.triangleIndices == null) {
+        throw new IllegalArgumentException(
+            "Submesh must have triangle indices unless the definition has positions.");
+      }
       numIndices += submesh.getTriangleIndices().size();
     }
 
-    // Create the raw index buffer if needed.
+    // Create the raw index buffer if needed. Read only buffers are views of buffers supplied with
+    // setIndices and are never written to.
     IntBuffer rawIndexBuffer = data.getRawIndexBuffer();
-    if (rawIndexBuffer == null || rawIndexBuffer.capacity() < numIndices) {
+    if (rawIndexBuffer == null
+        || rawIndexBuffer.isReadOnly()
+        || rawIndexBuffer.capacity() < numIndices) {
       rawIndexBuffer = IntBuffer.allocate(numIndices);
       data.setRawIndexBuffer(rawIndexBuffer);
     } else {
@@ -193,7 +765,9 @@ public class RenderableDefinition {
     // Create the filament index buffer if needed.
     IndexBuffer indexBuffer = data.getIndexBuffer();
     IEngine engine = EngineInstance.getEngine();
-    if (indexBuffer == null || indexBuffer.getIndexCount() < numIndices) {
+    boolean hasShortIndices = data.getRawShortIndexBuffer() != null;
+    data.setRawShortIndexBuffer(null);
+    if (indexBuffer == null || hasShortIndices || indexBuffer.getIndexCount() < numIndices) {
       if (indexBuffer != null) {
         engine.destroyIndexBuffer(indexBuffer);
       }
@@ -233,19 +807,8 @@ public class RenderableDefinition {
     VertexBuffer vertexBuffer = data.getVertexBuffer();
     boolean createVertexBuffer = true;
     if (vertexBuffer != null) {
-      EnumSet<VertexAttribute> oldAttributes = EnumSet.of(VertexAttribute.POSITION);
-      if (data.getRawTangentsBuffer() != null) {
-        oldAttributes.add(VertexAttribute.TANGENTS);
-      }
-      if (data.getRawUvBuffer() != null) {
-        oldAttributes.add(VertexAttribute.UV0);
-      }
-      if (data.getRawColorBuffer() != null) {
-        oldAttributes.add(VertexAttribute.COLOR);
-      }
-
       createVertexBuffer =
-          !oldAttributes.equals(descriptionAttributes)
+          !getAttributes(data).equals(descriptionAttributes)
               || vertexBuffer.getVertexCount() < numVertices;
 
       if (createVertexBuffer) {
@@ -260,7 +823,9 @@ public class RenderableDefinition {
 
     // Create position Buffer if needed.
     FloatBuffer positionBuffer = data.getRawPositionBuffer();
-    if (positionBuffer == null || positionBuffer.capacity() < numVertices * POSITION_SIZE) {
+    if (positionBuffer == null
+        || positionBuffer.isReadOnly()
+        || positionBuffer.capacity() < numVertices * POSITION_SIZE) {
       positionBuffer = FloatBuffer.allocate(numVertices * POSITION_SIZE);
       data.setRawPositionBuffer(positionBuffer);
     } else {
@@ -269,31 +834,43 @@ public class RenderableDefinition {
 
     // Create tangents Buffer if needed.
     FloatBuffer tangentsBuffer = data.getRawTangentsBuffer();
-    if (descriptionAttributes.contains(VertexAttribute.TANGENTS)
-        && (tangentsBuffer == null || tangentsBuffer.capacity() < numVertices * TANGENTS_SIZE)) {
+    if (!descriptionAttributes.contains(VertexAttribute.TANGENTS)) {
+      tangentsBuffer = null;
+      data.setRawTangentsBuffer(null);
+    } else if (tangentsBuffer == null
+        || tangentsBuffer.isReadOnly()
+        || tangentsBuffer.capacity() < numVertices * TANGENTS_SIZE) {
       tangentsBuffer = FloatBuffer.allocate(numVertices * TANGENTS_SIZE);
       data.setRawTangentsBuffer(tangentsBuffer);
-    } else if (tangentsBuffer != null) {
+    } else {
       tangentsBuffer.rewind();
     }
 
     // Create uv Buffer if needed.
     FloatBuffer uvBuffer = data.getRawUvBuffer();
-    if (descriptionAttributes.contains(VertexAttribute.UV0)
-        && (uvBuffer == null || uvBuffer.capacity() < numVertices * UV_SIZE)) {
+    if (!descriptionAttributes.contains(VertexAttribute.UV0)) {
+      uvBuffer = null;
+      data.setRawUvBuffer(null);
+    } else if (uvBuffer == null
+        || uvBuffer.isReadOnly()
+        || uvBuffer.capacity() < numVertices * UV_SIZE) {
       uvBuffer = FloatBuffer.allocate(numVertices * UV_SIZE);
       data.setRawUvBuffer(uvBuffer);
-    } else if (uvBuffer != null) {
+    } else {
       uvBuffer.rewind();
     }
 
     // Create color Buffer if needed.
     FloatBuffer colorBuffer = data.getRawColorBuffer();
-    if (descriptionAttributes.contains(VertexAttribute.COLOR)
-        && (colorBuffer == null || colorBuffer.capacity() < numVertices * COLOR_SIZE)) {
+    if (!descriptionAttributes.contains(VertexAttribute.COLOR)) {
+      colorBuffer = null;
+      data.setRawColorBuffer(null);
+    } else if (colorBuffer == null
+        || colorBuffer.isReadOnly()
+        || colorBuffer.capacity() < numVertices * COLOR_SIZE) {
       colorBuffer = FloatBuffer.allocate(numVertices * COLOR_SIZE);
       data.setRawColorBuffer(colorBuffer);
-    } else if (colorBuffer != null) {
+    } else {
       colorBuffer.rewind();
     }
 
@@ -393,7 +970,18 @@ public class RenderableDefinition {
   }
 
   private RenderableDefinition(Builder builder) {
-    vertices = Preconditions.checkNotNull(builder.vertices);
+    positions = builder.positions;
+    normals = builder.normals;
+    tangents = builder.tangents;
+    uvs = builder.uvs;
+    colors = builder.colors;
+    intIndices = builder.intIndices;
+    shortIndices = builder.shortIndices;
+    if (positions != null && builder.vertices == null) {
+      vertices = new ArrayList<>();
+    } else {
+      vertices = Preconditions.checkNotNull(builder.vertices);
+    }
     submeshes = Preconditions.checkNotNull(builder.submeshes);
   }
 
@@ -477,7 +1065,7 @@ public class RenderableDefinition {
     buffer.put(color.a);
   }
 
-  private static Quaternion normalToTangent(Vector3 normal) {
+  static Quaternion normalToTangent(Vector3 normal) {
     Vector3 tangent;
     Vector3 bitangent;
 
@@ -518,12 +1106,102 @@ public class RenderableDefinition {
   public static final class Builder {
     @Nullable private List<Vertex> vertices;
     @Nullable private List<Submesh> submeshes = new ArrayList<>();
+    @Nullable private FloatBuffer positions;
+    @Nullable private FloatBuffer normals;
+    @Nullable private FloatBuffer tangents;
+    @Nullable private FloatBuffer uvs;
+    @Nullable private FloatBuffer colors;
+    @Nullable private IntBuffer intIndices;
+    @Nullable private ShortBuffer shortIndices;
 
     public Builder setVertices(List<Vertex> vertices) {
       this.vertices = vertices;
       return this;
     }
 
+    /**
+     * Sets the vertex positions, three floats per vertex. The array is wrapped, not copied.
+     *
+     * @see RenderableDefinition#setPositions(FloatBuffer)
+     */
+    public Builder setPositions(float[] positions) {
+      return setPositions(FloatBuffer.wrap(positions));
+    }
+
+    /** @see RenderableDefinition#setPositions(FloatBuffer) */
+    public Builder setPositions(FloatBuffer positions) {
+      this.positions = positions;
+      return this;
+    }
+
+    /** @see RenderableDefinition#setNormals(FloatBuffer) */
+    public Builder setNormals(float[] normals) {
+      return setNormals(FloatBuffer.wrap(normals));
+    }
+
+    /** @see RenderableDefinition#setNormals(FloatBuffer) */
+    public Builder setNormals(FloatBuffer normals) {
+      this.normals = normals;
+      return this;
+    }
+
+    /** @see RenderableDefinition#setTangents(FloatBuffer) */
+    public Builder setTangents(float[] tangents) {
+      return setTangents(FloatBuffer.wrap(tangents));
+    }
+
+    /** @see RenderableDefinition#setTangents(FloatBuffer) */
+    public Builder setTangents(FloatBuffer tangents) {
+      this.tangents = tangents;
+      return this;
+    }
+
+    /** @see RenderableDefinition#setUvs(FloatBuffer) */
+    public Builder setUvs(float[] uvs) {
+      return setUvs(FloatBuffer.wrap(uvs));
+    }
+
+    /** @see RenderableDefinition#setUvs(FloatBuffer) */
+    public Builder setUvs(FloatBuffer uvs) {
+      this.uvs = uvs;
+      return this;
+    }
+
+    /** @see RenderableDefinition#setColors(FloatBuffer) */
+    public Builder setColors(float[] colors) {
+      return setColors(FloatBuffer.wrap(colors));
+    }
+
+    /** @see RenderableDefinition#setColors(FloatBuffer) */
+    public Builder setColors(FloatBuffer colors) {
+      this.colors = colors;
+      return this;
+    }
+
+    /** @see RenderableDefinition#setIndices(IntBuffer) */
+    public Builder setIndices(int[] indices) {
+      return setIndices(IntBuffer.wrap(indices));
+    }
+
+    /** @see RenderableDefinition#setIndices(IntBuffer) */
+    public Builder setIndices(IntBuffer indices) {
+      this.intIndices = indices;
+      this.shortIndices = null;
+      return this;
+    }
+
+    /** @see RenderableDefinition#setIndices(ShortBuffer) */
+    public Builder setIndices(short[] indices) {
+      return setIndices(ShortBuffer.wrap(indices));
+    }
+
+    /** @see RenderableDefinition#setIndices(ShortBuffer) */
+    public Builder setIndices(ShortBuffer indices) {
+      this.shortIndices = indices;
+      this.intIndices = null;
+      return this;
+    }
+
     public Builder setSubmeshes(List<Submesh> submeshes) {
       this.submeshes = submeshes;
       return this;
@@ -30,6 +30,9 @@ import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 
 import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.function.Function;
 
@@ -67,6 +70,7 @@ public class RenderableInstance {
   @Nullable private Renderer attachedRenderer;
   @Entity private int entity = 0;
   @Entity private int childEntity = 0;
+  private final CleanupItem<RenderableInstance> cleanupItem;
   int renderableId = ChangeId.EMPTY_ID;
 
   
@@ -82,6 +86,16 @@ public class RenderableInstance {
   @Nullable private Matrix cachedRelativeTransform;
   @Nullable private Matrix cachedRelativeTransformInverse;
 
+  // Last world transform captured for submission to Filament.
+  private final float[] capturedTransform = new float[16];
+  private boolean hasCapturedTransform = false;
+
+  // Level of detail the filament renderable currently draws, 0 being the full detail geometry.
+  private int levelOfDetail = 0;
+
+  // Materials the filament renderable draws with, kept alive until it stops drawing with them.
+  private final ArrayList<Material> boundMaterials = new ArrayList<>();
+
   @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
   public RenderableInstance(TransformProvider transformProvider, Renderable renderable) {
     Preconditions.checkNotNull(transformProvider, "Parameter \"transformProvider\" was null.");
@@ -104,9 +118,12 @@ public class RenderableInstance {
 
     createFilamentAssetModelInstance();
 
-    ResourceManager.getInstance()
-        .getRenderableInstanceCleanupRegistry()
-        .register(this, new CleanupCallback(entity, childEntity));
+    cleanupItem =
+        ResourceManager.getInstance()
+            .getRenderableInstanceCleanupRegistry()
+            .register(this, new CleanupCallback(entity, childEntity, boundMaterials));
+    // Instances are owned by the nodes that draw them, which destroy them when they are replaced.
+    cleanupItem.setLeakReported(false);
   }
 
   
@@ -235,6 +252,80 @@ public class RenderableInstance {
     transformManager.setTransform(instance, transform);
   }
 
+  /**
+   * Copies the transform to be submitted to Filament on the next render.
+   *
+   * @return false if the transform is the same as the last one captured
+   */
+  boolean captureTransform(@Size(min = 16) float[] transform) {
+    if (hasCapturedTransform && Arrays.equals(capturedTransform, transform)) {
+      return false;
+    }
+
+    System.arraycopy(transform, 0, capturedTransform, 0, capturedTransform.length);
+    hasCapturedTransform = true;
+    return true;
+  }
+
+  /** Submits the last captured transform to Filament. */
+  void submitTransform(TransformManager transformManager) {
+    setModelMatrix(transformManager, capturedTransform);
+  }
+
+  /**
+   * Switches the renderable to the level of detail that matches its size on screen, using the last
+   * captured transform.
+   *
+   * @param cameraPosition world position of the camera
+   * @param projectionScale vertical scale of the camera projection, the cotangent of half of the
+   *     vertical field of view
+   */
+  void updateLevelOfDetail(Vector3 cameraPosition, float projectionScale) {
+    IRenderableInternalData data = renderable.getRenderableData();
+    if (!(data instanceof RenderableInternalData) || !hasCapturedTransform) {
+      return;
+    }
+
+    RenderableInternalData renderableData = (RenderableInternalData) data;
+    if (renderableData.getLevelOfDetailCount() <= 1) {
+      return;
+    }
+
+    float[] transform = capturedTransform;
+    float dx = transform[12] - cameraPosition.x;
+    float dy = transform[13] - cameraPosition.y;
+    float dz = transform[14] - cameraPosition.z;
+    float distance = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+    float scale = 0.0f;
+    for (int column = 0; column < 12; column += 4) {
+      float x = transform[column];
+      float y = transform[column + 1];
+      float z = transform[column + 2];
+      scale = Math.max(scale, (float) Math.sqrt(x * x + y * y + z * z));
+    }
+
+    float radius = renderableData.getBoundingRadius() * renderableData.getTransformScale() * scale;
+    float screenSize =
+        distance > 0.0f ? radius * projectionScale / distance : Float.POSITIVE_INFINITY;
+
+    int level = renderableData.selectLevelOfDetail(screenSize);
+    if (level != levelOfDetail) {
+      renderableData.applyLevelOfDetail(getRenderedEntity(), level);
+      levelOfDetail = level;
+    }
+  }
+
+  /** Overrides shadow casting while shadows are disabled by the renderer. */
+  void updateShadowCasting(boolean areShadowsEnabled) {
+    RenderableManager renderableManager = EngineInstance.getEngine().getRenderableManager();
+    @EntityInstance int renderableInstance = renderableManager.getInstance(getRenderedEntity());
+    if (renderableInstance != 0) {
+      renderableManager.setCastShadows(
+          renderableInstance, areShadowsEnabled && renderable.isShadowCaster());
+    }
+  }
+
   /** @hide */
   public Matrix getWorldModelMatrix() {
     return renderable.getFinalModelMatrix(transformProvider.getWorldModelMatrix());
@@ -274,7 +365,14 @@ public class RenderableInstance {
       IRenderableInternalData renderableInternalData = renderable.getRenderableData();
       setupSkeleton(renderableInternalData);
       renderableInternalData.buildInstanceData(renderable, getRenderedEntity());
+      bindMaterials(renderable.getMaterialBindings());
+      Renderer renderer = attachedRenderer;
+      if (renderer != null && !renderer.areShadowsEnabled()) {
+        updateShadowCasting(false);
+      }
       renderableId = changeId.get();
+      // Rebuilding the instance data binds the full detail geometry.
+      levelOfDetail = 0;
       // First time we're rendering, so always update the skinning even if we aren't animating and
       // there is no skinModifier.
       updateSkinning(true);
@@ -285,6 +383,18 @@ public class RenderableInstance {
     }
   }
 
+  /** Keeps the materials the filament renderable now draws with alive, and lets go of the rest. */
+  private void bindMaterials(List<Material> materials) {
+    for (int i = 0; i < materials.size(); i++) {
+      materials.get(i).addUser();
+    }
+    for (int i = 0; i < boundMaterials.size(); i++) {
+      boundMaterials.get(i).removeUser();
+    }
+    boundMaterials.clear();
+    boundMaterials.addAll(materials);
+  }
+
   
   private void attachFilamentAssetToRenderer() {
     FilamentAsset currentFilamentAsset = filamentAsset;
@@ -318,6 +428,17 @@ public class RenderableInstance {
     }
   }
 
+  /**
+   * Destroys the filament renderables of a detached instance right away. The instance must not be
+   * used afterwards.
+   *
+   * @hide
+   */
+  public void destroy() {
+    AndroidPreconditions.checkUiThread();
+    ResourceManager.getInstance().getRenderableInstanceCleanupRegistry().release(cleanupItem);
+  }
+
   /** @hide */
   public void detachFromRenderer() {
     Renderer rendererToDetach = attachedRenderer;
@@ -438,10 +559,12 @@ public class RenderableInstance {
   private static final class CleanupCallback implements Runnable {
     private final int childEntity;
     private final int entity;
+    private final ArrayList<Material> boundMaterials;
 
-    CleanupCallback(int childEntity, int entity) {
+    CleanupCallback(int childEntity, int entity, ArrayList<Material> boundMaterials) {
       this.childEntity = childEntity;
       this.entity = entity;
+      this.boundMaterials = boundMaterials;
     }
 
     @Override
@@ -462,6 +585,12 @@ public class RenderableInstance {
       if (entity != 0) {
         renderableManager.destroy(entity);
       }
+
+      // Materials released while this instance drew with them are destroyed now.
+      for (int i = 0; i < boundMaterials.size(); i++) {
+        boundMaterials.get(i).removeUser();
+      }
+      boundMaterials.clear();
     }
   }
 }
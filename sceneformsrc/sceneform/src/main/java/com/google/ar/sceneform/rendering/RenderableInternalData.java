@@ -15,6 +15,7 @@ import com.google.ar.sceneform.math.Vector3;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -36,9 +37,31 @@ class RenderableInternalData implements IRenderableInternalData {
     int indexEnd;
   }
 
+  /**
+   * Geometry of a coarser level of detail, with its own buffers. It has the same meshes and
+   * materials as the full detail geometry.
+   */
+  static class LevelOfDetail {
+    final VertexBuffer vertexBuffer;
+    final IndexBuffer indexBuffer;
+    final ArrayList<MeshData> meshes = new ArrayList<>();
+    // The level is used when the screen size of the renderable is below this value.
+    float maxScreenSize;
+
+    LevelOfDetail(VertexBuffer vertexBuffer, IndexBuffer indexBuffer) {
+      this.vertexBuffer = vertexBuffer;
+      this.indexBuffer = indexBuffer;
+    }
+  }
+
+  // Screen size below which the first coarser level is used. Each following level halves it.
+  private static final float DEFAULT_LEVEL_OF_DETAIL_SCREEN_SIZE = 0.5f;
+
   // Geometry data.
   private final Vector3 centerAabb = Vector3.zero();
   private final Vector3 extentsAabb = Vector3.zero();
+  // Radius of a sphere around the bounding box, read every frame to select the level of detail.
+  private float boundingRadius;
 
   // Transform data.
   private float transformScale = 1f;
@@ -46,6 +69,7 @@ class RenderableInternalData implements IRenderableInternalData {
 
   // Raw buffers.
   @Nullable private IntBuffer rawIndexBuffer;
+  @Nullable private ShortBuffer rawShortIndexBuffer;
   @Nullable private FloatBuffer rawPositionBuffer;
   @Nullable private FloatBuffer rawTangentsBuffer;
   @Nullable private FloatBuffer rawUvBuffer;
@@ -58,6 +82,9 @@ class RenderableInternalData implements IRenderableInternalData {
   // Represents the set of meshes to render.
   private final ArrayList<MeshData> meshes = new ArrayList<>();
 
+  // Coarser levels of detail, ordered from the most to the least detailed.
+  private final ArrayList<LevelOfDetail> levelsOfDetail = new ArrayList<>();
+
   
 
 
@@ -75,6 +102,7 @@ class RenderableInternalData implements IRenderableInternalData {
   @Override
   public void setExtentsAabb(Vector3 maxAabb) {
     this.extentsAabb.set(maxAabb);
+    boundingRadius = extentsAabb.length();
   }
 
   @Override
@@ -82,6 +110,11 @@ class RenderableInternalData implements IRenderableInternalData {
     return new Vector3(extentsAabb);
   }
 
+  /** Returns the length of the extents of the bounding box, without copying them. */
+  float getBoundingRadius() {
+    return boundingRadius;
+  }
+
   @Override
   public Vector3 getSizeAabb() {
     return extentsAabb.scaled(2.0f);
@@ -145,6 +178,17 @@ class RenderableInternalData implements IRenderableInternalData {
     return rawIndexBuffer;
   }
 
+  @Override
+  public void setRawShortIndexBuffer(@Nullable ShortBuffer rawShortIndexBuffer) {
+    this.rawShortIndexBuffer = rawShortIndexBuffer;
+  }
+
+  @Override
+  @Nullable
+  public ShortBuffer getRawShortIndexBuffer() {
+    return rawShortIndexBuffer;
+  }
+
   @Override
   public void setRawPositionBuffer(@Nullable FloatBuffer rawPositionBuffer) {
     this.rawPositionBuffer = rawPositionBuffer;
@@ -269,6 +313,79 @@ class RenderableInternalData implements IRenderableInternalData {
     }
   }
 
+  /** Adds a level of detail that is coarser than all existing levels. */
+  void addLevelOfDetail(LevelOfDetail levelOfDetail) {
+    float maxScreenSize = DEFAULT_LEVEL_OF_DETAIL_SCREEN_SIZE;
+    if (!levelsOfDetail.isEmpty()) {
+      maxScreenSize = levelsOfDetail.get(levelsOfDetail.size() - 1).maxScreenSize * 0.5f;
+    }
+    levelOfDetail.maxScreenSize = maxScreenSize;
+    levelsOfDetail.add(levelOfDetail);
+  }
+
+  /** Returns the number of levels of detail, including the full detail geometry. */
+  int getLevelOfDetailCount() {
+    return levelsOfDetail.size() + 1;
+  }
+
+  /** Sets the screen size below which a level of detail is used. Level 0 is always full detail. */
+  void setLevelOfDetailScreenSize(int level, float maxScreenSize) {
+    levelsOfDetail.get(level - 1).maxScreenSize = maxScreenSize;
+  }
+
+  /**
+   * Selects the level of detail to draw.
+   *
+   * @param screenSize the projected diameter of the renderable as a fraction of the viewport
+   *     height
+   * @return the coarsest level whose screen size is above the given one
+   */
+  int selectLevelOfDetail(float screenSize) {
+    int level = 0;
+    for (int i = 0; i < levelsOfDetail.size(); i++) {
+      if (screenSize < levelsOfDetail.get(i).maxScreenSize) {
+        level = i + 1;
+      }
+    }
+    return level;
+  }
+
+  /** Points the primitives of a filament renderable to the buffers of a level of detail. */
+  void applyLevelOfDetail(@Entity int renderedEntity, int level) {
+    RenderableManager renderableManager = EngineInstance.getEngine().getRenderableManager();
+    @EntityInstance int renderableInstance = renderableManager.getInstance(renderedEntity);
+    if (renderableInstance == 0) {
+      return;
+    }
+
+    VertexBuffer vertexBuffer = this.vertexBuffer;
+    IndexBuffer indexBuffer = this.indexBuffer;
+    ArrayList<MeshData> meshes = this.meshes;
+    if (level > 0) {
+      LevelOfDetail levelOfDetail = levelsOfDetail.get(level - 1);
+      vertexBuffer = levelOfDetail.vertexBuffer;
+      indexBuffer = levelOfDetail.indexBuffer;
+      meshes = levelOfDetail.meshes;
+    }
+    if (vertexBuffer == null || indexBuffer == null) {
+      throw new AssertionError("Internal Error: Failed to get vertex or index buffer");
+    }
+
+    int meshCount =
+        Math.min(meshes.size(), renderableManager.getPrimitiveCount(renderableInstance));
+    for (int mesh = 0; mesh < meshCount; ++mesh) {
+      MeshData meshData = meshes.get(mesh);
+      renderableManager.setGeometryAt(
+          renderableInstance,
+          mesh,
+          RenderableManager.PrimitiveType.TRIANGLES,
+          vertexBuffer,
+          indexBuffer,
+          meshData.indexStart,
+          meshData.indexEnd - meshData.indexStart);
+    }
+  }
+
   @Override
   public void setAnimationNames(@NonNull List<String> animationNames) {}
 
@@ -330,5 +447,11 @@ class RenderableInternalData implements IRenderableInternalData {
       engine.destroyIndexBuffer(indexBuffer);
       indexBuffer = null;
     }
+
+    for (LevelOfDetail levelOfDetail : levelsOfDetail) {
+      engine.destroyVertexBuffer(levelOfDetail.vertexBuffer);
+      engine.destroyIndexBuffer(levelOfDetail.indexBuffer);
+    }
+    levelsOfDetail.clear();
   }
 }
@@ -15,6 +15,7 @@ import com.google.ar.sceneform.rendering.RenderableInternalData.MeshData;
 import java.nio.Buffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
 
 import java.util.List;
@@ -135,6 +136,18 @@ public class RenderableInternalFilamentAssetData implements IRenderableInternalD
     return null;
   }
 
+  @Override
+  public void setRawShortIndexBuffer(@Nullable ShortBuffer rawShortIndexBuffer) {
+    // Not Implemented
+  }
+
+  @Nullable
+  @Override
+  public ShortBuffer getRawShortIndexBuffer() {
+    // Not Implemented
+    return null;
+  }
+
   @Override
   public void setRawPositionBuffer(@Nullable FloatBuffer rawPositionBuffer) {
     // Not Implemented
@@ -20,9 +20,9 @@ import com.google.android.filament.android.UiHelper;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
 import com.google.ar.sceneform.utilities.EnvironmentalHdrParameters;
 import com.google.ar.sceneform.utilities.Preconditions;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * A rendering context.
@@ -55,6 +55,13 @@ public class Renderer implements UiHelper.RendererCallback {
 
   private final ArrayList<RenderableInstance> renderableInstances = new ArrayList<>();
   private final ArrayList<LightInstance> lightInstances = new ArrayList<>();
+  private final RenderSnapshot renderSnapshot = new RenderSnapshot();
+  private final LightBudget lightBudget = new LightBudget();
+  private boolean areShadowsEnabled = true;
+  private float levelOfDetailBias = 1.0f;
+  // Options last applied to the view, so that they can be restored.
+  private int sampleCount = 1;
+  private DynamicResolutionOptions dynamicResolutionOptions = new DynamicResolutionOptions();
 
   private Surface surface;
   @Nullable private SwapChain swapChain;
@@ -77,13 +84,25 @@ public class Renderer implements UiHelper.RendererCallback {
   private EnvironmentalHdrParameters environmentalHdrParameters =
       EnvironmentalHdrParameters.makeDefault();
 
+  // Swap chains of a surface usually have up to three buffers, each of which must be cleared once.
+  private static final int MIRROR_CLEARED_FRAME_COUNT = 3;
+
   private static class Mirror {
+    // Only accessed by the render loop.
     @Nullable SwapChain swapChain;
-    @Nullable Surface surface;
-    Viewport viewport;
+    int mirroredFrameCount;
+    long frameCount;
+
+    // Set from any thread. The mirror is removed once its surface is set to null.
+    @Nullable volatile Surface surface;
+    volatile Viewport viewport;
+    volatile int frameInterval = 1;
+    volatile float viewportScale = 1.0f;
+    volatile boolean skipsClearsAndTimestamps;
   }
 
-  private final List<Mirror> mirrors = new ArrayList<>();
+  // Copied on write, so that starting and stopping mirrors never blocks the render loop.
+  private final CopyOnWriteArrayList<Mirror> mirrors = new CopyOnWriteArrayList<>();
 
   /** @hide */
   public interface PreRenderCallback {
@@ -93,8 +112,31 @@ public class Renderer implements UiHelper.RendererCallback {
         com.google.android.filament.Camera camera);
   }
 
+  // Every renderer that has not been disposed, so that changes made outside of a scene can reach
+  // the views that render on demand.
+  private static final ArrayList<Renderer> activeRenderers = new ArrayList<>();
+
+  /**
+   * Receives the pixels of a frame read with {@link #readFrameAsync(int, int, int, int, float,
+   * FrameReadCallback)}.
+   */
+  public interface FrameReadCallback {
+    /**
+     * Called on the main thread a few frames after the read was requested.
+     *
+     * @param pixels RGBA pixels, four bytes each, starting with the bottom row. The buffer is
+     *     reused by later reads and is only valid during this call.
+     * @param width the width of the pixels in the buffer
+     * @param height the height of the pixels in the buffer
+     */
+    void onFrameRead(ByteBuffer pixels, int width, int height);
+  }
+
+  private final FrameReadback frameReadback = new FrameReadback();
+
   @Nullable private Runnable onFrameRenderDebugCallback = null;
   @Nullable private PreRenderCallback preRenderCallback;
+  @Nullable private Runnable renderRequestedListener;
 
   /** @hide */
   @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
@@ -107,6 +149,7 @@ public class Renderer implements UiHelper.RendererCallback {
     this.surfaceView = view;
     viewAttachmentManager = new ViewAttachmentManager(getContext(), view);
     initialize();
+    activeRenderers.add(this);
   }
 
   /**
@@ -119,9 +162,7 @@ public class Renderer implements UiHelper.RendererCallback {
     mirror.surface = surface;
     mirror.viewport = new Viewport(left, bottom, width, height);
     mirror.swapChain = null;
-    synchronized (mirrors) {
-      mirrors.add(mirror);
-    }
+    mirrors.add(mirror);
   }
 
   /**
@@ -130,11 +171,42 @@ public class Renderer implements UiHelper.RendererCallback {
    * @hide
    */
   public void stopMirroring(Surface surface) {
-    synchronized (mirrors) {
-      for (Mirror mirror : mirrors) {
-        if (mirror.surface == surface) {
-          mirror.surface = null;
-        }
+    for (Mirror mirror : mirrors) {
+      if (mirror.surface == surface) {
+        mirror.surface = null;
+      }
+    }
+  }
+
+  /**
+   * Reduces the cost of copying frames to the specified mirror {@link Surface}. The mirror is a
+   * copy of the rendered frame, so these options don't change how the scene is rendered.
+   *
+   * @param frameInterval only one of every frameInterval frames is mirrored, the default is 1
+   * @param viewportScale the mirrored image is copied into this fraction of the mirror's
+   *     rectangle, anchored at its bottom left corner. No smaller render target is created and the
+   *     surface keeps its size, so use it with a surface whose buffers are sized to match, for
+   *     example with {@link android.graphics.SurfaceTexture#setDefaultBufferSize(int, int)}.
+   *     Between 0 and 1, the default is 1.
+   * @param skipsClearsAndTimestamps if true, the area around the mirrored image is no longer
+   *     cleared once every buffer of the surface has been cleared, and frames are not given a
+   *     presentation time
+   * @hide
+   */
+  public void setMirroringOptions(
+      Surface surface, int frameInterval, float viewportScale, boolean skipsClearsAndTimestamps) {
+    if (frameInterval < 1) {
+      throw new IllegalArgumentException("Frame interval must be at least 1.");
+    }
+    if (viewportScale <= 0.0f || viewportScale > 1.0f) {
+      throw new IllegalArgumentException("Viewport scale must be greater than 0 and at most 1.");
+    }
+
+    for (Mirror mirror : mirrors) {
+      if (mirror.surface == surface) {
+        mirror.frameInterval = frameInterval;
+        mirror.viewportScale = viewportScale;
+        mirror.skipsClearsAndTimestamps = skipsClearsAndTimestamps;
       }
     }
   }
@@ -160,6 +232,7 @@ public class Renderer implements UiHelper.RendererCallback {
     options.clearColor[2] = color.b;
     options.clearColor[3] = color.a;
     renderer.setClearOptions(options);
+    requestRender();
   }
 
   /** @hide */
@@ -192,6 +265,11 @@ public class Renderer implements UiHelper.RendererCallback {
     this.cameraProvider = cameraProvider;
   }
 
+  @Nullable
+  CameraProvider getCameraProvider() {
+    return cameraProvider;
+  }
+
   /** @hide */
   public void onPause() {
     viewAttachmentManager.onPause();
@@ -210,6 +288,41 @@ public class Renderer implements UiHelper.RendererCallback {
     this.onFrameRenderDebugCallback = onFrameRenderDebugCallback;
   }
 
+  private void mirrorFrame(Mirror mirror, Viewport srcViewport) {
+    SwapChain mirrorSwapChain = mirror.swapChain;
+    if (mirrorSwapChain == null || mirror.surface == null) {
+      return;
+    }
+    if (mirror.frameCount++ % mirror.frameInterval != 0) {
+      return;
+    }
+
+    Viewport destViewport = mirror.viewport;
+    float viewportScale = mirror.viewportScale;
+    if (viewportScale < 1.0f) {
+      destViewport =
+          new Viewport(
+              destViewport.left,
+              destViewport.bottom,
+              Math.max(1, (int) (destViewport.width * viewportScale)),
+              Math.max(1, (int) (destViewport.height * viewportScale)));
+    }
+
+    int flags = com.google.android.filament.Renderer.MIRROR_FRAME_FLAG_COMMIT;
+    if (!mirror.skipsClearsAndTimestamps) {
+      flags |=
+          com.google.android.filament.Renderer.MIRROR_FRAME_FLAG_SET_PRESENTATION_TIME
+              | com.google.android.filament.Renderer.MIRROR_FRAME_FLAG_CLEAR;
+    } else if (mirror.mirroredFrameCount < MIRROR_CLEARED_FRAME_COUNT) {
+      // The letterbox bars don't change, so they only need to be cleared once in each buffer.
+      flags |= com.google.android.filament.Renderer.MIRROR_FRAME_FLAG_CLEAR;
+    }
+    mirror.mirroredFrameCount++;
+
+    renderer.mirrorFrame(
+        mirrorSwapChain, getLetterboxViewport(srcViewport, destViewport), srcViewport, flags);
+  }
+
   private Viewport getLetterboxViewport(Viewport srcViewport, Viewport destViewport) {
     boolean letterBoxSides =
         (destViewport.width / (float) destViewport.height)
@@ -230,6 +343,86 @@ public class Renderer implements UiHelper.RendererCallback {
     this.preRenderCallback = preRenderCallback;
   }
 
+  /**
+   * Reads the whole next rendered frame back without stalling rendering.
+   *
+   * @see #readFrameAsync(int, int, int, int, float, FrameReadCallback)
+   */
+  public boolean readFrameAsync(FrameReadCallback callback) {
+    return readFrameAsync(0, 0, 0, 0, 1.0f, callback);
+  }
+
+  /**
+   * Reads a region of the next rendered frame back without stalling rendering. The pixels are
+   * copied into one of a few preallocated buffers, and the callback is called once the GPU has
+   * finished the frame, usually a few frames later. Works with a headless engine, see {@link
+   * EngineInstance#enableHeadlessEngine()}.
+   *
+   * @param left the left edge of the region in pixels
+   * @param bottom the bottom edge of the region in pixels, from the bottom of the view
+   * @param width the width of the region in pixels, or 0 to read up to the right of the view
+   * @param height the height of the region in pixels, or 0 to read up to the top of the view
+   * @param scale the region is downscaled by this factor before the callback, between 0 and 1
+   * @param callback called on the main thread with the pixels of the region
+   * @return false if every buffer is still in use by earlier reads, the read is then dropped and
+   *     the callback is not called
+   */
+  public boolean readFrameAsync(
+      int left, int bottom, int width, int height, float scale, FrameReadCallback callback) {
+    Preconditions.checkNotNull(callback, "Parameter \"callback\" was null.");
+    if (left < 0 || bottom < 0 || width < 0 || height < 0) {
+      throw new IllegalArgumentException("Invalid read region.");
+    }
+    if (scale <= 0.0f || scale > 1.0f) {
+      throw new IllegalArgumentException("Scale must be greater than 0 and at most 1.");
+    }
+
+    if (!frameReadback.requestRead(left, bottom, width, height, scale, callback)) {
+      return false;
+    }
+    requestRender();
+    return true;
+  }
+
+  /**
+   * Sets how many frame reads may be in flight at once, the default is 3. More buffers let a
+   * consumer that reads every frame keep up with a GPU that runs further behind.
+   */
+  public void setFrameReadBufferCount(int bufferCount) {
+    frameReadback.setBufferCount(bufferCount);
+  }
+
+  /**
+   * Sets a callback to happen when something this renderer draws has changed and a new frame is
+   * needed. Used by views that only render on demand.
+   *
+   * @hide
+   */
+  public void setRenderRequestedListener(@Nullable Runnable renderRequestedListener) {
+    this.renderRequestedListener = renderRequestedListener;
+  }
+
+  /**
+   * Notifies the view that owns this renderer that a new frame is needed.
+   *
+   * @hide
+   */
+  public void requestRender() {
+    if (renderRequestedListener != null) {
+      renderRequestedListener.run();
+    }
+  }
+
+  /**
+   * Requests a new frame from every renderer. Used for changes to resources that may be shared
+   * between renderers, such as materials.
+   */
+  static void requestRenderAll() {
+    for (int i = 0; i < activeRenderers.size(); i++) {
+      activeRenderers.get(i).requestRender();
+    }
+  }
+
   /** @hide */
   public void render(boolean debugEnabled) {
     synchronized (this) {
@@ -240,22 +433,23 @@ public class Renderer implements UiHelper.RendererCallback {
         }
         swapChain = engine.createSwapChain(surface, SwapChain.CONFIG_READABLE);
         recreateSwapChain = false;
+      } else if (swapChain == null && EngineInstance.isHeadlessMode()) {
+        // A headless engine never gets a native window, its swap chain ignores the surface.
+        final IEngine engine = EngineInstance.getEngine();
+        swapChain = engine.createSwapChain(new Object(), SwapChain.CONFIG_READABLE);
       }
     }
-    synchronized (mirrors) {
-      Iterator<Mirror> mirrorIterator = mirrors.iterator();
-      while (mirrorIterator.hasNext()) {
-        Mirror mirror = mirrorIterator.next();
-        if (mirror.surface == null) {
-          if (mirror.swapChain != null) {
-            final IEngine engine = EngineInstance.getEngine();
-            engine.destroySwapChain(Preconditions.checkNotNull(mirror.swapChain));
-          }
-          mirrorIterator.remove();
-        } else if (mirror.swapChain == null) {
+    for (Mirror mirror : mirrors) {
+      Surface mirrorSurface = mirror.surface;
+      if (mirrorSurface == null) {
+        if (mirror.swapChain != null) {
           final IEngine engine = EngineInstance.getEngine();
-          mirror.swapChain = engine.createSwapChain(Preconditions.checkNotNull(mirror.surface));
+          engine.destroySwapChain(Preconditions.checkNotNull(mirror.swapChain));
         }
+        mirrors.remove(mirror);
+      } else if (mirror.swapChain == null) {
+        final IEngine engine = EngineInstance.getEngine();
+        mirror.swapChain = engine.createSwapChain(mirrorSurface);
       }
     }
 
@@ -295,19 +489,12 @@ public class Renderer implements UiHelper.RendererCallback {
               cameraProvider.isActive() ? view : emptyView;
           renderer.render(currentView);
 
-          synchronized (mirrors) {
-            for (Mirror mirror : mirrors) {
-              if (mirror.swapChain != null) {
-                renderer.mirrorFrame(
-                    mirror.swapChain,
-                    getLetterboxViewport(currentView.getViewport(), mirror.viewport),
-                    currentView.getViewport(),
-                    com.google.android.filament.Renderer.MIRROR_FRAME_FLAG_COMMIT
-                        | com.google.android.filament.Renderer
-                            .MIRROR_FRAME_FLAG_SET_PRESENTATION_TIME
-                        | com.google.android.filament.Renderer.MIRROR_FRAME_FLAG_CLEAR);
-              }
-            }
+          if (frameReadback.hasPendingReads()) {
+            frameReadback.issuePendingReads(renderer, currentView.getViewport());
+          }
+
+          for (Mirror mirror : mirrors) {
+            mirrorFrame(mirror, currentView.getViewport());
           }
           if (onFrameRenderDebugCallback != null) {
             onFrameRenderDebugCallback.run();
@@ -315,16 +502,26 @@ public class Renderer implements UiHelper.RendererCallback {
           renderer.endFrame();
         }
 
-        reclaimReleasedResources();
+        ResourceManager.getInstance().reclaimReleasedResourcesWithinBudget();
       }
     }
   }
 
   /** @hide */
   public void dispose() {
+    activeRenderers.remove(this);
+    frameReadback.dispose();
+    renderRequestedListener = null;
     filamentHelper.detach(); // call this before destroying the Engine (it could call back)
 
     final IEngine engine = EngineInstance.getEngine();
+    synchronized (this) {
+      // Detaching destroys the swap chain of a surface, the one of a headless engine is left.
+      if (swapChain != null) {
+        engine.destroySwapChain(swapChain);
+        swapChain = null;
+      }
+    }
     if (indirectLight != null) {
       engine.destroyIndirectLight(indirectLight);
     }
@@ -354,9 +551,58 @@ public class Renderer implements UiHelper.RendererCallback {
         engine.destroyIndirectLight(indirectLight);
       }
       indirectLight = latestIndirectLight;
+      requestRender();
     }
   }
 
+  /**
+   * Sets how many point and spot lights may light the scene at once, the default is no limit
+   * ({@link Integer#MAX_VALUE}). Lights are ranked every frame by how much they are estimated to
+   * contribute to the view, and only the top ones are kept. Lights that can't reach anything in
+   * view are always left out. Directional lights are always kept and don't count against this
+   * limit.
+   *
+   * @hide
+   */
+  public void setMaxActiveLights(int maxActiveLights) {
+    lightBudget.setMaxActiveLights(maxActiveLights);
+    requestRender();
+  }
+
+  /** @hide */
+  public int getMaxActiveLights() {
+    return lightBudget.getMaxActiveLights();
+  }
+
+  /**
+   * Returns the number of lights that lit the last rendered frame.
+   *
+   * @hide
+   */
+  public int getActiveLightCount() {
+    return lightBudget.getActiveLightCount();
+  }
+
+  /**
+   * Returns the number of lights left out of the last rendered frame, because they were out of view
+   * or over the limit set with {@link #setMaxActiveLights(int)}.
+   *
+   * @hide
+   */
+  public int getCulledLightCount() {
+    return lightBudget.getCulledLightCount();
+  }
+
+  /**
+   * Returns the number of lights whose transform or properties were updated for the last rendered
+   * frame. Lights that did not change are not updated.
+   *
+   * @hide
+   */
+  public int getUpdatedLightCount() {
+    return lightBudget.getUpdatedLightCount();
+  }
+
   /** @hide */
   public void setDesiredSize(int width, int height) {
     int minor = Math.min(width, height);
@@ -416,9 +662,98 @@ public class Renderer implements UiHelper.RendererCallback {
     // TODO: This functionality should probably be exposed to the developer eventually.
     DynamicResolutionOptions options = new DynamicResolutionOptions();
     options.enabled = isEnabled;
+    setDynamicResolutionOptions(options);
+  }
+
+  /**
+   * Enables dynamic resolution within a range of scales, applied to each axis of the viewport.
+   *
+   * @param minScale the lowest scale Filament may select to hold the target frame time
+   * @param maxScale the highest scale Filament may select
+   * @param targetFrameTimeMillis the frame time Filament aims for
+   * @hide Used internally by the quality governor of SceneView.
+   */
+  public void setDynamicResolutionScale(
+      float minScale, float maxScale, float targetFrameTimeMillis) {
+    DynamicResolutionOptions options = new DynamicResolutionOptions();
+    options.enabled = true;
+    options.minScale = minScale;
+    options.maxScale = maxScale;
+    options.targetFrameTimeMilli = targetFrameTimeMillis;
+    setDynamicResolutionOptions(options);
+  }
+
+  /**
+   * Applies dynamic resolution options to the view. The options must not be modified afterwards.
+   *
+   * @hide Used internally by the quality governor of SceneView.
+   */
+  public void setDynamicResolutionOptions(DynamicResolutionOptions options) {
+    dynamicResolutionOptions = options;
     view.setDynamicResolutionOptions(options);
   }
 
+  /**
+   * Returns the dynamic resolution options last applied to the view. They must not be modified.
+   *
+   * @hide Used internally by the quality governor of SceneView.
+   */
+  public DynamicResolutionOptions getDynamicResolutionOptions() {
+    return dynamicResolutionOptions;
+  }
+
+  /**
+   * Sets the number of MSAA samples, 1 disables MSAA.
+   *
+   * @hide Used internally by the quality governor of SceneView.
+   */
+  public void setSampleCount(int sampleCount) {
+    this.sampleCount = sampleCount;
+    view.setSampleCount(sampleCount);
+  }
+
+  /** @hide */
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * Enables or disables shadow casting for every renderable. Renderables that are not shadow
+   * casters never cast shadows.
+   *
+   * @hide Used internally by the quality governor of SceneView.
+   */
+  public void setShadowsEnabled(boolean areShadowsEnabled) {
+    if (this.areShadowsEnabled == areShadowsEnabled) {
+      return;
+    }
+
+    this.areShadowsEnabled = areShadowsEnabled;
+    for (RenderableInstance renderableInstance : renderableInstances) {
+      renderableInstance.updateShadowCasting(areShadowsEnabled);
+    }
+  }
+
+  /** @hide */
+  public boolean areShadowsEnabled() {
+    return areShadowsEnabled;
+  }
+
+  /**
+   * Sets how much smaller renderables are considered when selecting their level of detail. A bias
+   * above 1 selects coarser levels of detail sooner.
+   *
+   * @hide Used internally by the quality governor of SceneView.
+   */
+  public void setLevelOfDetailBias(float levelOfDetailBias) {
+    this.levelOfDetailBias = levelOfDetailBias;
+  }
+
+  /** @hide */
+  public float getLevelOfDetailBias() {
+    return levelOfDetailBias;
+  }
+
   /** @hide Only used for scuba testing for now. */
   @VisibleForTesting
   public void setAntiAliasing(com.google.android.filament.View.AntiAliasing antiAliasing) {
@@ -433,13 +768,17 @@ public class Renderer implements UiHelper.RendererCallback {
 
   /** @hide Used internally by ArSceneView. */
   
-  public void setPostProcessingEnabled(boolean enablePostProcessing) {return ;}
+  public void setPostProcessingEnabled(boolean enablePostProcessing) {
+    view.setPostProcessingEnabled(enablePostProcessing);
+  }
 
 
 
   /** @hide Used internally by ArSceneView */
   
-  public void setRenderQuality(com.google.android.filament.View.RenderQuality renderQuality) {return ;}
+  public void setRenderQuality(com.google.android.filament.View.RenderQuality renderQuality) {
+    view.setRenderQuality(renderQuality);
+  }
 
 
 
@@ -489,14 +828,18 @@ public class Renderer implements UiHelper.RendererCallback {
   void addLight(LightInstance instance) {
     @Entity int entity = instance.getEntity();
     scene.addEntity(entity);
+    instance.isInScene = true;
     lightInstances.add(instance);
+    requestRender();
   }
 
   /** @hide */
   void removeLight(LightInstance instance) {
     @Entity int entity = instance.getEntity();
     scene.remove(entity);
+    instance.isInScene = false;
     lightInstances.remove(instance);
+    requestRender();
   }
 
   
@@ -518,6 +861,7 @@ public class Renderer implements UiHelper.RendererCallback {
     scene.addEntity(instance.getRenderedEntity());
     addModelInstanceInternal(instance);
     renderableInstances.add(instance);
+    requestRender();
   }
 
   /** @hide */
@@ -525,6 +869,7 @@ public class Renderer implements UiHelper.RendererCallback {
     removeModelInstanceInternal(instance);
     scene.remove(instance.getRenderedEntity());
     renderableInstances.remove(instance);
+    requestRender();
   }
 
   Scene getFilamentScene() {
@@ -588,24 +933,17 @@ public class Renderer implements UiHelper.RendererCallback {
   }
 
   private void updateInstances() {
+    // Capture the state for this frame first so that the submission to Filament is a single pass
+    // over the instances that actually changed.
+    renderSnapshot.capture(renderableInstances, cameraProvider, levelOfDetailBias);
+
     final IEngine engine = EngineInstance.getEngine();
     final TransformManager transformManager = engine.getTransformManager();
-    transformManager.openLocalTransformTransaction();
-
-    for (RenderableInstance renderableInstance : renderableInstances) {
-      renderableInstance.prepareForDraw();
-
-      float[] transform = renderableInstance.getWorldModelMatrix().data;
-      renderableInstance.setModelMatrix(transformManager, transform);
-    }
-
-    transformManager.commitLocalTransformTransaction();
+    renderSnapshot.submit(transformManager);
   }
 
   private void updateLights() {
-    for (LightInstance lightInstance : lightInstances) {
-      lightInstance.updateTransform();
-    }
+    lightBudget.update(lightInstances, cameraProvider, scene);
   }
 
   /**
@@ -617,6 +955,23 @@ public class Renderer implements UiHelper.RendererCallback {
     return ResourceManager.getInstance().reclaimReleasedResources();
   }
 
+  /**
+   * Sets how much of the resources released since the last frame are destroyed after each frame.
+   * The rest is carried over to the next frames.
+   *
+   * @param timeBudgetMillis no resource is destroyed after this much time has elapsed
+   * @param countBudget the maximum number of resources to destroy
+   */
+  public static void setResourceReclaimBudget(float timeBudgetMillis, int countBudget) {
+    ResourceManager.getInstance()
+        .setReclaimBudget((long) (timeBudgetMillis * 1_000_000), countBudget);
+  }
+
+  /** Returns the number of released resources waiting to be destroyed in a later frame. */
+  public static int getPendingResourceCleanupCount() {
+    return ResourceManager.getInstance().getPendingCleanupCount();
+  }
+
   /** Immediately releases all rendering resources, even if in use. */
   public static void destroyAllResources() {
     ResourceManager.getInstance().destroyAllResources();
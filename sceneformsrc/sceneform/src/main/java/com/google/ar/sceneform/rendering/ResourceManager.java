@@ -14,9 +14,13 @@ import java.util.ArrayList;
  */
 @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
 public class ResourceManager {
+  private static final long DEFAULT_RECLAIM_TIME_BUDGET_NANOS = 1_000_000;
+  private static final int DEFAULT_RECLAIM_COUNT_BUDGET = 128;
+
   @Nullable private static ResourceManager instance = null;
 
   private final ArrayList<ResourceHolder> resourceHolders = new ArrayList<>();
+  private final ArrayList<CleanupRegistry<?>> cleanupRegistries = new ArrayList<>();
   private final ResourceRegistry<Texture> textureRegistry = new ResourceRegistry<>();
   private final ResourceRegistry<Material> materialRegistry = new ResourceRegistry<>();
   private final ResourceRegistry<ModelRenderable> modelRenderableRegistry =
@@ -24,14 +28,19 @@ public class ResourceManager {
 
   
   private final ResourceRegistry<ViewRenderable> viewRenderableRegistry = new ResourceRegistry<>();
+  private final ResourceRegistry<LineRenderable> lineRenderableRegistry = new ResourceRegistry<>();
+  private final ResourceRegistry<TextRenderable> textRenderableRegistry = new ResourceRegistry<>();
 
-  private final CleanupRegistry<CameraStream> cameraStreamCleanupRegistry = new CleanupRegistry<>();
+  private final CleanupRegistry<CameraStream> cameraStreamCleanupRegistry =
+      new CleanupRegistry<>("CameraStream");
   private final CleanupRegistry<ExternalTexture> externalTextureCleanupRegistry =
-      new CleanupRegistry<>();
-  private final CleanupRegistry<Material> materialCleanupRegistry = new CleanupRegistry<>();
+      new CleanupRegistry<>("ExternalTexture");
+  private final CleanupRegistry<Material> materialCleanupRegistry =
+      new CleanupRegistry<>("Material");
   private final CleanupRegistry<RenderableInstance> renderableInstanceCleanupRegistry =
-      new CleanupRegistry<>();
-  private final CleanupRegistry<Texture> textureCleanupRegistry = new CleanupRegistry<>();
+      new CleanupRegistry<>("RenderableInstance");
+  private final CleanupRegistry<Texture> textureCleanupRegistry =
+      new CleanupRegistry<>("Texture");
 
   ResourceRegistry<Texture> getTextureRegistry() {
     return textureRegistry;
@@ -50,6 +59,14 @@ public class ResourceManager {
     return viewRenderableRegistry;
   }
 
+  ResourceRegistry<LineRenderable> getLineRenderableRegistry() {
+    return lineRenderableRegistry;
+  }
+
+  ResourceRegistry<TextRenderable> getTextRenderableRegistry() {
+    return textRenderableRegistry;
+  }
+
   CleanupRegistry<CameraStream> getCameraStreamCleanupRegistry() {
     return cameraStreamCleanupRegistry;
   }
@@ -66,10 +83,68 @@ public class ResourceManager {
     return renderableInstanceCleanupRegistry;
   }
 
+  private long reclaimTimeBudgetNanos = DEFAULT_RECLAIM_TIME_BUDGET_NANOS;
+  private int reclaimCountBudget = DEFAULT_RECLAIM_COUNT_BUDGET;
+  // Registry that the next budgeted reclaim starts with, so that a registry with a large backlog
+  // doesn't starve the others.
+  private int nextCleanupRegistryIndex;
+  private int lastReclaimedCount;
+
   CleanupRegistry<Texture> getTextureCleanupRegistry() {
     return textureCleanupRegistry;
   }
 
+  /**
+   * Sets how much work {@link #reclaimReleasedResourcesWithinBudget()} may do. Cleanups beyond the
+   * budget are carried over to the next call.
+   *
+   * @param timeBudgetNanos no cleanup is started after this much time has elapsed
+   * @param countBudget the maximum number of cleanups to run
+   */
+  public void setReclaimBudget(long timeBudgetNanos, int countBudget) {
+    reclaimTimeBudgetNanos = timeBudgetNanos;
+    reclaimCountBudget = countBudget;
+  }
+
+  /**
+   * Releases resources ready for garbage collection, without exceeding the reclaim budget. Called
+   * once per frame, so that releasing many resources at once is spread over several frames.
+   *
+   * @return count of cleanups that were run
+   */
+  public int reclaimReleasedResourcesWithinBudget() {
+    long deadlineNanos = System.nanoTime() + reclaimTimeBudgetNanos;
+    int remainingCount = reclaimCountBudget;
+    int registryCount = cleanupRegistries.size();
+    for (int i = 0; i < registryCount && remainingCount > 0; i++) {
+      if (remainingCount < reclaimCountBudget && System.nanoTime() - deadlineNanos > 0) {
+        break;
+      }
+
+      CleanupRegistry<?> cleanupRegistry =
+          cleanupRegistries.get((nextCleanupRegistryIndex + i) % registryCount);
+      remainingCount -= cleanupRegistry.reclaimReleasedResources(remainingCount, deadlineNanos);
+    }
+    nextCleanupRegistryIndex = (nextCleanupRegistryIndex + 1) % registryCount;
+
+    lastReclaimedCount = reclaimCountBudget - remainingCount;
+    return lastReclaimedCount;
+  }
+
+  /** Returns the number of released resources whose cleanup was deferred to a later frame. */
+  public int getPendingCleanupCount() {
+    int count = 0;
+    for (CleanupRegistry<?> cleanupRegistry : cleanupRegistries) {
+      count += cleanupRegistry.getPendingCount();
+    }
+    return count;
+  }
+
+  /** Returns the number of cleanups run by the last budgeted reclaim. */
+  public int getLastReclaimedCount() {
+    return lastReclaimedCount;
+  }
+
   public long reclaimReleasedResources() {
     long resourcesInUse = 0;
     for (ResourceHolder registry : resourceHolders) {
@@ -87,6 +162,9 @@ public class ResourceManager {
 
   public void addResourceHolder(ResourceHolder resource) {
     resourceHolders.add(resource);
+    if (resource instanceof CleanupRegistry) {
+      cleanupRegistries.add((CleanupRegistry<?>) resource);
+    }
   }
 
   public static ResourceManager getInstance() {
@@ -102,6 +180,8 @@ public class ResourceManager {
     addResourceHolder(materialRegistry);
     addResourceHolder(modelRenderableRegistry);
     addViewRenderableRegistry();
+    addResourceHolder(lineRenderableRegistry);
+    addResourceHolder(textRenderableRegistry);
     addResourceHolder(cameraStreamCleanupRegistry);
     addResourceHolder(externalTextureCleanupRegistry);
     addResourceHolder(materialCleanupRegistry);
@@ -0,0 +1,441 @@
+package com.google.ar.sceneform.rendering;
+
+import android.os.Build;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import com.google.ar.sceneform.math.Matrix;
+import com.google.ar.sceneform.resources.ResourceRegistry;
+import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.nio.FloatBuffer;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Renders a string as a set of textured quads, one per glyph, sampled from a {@link GlyphAtlas}.
+ * Attach it to a {@link com.google.ar.sceneform.Node} with {@link
+ * com.google.ar.sceneform.Node#setRenderable(Renderable)}.
+ *
+ * <p>Unlike a {@link ViewRenderable}, a label doesn't need a view to be inflated, laid out or
+ * drawn. Changing the text rewrites the vertices of the label in place and uploads them once, just
+ * before the frame is drawn. Lines are separated by '\n' and centered horizontally, and the bottom
+ * of the last line is at the origin of the node.
+ *
+ * <pre>{@code
+ * TextRenderable.builder().setGlyphAtlas(atlas).setText("Label").build().thenAccept(label -> {
+ *   node.setRenderable(label);
+ *   label.setText("Updated");
+ * });
+ * }</pre>
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class TextRenderable extends Renderable {
+  private static final float DEFAULT_TEXT_HEIGHT = 0.05f;
+  private static final int DEFAULT_GLYPH_CAPACITY = 16;
+
+  private final TextGeometry geometry;
+  private int appliedVersion;
+  private boolean isBillboard;
+
+  @Nullable private Renderer renderer;
+  private final Matrix billboardMatrix = new Matrix();
+
+  private TextRenderable(Builder builder, TextGeometry geometry) {
+    super(builder);
+    this.geometry = geometry;
+    appliedVersion = geometry.getVersion();
+    isBillboard = builder.isBillboard;
+  }
+
+  @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
+  private TextRenderable(TextRenderable other) {
+    super(other);
+    geometry = other.geometry;
+    appliedVersion = other.appliedVersion;
+    isBillboard = other.isBillboard;
+  }
+
+  /**
+   * Creates a new instance of this TextRenderable.
+   *
+   * <p>The new renderable will have unique copy of all mutable state except the text and the text
+   * height, which are shared with this TextRenderable. Changing the text of either one updates
+   * both.
+   */
+  @Override
+  public TextRenderable makeCopy() {
+    return new TextRenderable(this);
+  }
+
+  /** Returns the text of the label. */
+  public String getText() {
+    return geometry.text;
+  }
+
+  /**
+   * Sets the text of the label. Characters that are not in the {@link GlyphAtlas} are drawn as the
+   * fallback glyph of the atlas.
+   */
+  public void setText(CharSequence text) {
+    Preconditions.checkNotNull(text, "Parameter \"text\" was null.");
+    geometry.setText(text.toString());
+  }
+
+  /** Returns the height of a line of text in meters. */
+  public float getTextHeight() {
+    return geometry.textHeight;
+  }
+
+  /** Sets the height of a line of text in meters. */
+  public void setTextHeight(float textHeight) {
+    if (textHeight == geometry.textHeight) {
+      return;
+    }
+
+    geometry.textHeight = textHeight;
+    geometry.markChanged();
+  }
+
+  /** Returns true if the label always faces the camera. */
+  public boolean isBillboard() {
+    return isBillboard;
+  }
+
+  /**
+   * Makes the label always face the camera. The rotation of the node is ignored while this is
+   * enabled, its position and scale still apply.
+   */
+  public void setBillboard(boolean isBillboard) {
+    this.isBillboard = isBillboard;
+  }
+
+  /**
+   * Replaces the rotation of the model matrix with the rotation of the camera when the label is a
+   * billboard.
+   *
+   * @hide
+   */
+  @Override
+  public Matrix getFinalModelMatrix(final Matrix originalMatrix) {
+    Preconditions.checkNotNull(originalMatrix, "Parameter \"originalMatrix\" was null.");
+
+    Renderer renderer = this.renderer;
+    CameraProvider cameraProvider = renderer != null ? renderer.getCameraProvider() : null;
+    if (!isBillboard || cameraProvider == null) {
+      return originalMatrix;
+    }
+
+    float[] source = originalMatrix.data;
+    float[] camera = cameraProvider.getWorldModelMatrix().data;
+    float[] dest = billboardMatrix.data;
+    for (int column = 0; column < 3; column++) {
+      int offset = column * 4;
+      float scale = length(source, offset);
+      float cameraScale = length(camera, offset);
+      float factor = cameraScale > 0.0f ? scale / cameraScale : 0.0f;
+      dest[offset] = camera[offset] * factor;
+      dest[offset + 1] = camera[offset + 1] * factor;
+      dest[offset + 2] = camera[offset + 2] * factor;
+      dest[offset + 3] = 0.0f;
+    }
+    System.arraycopy(source, 12, dest, 12, 4);
+    return billboardMatrix;
+  }
+
+  private static float length(float[] data, int offset) {
+    float x = data[offset];
+    float y = data[offset + 1];
+    float z = data[offset + 2];
+    return (float) Math.sqrt(x * x + y * y + z * z);
+  }
+
+  @Override
+  void attachToRenderer(Renderer renderer) {
+    this.renderer = renderer;
+  }
+
+  @Override
+  void detatchFromRenderer() {
+    this.renderer = null;
+  }
+
+  @Override
+  void prepareForDraw() {
+    appliedVersion = geometry.prepareForDraw(this, appliedVersion);
+  }
+
+  /** Constructs a {@link TextRenderable}. */
+  public static Builder builder() {
+    AndroidPreconditions.checkMinAndroidApiLevel();
+    return new Builder();
+  }
+
+  /**
+   * Text and GPU-side buffers of a label, shared by all copies of a {@link TextRenderable}.
+   *
+   * <p>Each visible glyph is a quad of four vertices facing +z.
+   */
+  private static final class TextGeometry extends QuadGeometry {
+    private static final int POSITION_SIZE = 3;
+    private static final int UV_SIZE = 2;
+    private static final int VERTICES_PER_GLYPH = VERTICES_PER_QUAD;
+
+    private final GlyphAtlas atlas;
+
+    String text = "";
+    float textHeight;
+
+    private FloatBuffer positions = FloatBuffer.allocate(0);
+    private FloatBuffer normals = FloatBuffer.allocate(0);
+    private FloatBuffer uvs = FloatBuffer.allocate(0);
+
+    TextGeometry(GlyphAtlas atlas, Material material, float textHeight, int capacity) {
+      super(material);
+      this.atlas = atlas;
+      this.textHeight = textHeight;
+      ensureQuadCapacity(Math.max(capacity, 1));
+    }
+
+    void setText(String text) {
+      if (text.equals(this.text)) {
+        return;
+      }
+
+      this.text = text;
+      markChanged();
+    }
+
+    @Override
+    void onQuadCapacityChanged(int quadCapacity) {
+      int vertexCapacity = quadCapacity * VERTICES_PER_GLYPH;
+      positions = FloatBuffer.allocate(vertexCapacity * POSITION_SIZE);
+      uvs = FloatBuffer.allocate(vertexCapacity * UV_SIZE);
+
+      // Every glyph faces +z, so the normals are written once for the whole capacity.
+      normals = FloatBuffer.allocate(vertexCapacity * POSITION_SIZE);
+      for (int vertex = 0; vertex < vertexCapacity; vertex++) {
+        normals.put(0.0f).put(0.0f).put(1.0f);
+      }
+      normals.flip();
+      definition.setPositions(positions);
+      definition.setNormals(normals);
+      definition.setUvs(uvs);
+    }
+
+    @Override
+    void setVertexLimit(int vertexCount) {
+      positions.limit(vertexCount * POSITION_SIZE);
+      normals.limit(vertexCount * POSITION_SIZE);
+      uvs.limit(vertexCount * UV_SIZE);
+    }
+
+    /** Lays out the text, writes its glyphs into the buffers and sets the ranges to upload. */
+    @Override
+    void writePendingChanges() {
+      String text = this.text;
+      int length = text.length();
+      ensureQuadCapacity(countVisibleGlyphs(text));
+
+      // Lines are stacked upwards from the last one, whose bottom is at the origin.
+      int lineCount = 1;
+      for (int i = 0; i < length; i++) {
+        if (text.charAt(i) == '\n') {
+          lineCount++;
+        }
+      }
+
+      int glyphCount = 0;
+      int lineStart = 0;
+      int line = 0;
+      while (lineStart <= length) {
+        int lineEnd = text.indexOf('\n', lineStart);
+        if (lineEnd < 0) {
+          lineEnd = length;
+        }
+
+        float baseline = atlas.getDescent() + (lineCount - 1 - line);
+        float penX = -measureLine(text, lineStart, lineEnd) * 0.5f;
+        for (int i = lineStart; i < lineEnd; i++) {
+          GlyphAtlas.Glyph glyph = atlas.getGlyph(text.charAt(i));
+          if (glyph == null) {
+            continue;
+          }
+
+          if (glyph.isVisible) {
+            writeGlyph(glyphCount, glyph, penX, baseline);
+            glyphCount++;
+          }
+          penX += glyph.advance;
+        }
+
+        lineStart = lineEnd + 1;
+        line++;
+      }
+
+      // The definition needs at least one vertex, so an empty label keeps a degenerate glyph.
+      int bufferGlyphs = Math.max(glyphCount, 1);
+      if (glyphCount == 0) {
+        for (int i = 0; i < VERTICES_PER_GLYPH * POSITION_SIZE; i++) {
+          positions.put(i, 0.0f);
+        }
+        for (int i = 0; i < VERTICES_PER_GLYPH * UV_SIZE; i++) {
+          uvs.put(i, 0.0f);
+        }
+      }
+
+      finishWrite(glyphCount, 0, bufferGlyphs);
+    }
+
+    private int countVisibleGlyphs(String text) {
+      int count = 0;
+      for (int i = 0; i < text.length(); i++) {
+        GlyphAtlas.Glyph glyph = atlas.getGlyph(text.charAt(i));
+        if (glyph != null && glyph.isVisible) {
+          count++;
+        }
+      }
+      return count;
+    }
+
+    private float measureLine(String text, int start, int end) {
+      float width = 0.0f;
+      for (int i = start; i < end; i++) {
+        GlyphAtlas.Glyph glyph = atlas.getGlyph(text.charAt(i));
+        if (glyph != null) {
+          width += glyph.advance;
+        }
+      }
+      return width;
+    }
+
+    private void writeGlyph(int index, GlyphAtlas.Glyph glyph, float penX, float baseline) {
+      float left = (penX + glyph.left) * textHeight;
+      float right = (penX + glyph.right) * textHeight;
+      float bottom = (baseline + atlas.getGlyphBottom()) * textHeight;
+      float top = (baseline + atlas.getGlyphTop()) * textHeight;
+
+      // Bottom left, bottom right, top right, top left.
+      int positionOffset = index * VERTICES_PER_GLYPH * POSITION_SIZE;
+      positions.put(positionOffset, left).put(positionOffset + 1, bottom);
+      positions.put(positionOffset + 2, 0.0f);
+      positions.put(positionOffset + 3, right).put(positionOffset + 4, bottom);
+      positions.put(positionOffset + 5, 0.0f);
+      positions.put(positionOffset + 6, right).put(positionOffset + 7, top);
+      positions.put(positionOffset + 8, 0.0f);
+      positions.put(positionOffset + 9, left).put(positionOffset + 10, top);
+      positions.put(positionOffset + 11, 0.0f);
+
+      int uvOffset = index * VERTICES_PER_GLYPH * UV_SIZE;
+      uvs.put(uvOffset, glyph.uvLeft).put(uvOffset + 1, glyph.uvBottom);
+      uvs.put(uvOffset + 2, glyph.uvRight).put(uvOffset + 3, glyph.uvBottom);
+      uvs.put(uvOffset + 4, glyph.uvRight).put(uvOffset + 5, glyph.uvTop);
+      uvs.put(uvOffset + 6, glyph.uvLeft).put(uvOffset + 7, glyph.uvTop);
+    }
+  }
+
+  /** Factory class for {@link TextRenderable}. */
+  public static final class Builder extends Renderable.Builder<TextRenderable, Builder> {
+    @Nullable private GlyphAtlas glyphAtlas;
+    private String text = "";
+    private float textHeight = DEFAULT_TEXT_HEIGHT;
+    private int glyphCapacity = DEFAULT_GLYPH_CAPACITY;
+    private boolean isBillboard = false;
+    @Nullable private TextGeometry geometry;
+
+    private Builder() {}
+
+    /** Sets the atlas the glyphs of the label are drawn from. */
+    public Builder setGlyphAtlas(GlyphAtlas glyphAtlas) {
+      this.glyphAtlas = glyphAtlas;
+      return this;
+    }
+
+    /** Sets the initial text of the label. */
+    public Builder setText(CharSequence text) {
+      Preconditions.checkNotNull(text, "Parameter \"text\" was null.");
+      this.text = text.toString();
+      return this;
+    }
+
+    /** Sets the height of a line of text in meters. */
+    public Builder setTextHeight(float textHeight) {
+      this.textHeight = textHeight;
+      return this;
+    }
+
+    /**
+     * Sets the number of glyphs the label can hold before its buffers need to grow. Growing the
+     * buffers re-creates them, so this should be set when the length of the text is known upfront.
+     */
+    public Builder setGlyphCapacity(int glyphCapacity) {
+      this.glyphCapacity = glyphCapacity;
+      return this;
+    }
+
+    /** Makes the label always face the camera. See {@link TextRenderable#setBillboard(boolean)}. */
+    public Builder setBillboard(boolean isBillboard) {
+      this.isBillboard = isBillboard;
+      return this;
+    }
+
+    @Override
+    @SuppressWarnings("AndroidApiChecker") // java.util.concurrent.CompletableFuture
+    public CompletableFuture<TextRenderable> build() {
+      GlyphAtlas glyphAtlas = this.glyphAtlas;
+      if (glyphAtlas != null && !hasSource()) {
+        // Labels are built from the material of the atlas and draw with their own copy of it.
+        return glyphAtlas
+            .getMaterial()
+            .thenAccept(
+                material -> {
+                  TextGeometry geometry =
+                      new TextGeometry(
+                          glyphAtlas,
+                          material,
+                          textHeight,
+                          Math.max(glyphCapacity, text.length()));
+                  geometry.text = text;
+
+                  this.geometry = geometry;
+                  setSource(geometry.buildSource());
+                })
+            .thenCompose((Void) -> super.build());
+      }
+
+      return super.build();
+    }
+
+    /** @hide */
+    @Override
+    protected TextRenderable makeRenderable() {
+      return new TextRenderable(this, Preconditions.checkNotNull(geometry));
+    }
+
+    /** @hide */
+    @Override
+    protected Class<TextRenderable> getRenderableClass() {
+      return TextRenderable.class;
+    }
+
+    /** @hide */
+    @Override
+    protected ResourceRegistry<TextRenderable> getRenderableRegistry() {
+      return ResourceManager.getInstance().getTextRenderableRegistry();
+    }
+
+    /** @hide */
+    @Override
+    protected Builder getSelf() {
+      return this;
+    }
+
+    /** @hide */
+    @Override
+    protected void checkPreconditions() {
+      if (glyphAtlas == null) {
+        throw new AssertionError("TextRenderable must have a GlyphAtlas.");
+      }
+
+      super.checkPreconditions();
+    }
+  }
+}
@@ -41,6 +41,7 @@ public class Texture {
   private static final int MIP_LEVELS_TO_GENERATE = 0xff;
 
   @Nullable private final TextureInternalData textureData;
+  private final CleanupItem<Texture> cleanupItem;
 
   /** Constructs a default texture, if nothing else is set */
   public static Builder builder() {
@@ -54,9 +55,38 @@ public class Texture {
   private Texture(TextureInternalData textureData) {
     this.textureData = textureData;
     textureData.retain();
-    ResourceManager.getInstance()
-        .getTextureCleanupRegistry()
-        .register(this, new CleanupCallback(textureData));
+    cleanupItem =
+        ResourceManager.getInstance()
+            .getTextureCleanupRegistry()
+            .register(this, new CleanupCallback(textureData));
+  }
+
+  /**
+   * Releases this texture. The GPU memory of the texture is freed right away once every texture
+   * sharing it, for example textures loaded from the same source, has been released and no
+   * material is bound to it anymore.
+   *
+   * <p>The texture must not be used afterwards. Textures that are never released are freed after
+   * they are garbage collected.
+   */
+  public void release() {
+    AndroidPreconditions.checkUiThread();
+    ResourceManager.getInstance().getTextureCleanupRegistry().release(cleanupItem);
+  }
+
+  /** Keeps the GPU texture alive, even once this texture is released, until it is let go of. */
+  void retainData() {
+    Preconditions.checkNotNull(textureData).retain();
+  }
+
+  /** Lets go of the GPU texture kept alive by {@link #retainData()}. */
+  void releaseData() {
+    Preconditions.checkNotNull(textureData).release();
+  }
+
+  /** Creates another reference to the same texture data, released independently. */
+  private Texture makeSharedCopy() {
+    return new Texture(Preconditions.checkNotNull(textureData));
   }
 
   Sampler getSampler() {
@@ -272,7 +302,7 @@ public class Texture {
         ResourceRegistry<Texture> registry = ResourceManager.getInstance().getTextureRegistry();
         @Nullable CompletableFuture<Texture> textureFuture = registry.get(registryId);
         if (textureFuture != null) {
-          return textureFuture;
+          return textureFuture.thenApply(Texture::makeSharedCopy);
         }
       }
 
@@ -305,7 +335,16 @@ public class Texture {
 
       if (registryId != null) {
         ResourceRegistry<Texture> registry = ResourceManager.getInstance().getTextureRegistry();
-        registry.register(registryId, result);
+        // The registry keeps its own texture, so that releasing a texture returned to a caller
+        // doesn't affect the others.
+        CompletableFuture<Texture> registryEntry =
+            result.thenApply(
+                texture -> {
+                  texture.cleanupItem.setLeakReported(false);
+                  return texture;
+                });
+        registry.register(registryId, registryEntry);
+        result = registryEntry.thenApply(Texture::makeSharedCopy);
       }
 
       FutureHelper.logOnException(
@@ -564,7 +603,7 @@ public class Texture {
   //     //depot/google3/third_party/arcore/ar/sceneform/loader/model/material_java_wrappers.h:api
   // )
 
-  /** Cleanup {@link TextureInternalData} after garbage collection */
+  /** Cleanup {@link TextureInternalData} after release or garbage collection */
   private static final class CleanupCallback implements Runnable {
     private final TextureInternalData textureData;
 
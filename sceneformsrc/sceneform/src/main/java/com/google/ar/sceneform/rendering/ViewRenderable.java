@@ -1,6 +1,7 @@
 package com.google.ar.sceneform.rendering;
 
 import android.content.Context;
+import android.graphics.Bitmap;
 import android.os.Build;
 import android.support.annotation.Nullable;
 import android.support.annotation.RequiresApi;
@@ -35,6 +36,10 @@ import java.util.function.Function;
  * future = ViewRenderable.builder().setView(context, R.layout.view).build();
  * viewRenderable = future.thenAccept(...);
  * }</pre>
+ *
+ * <p>The view is drawn to its texture again whenever it is invalidated. A view that never changes
+ * can be built with {@link Builder#setStatic(boolean)}, which rasterizes it once into a {@link
+ * Texture} and releases the resources used to draw it.
  */
 @RequiresApi(api = Build.VERSION_CODES.N)
 
@@ -61,6 +66,19 @@ public class ViewRenderable extends Renderable {
     TOP
   }
 
+  // Geometry of the quad the view is drawn on, matching the definition created by the Builder.
+  private static final float[] QUAD_POSITIONS = {
+    -0.5f, 0.0f, 0.0f, 0.5f, 0.0f, 0.0f, -0.5f, 1.0f, 0.0f, 0.5f, 1.0f, 0.0f
+  };
+  private static final float[] QUAD_NORMALS = {
+    0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 1.0f, 0.0f, 0.0f, 1.0f
+  };
+  private static final short[] QUAD_INDICES = {0, 1, 2, 1, 3, 2};
+
+  // Material parameters of the static snapshot, which has no lighting of its own.
+  private static final float STATIC_ROUGHNESS = 1.0f;
+  private static final float STATIC_REFLECTANCE = 0.0f;
+
   @Nullable private ViewRenderableInternalData viewRenderableData;
   private final View view;
 
@@ -74,6 +92,14 @@ public class ViewRenderable extends Renderable {
 
   @Nullable private Renderer renderer;
   private boolean isInitialized;
+  private boolean isOffsetUvInverted;
+
+  private final boolean isStatic;
+  private boolean isStaticApplied;
+
+  // Texture coordinates of the atlas region last applied to the geometry.
+  @Nullable private ViewRenderableAtlas.Region appliedAtlasRegion;
+  private int appliedAtlasUvVersion;
 
   @SuppressWarnings({"initialization"})
   private final RenderViewToExternalTexture.OnViewSizeChangedListener onViewSizeChangedListener =
@@ -88,6 +114,16 @@ public class ViewRenderable extends Renderable {
     return view;
   }
 
+  /**
+   * Returns true if the view is rasterized once into a {@link Texture} instead of being drawn
+   * whenever it changes.
+   *
+   * @see Builder#setStatic(boolean)
+   */
+  public boolean isStatic() {
+    return isStatic;
+  }
+
   /**
    * Creates a new instance of this ViewRenderable.
    *
@@ -113,8 +149,9 @@ public class ViewRenderable extends Renderable {
     viewSizer = builder.viewSizer;
     horizontalAlignment = builder.horizontalAlignment;
     verticalAlignment = builder.verticalAlignment;
+    isStatic = builder.isStatic;
     RenderViewToExternalTexture renderView =
-        new RenderViewToExternalTexture(view.getContext(), view);
+        new RenderViewToExternalTexture(view.getContext(), view, builder.atlas);
     renderView.addOnViewSizeChangedListener(onViewSizeChangedListener);
     viewRenderableData = new ViewRenderableInternalData(renderView);
     viewRenderableData.retain();
@@ -131,6 +168,9 @@ public class ViewRenderable extends Renderable {
     viewSizer = other.viewSizer;
     horizontalAlignment = other.horizontalAlignment;
     verticalAlignment = other.verticalAlignment;
+    isOffsetUvInverted = other.isOffsetUvInverted;
+    isStatic = other.isStatic;
+    isStaticApplied = other.isStaticApplied;
     viewRenderableData = Preconditions.checkNotNull(other.viewRenderableData);
     viewRenderableData.retain();
     viewRenderableData.getRenderView().addOnViewSizeChangedListener(onViewSizeChangedListener);
@@ -234,6 +274,12 @@ public class ViewRenderable extends Renderable {
     ViewRenderableInternalData data = Preconditions.checkNotNull(viewRenderableData);
     RenderViewToExternalTexture renderViewToExternalTexture = data.getRenderView();
 
+    // Once the snapshot is in use the view is no longer attached or drawn.
+    if (isStatic && applyStaticMaterial(data)) {
+      super.prepareForDraw();
+      return;
+    }
+
     if (!renderViewToExternalTexture.isAttachedToWindow()
         || !renderViewToExternalTexture.isLaidOut()) {
       // Wait for the view to finish attachment.
@@ -255,13 +301,122 @@ public class ViewRenderable extends Renderable {
       isInitialized = true;
     }
 
-    if (renderer != null && renderer.isFrontFaceWindingInverted()) {
-      getMaterial().setFloat2("offsetUv", 1, 0);
+    // Only update the material parameter when the winding changes, not on every frame.
+    boolean isFrontFaceWindingInverted = renderer != null && renderer.isFrontFaceWindingInverted();
+    if (isFrontFaceWindingInverted != isOffsetUvInverted) {
+      getMaterial().setFloat2("offsetUv", isFrontFaceWindingInverted ? 1 : 0, 0);
+      isOffsetUvInverted = isFrontFaceWindingInverted;
+    }
+
+    if (isStatic && data.getStaticMaterial() == null) {
+      data.setStaticMaterial(makeStaticMaterial(data));
+    }
+
+    ViewRenderableAtlas atlas = renderViewToExternalTexture.getAtlas();
+    if (atlas != null) {
+      updateAtlasUvs(atlas, renderViewToExternalTexture.getAtlasRegion());
     }
 
     super.prepareForDraw();
   }
 
+  /** Maps the texture coordinates of the quad to the region of the atlas the view is drawn to. */
+  private void updateAtlasUvs(
+      ViewRenderableAtlas atlas, @Nullable ViewRenderableAtlas.Region region) {
+    if (region == null
+        || (region == appliedAtlasRegion && region.getUvVersion() == appliedAtlasUvVersion)) {
+      return;
+    }
+
+    float[] uvRect = new float[4];
+    atlas.getUvRect(region, uvRect);
+    setQuadUvs(uvRect[0], uvRect[1], uvRect[2], uvRect[3]);
+
+    appliedAtlasRegion = region;
+    appliedAtlasUvVersion = region.getUvVersion();
+  }
+
+  private void setQuadUvs(float left, float bottom, float right, float top) {
+    RenderableDefinition.Submesh submesh =
+        RenderableDefinition.Submesh.builder().setMaterial(getMaterial()).build();
+    updateFromDefinition(
+        RenderableDefinition.builder()
+            .setPositions(QUAD_POSITIONS)
+            .setNormals(QUAD_NORMALS)
+            .setUvs(new float[] {left, bottom, right, bottom, left, top, right, top})
+            .setIndices(QUAD_INDICES)
+            .setSubmeshes(Arrays.asList(submesh))
+            .build());
+    updateSuggestedCollisionShape();
+  }
+
+  /**
+   * Rasterizes the last drawn contents of the view and creates a material that samples it. The
+   * texture is kept by the shared data and released with it. The future completes with null if the
+   * snapshot could not be created.
+   */
+  @SuppressWarnings("AndroidApiChecker") // java.util.concurrent.CompletableFuture
+  private static CompletableFuture<Material> makeStaticMaterial(ViewRenderableInternalData data) {
+    RenderViewToExternalTexture renderView = data.getRenderView();
+    Context context = renderView.getContext();
+    Bitmap bitmap = renderView.drawToBitmap();
+    return Texture.builder()
+        .setSource(bitmap)
+        .build()
+        .thenCompose(
+            texture -> {
+              data.setStaticTexture(texture);
+              return MaterialFactory.makeTransparentWithTexture(context, texture);
+            })
+        .thenApply(
+            material -> {
+              material.setFloat(MaterialFactory.MATERIAL_ROUGHNESS, STATIC_ROUGHNESS);
+              material.setFloat(MaterialFactory.MATERIAL_REFLECTANCE, STATIC_REFLECTANCE);
+              return material;
+            })
+        .exceptionally(
+            throwable -> {
+              Log.e(TAG, "Unable to create a static snapshot of the view.", throwable);
+              return null;
+            });
+  }
+
+  /**
+   * Switches to the snapshot material once it is ready and releases the texture the view was drawn
+   * to, along with its SurfaceTexture.
+   *
+   * <p>The snapshot is shared, so every copy that is drawn switches in the same frame and no copy
+   * samples the released texture. Copies that are not drawn switch before they are drawn next.
+   *
+   * @return true if the renderable is drawn with the snapshot material
+   */
+  @SuppressWarnings("AndroidApiChecker") // java.util.concurrent.CompletableFuture
+  private boolean applyStaticMaterial(ViewRenderableInternalData data) {
+    if (isStaticApplied) {
+      return true;
+    }
+
+    CompletableFuture<Material> staticMaterialFuture = data.getStaticMaterial();
+    if (staticMaterialFuture == null || !staticMaterialFuture.isDone()) {
+      return false;
+    }
+
+    Material staticMaterial = staticMaterialFuture.getNow(null);
+    if (staticMaterial == null) {
+      // Keep drawing the view dynamically.
+      return false;
+    }
+
+    // The snapshot covers the whole texture, including when the view was drawn into an atlas.
+    setMaterial(staticMaterial.makeCopy());
+    setQuadUvs(0.0f, 0.0f, 1.0f, 1.0f);
+    appliedAtlasRegion = null;
+    isStaticApplied = true;
+
+    data.getRenderView().releaseSurface();
+    return true;
+  }
+
   @Override
   void attachToRenderer(Renderer renderer) {
     Preconditions.checkNotNull(viewRenderableData)
@@ -345,7 +500,10 @@ public class ViewRenderable extends Renderable {
   @Override
   protected void finalize() throws Throwable {
     try {
-      ThreadPools.getMainExecutor().execute(() -> dispose());
+      if (viewRenderableData != null) {
+        Log.w(TAG, "ViewRenderable was garbage collected without being released.");
+        ThreadPools.getMainExecutor().execute(() -> dispose());
+      }
     } catch (Exception e) {
       Log.e(TAG, "Error while Finalizing View Renderable.", e);
     } finally {
@@ -353,6 +511,15 @@ public class ViewRenderable extends Renderable {
     }
   }
 
+  /**
+   * Releases this renderable's reference to its view and the texture the view is rendered to. The
+   * view is released once every copy of the renderable has been released. The renderable must no
+   * longer be set on a node.
+   */
+  public void release() {
+    dispose();
+  }
+
   /** @hide */
   void dispose() {
     AndroidPreconditions.checkUiThread();
@@ -378,6 +545,8 @@ public class ViewRenderable extends Renderable {
     private ViewSizer viewSizer = new DpToMetersViewSizer(DEFAULT_DP_TO_METERS);
     private VerticalAlignment verticalAlignment = VerticalAlignment.BOTTOM;
     private HorizontalAlignment horizontalAlignment = HorizontalAlignment.CENTER;
+    @Nullable private ViewRenderableAtlas atlas;
+    private boolean isStatic = false;
 
     @SuppressWarnings("AndroidApiChecker")
     private OptionalInt resourceId = OptionalInt.empty();
@@ -429,6 +598,27 @@ public class ViewRenderable extends Renderable {
       return this;
     }
 
+    /**
+     * Draws the view into a region of a {@link ViewRenderableAtlas} shared with other views,
+     * instead of into a texture of its own. The view is rendered with its own copy of the material
+     * of the atlas, and can be at most half as wide as the atlas.
+     */
+    public Builder setAtlas(@Nullable ViewRenderableAtlas atlas) {
+      this.atlas = atlas;
+      return this;
+    }
+
+    /**
+     * Rasterizes the view once into a {@link Texture} after it has been drawn for the first time,
+     * instead of drawing it again whenever it changes. The texture and SurfaceTexture used to draw
+     * the view are released, so later changes to the view are not displayed. The snapshot is drawn
+     * on the front of the renderable only. The default is false.
+     */
+    public Builder setStatic(boolean isStatic) {
+      this.isStatic = isStatic;
+      return this;
+    }
+
     @Override
     @SuppressWarnings("AndroidApiChecker") // java.util.concurrent.CompletableFuture
     public CompletableFuture<ViewRenderable> build() {
@@ -438,12 +628,19 @@ public class ViewRenderable extends Renderable {
         // is a resource id and the registryId should also be null.
         registryId = view;
 
-        CompletableFuture<Void> setSourceFuture = Material.builder()
-                .setSource(
+        // Views in an atlas get their own copy of the material that samples the atlas texture, so
+        // that changing the material of one view doesn't affect the others. The atlas keeps the
+        // original.
+        CompletableFuture<Material> materialFuture =
+            atlas != null
+                ? atlas.getMaterial().thenApply(Material::makeInternalCopy)
+                : Material.builder()
+                    .setSource(
                         context,
                         RenderingResources.GetSceneformResource(
-                                context, RenderingResources.Resource.VIEW_RENDERABLE_MATERIAL))
-                .build()
+                            context, RenderingResources.Resource.VIEW_RENDERABLE_MATERIAL))
+                    .build();
+        CompletableFuture<Void> setSourceFuture = materialFuture
                 .thenAccept(
                         material -> {
 
@@ -0,0 +1,353 @@
+package com.google.ar.sceneform.rendering;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Picture;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.support.annotation.RequiresApi;
+import android.util.Log;
+import android.view.Surface;
+import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import com.google.ar.sceneform.utilities.Preconditions;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A single texture shared by many small {@link ViewRenderable}s.
+ *
+ * <p>Each view built with {@link ViewRenderable.Builder#setAtlas(ViewRenderableAtlas)} is drawn
+ * into its own region of the atlas instead of into its own {@link
+ * android.graphics.SurfaceTexture}, and samples that region through its texture coordinates. All
+ * views of an atlas share one {@link ExternalTexture}. Views that changed during a frame are copied
+ * into the atlas together, and only their regions of the texture are updated.
+ *
+ * <p>Each view still draws with its own copy of the atlas {@link Material} and is its own draw
+ * call. The atlas saves a texture, a SurfaceTexture and a Surface per view and batches the texture
+ * updates, it doesn't merge the draws of its views.
+ *
+ * <p>Every view is also drawn mirrored into the right half of the atlas, which the view material
+ * samples for back faces and front facing cameras. Only the left half of the width is available
+ * to views, so a view can be at most half as wide as the atlas.
+ *
+ * <p>The atlas grows when it runs out of space, up to a maximum size. Use an atlas for labels and
+ * other small views, large views are better served by their own texture.
+ *
+ * <pre>{@code
+ * atlas = new ViewRenderableAtlas(context);
+ * future = ViewRenderable.builder().setView(context, R.layout.label).setAtlas(atlas).build();
+ * }</pre>
+ */
+@RequiresApi(api = Build.VERSION_CODES.N)
+public class ViewRenderableAtlas {
+  private static final String TAG = ViewRenderableAtlas.class.getSimpleName();
+
+  private static final int DEFAULT_SIZE = 1024;
+  private static final int MAX_SIZE = 4096;
+  // Empty pixels around each region so that filtering does not bleed between views.
+  private static final int PADDING = 1;
+
+  /**
+   * Area of the atlas used by one view.
+   *
+   * <p>The view is drawn twice: once in the left half of the atlas and once at the horizontally
+   * mirrored position in the right half. The view material flips the horizontal texture
+   * coordinate for back faces and for front facing cameras, which then samples the copy instead of
+   * an unrelated part of the atlas.
+   */
+  static final class Region {
+    private final Rect bounds = new Rect();
+    private final Picture picture;
+    private int viewWidth;
+    private int viewHeight;
+    private boolean isDirty;
+    private boolean hasDrawn;
+    // Incremented whenever the texture coordinates of the region change.
+    private int uvVersion;
+
+    private Region(Picture picture) {
+      this.picture = picture;
+    }
+
+    boolean hasDrawn() {
+      return hasDrawn;
+    }
+
+    int getUvVersion() {
+      return uvVersion;
+    }
+  }
+
+  private final ExternalTexture externalTexture;
+  private final CompletableFuture<Material> materialFuture;
+  private final Handler handler = new Handler(Looper.getMainLooper());
+  private final Runnable flushRunnable = this::flush;
+
+  private final ArrayList<Region> regions = new ArrayList<>();
+  private final ArrayList<Region> dirtyRegions = new ArrayList<>();
+  private final ArrayList<Rect> freeRects = new ArrayList<>();
+  private final Rect dirtyRect = new Rect();
+  private final Rect mirroredRect = new Rect();
+
+  private final int width;
+  private int height;
+
+  // Shelf packing state: each shelf is a row of regions with the height of its tallest region.
+  private final ArrayList<Rect> shelves = new ArrayList<>();
+  private int nextShelfTop;
+
+  private boolean isFlushScheduled;
+
+  /** Creates an atlas with the default size. Must be called on the UI thread. */
+  public ViewRenderableAtlas(Context context) {
+    this(context, DEFAULT_SIZE, DEFAULT_SIZE);
+  }
+
+  /**
+   * Creates an atlas. The height grows when the atlas runs out of space. Must be called on the UI
+   * thread.
+   *
+   * @param width width of the atlas texture in pixels, half of which is available to views
+   * @param height initial height of the atlas texture in pixels
+   */
+  @SuppressWarnings("initialization") // Suppress @UnderInitialization warning.
+  public ViewRenderableAtlas(Context context, int width, int height) {
+    AndroidPreconditions.checkUiThread();
+    Preconditions.checkNotNull(context, "Parameter \"context\" was null.");
+    if (width <= 0 || height <= 0 || width > MAX_SIZE || height > MAX_SIZE) {
+      throw new IllegalArgumentException("Invalid atlas size: " + width + "x" + height);
+    }
+
+    this.width = width;
+    this.height = height;
+    externalTexture = new ExternalTexture();
+    externalTexture.getSurfaceTexture().setDefaultBufferSize(width, height);
+
+    materialFuture =
+        Material.builder()
+            .setSource(
+                context,
+                RenderingResources.GetSceneformResource(
+                    context, RenderingResources.Resource.VIEW_RENDERABLE_MATERIAL))
+            .build()
+            .thenApply(
+                material -> {
+                  material.setExternalTexture("viewTexture", externalTexture);
+                  return material;
+                });
+  }
+
+  ExternalTexture getExternalTexture() {
+    return externalTexture;
+  }
+
+  /**
+   * Material that samples the atlas texture. It is owned by the atlas and must not be changed, each
+   * view draws with its own copy.
+   */
+  CompletableFuture<Material> getMaterial() {
+    return materialFuture;
+  }
+
+  /**
+   * Makes sure that a region can hold a view of the given size.
+   *
+   * @param region the current region of the view, or null if it doesn't have one
+   * @return the region to use for the view, or null if the view doesn't fit in the atlas
+   */
+  @Nullable
+  Region resize(@Nullable Region region, Picture picture, int viewWidth, int viewHeight) {
+    if (region != null
+        && viewWidth + PADDING * 2 <= region.bounds.width()
+        && viewHeight + PADDING * 2 <= region.bounds.height()) {
+      if (region.viewWidth != viewWidth || region.viewHeight != viewHeight) {
+        region.viewWidth = viewWidth;
+        region.viewHeight = viewHeight;
+        region.uvVersion++;
+      }
+      return region;
+    }
+
+    if (region != null) {
+      free(region);
+    }
+
+    Rect bounds = allocate(viewWidth + PADDING * 2, viewHeight + PADDING * 2);
+    if (bounds == null) {
+      Log.e(TAG, "View of size " + viewWidth + "x" + viewHeight + " does not fit in the atlas.");
+      return null;
+    }
+
+    Region newRegion = new Region(picture);
+    newRegion.bounds.set(bounds);
+    newRegion.viewWidth = viewWidth;
+    newRegion.viewHeight = viewHeight;
+    if (region != null) {
+      newRegion.uvVersion = region.uvVersion + 1;
+    }
+    regions.add(newRegion);
+    return newRegion;
+  }
+
+  /** Returns the area of the atlas used by a region so that it can be allocated again. */
+  void free(Region region) {
+    if (regions.remove(region)) {
+      dirtyRegions.remove(region);
+      freeRects.add(new Rect(region.bounds));
+    }
+  }
+
+  /** Schedules the picture of a region to be copied into the atlas. */
+  void invalidate(Region region) {
+    if (!region.isDirty) {
+      region.isDirty = true;
+      dirtyRegions.add(region);
+    }
+
+    // All views are drawn during the same traversal, so they are copied into the atlas together
+    // once it has finished.
+    if (!isFlushScheduled) {
+      isFlushScheduled = true;
+      handler.post(flushRunnable);
+    }
+  }
+
+  /**
+   * Gets the texture coordinates of a region as (left, bottom, right, top).
+   *
+   * @param region the region to get the texture coordinates of
+   * @param uvRect array that receives the texture coordinates
+   */
+  void getUvRect(Region region, float[] uvRect) {
+    Rect bounds = region.bounds;
+    int left = bounds.left + PADDING;
+    int top = bounds.top + PADDING;
+    uvRect[0] = (float) left / width;
+    uvRect[1] = 1.0f - (float) (top + region.viewHeight) / height;
+    uvRect[2] = (float) (left + region.viewWidth) / width;
+    uvRect[3] = 1.0f - (float) top / height;
+  }
+
+  private void flush() {
+    isFlushScheduled = false;
+    if (dirtyRegions.isEmpty()) {
+      return;
+    }
+
+    Surface surface = externalTexture.getSurface();
+    if (!surface.isValid()) {
+      return;
+    }
+
+    dirtyRect.setEmpty();
+    for (int i = 0; i < dirtyRegions.size(); i++) {
+      Region region = dirtyRegions.get(i);
+      dirtyRect.union(region.bounds);
+      dirtyRect.union(getMirroredBounds(region));
+    }
+
+    // The surface may expand the dirty rect, for example when the previous buffer can't be copied
+    // back. Every region inside the returned rect needs to be redrawn.
+    Canvas canvas = surface.lockCanvas(dirtyRect);
+    for (int i = 0; i < regions.size(); i++) {
+      Region region = regions.get(i);
+      if (region.isDirty
+          || Rect.intersects(dirtyRect, region.bounds)
+          || Rect.intersects(dirtyRect, getMirroredBounds(region))) {
+        drawRegion(canvas, region, region.bounds);
+        drawRegion(canvas, region, getMirroredBounds(region));
+        region.isDirty = false;
+        region.hasDrawn = true;
+      }
+    }
+    surface.unlockCanvasAndPost(canvas);
+
+    dirtyRegions.clear();
+  }
+
+  private static void drawRegion(Canvas canvas, Region region, Rect bounds) {
+    canvas.save();
+    canvas.clipRect(bounds);
+    canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
+    canvas.translate(bounds.left + PADDING, bounds.top + PADDING);
+    region.picture.draw(canvas);
+    canvas.restore();
+  }
+
+  private Rect getMirroredBounds(Region region) {
+    Rect bounds = region.bounds;
+    mirroredRect.set(width - bounds.right, bounds.top, width - bounds.left, bounds.bottom);
+    return mirroredRect;
+  }
+
+  @Nullable
+  private Rect allocate(int regionWidth, int regionHeight) {
+    // Reuse the smallest free area the region fits in.
+    Rect bestFreeRect = null;
+    for (int i = 0; i < freeRects.size(); i++) {
+      Rect freeRect = freeRects.get(i);
+      if (freeRect.width() >= regionWidth
+          && freeRect.height() >= regionHeight
+          && (bestFreeRect == null
+              || freeRect.width() * freeRect.height()
+                  < bestFreeRect.width() * bestFreeRect.height())) {
+        bestFreeRect = freeRect;
+      }
+    }
+    if (bestFreeRect != null) {
+      freeRects.remove(bestFreeRect);
+      return bestFreeRect;
+    }
+
+    // Views are only packed into the left half, the right half holds the mirrored copies.
+    int packingWidth = width / 2;
+    if (regionWidth > packingWidth) {
+      return null;
+    }
+
+    // Add the region to the end of the first shelf it fits on.
+    for (int i = 0; i < shelves.size(); i++) {
+      Rect shelf = shelves.get(i);
+      if (regionHeight <= shelf.height() && shelf.right + regionWidth <= packingWidth) {
+        Rect bounds =
+            new Rect(shelf.right, shelf.top, shelf.right + regionWidth, shelf.top + regionHeight);
+        shelf.right += regionWidth;
+        return bounds;
+      }
+    }
+
+    // Start a new shelf, growing the atlas if it is full.
+    while (nextShelfTop + regionHeight > height) {
+      if (!grow()) {
+        return null;
+      }
+    }
+
+    Rect shelf = new Rect(0, nextShelfTop, regionWidth, nextShelfTop + regionHeight);
+    shelves.add(shelf);
+    nextShelfTop += regionHeight;
+    return new Rect(shelf);
+  }
+
+  private boolean grow() {
+    if (height >= MAX_SIZE) {
+      return false;
+    }
+
+    // Existing regions keep their pixel position, but their texture coordinates change and the
+    // contents of the resized buffer are undefined.
+    height = Math.min(height * 2, MAX_SIZE);
+    externalTexture.getSurfaceTexture().setDefaultBufferSize(width, height);
+    for (int i = 0; i < regions.size(); i++) {
+      Region region = regions.get(i);
+      region.uvVersion++;
+      invalidate(region);
+    }
+    return true;
+  }
+}
@@ -1,8 +1,10 @@
 package com.google.ar.sceneform.rendering;
 
 
+import android.support.annotation.Nullable;
 import com.google.ar.sceneform.resources.SharedReference;
 import com.google.ar.sceneform.utilities.AndroidPreconditions;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents shared data used by {@link ViewRenderable}s for rendering. The data will be released
@@ -11,6 +13,10 @@ import com.google.ar.sceneform.utilities.AndroidPreconditions;
 
 class ViewRenderableInternalData extends SharedReference {
   private final RenderViewToExternalTexture renderView;
+  // Snapshot of the view and the material sampling it, shared by all copies of a static
+  // ViewRenderable.
+  @Nullable private Texture staticTexture;
+  @Nullable private CompletableFuture<Material> staticMaterial;
 
   ViewRenderableInternalData(RenderViewToExternalTexture renderView) {
     this.renderView = renderView;
@@ -20,10 +26,27 @@ class ViewRenderableInternalData extends SharedReference {
     return renderView;
   }
 
+  @Nullable
+  CompletableFuture<Material> getStaticMaterial() {
+    return staticMaterial;
+  }
+
+  void setStaticMaterial(CompletableFuture<Material> staticMaterial) {
+    this.staticMaterial = staticMaterial;
+  }
+
+  void setStaticTexture(Texture staticTexture) {
+    this.staticTexture = staticTexture;
+  }
+
   @Override
   protected void onDispose() {
     AndroidPreconditions.checkUiThread();
 
     renderView.releaseResources();
+    if (staticTexture != null) {
+      staticTexture.release();
+      staticTexture = null;
+    }
   }
 }
@@ -3,20 +3,45 @@ package com.google.ar.sceneform.resources;
 /**
  * Used for managing memory of shared object using reference counting.
  *
+ * <p>Each owner calls {@link #retain()} once and {@link #release()} once. The object is disposed as
+ * soon as the last owner releases it, and it can't be retained again afterwards.
+ *
  * @hide
  */
 public abstract class SharedReference {
   private int referenceCount = 0;
+  private boolean isDisposed = false;
 
   public void retain() {
+    if (isDisposed) {
+      throw new IllegalStateException(
+          "Cannot retain a disposed " + getClass().getSimpleName() + ".");
+    }
+
     referenceCount++;
   }
 
   public void release() {
-    referenceCount--;
+    if (isDisposed) {
+      return;
+    }
+
+    if (referenceCount > 0) {
+      referenceCount--;
+    }
     dispose();
   }
 
+  /** Returns the number of owners that have not released this object. */
+  public int getReferenceCount() {
+    return referenceCount;
+  }
+
+  /** Returns true once the last owner has released this object. */
+  public boolean isDisposed() {
+    return isDisposed;
+  }
+
   protected abstract void onDispose();
 
   private void dispose() {
@@ -24,6 +49,7 @@ public abstract class SharedReference {
       return;
     }
 
+    isDisposed = true;
     onDispose();
   }
 }